@@ -0,0 +1,98 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.GraphGenerator;
+import com.CodeSmell.parser.CPGClass;
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.CodePropertyGraph.Relation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of building the graphViz input and parsing its output, without running graphViz, and of the layered
+ * layout computed in process instead. The class sizes
+ * normally measured by the WebView are answered by a listener giving every class the same size (and ignoring
+ * rendered paths), and the output lines are those dot -Tplain would print for a grid layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LayoutManagerBenchmark {
+
+    @Param({"100", "300", "1000"})
+    public int classes;
+
+    private ArrayList<UMLClass> umlClasses;
+    private ArrayList<ClassRelation> relations;
+    private List<String> dotLines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RenderObject.addRenderEventListener(LayoutManagerBenchmark::answerRender);
+        CodePropertyGraph cpg = new GraphGenerator(1).classes(classes).generateProcessed();
+        HashMap<CPGClass, UMLClass> classMap = new HashMap<>();
+        umlClasses = new ArrayList<>();
+        for (CPGClass c : cpg.getClasses()) {
+            UMLClass umlClass = new UMLClass(c.name, c.classFullName, c.getSmells());
+            umlClass.render();
+            classMap.put(c, umlClass);
+            umlClasses.add(umlClass);
+        }
+        relations = new ArrayList<>();
+        for (Relation r : cpg.getRelations()) {
+            relations.add(new ClassRelation(classMap.get(r.source), classMap.get(r.destination),
+                    r.type, r.multiplicity));
+        }
+        dotLines = new ArrayList<>();
+        dotLines.add("graph 1 1000 1000");
+        for (int i = 0; i < umlClasses.size(); i++) {
+            dotLines.add(String.format("node \"%s\" %d.5 %d.5 2 1 %s solid rectangle black lightgrey",
+                    umlClasses.get(i).fullName, (i % 50) * 300, (i / 50) * 200, umlClasses.get(i).name));
+        }
+        for (ClassRelation cr : relations) {
+            dotLines.add(String.format("edge \"%s\" \"%s\" 4 10.5 20 30 40.25 50 60 70 80 solid black",
+                    cr.source.fullName, cr.target.fullName));
+        }
+        dotLines.add("stop");
+    }
+
+    private static void answerRender(RenderEvent re) {
+        if (re.type == RenderEvent.Type.RENDER && re.source instanceof UMLClass) {
+            re.setResponse(new Pair<>(0, new Pair<>(200.0, 120.0)));
+        } else if (re.type == RenderEvent.Type.RENDER && re.source instanceof ClassRelation) {
+            re.setResponse(0);
+        }
+    }
+
+    @Benchmark
+    public String compileGraphVizInvokeCommand() {
+        return LayoutManager.compileGraphVizInvokeCommand(umlClasses, relations);
+    }
+
+    @Benchmark
+    public Layout parseDotLines() throws IOException {
+        Layout layout = new Layout();
+        LayoutManager.DotGraph graph = new LayoutManager.DotGraph(umlClasses, relations);
+        for (String line : dotLines) {
+            LayoutManager.parseDotLine(graph, line, layout);
+        }
+        return layout;
+    }
+
+    @Benchmark
+    public Layout layeredLayout() throws IOException {
+        return LayoutManager.LAYERED.layout(umlClasses, relations);
+    }
+}
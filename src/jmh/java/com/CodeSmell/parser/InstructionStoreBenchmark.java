@@ -0,0 +1,79 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CPGClass.Method.Instruction;
+import com.CodeSmell.stat.StatTracker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of keeping instructions on the heap, in a segment file or off-heap: the throughput of scanning all
+ * instructions and building the statistics, and the pause of a full GC while the graph is loaded. Run with
+ * <code>-Djmh.args="InstructionStoreBenchmark -prof gc"</code> to also compare the allocation rate and GC time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class InstructionStoreBenchmark {
+
+    // well below the number of methods, so that most instructions are not on the heap
+    private static final int CACHED_METHODS = 256;
+
+    @Param({"300", "1000"})
+    public int classes;
+
+    @Param({"heap", "file", "off-heap"})
+    public String storage;
+
+    private CodePropertyGraph cpg;
+    private InstructionStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (storage.equals("file")) {
+            store = InstructionStore.createTemporary(CACHED_METHODS);
+        } else if (storage.equals("off-heap")) {
+            store = InstructionStore.createOffHeap(CACHED_METHODS);
+        }
+        cpg = new GraphGenerator(1).classes(classes).instructions(40).generate();
+        if (store != null) {
+            store.spill(cpg);
+        }
+        GraphGenerator.process(cpg);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Benchmark
+    public long scanInstructions() {
+        long length = 0;
+        for (CPGClass cpgClass : cpg.getClasses()) {
+            for (Method method : cpgClass.getMethods()) {
+                for (Instruction instruction : method.getInstructions()) {
+                    length += instruction.code.length();
+                }
+            }
+        }
+        return length;
+    }
+
+    @Benchmark
+    public StatTracker statTracker() {
+        return new StatTracker(cpg);
+    }
+
+    @Benchmark
+    public void fullGcPause() {
+        System.gc();
+    }
+}
@@ -0,0 +1,52 @@
+package com.CodeSmell.parser;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the post-processing done by the Parser once the classes are read from joern_query.py.
+ * Each step mutates the graph, so a fresh graph is built before each invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParserBenchmark {
+
+    @Param({"100", "300", "1000"})
+    public int classes;
+
+    private CodePropertyGraph raw;
+    private CodePropertyGraph resolved;
+    private CodePropertyGraph related;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        raw = new GraphGenerator(1).classes(classes).generate();
+        resolved = new GraphGenerator(1).classes(classes).generate();
+        Parser.updateCPGClassProperties(resolved);
+        related = new GraphGenerator(1).classes(classes).generateProcessed();
+        related.clearPackages();
+    }
+
+    @Benchmark
+    public CodePropertyGraph updateCPGClassProperties() {
+        Parser.updateCPGClassProperties(raw);
+        return raw;
+    }
+
+    @Benchmark
+    public CodePropertyGraph relationshipManager() {
+        new RelationshipManager(resolved);
+        return resolved;
+    }
+
+    @Benchmark
+    public CodePropertyGraph packageManager() {
+        new PackageManager(related, GraphGenerator.fileHashes(related));
+        return related;
+    }
+}
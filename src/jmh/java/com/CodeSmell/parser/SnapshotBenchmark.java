@@ -0,0 +1,47 @@
+package com.CodeSmell.parser;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of writing and reading the serialized CodePropertyGraph (the backup file and cached snapshots), at
+ * the default stack size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SnapshotBenchmark {
+
+    @Param({"100", "300", "1000"})
+    public int classes;
+
+    private CodePropertyGraph cpg;
+    private byte[] snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cpg = new GraphGenerator(1).classes(classes).generateProcessed();
+        snapshot = write();
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(cpg);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public CodePropertyGraph read() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(snapshot))) {
+            return (CodePropertyGraph) ois.readObject();
+        }
+    }
+}
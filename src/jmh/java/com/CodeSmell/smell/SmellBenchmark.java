@@ -0,0 +1,66 @@
+package com.CodeSmell.smell;
+
+import com.CodeSmell.parser.GraphGenerator;
+import com.CodeSmell.parser.CodePropertyGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of each smell detector, from its construction until every detection has been made (some smells detect
+ * when constructed, others only as detectNext() is called), on a graph whose statistics have already been built.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SmellBenchmark {
+
+    @Param({"100", "300", "1000"})
+    public int classes;
+
+    @Param({"FeatureEnvy", "GodClass", "InappropriateIntimacy", "ISPViolation", "LazyClass",
+            "MisplacedClass", "OrphanVariable", "RefusedBequest", "ShotgunSurgery"})
+    public String smell;
+
+    private CodePropertyGraph cpg;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cpg = new GraphGenerator(1).classes(classes).generateProcessed();
+        Common.initStatTracker(cpg);
+    }
+
+    @Benchmark
+    public LinkedList<Smell.CodeFragment> detect() {
+        return construct().drainDetections();
+    }
+
+    private Smell construct() {
+        switch (smell) {
+            case "FeatureEnvy":
+                return new FeatureEnvy(cpg);
+            case "GodClass":
+                return new GodClass(cpg);
+            case "InappropriateIntimacy":
+                return new InappropriateIntimacy(cpg);
+            case "ISPViolation":
+                return new ISPViolation(cpg);
+            case "LazyClass":
+                return new LazyClass(cpg);
+            case "MisplacedClass":
+                return new MisplacedClass(cpg);
+            case "OrphanVariable":
+                return new OrphanVariable(cpg);
+            case "RefusedBequest":
+                return new RefusedBequest(cpg);
+            case "ShotgunSurgery":
+                return new ShotgunSurgery(cpg);
+            default:
+                throw new IllegalArgumentException("No smell named " + smell);
+        }
+    }
+}
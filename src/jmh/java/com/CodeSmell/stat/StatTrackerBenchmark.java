@@ -0,0 +1,34 @@
+package com.CodeSmell.stat;
+
+import com.CodeSmell.parser.GraphGenerator;
+import com.CodeSmell.parser.CodePropertyGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of building the statistics all smells are detected from.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StatTrackerBenchmark {
+
+    @Param({"100", "300", "1000"})
+    public int classes;
+
+    private CodePropertyGraph cpg;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cpg = new GraphGenerator(1).classes(classes).generateProcessed();
+    }
+
+    @Benchmark
+    public StatTracker statTracker() {
+        return new StatTracker(cpg);
+    }
+}
@@ -0,0 +1,386 @@
+package com.CodeSmell;
+
+import com.CodeSmell.log.Log;
+import com.CodeSmell.log.Metrics;
+import com.CodeSmell.parser.CPGClass;
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.InstructionStore;
+import com.CodeSmell.parser.JoernServer;
+import com.CodeSmell.parser.Parser;
+import com.CodeSmell.parser.SnapshotCache;
+import com.CodeSmell.parser.SourceDiff;
+import com.CodeSmell.smell.Common;
+import com.CodeSmell.smell.Smell;
+import com.CodeSmell.stat.Footprint;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.CodeSmell.smell.Common.buildSmellStream;
+import static com.CodeSmell.smell.Common.initStatTracker;
+
+/**
+ * Headless entry point, for running CodeSmell on a build server.
+ *
+ * <p>
+ * Analyses a source directory (through joern, reusing the snapshot cache like {@link Launcher}) or reads a
+ * snapshot file, runs the stats and smell detection and writes a JSON report. No JavaFX, WebView or AWT class
+ * is loaded and graphviz is not needed.
+ * </p>
+ *
+ * <pre>
+ * BatchRunner [--output=report.json] [--fail-on-smells] [--no-cache] [--footprint]
+ *             [--bounded-memory[=cached methods] | --off-heap[=cached methods]] [--quiet] [--debug]
+ *             (directory | snapshot)
+ * </pre>
+ */
+public class BatchRunner {
+
+    /**
+     * The analysis completed (and, with --fail-on-smells, no smell was detected)
+     */
+    public static final int EXIT_OK = 0;
+
+    /**
+     * The analysis completed and --fail-on-smells was given but smells were detected
+     */
+    public static final int EXIT_SMELLS_FOUND = 1;
+
+    /**
+     * The arguments were invalid
+     */
+    public static final int EXIT_USAGE = 2;
+
+    /**
+     * The project could not be analysed or the report could not be written
+     */
+    public static final int EXIT_ERROR = 3;
+
+    private static final String USAGE = "usage: BatchRunner [--output=<report.json>] [--fail-on-smells] "
+            + "[--no-cache] [--footprint] [--bounded-memory[=<cached methods>] | --off-heap[=<cached methods>]] "
+            + "[--quiet] [--debug] "
+            + "<source directory | snapshot file>";
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Run the analysis described by args.
+     *
+     * @param args - The command line arguments
+     * @return The exit code
+     */
+    public static int run(String[] args) {
+        File input = null;
+        File output = null;
+        boolean failOnSmells = false;
+        boolean useCache = true;
+        boolean footprint = false;
+        // where instructions are kept: on the heap (0 cached methods), in a file or off-heap
+        int cachedMethods = 0;
+        boolean offHeap = false;
+        for (String arg : args) {
+            if (arg.startsWith("--output=")) {
+                output = new File(arg.substring("--output=".length()));
+            } else if (arg.equals("--fail-on-smells")) {
+                failOnSmells = true;
+            } else if (arg.equals("--no-cache")) {
+                useCache = false;
+            } else if (arg.equals("--footprint")) {
+                footprint = true;
+            } else if (arg.equals("--bounded-memory") || arg.equals("--off-heap")) {
+                cachedMethods = InstructionStore.DEFAULT_CACHED_METHODS;
+                offHeap = arg.equals("--off-heap");
+            } else if (arg.startsWith("--bounded-memory=") || arg.startsWith("--off-heap=")) {
+                try {
+                    cachedMethods = Integer.parseInt(arg.substring(arg.indexOf('=') + 1));
+                } catch (NumberFormatException e) {
+                    cachedMethods = 0;
+                }
+                if (cachedMethods <= 0) {
+                    System.err.println(USAGE);
+                    return EXIT_USAGE;
+                }
+                offHeap = arg.startsWith("--off-heap=");
+            } else if (arg.equals("--quiet")) {
+                Log.setLevel(Log.Level.WARN);
+            } else if (arg.equals("--debug")) {
+                Log.setDebug(true);
+            } else if (arg.startsWith("--") || input != null) {
+                System.err.println(USAGE);
+                return EXIT_USAGE;
+            } else {
+                input = new File(arg);
+            }
+        }
+        if (input == null || !input.exists()) {
+            System.err.println((input == null) ? USAGE : "No such file or directory: " + input);
+            return EXIT_USAGE;
+        }
+        if (output == null) {
+            // the report is written to standard output, keep the log out of it
+            Log.setOutput(System.err, System.err);
+        }
+        if (cachedMethods == 0) {
+            return run(input, output, failOnSmells, useCache, footprint);
+        }
+        try (InstructionStore store = offHeap ? InstructionStore.createOffHeap(cachedMethods)
+                : InstructionStore.createTemporary(cachedMethods)) {
+            Parser.setInstructionStore(store);
+            int exitCode = run(input, output, failOnSmells, useCache, footprint);
+            Log.info("Instruction store: %d bytes, %.1f%% of the reads cached",
+                    store.segmentBytes(), 100 * store.hitRatio());
+            return exitCode;
+        } catch (IOException e) {
+            Log.error(e, "Could not create the instruction store");
+            Log.flush();
+            return EXIT_ERROR;
+        } finally {
+            Parser.setInstructionStore(null);
+        }
+    }
+
+    /**
+     * Reads the CodePropertyGraph to analyse
+     */
+    interface Ingest {
+        CodePropertyGraph read() throws IOException;
+    }
+
+    private static int run(File input, File output, boolean failOnSmells, boolean useCache, boolean footprint) {
+        return run(input, () -> input.isDirectory() ? analyse(input, useCache) : readSnapshot(input),
+                output, failOnSmells, footprint);
+    }
+
+    /**
+     * Run the analysis of the CodePropertyGraph read by ingest and write the report.
+     *
+     * @param input - The directory or snapshot file the CodePropertyGraph is read from
+     * @return The exit code
+     */
+    static int run(File input, Ingest ingest, File output, boolean failOnSmells, boolean footprint) {
+        Report report = new Report(input);
+        CodePropertyGraph cpg;
+        long start = System.nanoTime();
+        try {
+            cpg = ingest.read();
+        } catch (IOException | RuntimeException e) {
+            Log.error(e, "Could not analyse %s", input);
+            Log.flush();
+            return EXIT_ERROR;
+        }
+        // graphs read from the snapshot cache are spilled here
+        Parser.spillInstructions(cpg);
+        report.durationsMillis.put("ingest", elapsedMillis(start));
+        Parser.countGraph(cpg);
+
+        Smell[] smells;
+        try {
+            start = System.nanoTime();
+            initStatTracker(cpg);
+            report.durationsMillis.put("stats", elapsedMillis(start));
+
+            start = System.nanoTime();
+            smells = buildSmellStream(cpg).toArray(Smell[]::new);
+            report.durationsMillis.put("smells", elapsedMillis(start));
+        } catch (RuntimeException e) {
+            Log.error(e, "Smell detection failed");
+            Log.flush();
+            return EXIT_ERROR;
+        }
+        report.add(cpg, smells);
+        if (footprint) {
+            Footprint estimate = new Footprint(cpg, Common.stats);
+            Log.info("Estimated heap footprint%n%s", estimate);
+            report.footprint = new FootprintReport(estimate);
+        }
+
+        try {
+            writeReport(report, output);
+        } catch (IOException e) {
+            Log.error(e, "Could not write the report to %s", output);
+            Log.flush();
+            return EXIT_ERROR;
+        }
+        Log.info("%d smells detected in %d classes", report.totalDetections, report.classes);
+        Metrics.logSummary();
+        Log.flush();
+        return (failOnSmells && report.totalDetections > 0) ? EXIT_SMELLS_FOUND : EXIT_OK;
+    }
+
+    /**
+     * Build the CodePropertyGraph of a source directory, only querying joern for the files that changed since
+     * the most recent cached snapshot of the directory (if any).
+     */
+    private static CodePropertyGraph analyse(File directory, boolean useCache) throws IOException {
+        SnapshotCache cache = SnapshotCache.getDefault();
+        Map<String, String> hashes = SourceDiff.scan(directory);
+        String key = SnapshotCache.key(directory, hashes);
+        CodePropertyGraph previous = null;
+        if (useCache) {
+            previous = cache.load(key);
+            if (previous == null) {
+                previous = cache.loadLatest(directory);
+            }
+        }
+        SourceDiff diff = (previous == null) ? null : SourceDiff.compute(previous, directory, hashes);
+        JoernServer server = new JoernServer();
+        try {
+            CodePropertyGraph cpg;
+            if (diff == null) {
+                server.start(directory);
+                cpg = Parser.initializeCPG(server.getStream(), false, hashes);
+            } else if (diff.isEmpty()) {
+                return previous;
+            } else {
+                InputStream stream = null;
+                if (!diff.filesToQuery().isEmpty()) {
+                    Log.info("Re-analyzing %d changed files", diff.filesToQuery().size());
+                    server.start(directory, diff.filesToQuery());
+                    stream = server.getStream();
+                }
+                cpg = Parser.updateCPG(previous, stream, diff);
+            }
+            if (useCache) {
+                cache.put(key, directory, Parser.CPG_BACKUP_JSON);
+            }
+            return cpg;
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void writeReport(Report report, File output) throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        if (output == null) {
+            // standard output is flushed but not closed
+            Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            gson.toJson(report, writer);
+            writer.write(System.lineSeparator());
+            writer.flush();
+        } else {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)) {
+                gson.toJson(report, writer);
+                writer.write(System.lineSeparator());
+            }
+        }
+    }
+
+    private static CodePropertyGraph readSnapshot(File snapshot) throws IOException {
+        Log.info("Reading snapshot %s", snapshot);
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+            return (CodePropertyGraph) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a CodeSmell snapshot: " + snapshot, e);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * The report written as JSON, field names are part of the report format.
+     */
+    private static class Report {
+        final String tool = SnapshotCache.TOOL_VERSION;
+        final String source;
+        int classes;
+        int relations;
+        int totalDetections;
+        final Map<String, Long> durationsMillis = new LinkedHashMap<>();
+        final List<SmellReport> smells = new ArrayList<>();
+        FootprintReport footprint;
+
+        Report(File source) {
+            this.source = source.getAbsolutePath();
+        }
+
+        void add(CodePropertyGraph cpg, Smell[] detectedSmells) {
+            this.classes = cpg.getClasses().size();
+            this.relations = cpg.getRelations().size();
+            for (Smell smell : detectedSmells) {
+                SmellReport smellReport = new SmellReport(smell);
+                totalDetections += smellReport.detections.size();
+                smells.add(smellReport);
+            }
+        }
+    }
+
+    private static class FootprintReport {
+        final long totalBytes;
+        final Map<String, Long> componentBytes;
+        final Map<String, Long> packageBytes;
+        final long sharedStringBytes;
+
+        FootprintReport(Footprint footprint) {
+            this.totalBytes = footprint.total();
+            this.sharedStringBytes = footprint.sharedStringBytes();
+            this.componentBytes = footprint.byComponent;
+            this.packageBytes = footprint.byPackage;
+        }
+    }
+
+    private static class SmellReport {
+        final String name;
+        final String description;
+        final List<DetectionReport> detections = new ArrayList<>();
+
+        SmellReport(Smell smell) {
+            this.name = smell.name;
+            this.description = smell.description();
+            // (smells such as ISPViolation only detect when detectNext() is called)
+            for (Smell.CodeFragment fragment : smell.drainDetections()) {
+                detections.add(new DetectionReport(fragment));
+            }
+        }
+    }
+
+    private static class DetectionReport {
+        final String description;
+        final List<String> classes = new ArrayList<>();
+        final List<String> methods = new ArrayList<>();
+        final List<String> attributes = new ArrayList<>();
+        final List<String> files = new ArrayList<>();
+
+        DetectionReport(Smell.CodeFragment fragment) {
+            this.description = fragment.description;
+            if (fragment.classes != null) {
+                for (CPGClass c : fragment.classes) {
+                    classes.add(c.classFullName);
+                    addFile(c);
+                }
+            }
+            if (fragment.methods != null) {
+                for (CPGClass.Method m : fragment.methods) {
+                    methods.add(qualifiedName(m.getParent(), m.name));
+                    addFile(m.getParent());
+                }
+            }
+            if (fragment.attributes != null) {
+                for (CPGClass.Attribute a : fragment.attributes) {
+                    attributes.add(qualifiedName(a.getParent(), a.name));
+                    addFile(a.getParent());
+                }
+            }
+        }
+
+        private static String qualifiedName(CPGClass parent, String name) {
+            return (parent == null) ? name : parent.classFullName + "." + name;
+        }
+
+        private void addFile(CPGClass c) {
+            if (c != null && c.filePath != null && !files.contains(c.filePath)) {
+                files.add(c.filePath);
+            }
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.CodeSmell;
 
+import com.CodeSmell.log.Log;
+import com.CodeSmell.parser.CodePropertyGraph;
 import com.CodeSmell.parser.JoernServer;
 import com.CodeSmell.parser.Parser;
+import com.CodeSmell.parser.SnapshotCache;
+import com.CodeSmell.parser.SourceDiff;
 
 import javax.swing.*;
 import java.awt.event.WindowAdapter;
@@ -10,6 +14,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.FileNotFoundException;
 import java.io.FileInputStream;
+import java.io.IOException;
 import javax.swing.*;
 import java.awt.event.*;
 import java.awt.*;
@@ -24,14 +29,31 @@ public class Launcher {
         for (String arg : args) {
             if (arg.equals("--skip-joern=true")) {
                 skipJoern = true;
+            } else if (arg.equals("--debug")) {
+                Log.setDebug(true);
+            } else if (arg.equals("--watch")) {
+                MainApp.watch = true;
             }
         }
         if (!skipJoern) {
             JoernServer server = new JoernServer();
             File directory = Launcher.chooseDirectory();
             if (directory!=null) {
-                server.start(directory);
-                MainApp.cpgStream = server.getStream();
+                // If a snapshot of this directory is cached, only re-analyze the files that changed since
+                SourceDiff diff = readSourceDiff(directory);
+                if (diff == null) {
+                    server.start(directory);
+                    MainApp.cpgStream = server.getStream();
+                } else if (!diff.filesToQuery().isEmpty()) {
+                    Log.info("Re-analyzing %d changed files", diff.filesToQuery().size());
+                    server.start(directory, diff.filesToQuery());
+                    MainApp.cpgStream = server.getStream();
+                } else {
+                    MainApp.cpgStream = null;
+                }
+                MainApp.sourceDiff = diff;
+                MainApp.sourceDirectory = directory;
+                MainApp.joernServer = server;
                 MainApp.skipJoern = false;
                 MainApp.main(args);
             }
@@ -44,6 +66,37 @@ public class Launcher {
         }
     }
 
+    /**
+     * Look up the snapshot cache for the source tree within directory. A snapshot of the exact same tree means
+     * nothing needs to be analysed, otherwise the most recent snapshot of the directory is compared against
+     * the source files.
+     *
+     * @return The changed files, or null if there is no usable snapshot for directory
+     */
+    private static SourceDiff readSourceDiff(File directory) {
+        SnapshotCache cache = SnapshotCache.getDefault();
+        try {
+            Map<String, String> hashes = SourceDiff.scan(directory);
+            MainApp.sourceHashes = hashes;
+            MainApp.snapshotKey = SnapshotCache.key(directory, hashes);
+            CodePropertyGraph previous = cache.load(MainApp.snapshotKey);
+            if (previous == null) {
+                previous = cache.loadLatest(directory);
+            }
+            if (previous == null) {
+                return null;
+            }
+            SourceDiff diff = SourceDiff.compute(previous, directory, hashes);
+            if (diff != null) {
+                MainApp.previousCPG = previous;
+            }
+            return diff;
+        } catch (IOException e) {
+            Log.warn("Snapshot cache could not be used for %s: %s", directory, e);
+            return null;
+        }
+    }
+
     public static File chooseDirectory()
     {
 
@@ -1,22 +1,37 @@
 package com.CodeSmell;
 
+import com.CodeSmell.log.Log;
+import com.CodeSmell.log.Metrics;
 import com.CodeSmell.model.ClassRelation;
 import com.CodeSmell.model.RenderObject;
 import com.CodeSmell.model.UMLClass;
 import com.CodeSmell.parser.CPGClass;
 import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.JoernServer;
 import com.CodeSmell.parser.Parser;
-import com.CodeSmell.control.LayoutManager;
+import com.CodeSmell.parser.SnapshotCache;
+import com.CodeSmell.parser.SourceDiff;
+import com.CodeSmell.control.AnalysisPipeline;
+import com.CodeSmell.control.DiagramManager;
+import com.CodeSmell.control.SourceWatcher;
+import com.CodeSmell.view.BoxSizeEstimator;
 import com.CodeSmell.view.WebBridge;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.ListChangeListener;
-import javafx.concurrent.Worker;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
 import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import javafx.stage.Screen;
@@ -34,10 +49,15 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 
 public class MainApp extends Application {
@@ -45,12 +65,9 @@ public class MainApp extends Application {
     public static InputStream cpgStream;
 
     public void printSmellDetections(Smell smell) {
-        System.out.println("\n=============================");
-        System.out.println("smell " + smell.name);
-        System.out.println("=============================\n");
+        Log.info("smell %s", smell.name);
         while (smell.detect()) {
-            System.out.println("Detection: ");
-            System.out.println(smell.lastDetection);
+            Log.info("Detection: %s", smell.lastDetection);
         }
     }
 
@@ -68,6 +85,52 @@ public class MainApp extends Application {
 
     public static boolean skipJoern;
 
+    /**
+     * If set, only the files within sourceDiff have been given to joern_query and previousCPG is updated with them
+     */
+    public static SourceDiff sourceDiff;
+
+    public static CodePropertyGraph previousCPG;
+
+    /**
+     * The snapshot cache key of the analysed source tree (null if no directory was chosen)
+     */
+    public static String snapshotKey;
+
+    /**
+     * The content hashes of the java files within sourceDirectory when it was chosen (empty if not scanned)
+     */
+    public static Map<String, String> sourceHashes = Collections.emptyMap();
+
+    /**
+     * If set, sourceDirectory is watched and the diagram is updated whenever a source file changes
+     */
+    public static boolean watch;
+
+    public static File sourceDirectory;
+
+    public static JoernServer joernServer;
+
+    private DiagramManager diagram;
+
+    // builds, lays out and updates the diagram, off the FX thread
+    private final ExecutorService diagramExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "codesmell-diagram");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SourceWatcher watcher;
+
+    // the graph analysed, and its smells, passed between the phases of the analysis
+    private CodePropertyGraph graph;
+    private Smell[] detectedSmells;
+
+    private HBox statusBar;
+    private Label status;
+    private ProgressBar progressBar;
+    private Button cancelButton;
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -77,118 +140,195 @@ public class MainApp extends Application {
          *  Renders the UML diagram
          *
          * */
-        //NEEDS TO TAKE IN A LIST OF CODE SMELLS
-        //NEED TO ADD PROPERTY TO UMLCLASS FOR CODE SMELL (LIST OF SMELLS)
-        // Build the UMLClass objects from the CPGClass objects
-        // Get a hashmap to associate the latter with the former.
-        //Comapre with ==
-        HashMap<CPGClass, UMLClass> classMap = new HashMap<CPGClass, UMLClass>();
-
-        /*
-        Method m
-        for(Class class : classes)
-        {
-         for(Method m2: in class)
-         {
-            m2 == m
-            return the class
-         }
+        diagram = new DiagramManager();
+        try {
+            diagram.render(cpg);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                    "Error invoking graphviz binary (dot)\n" + e);
         }
-         */
+    }
 
-        for (CPGClass graphClass : cpg.getClasses()) {
-            UMLClass c = new UMLClass(graphClass.name, graphClass.getSmells());
-            classMap.put(graphClass, c);
-            for (CPGClass.Method m : graphClass.getMethods()) {
-                c.addMethod(m);
-            }
-            for (CPGClass.Attribute a : graphClass.getAttributes()) {
-                c.addAttribute(a);
+    /**
+     * Add each detected smell to the classes it was detected in (replacing any smells added before).
+     */
+    private static void assignSmells(CodePropertyGraph cpg, Smell[] smellsArray) {
+        cpg.getClasses().forEach(CPGClass::clearSmells);
+        //Go through each smell
+        for (int i = 0; i < smellsArray.length; i++)
+        {
+            Smell currentSmell =  smellsArray[i];
+
+            if(currentSmell.getDetections()!=null) {
+                //Smell.CodeFragment smellFragment = currentSmell.detectNext();
+                //Detect all the smells and add them to their respective classes
+                for (int j = 0; j < currentSmell.getDetections().size(); j++){
+                    if (currentSmell != null) {
+                        if (currentSmell.getDetections().get(j).classes != null && currentSmell.getDetections().get(j).classes.length > 0) {
+                            for (CPGClass classes : currentSmell.getDetections().get(j).classes) {
+                                classes.addSmell(currentSmell);
+                            }
+                        } else if (currentSmell.getDetections().get(j).methods != null && currentSmell.getDetections().get(j).methods.length > 0) {
+                            for (CPGClass.Method methods : currentSmell.getDetections().get(j).methods) {
+                                methods.getParent().addSmell(currentSmell);
+                            }
+                        }
+                        else if (currentSmell.getDetections().get(j).attributes != null && currentSmell.getDetections().get(j).attributes.length > 0) {
+                            for (CPGClass.Attribute smellAttribute : currentSmell.getDetections().get(j).attributes) {
+                                smellAttribute.getParent().addSmell(currentSmell);
+
+                            }
+                        }
+                    }
+                }
             }
+        }
+    }
 
-            c.render();
-            c.setPosition(0,0);
+    /**
+     * Store the backup file written by the parser in the snapshot cache under the given key.
+     */
+    private static void cacheSnapshot(String key) {
+        if (key != null && sourceDirectory != null && !SnapshotCache.getDefault().contains(key)) {
+            SnapshotCache.getDefault().put(key, sourceDirectory, Parser.CPG_BACKUP_JSON);
         }
+    }
 
-        // Build the ClassRelation objects from the CPGClass.Relation objects
-        ArrayList<ClassRelation> relations = new ArrayList<ClassRelation>();
-        for (CodePropertyGraph.Relation r : cpg.getRelations()) {
-            System.out.println(r);
-            UMLClass source, target;
-            source = classMap.get(r.source);
-            target = classMap.get(r.destination);
-            ClassRelation cr = new ClassRelation(source, target, r.type, r.multiplicity);
-            source.addRelationship(cr);
-            target.addRelationship(cr);
-            relations.add(cr);
-            System.out.println(cr);
+    /**
+     * Watch the source directory and push incremental updates of the diagram after each burst of changes.
+     */
+    private void startWatching(CodePropertyGraph cpg) {
+        if (sourceDirectory == null || joernServer == null) {
+            Log.warn("Watch mode needs a source directory to be chosen, not watching");
+            return;
         }
+        try {
+            watcher = new SourceWatcher(sourceDirectory.toPath(), changed -> reanalyze(cpg, changed));
+            watcher.start();
+        } catch (IOException e) {
+            Log.error(e, "Could not watch %s", sourceDirectory);
+        }
+    }
 
-        ArrayList<UMLClass> umlClasses = new ArrayList<UMLClass>(classMap.values());
+    /**
+     * Re-analyze the changed files and update the diagram, as one task on the diagram thread: the graph and the
+     * stats are only changed there, never while a previous update, smell assignment or resize reads them.
+     */
+    private void reanalyze(CodePropertyGraph cpg, Set<Path> changed) {
+        long start = System.nanoTime();
+        Log.info("%d source files changed", changed.size());
+        diagramExecutor.execute(() -> {
+            try {
+                reanalyzeNow(cpg, changed, start);
+            } catch (RuntimeException e) {
+                Log.error(e, "Could not update the diagram");
+            }
+        });
+    }
 
-       try {
-            LayoutManager.setLayout(umlClasses, relations);
+    private void reanalyzeNow(CodePropertyGraph cpg, Set<Path> changed, long start) {
+        Metrics.reset();
+        SourceDiff diff;
+        try {
+            // only the changed files are hashed again (the whole tree after the watcher lost track of changes,
+            // or if the graph does not record the files it was built from)
+            Map<String, String> hashes = cpg.getSourceHashes().isEmpty()
+                    ? SourceDiff.scan(sourceDirectory)
+                    : SourceDiff.rescan(cpg.getSourceHashes(), changed);
+            diff = SourceDiff.compute(cpg, sourceDirectory, hashes);
         } catch (IOException e) {
-            throw new RuntimeException(
-                    "Error invoking graphviz binary (dot)\n" + e);
+            Log.error(e, "Could not read %s", sourceDirectory);
+            return;
         }
-
+        if (diff == null || diff.isEmpty()) {
+            return;
+        }
+        InputStream stream = null;
+        if (!diff.filesToQuery().isEmpty()) {
+            joernServer.start(sourceDirectory, diff.filesToQuery());
+            stream = joernServer.getStream();
+        }
+        Parser.updateCPG(cpg, stream, diff);
+        Parser.countGraph(cpg);
+        cacheSnapshot(SnapshotCache.key(sourceDirectory, diff.currentHashes));
+        initStatTracker(cpg);
+        Smell[] smellsArray = buildSmellStream(cpg).toArray(Smell[]::new);
+        assignSmells(cpg, smellsArray);
+        try (Metrics.Phase phase = Metrics.phase("diagram.update")) {
+            diagram.update(cpg);
+        }
+        Log.info("Diagram updated %d ms after the change was detected",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        Metrics.logSummary();
     }
 
-    private void removeWhenParserLambdaLimitationFixed(Worker.State newState) {
-        if (newState == Worker.State.SUCCEEDED) {
-            try {
-                if (cpgStream.available() == 0 && skipJoern) {
-                    cpgStream = getBackupStream();
-                }
-                CodePropertyGraph cpg = Parser.initializeCPG(cpgStream, skipJoern);
-                initStatTracker(cpg); // todo: run this on another thread and join before
-                // smells are started
-                Stream<Smell> smells = buildSmellStream(cpg);
-                //Convert smells into array that can be parsed
-                Smell[] smellsArray = smells.toArray(Smell[]::new);
-
-                //Go through each smell
-                for (int i = 0; i < smellsArray.length; i++)
-                {
-                    Smell currentSmell =  smellsArray[i];
-
-                    if(currentSmell.getDetections()!=null) {
-                        //Smell.CodeFragment smellFragment = currentSmell.detectNext();
-                        //Detect all the smells and add them to their respective classes
-                        for (int j = 0; j < currentSmell.getDetections().size(); j++){
-                            if (currentSmell != null) {
-                                if (currentSmell.getDetections().get(j).classes != null && currentSmell.getDetections().get(j).classes.length > 0) {
-                                    for (CPGClass classes : currentSmell.getDetections().get(j).classes) {
-                                        classes.addSmell(currentSmell);
-                                    }
-                                } else if (currentSmell.getDetections().get(j).methods != null && currentSmell.getDetections().get(j).methods.length > 0) {
-                                    for (CPGClass.Method methods : currentSmell.getDetections().get(j).methods) {
-                                        methods.getParent().addSmell(currentSmell);
-                                    }
-                                }
-                                else if (currentSmell.getDetections().get(j).attributes != null && currentSmell.getDetections().get(j).attributes.length > 0) {
-                                    for (CPGClass.Attribute smellAttribute : currentSmell.getDetections().get(j).attributes) {
-                                        smellAttribute.getParent().addSmell(currentSmell);
-
-                                    }
-                                }
-                            }
-                        }
+    /**
+     * @return The pipeline analyzing the source tree and building the diagram on the diagram thread (while the page
+     * loads): the classes are drawn as soon as the graph has been read, and their smells once they are detected
+     */
+    private AnalysisPipeline analysis() {
+        return new AnalysisPipeline(diagramExecutor, Platform::runLater, this::showProgress)
+                .phase("Reading the code property graph", pipeline -> {
+                    if (skipJoern && cpgStream.available() == 0) {
+                        cpgStream = getBackupStream();
                     }
-                }
-                        //If the codeFragment i.e. the smell has a class attribute, it can
-                        //just be added to the class object itself.
-                //get the class from the smell and add to the class object
-                //If not class level smell call the helper (statTracker)
-                //Make fragment from non code level smells
-                //smells.
-                //smells.forEach(s -> printSmellDetections(s));
-                initializeMainView(cpg);
-            } catch (IOException e) {
-                e.printStackTrace();
-                System.exit(1);
-            }
+                    if (sourceDiff != null && !skipJoern) {
+                        graph = Parser.updateCPG(previousCPG, cpgStream, sourceDiff);
+                    } else {
+                        graph = Parser.initializeCPG(cpgStream, skipJoern, sourceHashes);
+                    }
+                    Parser.countGraph(graph);
+                    if (!skipJoern && (sourceDiff == null || !sourceDiff.isEmpty())) {
+                        // the backup file was written for this source tree
+                        cacheSnapshot(snapshotKey);
+                    }
+                })
+                .phase("Drawing the classes", pipeline -> {
+                    // (without smells: those of an updated graph are detected again)
+                    graph.getClasses().forEach(CPGClass::clearSmells);
+                    try (Metrics.Phase phase = Metrics.phase("diagram.render")) {
+                        initializeMainView(graph);
+                    }
+                })
+                .phase("Computing statistics", pipeline -> initStatTracker(graph))
+                .phase("Detecting smells",
+                        pipeline -> detectedSmells = buildSmellStream(graph).toArray(Smell[]::new))
+                .phase("Drawing the smells", pipeline -> {
+                    assignSmells(graph, detectedSmells);
+                    try (Metrics.Phase phase = Metrics.phase("diagram.smells")) {
+                        diagram.showSmells(graph);
+                    }
+                    Metrics.logSummary();
+                    if (watch) {
+                        startWatching(graph);
+                    }
+                });
+    }
+
+    /**
+     * Show the progress of the analysis in the status bar (hidden once the analysis succeeded).
+     */
+    private void showProgress(AnalysisPipeline.Progress progress) {
+        switch (progress.state) {
+            case RUNNING:
+                status.setText(progress.phase + "...");
+                progressBar.setProgress(progress.fraction());
+                break;
+            case SUCCEEDED:
+                statusBar.setVisible(false);
+                statusBar.setManaged(false);
+                break;
+            case CANCELLED:
+                status.setText("Analysis cancelled (" + progress.phase.toLowerCase() + ")");
+                progressBar.setVisible(false);
+                cancelButton.setVisible(false);
+                break;
+            case FAILED:
+                status.setText("Analysis failed (" + progress.phase.toLowerCase() + "): "
+                        + (progress.error.getMessage() != null ? progress.error.getMessage() : progress.error));
+                progressBar.setVisible(false);
+                cancelButton.setVisible(false);
+                break;
         }
     }
 
@@ -206,7 +346,15 @@ public class MainApp extends Application {
         webView.prefHeightProperty().bind(primaryStage.heightProperty());
         webView.prefWidthProperty().bind(primaryStage.heightProperty());
         webView.getEngine().load(location);
-        VBox vBox = new VBox(webView);
+        status = new Label("Starting");
+        status.setTextFill(Color.WHITE);
+        progressBar = new ProgressBar(0);
+        cancelButton = new Button("Cancel");
+        statusBar = new HBox(8, progressBar, status, cancelButton);
+        statusBar.setAlignment(Pos.CENTER_LEFT);
+        statusBar.setPadding(new Insets(4));
+        statusBar.setStyle("-fx-background-color: #22262A;");
+        VBox vBox = new VBox(statusBar, webView);
         Scene scene = new Scene(vBox, startWidth, startHeight);
         primaryStage.setScene(scene);
         primaryStage.setTitle("CodeSmell Detector");
@@ -214,13 +362,22 @@ public class MainApp extends Application {
         URL url = getClass().getResource("boxes.html");
         WebEngine engine = webView.getEngine();
         webView.setZoom(1.0); // allow resizing for other resolutions
-        RenderObject.addRenderEventListener(new WebBridge(engine));
+        // the sizes of the class boxes are estimated, so that the diagram can be built and laid out
+        // without waiting for the page, and those measured at another size are laid out again
+        WebBridge bridge = new WebBridge(engine, BoxSizeEstimator.fromFontMetrics());
+        bridge.setResizeListener(resized -> diagramExecutor.execute(() -> {
+            try (Metrics.Phase phase = Metrics.phase("diagram.resize")) {
+                diagram.resize(resized);
+            } catch (IOException e) {
+                Log.error(e, "Could not lay out the diagram again");
+            }
+        }));
+        RenderObject.addRenderEventListener(bridge);
 
         engine.load(url.toExternalForm());
-        engine.getLoadWorker().stateProperty().addListener(
-                (ov, oldState, newState) -> {
-                    removeWhenParserLambdaLimitationFixed(newState);
-                });
+        AnalysisPipeline analysis = analysis();
+        cancelButton.setOnAction(event -> analysis.cancel());
+        analysis.start();
 
 
         // hide scroll bars from the webview. source:
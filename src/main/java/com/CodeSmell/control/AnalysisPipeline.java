@@ -0,0 +1,196 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.log.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs the phases of an analysis (reading the graph, drawing the classes, detecting and drawing the smells) one after
+ * the other on an executor, rather than on the FX thread, so that the window stays responsive and each result is
+ * shown as soon as it is ready.
+ *
+ * <p>
+ * The progress is reported to a listener on the executor given for it (on the FX thread, with
+ * <code>Platform::runLater</code>). Reports are coalesced: if the listener has not yet been called for a report when
+ * the next one is made, it is only called with the latest. The pipeline can be cancelled: the phase running is
+ * interrupted (a long phase may also stop early by calling {@link #checkCancelled()}) and the phases after it are
+ * not run. What the phases before it drew stays drawn.
+ * </p>
+ */
+public class AnalysisPipeline {
+
+    /**
+     * A phase of the pipeline
+     */
+    public interface Phase {
+        /**
+         * @param pipeline - The pipeline running the phase, to report progress and check for cancellation
+         */
+        void run(AnalysisPipeline pipeline) throws Exception;
+    }
+
+    public enum State {
+        RUNNING,
+        SUCCEEDED,
+        CANCELLED,
+        FAILED
+    }
+
+    /**
+     * The progress of a pipeline
+     */
+    public static final class Progress {
+        /**
+         * The name of the phase running (or which was running when the pipeline stopped)
+         */
+        public final String phase;
+
+        /**
+         * The number of phases completed, and the number of phases
+         */
+        public final int completed;
+        public final int phases;
+
+        public final State state;
+
+        /**
+         * Why the pipeline failed (null unless it did)
+         */
+        public final Throwable error;
+
+        Progress(String phase, int completed, int phases, State state, Throwable error) {
+            this.phase = phase;
+            this.completed = completed;
+            this.phases = phases;
+            this.state = state;
+            this.error = error;
+        }
+
+        /**
+         * @return The share of the phases completed, from 0 to 1
+         */
+        public double fraction() {
+            return (phases == 0) ? 1 : (double) completed / phases;
+        }
+
+        @Override
+        public String toString() {
+            return state + " " + phase + " (" + completed + "/" + phases + ")";
+        }
+    }
+
+    private final Executor executor;
+    private final Executor notifier;
+    private final Consumer<Progress> listener;
+    private final ArrayList<String> names = new ArrayList<>();
+    private final ArrayList<Phase> phases = new ArrayList<>();
+
+    // the report the listener is still to be called with
+    private final AtomicReference<Progress> pending = new AtomicReference<>();
+
+    private volatile boolean cancelled;
+    private volatile boolean started;
+    // the thread running the pipeline (null if it is not running)
+    private volatile Thread thread;
+
+    /**
+     * @param executor - Runs the phases
+     * @param notifier - Calls the listener
+     * @param listener - Called with the progress of the pipeline
+     */
+    public AnalysisPipeline(Executor executor, Executor notifier, Consumer<Progress> listener) {
+        this.executor = executor;
+        this.notifier = notifier;
+        this.listener = listener;
+    }
+
+    /**
+     * Add a phase, run after those added before it.
+     *
+     * @param name - Shown while the phase runs
+     */
+    public AnalysisPipeline phase(String name, Phase phase) {
+        if (started) {
+            throw new IllegalStateException("Phases cannot be added once the pipeline has started");
+        }
+        names.add(name);
+        phases.add(phase);
+        return this;
+    }
+
+    public void start() {
+        started = true;
+        executor.execute(this::run);
+    }
+
+    /**
+     * Stop the pipeline, interrupting the phase running. Does nothing once the pipeline has finished.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Called by a phase where it can stop.
+     *
+     * @throws CancellationException if the pipeline was cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("The analysis was cancelled");
+        }
+    }
+
+    private void run() {
+        synchronized (this) {
+            thread = Thread.currentThread();
+        }
+        int completed = 0;
+        try {
+            for (; completed < phases.size(); completed++) {
+                checkCancelled();
+                report(new Progress(names.get(completed), completed, phases.size(), State.RUNNING, null));
+                long start = System.nanoTime();
+                phases.get(completed).run(this);
+                Log.info("%s: %d ms", names.get(completed), (System.nanoTime() - start) / 1000000);
+            }
+            report(new Progress(last(completed), completed, phases.size(), State.SUCCEEDED, null));
+        } catch (Throwable e) {
+            // (errors as well, e.g. a graph too deep for the stack, or the progress would never end)
+            if (cancelled) {
+                Log.info("Analysis cancelled during %s", names.get(completed));
+                report(new Progress(names.get(completed), completed, phases.size(), State.CANCELLED, null));
+            } else {
+                Log.error(e, "Analysis failed during %s", names.get(completed));
+                report(new Progress(names.get(completed), completed, phases.size(), State.FAILED, e));
+            }
+        } finally {
+            synchronized (this) {
+                thread = null;
+                // (an interrupt meant for the pipeline is not left to whatever the executor runs next)
+                Thread.interrupted();
+            }
+        }
+    }
+
+    private String last(int completed) {
+        return (completed == 0) ? "" : names.get(completed - 1);
+    }
+
+    private void report(Progress progress) {
+        if (pending.getAndSet(progress) == null) {
+            notifier.execute(() -> listener.accept(pending.getAndSet(null)));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.CodeSmell.control;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.CodeSmell.log.Log;
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.UMLClass;
+
+/**
+ * Lays out each connected component of a diagram on its own with
+ * another engine, the components concurrently, then packs them into
+ * rows. The time taken follows the largest component rather than the
+ * whole diagram, and classes without relations are placed without
+ * running the engine at all.
+ */
+public class ComponentLayout implements LayoutEngine {
+
+	// the gap kept around each component
+	private static final double COMPONENT_SEP = 100;
+
+	// rows of components are about this many times as wide as
+	// the packed diagram is tall
+	private static final double ASPECT_RATIO = 1.5;
+
+	private final LayoutEngine engine;
+	private final int threads;
+
+	/**
+	 * @param engine - The engine laying out each component
+	 * @param threads - The number of components laid out at a time
+	 */
+	public ComponentLayout(LayoutEngine engine, int threads) {
+		this.engine = engine;
+		this.threads = threads;
+	}
+
+	public ComponentLayout(LayoutEngine engine) {
+		this(engine, Runtime.getRuntime().availableProcessors());
+	}
+
+	@Override
+	public String name() {
+		return engine.name();
+	}
+
+	@Override
+	public String parameters() {
+		return engine.parameters() + " componentsep=" + COMPONENT_SEP;
+	}
+
+	/**
+	 * A connected component, and its layout once computed
+	 */
+	private static final class Component {
+		final ArrayList<UMLClass> classes = new ArrayList<UMLClass>();
+		final ArrayList<ClassRelation> relations =
+			new ArrayList<ClassRelation>();
+		Layout layout;
+		double[] bounds;
+	}
+
+	@Override
+	public Layout layout(ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) throws IOException {
+		List<Component> components = components(classes, relations);
+		if (components.size() <= 1) {
+			return engine.layout(classes, relations);
+		}
+		List<Component> connected = new ArrayList<Component>();
+		for (Component component : components) {
+			if (component.relations.isEmpty()) {
+				// a single class, as every relation joins its classes
+				component.layout = new Layout();
+				component.layout.setPosition(component.classes.get(0), 0, 0);
+			} else {
+				connected.add(component);
+			}
+		}
+		// the largest first, so that it is not left until the end
+		connected.sort(Comparator.comparingInt(
+			(Component c) -> c.relations.size()).reversed());
+		layoutConcurrently(connected);
+		Log.info("laid out %d components (%d with relations, " +
+			"the largest of %d classes)", components.size(),
+			connected.size(), connected.isEmpty()
+				? 1 : connected.get(0).classes.size());
+		return pack(components);
+	}
+
+	// the weakly connected components in the order of their first class
+	private static List<Component> components(ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) {
+		IdentityHashMap<UMLClass, Integer> index =
+			new IdentityHashMap<UMLClass, Integer>();
+		int[] parent = new int[classes.size()];
+		for (int i = 0; i < classes.size(); i++) {
+			index.put(classes.get(i), i);
+			parent[i] = i;
+		}
+		for (ClassRelation cr : relations) {
+			Integer source = index.get(cr.source);
+			Integer target = index.get(cr.target);
+			if (source != null && target != null) {
+				parent[find(parent, source)] = find(parent, target);
+			}
+		}
+		Component[] componentOf = new Component[classes.size()];
+		List<Component> components = new ArrayList<Component>();
+		for (int i = 0; i < classes.size(); i++) {
+			int root = find(parent, i);
+			if (componentOf[root] == null) {
+				componentOf[root] = new Component();
+				components.add(componentOf[root]);
+			}
+			componentOf[root].classes.add(classes.get(i));
+		}
+		for (ClassRelation cr : relations) {
+			Integer source = index.get(cr.source);
+			if (source != null && index.containsKey(cr.target)) {
+				componentOf[find(parent, source)].relations.add(cr);
+			}
+		}
+		return components;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	private void layoutConcurrently(List<Component> components)
+			throws IOException {
+		if (components.isEmpty()) {
+			return;
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(
+			Math.max(1, Math.min(threads, components.size())), task -> {
+				Thread thread = new Thread(task, "codesmell-layout-"
+					+ threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		try {
+			List<Future<Layout>> layouts = new ArrayList<Future<Layout>>();
+			for (Component component : components) {
+				layouts.add(executor.submit(() ->
+					engine.layout(component.classes, component.relations)));
+			}
+			for (int i = 0; i < components.size(); i++) {
+				components.get(i).layout = layouts.get(i).get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException("could not lay out a component", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while laying out");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// packs the components into rows, the tallest first
+	// (shelf packing by decreasing height)
+	private static Layout pack(List<Component> components) {
+		double area = 0;
+		double widest = 0;
+		for (Component component : components) {
+			component.bounds = component.layout.bounds();
+			double width = width(component);
+			area += width * height(component);
+			widest = Math.max(widest, width);
+		}
+		double rowWidth = Math.max(widest,
+			Math.sqrt(area * ASPECT_RATIO));
+		List<Component> byHeight = new ArrayList<Component>(components);
+		byHeight.sort(Comparator.comparingDouble(
+			ComponentLayout::height).reversed());
+
+		Layout packed = new Layout();
+		double x = 0;
+		double y = 0;
+		double rowHeight = 0;
+		for (Component component : byHeight) {
+			if (x > 0 && x + width(component) > rowWidth) {
+				x = 0;
+				y += rowHeight;
+				rowHeight = 0;
+			}
+			packed.addAll(component.layout, x - component.bounds[0],
+				y - component.bounds[1]);
+			x += width(component);
+			rowHeight = Math.max(rowHeight, height(component));
+		}
+		return packed;
+	}
+
+	private static double width(Component component) {
+		return component.bounds[2] - component.bounds[0] + COMPONENT_SEP;
+	}
+
+	private static double height(Component component) {
+		return component.bounds[3] - component.bounds[1] + COMPONENT_SEP;
+	}
+}
@@ -0,0 +1,380 @@
+package com.CodeSmell.control;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.CodeSmell.log.Log;
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.ClassRelation.RelationshipType;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.CPGClass;
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.CodePropertyGraph.Relation;
+import com.CodeSmell.smell.Smell;
+
+/**
+ * Keeps track of the UMLClass and ClassRelation objects rendered for the
+ * classes and relations of a CodePropertyGraph, so that after the graph
+ * changes only the affected classes, relations and smells are pushed to
+ * the view instead of rendering the whole diagram again.
+ */
+public class DiagramManager {
+
+	// space left between the existing diagram and newly added classes
+	private static final double NEW_CLASS_SEPARATION = 100;
+
+	private final LinkedHashMap<CPGClass, UMLClass> classMap;
+
+	// the rendered contents (fields and smells) of each class
+	private final HashMap<CPGClass, String> classContents;
+
+	private final LinkedHashMap<RelationKey, ClassRelation> relationMap;
+
+	// the packages shown in place of the classes when zoomed out
+	private PackageDiagram packages;
+
+	public DiagramManager() {
+		this.classMap = new LinkedHashMap<CPGClass, UMLClass>();
+		this.classContents = new HashMap<CPGClass, String>();
+		this.relationMap = new LinkedHashMap<RelationKey, ClassRelation>();
+	}
+
+	public void render(CodePropertyGraph cpg) throws IOException {
+		/**
+		 * Renders the whole UML diagram and lays it out with graphViz
+		 */
+
+		// Build the UMLClass objects from the CPGClass objects
+		for (CPGClass graphClass : cpg.getClasses()) {
+			UMLClass c = createClass(graphClass);
+			c.render();
+			c.setPosition(0, 0);
+		}
+
+		// Build the ClassRelation objects from the CPGClass.Relation objects
+		for (Relation r : cpg.getRelations()) {
+			createRelation(r);
+			Log.debug("relation %s", r);
+		}
+
+		LayoutManager.setLayout(getClasses(), getRelations());
+		renderPackages(cpg);
+	}
+
+	public void update(CodePropertyGraph cpg) {
+		/**
+		 * Pushes the differences between the rendered diagram and cpg
+		 * to the view. Classes which still exist keep their position,
+		 * new classes are placed to the right of the diagram and
+		 * changed relations are drawn as straight lines.
+		 */
+
+		Set<CPGClass> graphClasses = new LinkedHashSet<CPGClass>(cpg.getClasses());
+		LinkedHashMap<RelationKey, Relation> graphRelations =
+			new LinkedHashMap<RelationKey, Relation>();
+		for (Relation r : cpg.getRelations()) {
+			graphRelations.put(new RelationKey(r), r);
+		}
+		int removedClasses = 0, updatedClasses = 0, addedClasses = 0;
+		int removedRelations = 0, addedRelations = 0;
+
+		// classes analysed again are new objects, which take the
+		// place of the rendered classes of the same full name
+		rekeyClasses(graphClasses);
+
+		// remove classes that no longer exist, along with their relations
+		Iterator<Map.Entry<CPGClass, UMLClass>> classIter =
+			classMap.entrySet().iterator();
+		while (classIter.hasNext()) {
+			Map.Entry<CPGClass, UMLClass> entry = classIter.next();
+			if (!graphClasses.contains(entry.getKey())) {
+				UMLClass c = entry.getValue();
+				removedRelations += removeRelations(c);
+				c.remove();
+				classContents.remove(entry.getKey());
+				classIter.remove();
+				removedClasses++;
+			}
+		}
+
+		// redraw classes whose fields or smells changed, remembering
+		// the ones whose size changed so their relations are redrawn
+		Set<UMLClass> resized = new HashSet<UMLClass>();
+		updatedClasses = updateClasses(resized);
+
+		// add new classes in a column to the right of the diagram
+		double x = rightEdge() + NEW_CLASS_SEPARATION;
+		double y = 0;
+		for (CPGClass graphClass : graphClasses) {
+			if (!classMap.containsKey(graphClass)) {
+				UMLClass c = createClass(graphClass);
+				c.render();
+				c.setPosition(x, y);
+				y += c.getHeight() + NEW_CLASS_SEPARATION;
+				addedClasses++;
+			}
+		}
+
+		// remove relations that no longer exist or
+		// that end at a class whose size changed
+		Iterator<Map.Entry<RelationKey, ClassRelation>> relationIter =
+			relationMap.entrySet().iterator();
+		while (relationIter.hasNext()) {
+			Map.Entry<RelationKey, ClassRelation> entry = relationIter.next();
+			ClassRelation cr = entry.getValue();
+			if (!graphRelations.containsKey(entry.getKey()) ||
+					resized.contains(cr.source) || resized.contains(cr.target)) {
+				cr.remove();
+				cr.source.removeRelationship(cr);
+				cr.target.removeRelationship(cr);
+				relationIter.remove();
+				removedRelations++;
+			}
+		}
+
+		// draw the relations that are new (or were removed above)
+		for (Map.Entry<RelationKey, Relation> entry : graphRelations.entrySet()) {
+			if (!relationMap.containsKey(entry.getKey())) {
+				ClassRelation cr = createRelation(entry.getValue());
+				cr.setPath(LayoutManager.straightPath(cr.source, cr.target));
+				addedRelations++;
+			}
+		}
+		try {
+			renderPackages(cpg);
+		} catch (IOException e) {
+			Log.error(e, "Could not lay out the packages");
+		}
+		Log.info("Diagram updated: %d classes added, %d changed, %d removed; " +
+			"%d relations redrawn, %d removed", addedClasses, updatedClasses,
+			removedClasses, addedRelations, removedRelations);
+	}
+
+	public void showSmells(CodePropertyGraph cpg) {
+		/**
+		 * Redraws the classes (and packages) whose smells changed since
+		 * they were rendered, as when the smells are detected after the
+		 * classes were drawn, laying the diagram out again if they grew
+		 */
+
+		Set<UMLClass> resized = new HashSet<UMLClass>();
+		int updated = updateClasses(resized);
+		Log.info("Smells shown in %d classes", updated);
+		try {
+			if (!resized.isEmpty()) {
+				layOutAgain();
+			}
+			renderPackages(cpg);
+		} catch (IOException e) {
+			Log.error(e, "Could not lay out the diagram again");
+		}
+	}
+
+	public void resize(Map<UMLClass, Pair<Double, Double>> measured)
+			throws IOException {
+		/**
+		 * Gives classes the size their boxes were measured at, where it
+		 * differs from the size they were laid out with, and lays the
+		 * diagram out again (with the layout cache, only the resized
+		 * classes move)
+		 */
+
+		for (Map.Entry<UMLClass, Pair<Double, Double>> entry :
+				measured.entrySet()) {
+			entry.getKey().resize(entry.getValue().first,
+				entry.getValue().second);
+		}
+		Log.info("%d classes were measured at a size other than " +
+			"estimated, laying out again", measured.size());
+		layOutAgain();
+	}
+
+	private void layOutAgain() throws IOException {
+		// the paths are drawn again by the new layout
+		for (ClassRelation cr : relationMap.values()) {
+			if (cr.getPath() != null) {
+				cr.remove();
+			}
+		}
+		LayoutManager.setLayout(getClasses(), getRelations());
+	}
+
+	private void rekeyClasses(Set<CPGClass> graphClasses) {
+		// keys each rendered class by the class of the same full name
+		// in graphClasses (if any), keeping its box and its contents as
+		// rendered so that updateClasses redraws it only if they changed
+		HashMap<String, CPGClass> byName = new HashMap<String, CPGClass>();
+		for (CPGClass graphClass : graphClasses) {
+			byName.put(graphClass.classFullName, graphClass);
+		}
+		LinkedHashMap<CPGClass, UMLClass> rekeyed =
+			new LinkedHashMap<CPGClass, UMLClass>();
+		for (Map.Entry<CPGClass, UMLClass> entry : classMap.entrySet()) {
+			CPGClass rendered = entry.getKey();
+			CPGClass graphClass = byName.get(rendered.classFullName);
+			if (graphClass == null || graphClass == rendered
+					|| rekeyed.containsKey(graphClass)) {
+				rekeyed.put(rendered, entry.getValue());
+			} else {
+				rekeyed.put(graphClass, entry.getValue());
+				classContents.put(graphClass, classContents.remove(rendered));
+			}
+		}
+		classMap.clear();
+		classMap.putAll(rekeyed);
+	}
+
+	private int updateClasses(Set<UMLClass> resized) {
+		// redraws the classes whose fields or smells changed, adding
+		// those whose size changed to resized, and returns how many
+		int updated = 0;
+		for (Map.Entry<CPGClass, UMLClass> entry : classMap.entrySet()) {
+			CPGClass graphClass = entry.getKey();
+			String contents = contentsOf(graphClass);
+			if (!contents.equals(classContents.get(graphClass))) {
+				UMLClass c = entry.getValue();
+				double width = c.getWidth(), height = c.getHeight();
+				c.update(graphClass.getMethods(), graphClass.getAttributes(),
+					graphClass.getSmells());
+				classContents.put(graphClass, contents);
+				if (width != c.getWidth() || height != c.getHeight()) {
+					resized.add(c);
+				}
+				updated++;
+			}
+		}
+		return updated;
+	}
+
+	private void renderPackages(CodePropertyGraph cpg) throws IOException {
+		// lays out the diagram of packages (again), for
+		// the view to show when it is zoomed out
+		PackageDiagram next = PackageDiagram.build(cpg);
+		if (packages != null) {
+			packages.remove();
+		}
+		packages = next;
+		packages.render();
+	}
+
+	public PackageDiagram getPackages() {
+		return packages;
+	}
+
+	public ArrayList<UMLClass> getClasses() {
+		return new ArrayList<UMLClass>(classMap.values());
+	}
+
+	public ArrayList<ClassRelation> getRelations() {
+		return new ArrayList<ClassRelation>(relationMap.values());
+	}
+
+	private UMLClass createClass(CPGClass graphClass) {
+		UMLClass c = new UMLClass(graphClass.name,
+			graphClass.classFullName, graphClass.getSmells());
+		for (CPGClass.Method m : graphClass.getMethods()) {
+			c.addMethod(m);
+		}
+		for (CPGClass.Attribute a : graphClass.getAttributes()) {
+			c.addAttribute(a);
+		}
+		classMap.put(graphClass, c);
+		classContents.put(graphClass, contentsOf(graphClass));
+		return c;
+	}
+
+	private ClassRelation createRelation(Relation r) {
+		UMLClass source = classMap.get(r.source);
+		UMLClass target = classMap.get(r.destination);
+		ClassRelation cr = new ClassRelation(source, target, r.type, r.multiplicity);
+		source.addRelationship(cr);
+		target.addRelationship(cr);
+		relationMap.put(new RelationKey(r), cr);
+		return cr;
+	}
+
+	private int removeRelations(UMLClass c) {
+		// removes the relations from or to a class that is being removed
+		int removed = 0;
+		Iterator<ClassRelation> iter = relationMap.values().iterator();
+		while (iter.hasNext()) {
+			ClassRelation cr = iter.next();
+			if (cr.source == c || cr.target == c) {
+				if (cr.source != c) {
+					// paths are drawn within the source class, which stays
+					cr.remove();
+				}
+				cr.source.removeRelationship(cr);
+				cr.target.removeRelationship(cr);
+				iter.remove();
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	private double rightEdge() {
+		double edge = 0;
+		for (UMLClass c : classMap.values()) {
+			edge = Math.max(edge, c.getPosition().x + c.getWidth());
+		}
+		return edge;
+	}
+
+	private static String contentsOf(CPGClass graphClass) {
+		StringBuilder sb = new StringBuilder();
+		for (CPGClass.Method m : graphClass.getMethods()) {
+			sb.append(m.name).append(m.modifiers).append('\n');
+		}
+		for (CPGClass.Attribute a : graphClass.getAttributes()) {
+			sb.append(a.name).append(a.modifiers).append('\n');
+		}
+		for (Smell smell : graphClass.getSmells()) {
+			sb.append(smell.name).append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static final class RelationKey {
+		// identifies a relation by the full names of its classes, its
+		// type and multiplicity, since relations (and the classes) that
+		// were analysed again are new objects
+
+		private final String source;
+		private final String destination;
+		private final RelationshipType type;
+		private final String multiplicity;
+
+		RelationKey(Relation r) {
+			this.source = r.source.classFullName;
+			this.destination = r.destination.classFullName;
+			this.type = r.type;
+			this.multiplicity = r.multiplicity;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RelationKey)) {
+				return false;
+			}
+			RelationKey other = (RelationKey) obj;
+			return source.equals(other.source)
+				&& destination.equals(other.destination)
+				&& type == other.type && multiplicity.equals(other.multiplicity);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(source, destination, type, multiplicity);
+		}
+	}
+}
@@ -0,0 +1,641 @@
+package com.CodeSmell.control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.CodeSmell.log.Log;
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.UMLClass;
+
+/**
+ * A layered (Sugiyama) layout computed in process, as an alternative
+ * to running dot.
+ *
+ * <p>
+ * Relations point down the diagram: cycles are broken by reversing
+ * the relations that close them, every class is put in a layer below
+ * the classes it depends on, and relations spanning several layers
+ * pass through a point in each layer between. The classes of each
+ * layer are ordered to reduce crossings (barycenter sweeps, the odd
+ * and even layers being reordered in parallel), then placed as close
+ * to the classes they are related to as their width allows.
+ * </p>
+ */
+public class LayeredLayout implements LayoutEngine {
+
+	// horizontal gap between classes in a layer (nodesep of dot)
+	private static final double NODE_SEP = 100;
+
+	// horizontal gap next to the points relations pass through
+	private static final double POINT_SEP = 20;
+
+	// vertical gap between layers
+	private static final double LAYER_SEP = 100;
+
+	// the distance self relations reach out of their class
+	private static final double LOOP_SIZE = 30;
+
+	// crossing minimization stops after this many sweeps
+	// without fewer crossings
+	private static final int PATIENCE = 4;
+	private static final int MAX_SWEEPS = 24;
+
+	private static final int PLACEMENT_SWEEPS = 8;
+
+	private static final int BALANCING_PASSES = 8;
+
+	@Override
+	public String name() {
+		return "layered";
+	}
+
+	@Override
+	public String parameters() {
+		return String.format("nodesep=%s pointsep=%s layersep=%s loop=%s " +
+			"patience=%d sweeps=%d placement=%d balancing=%d",
+			NODE_SEP, POINT_SEP, LAYER_SEP, LOOP_SIZE, PATIENCE,
+			MAX_SWEEPS, PLACEMENT_SWEEPS, BALANCING_PASSES);
+	}
+
+	@Override
+	public Layout layout(ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) {
+		Graph graph = new Graph(classes, relations);
+		graph.removeCycles();
+		graph.assignLayers();
+		graph.splitLongEdges();
+		int crossings = graph.minimizeCrossings();
+		graph.assignCoordinates();
+		Layout layout = graph.toLayout();
+		Log.info("layered layout: %d classes, %d relations " +
+			"(%d layers, %d crossings)", classes.size(),
+			relations.size(), graph.layers.size(), crossings);
+		return layout;
+	}
+
+	/**
+	 * A class, or a point a relation passes through (a dummy)
+	 */
+	private static final class Node {
+		final UMLClass umlClass;
+		// the index of the node in Graph.nodes
+		final int id;
+		final double width;
+		final double height;
+		final List<Node> above = new ArrayList<Node>();
+		final List<Node> below = new ArrayList<Node>();
+		int layer;
+		int order;
+		double x;
+		double y;
+
+		Node(UMLClass umlClass, int id) {
+			this.umlClass = umlClass;
+			this.id = id;
+			this.width = (umlClass == null) ? 0 : umlClass.getWidth();
+			this.height = (umlClass == null) ? 0 : umlClass.getHeight();
+		}
+
+		boolean isDummy() {
+			return umlClass == null;
+		}
+	}
+
+	/**
+	 * A relation, drawn from the node of its source to that of its
+	 * target (downwards unless reversed)
+	 */
+	private static final class Edge {
+		final ClassRelation relation;
+		Node top;
+		Node bottom;
+		boolean reversed;
+		// top, the dummies in between and bottom
+		List<Node> chain;
+
+		Edge(ClassRelation relation, Node source, Node target) {
+			this.relation = relation;
+			this.top = source;
+			this.bottom = target;
+		}
+	}
+
+	private static final class Graph {
+		final List<Node> nodes = new ArrayList<Node>();
+		final List<Edge> edges = new ArrayList<Edge>();
+		final List<ClassRelation> selfRelations =
+			new ArrayList<ClassRelation>();
+		final IdentityHashMap<UMLClass, Node> nodeOf =
+			new IdentityHashMap<UMLClass, Node>();
+		List<List<Node>> layers;
+
+		Graph(List<UMLClass> classes, List<ClassRelation> relations) {
+			for (UMLClass c : classes) {
+				Node node = new Node(c, nodes.size());
+				nodes.add(node);
+				nodeOf.put(c, node);
+			}
+			for (ClassRelation cr : relations) {
+				Node source = nodeOf.get(cr.source);
+				Node target = nodeOf.get(cr.target);
+				if (source == null || target == null) {
+					continue;
+				} else if (source == target) {
+					selfRelations.add(cr);
+				} else {
+					edges.add(new Edge(cr, source, target));
+				}
+			}
+		}
+
+		// reverses the edges pointing backwards in an order of the
+		// classes putting sources first and sinks last, and otherwise
+		// the classes with the most outgoing less incoming relations
+		// first (the greedy heuristic of Eades, Lin and Smyth)
+		void removeCycles() {
+			int size = nodes.size();
+			List<List<Edge>> outgoing = new ArrayList<List<Edge>>();
+			List<List<Edge>> incoming = new ArrayList<List<Edge>>();
+			for (int i = 0; i < size; i++) {
+				outgoing.add(new ArrayList<Edge>());
+				incoming.add(new ArrayList<Edge>());
+			}
+			int[] outdegree = new int[size];
+			int[] indegree = new int[size];
+			for (Edge edge : edges) {
+				outgoing.get(edge.top.id).add(edge);
+				incoming.get(edge.bottom.id).add(edge);
+				outdegree[edge.top.id]++;
+				indegree[edge.bottom.id]++;
+			}
+			boolean[] placed = new boolean[size];
+			int[] rank = new int[size];
+			int first = 0;
+			int last = size - 1;
+			while (first <= last) {
+				boolean found = true;
+				while (found) {
+					found = false;
+					for (int i = 0; i < size; i++) {
+						if (!placed[i] && outdegree[i] == 0) {
+							rank[i] = last--;
+							place(i, placed, outgoing, incoming,
+								outdegree, indegree);
+							found = true;
+						} else if (!placed[i] && indegree[i] == 0) {
+							rank[i] = first++;
+							place(i, placed, outgoing, incoming,
+								outdegree, indegree);
+							found = true;
+						}
+					}
+				}
+				int best = -1;
+				for (int i = 0; i < size; i++) {
+					if (!placed[i] && (best < 0 || outdegree[i]
+							- indegree[i] > outdegree[best] - indegree[best])) {
+						best = i;
+					}
+				}
+				if (best >= 0) {
+					rank[best] = first++;
+					place(best, placed, outgoing, incoming,
+						outdegree, indegree);
+				}
+			}
+			for (Edge edge : edges) {
+				if (rank[edge.top.id] > rank[edge.bottom.id]) {
+					edge.reversed = true;
+					Node top = edge.bottom;
+					edge.bottom = edge.top;
+					edge.top = top;
+				}
+			}
+		}
+
+		private static void place(int i, boolean[] placed,
+				List<List<Edge>> outgoing, List<List<Edge>> incoming,
+				int[] outdegree, int[] indegree) {
+			placed[i] = true;
+			for (Edge edge : outgoing.get(i)) {
+				indegree[edge.bottom.id]--;
+			}
+			for (Edge edge : incoming.get(i)) {
+				outdegree[edge.top.id]--;
+			}
+		}
+
+		// longest path layering, then each class is moved (as far as
+		// the classes above and below it allow) towards the side with
+		// more relations, which shortens the relations passing layers
+		void assignLayers() {
+			int size = nodes.size();
+			List<List<Node>> above = new ArrayList<List<Node>>();
+			List<List<Node>> below = new ArrayList<List<Node>>();
+			int[] indegree = new int[size];
+			for (int i = 0; i < size; i++) {
+				above.add(new ArrayList<Node>());
+				below.add(new ArrayList<Node>());
+			}
+			for (Edge edge : edges) {
+				below.get(edge.top.id).add(edge.bottom);
+				above.get(edge.bottom.id).add(edge.top);
+				indegree[edge.bottom.id]++;
+			}
+			ArrayList<Node> topological = new ArrayList<Node>();
+			for (Node node : nodes) {
+				if (indegree[node.id] == 0) {
+					topological.add(node);
+				}
+			}
+			for (int i = 0; i < topological.size(); i++) {
+				Node node = topological.get(i);
+				for (Node successor : below.get(node.id)) {
+					successor.layer = Math.max(successor.layer,
+						node.layer + 1);
+					if (--indegree[successor.id] == 0) {
+						topological.add(successor);
+					}
+				}
+			}
+			for (int pass = 0; pass < BALANCING_PASSES; pass++) {
+				boolean moved = false;
+				for (int i = topological.size() - 1; i >= 0; i--) {
+					Node node = topological.get(i);
+					int up = above.get(node.id).size();
+					int down = below.get(node.id).size();
+					int layer = node.layer;
+					if (down > up) {
+						layer = Integer.MAX_VALUE;
+						for (Node successor : below.get(node.id)) {
+							layer = Math.min(layer, successor.layer - 1);
+						}
+					} else if (up > down) {
+						layer = 0;
+						for (Node predecessor : above.get(node.id)) {
+							layer = Math.max(layer, predecessor.layer + 1);
+						}
+					}
+					moved |= layer != node.layer;
+					node.layer = layer;
+				}
+				if (!moved) {
+					break;
+				}
+			}
+			// leave out the layers left empty
+			int layerCount = 0;
+			for (Node node : nodes) {
+				layerCount = Math.max(layerCount, node.layer + 1);
+			}
+			int[] compacted = new int[layerCount];
+			for (Node node : nodes) {
+				compacted[node.layer] = 1;
+			}
+			for (int l = 0, next = 0; l < layerCount; l++) {
+				next += compacted[l];
+				compacted[l] = next - 1;
+			}
+			for (Node node : nodes) {
+				node.layer = compacted[node.layer];
+			}
+		}
+
+		// the relations drawn down from a class share the points
+		// they pass through, so that a class with many relations
+		// spanning many layers does not need a point per relation
+		// and layer
+		void splitLongEdges() {
+			int layerCount = 0;
+			for (Node node : nodes) {
+				layerCount = Math.max(layerCount, node.layer + 1);
+			}
+			List<List<Edge>> down = new ArrayList<List<Edge>>();
+			for (int i = 0; i < nodes.size(); i++) {
+				down.add(new ArrayList<Edge>());
+			}
+			for (Edge edge : edges) {
+				down.get(edge.top.id).add(edge);
+			}
+			int classCount = nodes.size();
+			for (int i = 0; i < classCount; i++) {
+				Node top = nodes.get(i);
+				// the shared points, one per layer down from top
+				ArrayList<Node> points = new ArrayList<Node>();
+				for (Edge edge : down.get(i)) {
+					while (top.layer + points.size() + 1 < edge.bottom.layer) {
+						Node dummy = new Node(null, nodes.size());
+						dummy.layer = top.layer + points.size() + 1;
+						Node last = points.isEmpty()
+							? top : points.get(points.size() - 1);
+						last.below.add(dummy);
+						dummy.above.add(last);
+						nodes.add(dummy);
+						points.add(dummy);
+					}
+					edge.chain = new ArrayList<Node>();
+					edge.chain.add(top);
+					edge.chain.addAll(points.subList(0,
+						edge.bottom.layer - top.layer - 1));
+					edge.chain.add(edge.bottom);
+					Node beforeBottom = edge.chain.get(edge.chain.size() - 2);
+					beforeBottom.below.add(edge.bottom);
+					edge.bottom.above.add(beforeBottom);
+				}
+			}
+			layers = new ArrayList<List<Node>>();
+			for (int l = 0; l < layerCount; l++) {
+				layers.add(new ArrayList<Node>());
+			}
+			for (Node node : nodes) {
+				List<Node> layer = layers.get(node.layer);
+				node.order = layer.size();
+				layer.add(node);
+			}
+		}
+
+		int minimizeCrossings() {
+			// a first downward sweep orders every layer
+			// by the classes above it
+			for (int l = 1; l < layers.size(); l++) {
+				reorder(l, true, false);
+			}
+			int[][] best = orders();
+			long bestCrossings = crossings();
+			int sweepsWithoutGain = 0;
+			for (int sweep = 0; sweep < MAX_SWEEPS && bestCrossings > 0
+					&& sweepsWithoutGain < PATIENCE; sweep++) {
+				// the layers reordered together are not adjacent,
+				// so each only reads the order of layers left alone
+				for (int parity = 0; parity < 2; parity++) {
+					int first = (sweep + parity) % 2;
+					IntStream.range(0, (layers.size() - first + 1) / 2)
+						.parallel()
+						.forEach(i -> reorder(first + 2 * i, true, true));
+				}
+				long crossings = crossings();
+				if (crossings < bestCrossings) {
+					bestCrossings = crossings;
+					best = orders();
+					sweepsWithoutGain = 0;
+				} else {
+					sweepsWithoutGain++;
+				}
+			}
+			restore(best);
+			return Math.toIntExact(bestCrossings);
+		}
+
+		// sorts a layer by the mean relative position of the
+		// nodes related to each node in the layers next to it
+		private void reorder(int l, boolean useAbove, boolean useBelow) {
+			List<Node> layer = layers.get(l);
+			double[] barycenter = new double[layer.size()];
+			for (Node node : layer) {
+				double sum = 0;
+				int count = 0;
+				if (useAbove) {
+					for (Node neighbour : node.above) {
+						sum += relativePosition(neighbour);
+						count++;
+					}
+				}
+				if (useBelow) {
+					for (Node neighbour : node.below) {
+						sum += relativePosition(neighbour);
+						count++;
+					}
+				}
+				barycenter[node.order] = (count == 0)
+					? relativePosition(node) : sum / count;
+			}
+			// stable, so that ties keep their order
+			layer.sort(Comparator.comparingDouble(
+				node -> barycenter[node.order]));
+			for (int i = 0; i < layer.size(); i++) {
+				layer.get(i).order = i;
+			}
+		}
+
+		private double relativePosition(Node node) {
+			return (node.order + 0.5) / layers.get(node.layer).size();
+		}
+
+		// the crossings between each pair of adjacent layers,
+		// counted in parallel
+		long crossings() {
+			return IntStream.range(0, Math.max(0, layers.size() - 1))
+				.parallel()
+				.mapToLong(this::crossings)
+				.sum();
+		}
+
+		// the inversions among the edges from layer l to l + 1,
+		// sorted by their upper end
+		private long crossings(int l) {
+			List<Node> upper = layers.get(l);
+			int lowerSize = layers.get(l + 1).size();
+			long[] tree = new long[lowerSize + 1];
+			long crossings = 0;
+			long seen = 0;
+			for (Node node : upper) {
+				int[] ends = new int[node.below.size()];
+				for (int i = 0; i < ends.length; i++) {
+					ends[i] = node.below.get(i).order;
+				}
+				Arrays.sort(ends);
+				// edges seen before ending right of each end cross it
+				for (int end : ends) {
+					long atOrLeft = 0;
+					for (int i = end + 1; i > 0; i -= i & -i) {
+						atOrLeft += tree[i];
+					}
+					crossings += seen - atOrLeft;
+				}
+				for (int end : ends) {
+					for (int i = end + 1; i <= lowerSize; i += i & -i) {
+						tree[i]++;
+					}
+					seen++;
+				}
+			}
+			return crossings;
+		}
+
+		private int[][] orders() {
+			int[][] orders = new int[layers.size()][];
+			for (int l = 0; l < layers.size(); l++) {
+				List<Node> layer = layers.get(l);
+				orders[l] = new int[layer.size()];
+				for (int i = 0; i < layer.size(); i++) {
+					orders[l][i] = layer.get(i).order;
+				}
+			}
+			return orders;
+		}
+
+		private void restore(int[][] orders) {
+			for (int l = 0; l < layers.size(); l++) {
+				List<Node> layer = layers.get(l);
+				for (int i = 0; i < layer.size(); i++) {
+					layer.get(i).order = orders[l][i];
+				}
+				layer.sort(Comparator.comparingInt(node -> node.order));
+			}
+		}
+
+		void assignCoordinates() {
+			double top = 0;
+			for (List<Node> layer : layers) {
+				double height = 0;
+				for (Node node : layer) {
+					height = Math.max(height, node.height);
+				}
+				for (Node node : layer) {
+					node.y = top + height / 2;
+				}
+				top += height + LAYER_SEP;
+			}
+			for (List<Node> layer : layers) {
+				double x = 0;
+				for (int i = 0; i < layer.size(); i++) {
+					x += (i == 0) ? layer.get(i).width / 2
+						: separation(layer.get(i - 1), layer.get(i));
+					layer.get(i).x = x;
+				}
+			}
+			// each node is pulled towards the nodes it is
+			// related to, alternately above and below it
+			for (int sweep = 0; sweep < PLACEMENT_SWEEPS; sweep++) {
+				boolean down = sweep % 2 == 0;
+				boolean last = sweep == PLACEMENT_SWEEPS - 1;
+				for (int i = 0; i < layers.size(); i++) {
+					int l = down ? i : layers.size() - 1 - i;
+					place(layers.get(l), down || last, !down || last);
+				}
+			}
+			double left = Double.POSITIVE_INFINITY;
+			for (Node node : nodes) {
+				left = Math.min(left, node.x - node.width / 2);
+			}
+			for (Node node : nodes) {
+				node.x -= left;
+			}
+		}
+
+		private static double separation(Node left, Node right) {
+			double gap = (left.isDummy() || right.isDummy())
+				? POINT_SEP : NODE_SEP;
+			return (left.width + right.width) / 2 + gap;
+		}
+
+		// moves the nodes of a layer as close as their order and
+		// separation allow to the mean x of their neighbours (least
+		// squares, by pool adjacent violators over the positions
+		// less the separations before each node)
+		private static void place(List<Node> layer, boolean useAbove,
+				boolean useBelow) {
+			int size = layer.size();
+			if (size == 0) {
+				return;
+			}
+			double[] offset = new double[size];
+			double[] target = new double[size];
+			for (int i = 0; i < size; i++) {
+				Node node = layer.get(i);
+				offset[i] = (i == 0) ? 0
+					: offset[i - 1] + separation(layer.get(i - 1), node);
+				double sum = 0;
+				int count = 0;
+				if (useAbove) {
+					for (Node neighbour : node.above) {
+						sum += neighbour.x;
+						count++;
+					}
+				}
+				if (useBelow) {
+					for (Node neighbour : node.below) {
+						sum += neighbour.x;
+						count++;
+					}
+				}
+				target[i] = ((count == 0) ? node.x : sum / count) - offset[i];
+			}
+			// blocks of nodes placed together, as their mean
+			// target and size
+			double[] blockMean = new double[size];
+			int[] blockSize = new int[size];
+			int blocks = 0;
+			for (int i = 0; i < size; i++) {
+				blockMean[blocks] = target[i];
+				blockSize[blocks] = 1;
+				blocks++;
+				while (blocks > 1
+						&& blockMean[blocks - 2] > blockMean[blocks - 1]) {
+					int merged = blockSize[blocks - 2] + blockSize[blocks - 1];
+					blockMean[blocks - 2] = (blockMean[blocks - 2]
+						* blockSize[blocks - 2] + blockMean[blocks - 1]
+						* blockSize[blocks - 1]) / merged;
+					blockSize[blocks - 2] = merged;
+					blocks--;
+				}
+			}
+			for (int b = 0, i = 0; b < blocks; b++) {
+				for (int k = 0; k < blockSize[b]; k++, i++) {
+					layer.get(i).x = blockMean[b] + offset[i];
+				}
+			}
+		}
+
+		Layout toLayout() {
+			Layout layout = new Layout();
+			for (Node node : nodes) {
+				if (!node.isDummy()) {
+					layout.setPosition(node.umlClass,
+						node.x - node.width / 2,
+						node.y - node.height / 2);
+				}
+			}
+			for (Edge edge : edges) {
+				ArrayList<Position> points = new ArrayList<Position>();
+				for (int i = 1; i < edge.chain.size() - 1; i++) {
+					Node dummy = edge.chain.get(i);
+					points.add(new Position(dummy.x, dummy.y));
+				}
+				if (edge.reversed) {
+					Collections.reverse(points);
+				}
+				UMLClass source = edge.relation.source;
+				UMLClass target = edge.relation.target;
+				Position afterSource = points.isEmpty()
+					? layout.center(target) : points.get(0);
+				Position beforeTarget = points.isEmpty()
+					? layout.center(source)
+					: points.get(points.size() - 1);
+				points.add(0, layout.borderPoint(source, afterSource));
+				points.add(layout.borderPoint(target, beforeTarget));
+				layout.setPath(edge.relation, points);
+			}
+			for (ClassRelation cr : selfRelations) {
+				// a loop out of the right side of the class
+				Position p = layout.getPosition(cr.source);
+				double right = p.x + cr.source.getWidth();
+				double upper = p.y + cr.source.getHeight() / 4;
+				double lower = p.y + cr.source.getHeight() * 3 / 4;
+				ArrayList<Position> points = new ArrayList<Position>();
+				points.add(new Position(right, upper));
+				points.add(new Position(right + LOOP_SIZE, upper));
+				points.add(new Position(right + LOOP_SIZE, lower));
+				points.add(new Position(right, lower));
+				layout.setPath(cr, points);
+			}
+			return layout;
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package com.CodeSmell.control;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.UMLClass;
+
+/**
+ * The positions of classes and paths of relations computed by a
+ * {@link LayoutEngine}. A layout is computed without touching the
+ * diagram (so on any thread), then applied to it at once.
+ */
+public class Layout {
+
+	// the top left corner of each class
+	private final LinkedHashMap<UMLClass, Position> positions =
+		new LinkedHashMap<UMLClass, Position>();
+	private final LinkedHashMap<ClassRelation, ArrayList<Position>> paths =
+		new LinkedHashMap<ClassRelation, ArrayList<Position>>();
+
+	public void setPosition(UMLClass c, double x, double y) {
+		positions.put(c, new Position(x, y));
+	}
+
+	/**
+	 * @return The top left corner of c, or null if it was not placed
+	 */
+	public Position getPosition(UMLClass c) {
+		return positions.get(c);
+	}
+
+	public void setPath(ClassRelation cr, ArrayList<Position> path) {
+		paths.put(cr, path);
+	}
+
+	/**
+	 * @return The path of cr, or null if it was not routed
+	 */
+	public ArrayList<Position> getPath(ClassRelation cr) {
+		return paths.get(cr);
+	}
+
+	Position center(UMLClass c) {
+		Position p = positions.get(c);
+		return new Position(p.x + c.getWidth() / 2, p.y + c.getHeight() / 2);
+	}
+
+	/**
+	 * @return The point where the line from the center of c
+	 * towards the given position leaves the box of c
+	 */
+	Position borderPoint(UMLClass c, Position toward) {
+		return borderPoint(positions.get(c), c.getWidth(), c.getHeight(),
+			toward);
+	}
+
+	static Position borderPoint(Position topLeft, double width,
+			double height, Position toward) {
+		Position center = new Position(topLeft.x + width / 2,
+			topLeft.y + height / 2);
+		double dx = toward.x - center.x;
+		double dy = toward.y - center.y;
+		double scaleX = (dx == 0) ? Double.POSITIVE_INFINITY :
+			(width / 2) / Math.abs(dx);
+		double scaleY = (dy == 0) ? Double.POSITIVE_INFINITY :
+			(height / 2) / Math.abs(dy);
+		double scale = Math.min(1, Math.min(scaleX, scaleY));
+		return new Position(center.x + dx * scale, center.y + dy * scale);
+	}
+
+	/**
+	 * @return A path made of a single straight line between the
+	 * borders of the (placed) classes of cr
+	 */
+	ArrayList<Position> straightPath(ClassRelation cr) {
+		ArrayList<Position> path = new ArrayList<Position>();
+		path.add(borderPoint(cr.source, center(cr.target)));
+		path.add(borderPoint(cr.target, center(cr.source)));
+		return path;
+	}
+
+	/**
+	 * @return The smallest rectangle holding every class and path,
+	 * as {left, top, right, bottom} (all 0 for an empty layout)
+	 */
+	double[] bounds() {
+		double[] bounds = {Double.POSITIVE_INFINITY,
+			Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.NEGATIVE_INFINITY};
+		for (Map.Entry<UMLClass, Position> e : positions.entrySet()) {
+			include(bounds, e.getValue().x, e.getValue().y);
+			include(bounds, e.getValue().x + e.getKey().getWidth(),
+				e.getValue().y + e.getKey().getHeight());
+		}
+		for (ArrayList<Position> path : paths.values()) {
+			for (Position p : path) {
+				include(bounds, p.x, p.y);
+			}
+		}
+		return (bounds[0] > bounds[2]) ? new double[4] : bounds;
+	}
+
+	private static void include(double[] bounds, double x, double y) {
+		bounds[0] = Math.min(bounds[0], x);
+		bounds[1] = Math.min(bounds[1], y);
+		bounds[2] = Math.max(bounds[2], x);
+		bounds[3] = Math.max(bounds[3], y);
+	}
+
+	/**
+	 * Add the classes and relations of another layout to this one,
+	 * moved by (dx, dy)
+	 */
+	void addAll(Layout other, double dx, double dy) {
+		for (Map.Entry<UMLClass, Position> e : other.positions.entrySet()) {
+			setPosition(e.getKey(), e.getValue().x + dx, e.getValue().y + dy);
+		}
+		for (Map.Entry<ClassRelation, ArrayList<Position>> e
+				: other.paths.entrySet()) {
+			ArrayList<Position> path = new ArrayList<Position>();
+			for (Position p : e.getValue()) {
+				path.add(new Position(p.x + dx, p.y + dy));
+			}
+			setPath(e.getKey(), path);
+		}
+	}
+
+	/**
+	 * Move and route the classes and relations of the diagram
+	 * (rendering them)
+	 */
+	public void apply() {
+		for (Map.Entry<UMLClass, Position> e : positions.entrySet()) {
+			e.getKey().setPosition(e.getValue().x, e.getValue().y);
+		}
+		for (Map.Entry<ClassRelation, ArrayList<Position>> e
+				: paths.entrySet()) {
+			e.getKey().setPath(e.getValue());
+		}
+	}
+}
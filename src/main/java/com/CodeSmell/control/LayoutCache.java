@@ -0,0 +1,247 @@
+package com.CodeSmell.control;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.CodeSmell.log.Log;
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.ContentHash;
+import com.CodeSmell.parser.SnapshotCache;
+
+/**
+ * Layouts stored in the snapshot cache, so that a diagram which did
+ * not change is not laid out again.
+ *
+ * <p>
+ * The key of a layout is a hash of everything it depends on: the
+ * engine and its parameters, the full name and size of every class and the
+ * relations between them, each sorted so that the order the diagram
+ * was built in does not matter. When a diagram only partly changed,
+ * the classes which kept their size keep their position from the most
+ * recent layout of the engine, and only the other classes are laid out.
+ * </p>
+ */
+public class LayoutCache {
+
+	// part of every key, changed along with the stored form of a layout
+	private static final String FORMAT = "layout-2";
+
+	// a previous layout is reused if at least this share
+	// of the classes kept their name and size
+	private static final double SEED_FRACTION = 0.5;
+
+	// space left between the reused layout and the classes laid out
+	private static final double NEW_CLASS_SEPARATION = 100;
+
+	/**
+	 * The stored form of a layout, in which classes are
+	 * identified by full name and relations by {@link #relationIds}
+	 */
+	static final class Entry implements Serializable {
+		// x, y, width and height of each class
+		final HashMap<String, double[]> classes =
+			new HashMap<String, double[]>();
+
+		// x and y of each point on the path of each relation
+		final HashMap<String, double[]> paths =
+			new HashMap<String, double[]>();
+	}
+
+	private final SnapshotCache cache;
+
+	public LayoutCache(SnapshotCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @return The hex encoded key of the layout of the given
+	 * diagram by the given engine
+	 */
+	public static String key(LayoutEngine engine,
+			ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) {
+		ArrayList<String> lines = new ArrayList<String>();
+		for (UMLClass c : classes) {
+			lines.add("class " + c.fullName + " " + c.getWidth() +
+				" " + c.getHeight());
+		}
+		for (ClassRelation cr : relations) {
+			lines.add("relation " + cr.source.fullName + " " +
+				cr.target.fullName + " " + cr.type);
+		}
+		Collections.sort(lines);
+		MessageDigest digest = ContentHash.newDigest();
+		digest.update((FORMAT + "\n" + engine.name() + "\n" +
+			engine.parameters() + "\n").getBytes(StandardCharsets.UTF_8));
+		for (String line : lines) {
+			digest.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		return ContentHash.toHex(digest.digest());
+	}
+
+	/**
+	 * @return The layout stored under key, or null if there is none
+	 * (or it does not cover the given diagram)
+	 */
+	public Layout load(String key, ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) {
+		Entry entry = entry(cache.loadLayout(key));
+		if (entry == null) {
+			return null;
+		}
+		Layout layout = new Layout();
+		for (UMLClass c : classes) {
+			double[] position = entry.classes.get(c.fullName);
+			if (position == null) {
+				return null;
+			}
+			layout.setPosition(c, position[0], position[1]);
+		}
+		ArrayList<String> ids = relationIds(relations);
+		for (int i = 0; i < relations.size(); i++) {
+			double[] path = entry.paths.get(ids.get(i));
+			if (path == null) {
+				return null;
+			}
+			layout.setPath(relations.get(i), toPath(path));
+		}
+		return layout;
+	}
+
+	/**
+	 * Lay out a diagram starting from the most recent layout of the
+	 * engine. Classes of the same name and size keep their position
+	 * (and the relations between them their path), the other classes
+	 * are laid out with the engine and placed to the right of them,
+	 * and the relations joining the two are drawn as straight lines.
+	 *
+	 * @return The layout, or null if too few classes could keep their
+	 * position, in which case the whole diagram should be laid out
+	 */
+	public Layout seed(LayoutEngine engine, ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) throws IOException {
+		Entry previous = entry(cache.loadLatestLayout(engine.name()));
+		if (previous == null) {
+			return null;
+		}
+		Layout layout = new Layout();
+		ArrayList<UMLClass> changed = new ArrayList<UMLClass>();
+		Set<UMLClass> changedSet = new HashSet<UMLClass>();
+		for (UMLClass c : classes) {
+			double[] position = previous.classes.get(c.fullName);
+			if (position != null && position[2] == c.getWidth()
+					&& position[3] == c.getHeight()) {
+				layout.setPosition(c, position[0], position[1]);
+			} else {
+				changed.add(c);
+				changedSet.add(c);
+			}
+		}
+		int kept = classes.size() - changed.size();
+		if (kept == 0 || kept < classes.size() * SEED_FRACTION) {
+			return null;
+		}
+
+		if (!changed.isEmpty()) {
+			ArrayList<ClassRelation> changedRelations =
+				new ArrayList<ClassRelation>();
+			for (ClassRelation cr : relations) {
+				if (layout.getPosition(cr.source) == null
+						&& layout.getPosition(cr.target) == null) {
+					changedRelations.add(cr);
+				}
+			}
+			Layout added = engine.layout(changed, changedRelations);
+			double[] keptBounds = layout.bounds();
+			double[] addedBounds = added.bounds();
+			layout.addAll(added,
+				keptBounds[2] + NEW_CLASS_SEPARATION - addedBounds[0],
+				keptBounds[1] - addedBounds[1]);
+		}
+
+		ArrayList<String> ids = relationIds(relations);
+		for (int i = 0; i < relations.size(); i++) {
+			ClassRelation cr = relations.get(i);
+			if (layout.getPath(cr) != null) {
+				continue;
+			}
+			double[] path = previous.paths.get(ids.get(i));
+			if (path != null && !changedSet.contains(cr.source)
+					&& !changedSet.contains(cr.target)) {
+				layout.setPath(cr, toPath(path));
+			} else {
+				layout.setPath(cr, layout.straightPath(cr));
+			}
+		}
+		Log.info("layout of %d classes seeded from the previous one " +
+			"(%d classes laid out again)", classes.size(), changed.size());
+		return layout;
+	}
+
+	/**
+	 * Store the layout of a diagram under key, as the
+	 * most recent layout of the engine
+	 */
+	public void put(String key, LayoutEngine engine, Layout layout,
+			ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) {
+		Entry entry = new Entry();
+		for (UMLClass c : classes) {
+			Position p = layout.getPosition(c);
+			if (p != null) {
+				entry.classes.put(c.fullName,
+					new double[] {p.x, p.y, c.getWidth(), c.getHeight()});
+			}
+		}
+		ArrayList<String> ids = relationIds(relations);
+		for (int i = 0; i < relations.size(); i++) {
+			ArrayList<Position> path = layout.getPath(relations.get(i));
+			if (path != null) {
+				double[] points = new double[path.size() * 2];
+				for (int j = 0; j < path.size(); j++) {
+					points[j * 2] = path.get(j).x;
+					points[j * 2 + 1] = path.get(j).y;
+				}
+				entry.paths.put(ids.get(i), points);
+			}
+		}
+		cache.putLayout(key, engine.name(), entry);
+	}
+
+	private static Entry entry(Object stored) {
+		return (stored instanceof Entry) ? (Entry) stored : null;
+	}
+
+	// the id of each relation: the full names of its classes, its type and
+	// how many relations of the same classes and type come before it
+	private static ArrayList<String> relationIds(
+			ArrayList<ClassRelation> relations) {
+		ArrayList<String> ids = new ArrayList<String>();
+		Map<String, Integer> seen = new HashMap<String, Integer>();
+		for (ClassRelation cr : relations) {
+			String id = cr.source.fullName + " " + cr.target.fullName +
+				" " + cr.type;
+			int index = seen.merge(id, 1, Integer::sum) - 1;
+			ids.add(id + " " + index);
+		}
+		return ids;
+	}
+
+	private static ArrayList<Position> toPath(double[] points) {
+		ArrayList<Position> path = new ArrayList<Position>();
+		for (int i = 0; i + 1 < points.length; i += 2) {
+			path.add(new Position(points[i], points[i + 1]));
+		}
+		return path;
+	}
+}
@@ -0,0 +1,40 @@
+package com.CodeSmell.control;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.UMLClass;
+
+/**
+ * Places the rendered classes of a diagram and routes its relations.
+ * Engines compute a {@link Layout} without changing the diagram, so
+ * that parts of a diagram can be laid out concurrently.
+ */
+public interface LayoutEngine {
+
+	/**
+	 * @return The name of the engine, as used for -Dcodesmell.layout
+	 * and the metrics of a layout (e.g. "graphviz")
+	 */
+	String name();
+
+	/**
+	 * @return The settings the layouts of the engine depend on
+	 * (e.g. "nodesep=100"), part of the key of a cached layout
+	 */
+	default String parameters() {
+		return "";
+	}
+
+	/**
+	 * Lay out the given classes, which must already be rendered
+	 * (so that their width and height are known), and the
+	 * relations between them.
+	 *
+	 * @return The positions of the classes and paths of the
+	 * relations, to be applied with {@link Layout#apply()}
+	 */
+	Layout layout(ArrayList<UMLClass> classes,
+		ArrayList<ClassRelation> relations) throws IOException;
+}
@@ -6,23 +6,31 @@ import java.util.Comparator;
 import java.util.Collections;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 
+import com.CodeSmell.log.Log;
+import com.CodeSmell.log.Metrics;
 import com.CodeSmell.model.UMLClass;
 import com.CodeSmell.model.Position;
 import com.CodeSmell.model.RenderEvent;
 import com.CodeSmell.model.Shape;
 import com.CodeSmell.model.Pair;
 import com.CodeSmell.model.ClassRelation;
-import com.CodeSmell.parser.JoernServer.ReaderThread;
+import com.CodeSmell.parser.SnapshotCache;
 
 public class LayoutManager  {
 
@@ -32,181 +40,532 @@ public class LayoutManager  {
 	// node (class) seperation parameter propegated to graphViz
 	private static final String NODE_SEP = "100";
 
+	// the dot executable, and the time it is given to lay out
+	// a diagram before it is killed (in seconds)
+	private static final String DOT_PROPERTY = "codesmell.dot";
+	private static final String TIMEOUT_PROPERTY = "codesmell.dot.timeout";
+	private static final long DEFAULT_TIMEOUT = 300;
+
+	// lines of dot's error output kept for the message of a failure
+	private static final int ERROR_LINES = 20;
+
+	/**
+	 * Lays out diagrams with dot (graphViz), the default engine
+	 */
+	public static final LayoutEngine GRAPHVIZ = new LayoutEngine() {
+		@Override
+		public String name() {
+			return "graphviz";
+		}
+
+		@Override
+		public String parameters() {
+			return "splines=polyline nodesep=" + NODE_SEP +
+				" scale=" + SCALING_FACTOR;
+		}
+
+		@Override
+		public Layout layout(ArrayList<UMLClass> classes,
+				ArrayList<ClassRelation> relations) throws IOException {
+			Layout layout = new Layout();
+			int lineCount = callGraphViz(classes, relations, layout);
+			Log.info("graphViz layout: %d classes, %d relations (%d lines of output)",
+				classes.size(), relations.size(), lineCount);
+			return layout;
+		}
+	};
+
+	/**
+	 * Lays out diagrams in process, without graphViz
+	 */
+	public static final LayoutEngine LAYERED = new LayeredLayout();
+
+	// chosen with -Dcodesmell.layout=<graphviz | layered>
+	private static volatile LayoutEngine engine =
+		LAYERED.name().equals(System.getProperty("codesmell.layout"))
+			? LAYERED : GRAPHVIZ;
+
+	// layouts are kept in the snapshot cache,
+	// unless -Dcodesmell.layout.cache=false
+	private static LayoutCache layoutCache;
+	private static boolean layoutCacheChosen;
+
+	public static LayoutEngine getLayoutEngine() {
+		return engine;
+	}
+
+	public static void setLayoutEngine(LayoutEngine layoutEngine) {
+		engine = layoutEngine;
+	}
+
+	/**
+	 * @return The cache layouts are read from and stored in,
+	 * or null if layouts are not cached
+	 */
+	public static synchronized LayoutCache getLayoutCache() {
+		if (!layoutCacheChosen) {
+			if (Boolean.parseBoolean(System.getProperty(
+					"codesmell.layout.cache", "true"))) {
+				layoutCache = new LayoutCache(SnapshotCache.getDefault());
+			}
+			layoutCacheChosen = true;
+		}
+		return layoutCache;
+	}
+
+	public static synchronized void setLayoutCache(LayoutCache cache) {
+		layoutCache = cache;
+		layoutCacheChosen = true;
+	}
+
 	public static void setLayout(
 			ArrayList<UMLClass> classes,
 			ArrayList<ClassRelation> relations) 
 		throws IOException {
+		setLayout(classes, relations, engine);
+	}
 
-		BufferedReader graphVizReader = callGraphViz(classes, relations);
+	public static void setLayout(
+			ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations,
+			LayoutEngine layoutEngine)
+		throws IOException {
 
-		String line;
-		while ((line = graphVizReader.readLine()) != null) {
-			System.out.println("printing setlayout"+line);
-			parseDotLine(classes, relations, line);
+		// boxes the view has not measured yet are measured now, on
+		// this thread (the view's), all at once, rather than by the
+		// threads the components are laid out on
+		for (UMLClass c : classes) {
+			c.getWidth();
+		}
+
+		// the connected components of the diagram
+		// are laid out separately, concurrently
+		LayoutEngine components = new ComponentLayout(layoutEngine);
+		LayoutCache cache = getLayoutCache();
+		try (Metrics.Phase phase = Metrics.phase("layout." + layoutEngine.name())) {
+			if (cache == null) {
+				components.layout(classes, relations).apply();
+				return;
+			}
+			String key = LayoutCache.key(components, classes, relations);
+			Layout layout = cache.load(key, classes, relations);
+			if (layout == null) {
+				layout = cache.seed(components, classes, relations);
+				if (layout == null) {
+					layout = components.layout(classes, relations);
+				}
+				cache.put(key, components, layout, classes, relations);
+			}
+			layout.apply();
 		}
 	}
 
-	private static final String NUMBERS_RE = "((((\\d+[.]\\d+)|(\\d+)) ){2,})";
-	private static final Pattern RELATION_DOT_RE = Pattern.compile(
-			"edge ([a-zA-Z]+) ([a-zA-Z]+) (\\d+) " + NUMBERS_RE);
-	private static final Pattern CLASS_DOT_RE = Pattern.compile(
-			"node ([a-zA-Z]+) ((((\\d+[.]\\d+)|(\\d+)) ){2})");
+	public static ArrayList<Position> straightPath(UMLClass source, 
+			UMLClass target) {
+		// a path made of a single straight line between the borders
+		// of two positioned classes, used to draw relations added
+		// without calling graphViz again (e.g. in watch mode)
 
-	private static void parseDotLine(
-			ArrayList<UMLClass> classes, 
-			ArrayList<ClassRelation> relations,
-			String line) throws IOException {
-		System.out.println("printing line:"+line);
-		String numbers = "((((\\d+[.]\\d+)|(\\d+)) ){2,})";
-
-		if (line.startsWith("graph") || line.startsWith("stop")) return;
-		Matcher edgeMatch = RELATION_DOT_RE.matcher(line);
-		Matcher classMatch = CLASS_DOT_RE.matcher(line);
-
-		if (edgeMatch.find()) {
-			System.out.println("EDGE MATCH\n" + line);
-			String sourceClassName = edgeMatch.group(1);
-			ArrayList<Position> path = parsePaths(edgeMatch);
-			for (ClassRelation cr : relations) {
-				if (cr.source.name.equals(sourceClassName)) {
-					System.out.println(cr.type);
-					System.out.printf("edge name: %s\n%s\n", 
-						sourceClassName, line);
-					for (Position p : path) {
-						System.out.println(p);
-					}
-					cr.setPath(path);
-					return;
+		ArrayList<Position> path = new ArrayList<Position>();
+		path.add(borderPoint(source, center(target)));
+		path.add(borderPoint(target, center(source)));
+		return path;
+	}
+
+	private static Position center(UMLClass c) {
+		return new Position(c.getPosition().x + c.getWidth() / 2,
+			c.getPosition().y + c.getHeight() / 2);
+	}
+
+	private static Position borderPoint(UMLClass c, Position toward) {
+		return Layout.borderPoint(c.getPosition(), c.getWidth(),
+			c.getHeight(), toward);
+	}
+
+	/**
+	 * The names of the classes of a diagram in the graphViz input, and
+	 * the classes and relations they stand for in its output. Classes
+	 * are named by their full name (suffixed if two share it), and the
+	 * relations between two classes are matched with the edges dot
+	 * prints between them in the order they were written.
+	 */
+	static final class DotGraph {
+
+		private final IdentityHashMap<UMLClass, String> ids =
+			new IdentityHashMap<UMLClass, String>();
+		private final HashMap<String, UMLClass> nodes =
+			new HashMap<String, UMLClass>();
+
+		// the relations between each pair of classes, and how many
+		// of them were given a path so far
+		private final HashMap<String, ArrayList<ClassRelation>> edges =
+			new HashMap<String, ArrayList<ClassRelation>>();
+		private final HashMap<String, Integer> edgesParsed =
+			new HashMap<String, Integer>();
+
+		DotGraph(ArrayList<UMLClass> classes,
+				ArrayList<ClassRelation> relations) {
+			for (UMLClass c : classes) {
+				String id = c.fullName;
+				for (int i = 2; nodes.containsKey(id); i++) {
+					id = c.fullName + "#" + i;
 				}
+				ids.put(c, id);
+				nodes.put(id, c);
 			}
-		} else if (classMatch.find()) {
-			System.out.println("CLASS MATCH\n" + line);
-			String className = classMatch.group(1);
-			String[] rest = classMatch.group(2).split(" ");
-			double x = Double.parseDouble(rest[0]);
-			double y = Double.parseDouble(rest[1]);
-			System.out.printf("name: %s, x: %f, y: %f\n",
-				className, x, y);
-			for (UMLClass c : classes) {
-				if (c.name.equals(className)) {
-					// coordinates graphViz uses
-					// are relative to the center, convert
-					c.setPosition(x * SCALING_FACTOR - c.getWidth() / 2, 
-						y * SCALING_FACTOR - c.getHeight() / 2);
-					return;
+			for (ClassRelation cr : relations) {
+				String source = ids.get(cr.source);
+				String target = ids.get(cr.target);
+				if (source != null && target != null) {
+					edges.computeIfAbsent(edgeKey(source, target),
+						key -> new ArrayList<ClassRelation>()).add(cr);
 				}
 			}
+		}
+
+		String id(UMLClass c) {
+			return ids.get(c);
+		}
+
+		UMLClass node(String id) {
+			return nodes.get(id);
+		}
+
+		/**
+		 * @return The relation the next edge dot printed from
+		 * source to target stands for, or null if there is none
+		 */
+		ClassRelation nextEdge(String source, String target) {
+			String key = edgeKey(source, target);
+			ArrayList<ClassRelation> between = edges.get(key);
+			if (between == null) {
+				return null;
+			}
+			int index = edgesParsed.merge(key, 1, Integer::sum) - 1;
+			return (index < between.size()) ? between.get(index) : null;
+		}
+
+		private static String edgeKey(String source, String target) {
+			return source + "\n" + target;
+		}
+	}
+
+	// package-private for the benchmarks (src/jmh)
+	static void parseDotLine(DotGraph graph, String line,
+			Layout layout) throws IOException {
+		// lines of dot -Tplain output are either
+		//   graph scale width height
+		//   node name x y width height label style shape color fillcolor
+		//   edge tail head n x1 y1 .. xn yn [label xl yl] style color
+		//   stop
+		Log.debug("graphViz output: %s", line);
+
+		DotLineReader reader = new DotLineReader(line);
+		if (!reader.hasNext()) {
+			return;
+		}
+		String kind = reader.next();
+		if (kind.equals("graph") || kind.equals("stop")) {
+			return;
+		} else if (kind.equals("node")) {
+			UMLClass c = graph.node(reader.next());
+			if (c == null) {
+				return;
+			}
+			double x = reader.nextNumber();
+			double y = reader.nextNumber();
+			Log.debug("node %s at (%f, %f)", c.name, x, y);
+			// coordinates graphViz uses
+			// are relative to the center, convert
+			layout.setPosition(c,
+				x * SCALING_FACTOR - c.getWidth() / 2, 
+				y * SCALING_FACTOR - c.getHeight() / 2);
+		} else if (kind.equals("edge")) {
+			ClassRelation cr = graph.nextEdge(reader.next(), reader.next());
+			double numPoints = reader.nextNumber();
+			if (numPoints < 0 || numPoints != (int) numPoints) {
+				throw new IOException(
+					"dot (graphViz) gave a path " +
+					"with an incorrect size:\n" + line);
+			}
+			ArrayList<Position> path = new ArrayList<Position>((int) numPoints);
+			for (int i = 0; i < numPoints; i++) {
+				path.add(new Position(reader.nextNumber(), reader.nextNumber()));
+			}
+			if (cr != null) {
+				Log.debug("edge %s (%s): %s", cr.source.name, cr.type, path);
+				layout.setPath(cr, path);
+			}
 		} else {
 			throw new IOException(
 				"unexpected line in graphViz output:\n" + line);
 		}
 	}
 
-	private static ArrayList<Position> parsePaths(
-			Matcher edgeMatch) throws IOException {
-		int numPaths = Integer.parseInt(edgeMatch.group(3));
-		ArrayList<Position> pathNodes = new ArrayList<Position>();
+	/**
+	 * Reads the fields of a line of dot output one at a time. Fields
+	 * are separated by spaces, and names which are not plain words are
+	 * quoted ("a \"b\""). Numbers are read without a string being made
+	 * of them, as most of the output is made of numbers.
+	 */
+	private static final class DotLineReader {
+
+		// decimals up to this many digits are read exactly,
+		// longer ones are left to Double.parseDouble
+		private static final int MAX_DIGITS = 15;
+		private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3,
+			1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+		private final String line;
+		private int pos;
+
+		DotLineReader(String line) {
+			this.line = line;
+		}
+
+		boolean hasNext() {
+			while (pos < line.length() && (line.charAt(pos) == ' '
+					|| line.charAt(pos) == '\t' || line.charAt(pos) == '\r')) {
+				pos++;
+			}
+			return pos < line.length();
+		}
 
-		String pathString = edgeMatch.group(4);
-		Iterator<String> pathIter = Arrays.asList(
-			pathString.split(" ")).iterator();
-		String xCord, yCord;
-		while (pathIter.hasNext()) {
-			numPaths--;
-			xCord = pathIter.next();
-			//System.out.println(numPaths);
-			//System.out.println(xCord);
-			if (numPaths < 0) {
+		String next() throws IOException {
+			if (!hasNext()) {
 				throw new IOException(
-					"dot (graphViz) gave a path " +
-					"with an incorrect size:\n" + pathString);
+					"incomplete line in graphViz output:\n" + line);
+			}
+			if (line.charAt(pos) != '"') {
+				int start = pos;
+				while (pos < line.length() && line.charAt(pos) != ' ') {
+					pos++;
+				}
+				return line.substring(start, pos);
 			}
-			yCord = pathIter.next();
-			System.out.println("Printing xcord"+xCord+ "and ycord"+yCord);
-			pathNodes.add(new Position(Double.parseDouble(xCord),
-				Double.parseDouble(yCord)));
+			StringBuilder field = new StringBuilder();
+			pos++;
+			while (pos < line.length() && line.charAt(pos) != '"') {
+				if (line.charAt(pos) == '\\' && pos + 1 < line.length()
+						&& line.charAt(pos + 1) == '"') {
+					pos++;
+				}
+				field.append(line.charAt(pos++));
+			}
+			if (pos == line.length()) {
+				throw new IOException(
+					"unterminated name in graphViz output:\n" + line);
+			}
+			pos++;
+			return field.toString();
 		}
-		return pathNodes;
-	}
 
-	private static BufferedReader callGraphViz(ArrayList<UMLClass> classes,
-			ArrayList<ClassRelation> relations) throws IOException {
-		String graphVizIn = compileGraphVizInvokeCommand(classes, relations);
-		graphVizIn += "\n";
-		//File inFile = createTempFile("graphViz-gen-codesmell", "-tmp");
-		System.out.println("Calling graphViz with command\n" + graphVizIn);
+		double nextNumber() throws IOException {
+			if (!hasNext()) {
+				throw new IOException(
+					"incomplete line in graphViz output:\n" + line);
+			}
+			// [-]digits[.digits], as dot prints coordinates
+			int start = pos;
+			boolean negative = line.charAt(pos) == '-';
+			if (negative) {
+				pos++;
+			}
+			long digits = 0;
+			int count = 0;
+			int decimals = -1;
+			for (; pos < line.length(); pos++) {
+				char ch = line.charAt(pos);
+				if (ch >= '0' && ch <= '9') {
+					digits = digits * 10 + (ch - '0');
+					count++;
+					if (decimals >= 0) {
+						decimals++;
+					}
+				} else if (ch == '.' && decimals < 0) {
+					decimals = 0;
+				} else {
+					break;
+				}
+			}
+			if (count > 0 && count <= MAX_DIGITS && (pos == line.length()
+					|| line.charAt(pos) == ' ')) {
+				// both are exact, so the quotient is
+				// rounded as Double.parseDouble would
+				double value = digits / POWERS_OF_TEN[Math.max(decimals, 0)];
+				return negative ? -value : value;
+			}
+			// an exponent, or more digits than a long holds exactly
+			while (pos < line.length() && line.charAt(pos) != ' ') {
+				pos++;
+			}
+			String field = line.substring(start, pos);
+			try {
+				return Double.parseDouble(field);
+			} catch (NumberFormatException e) {
+				throw new IOException(String.format(
+					"expected a number, not %s, in graphViz output:\n%s",
+					field, line));
+			}
+		}
+	}
 
+	private static int callGraphViz(ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations, Layout layout)
+			throws IOException {
+		DotGraph graph = new DotGraph(classes, relations);
+		// dot reads the whole graph before it lays it out, and the
+		// layout is parsed as it is printed. The graph is written
+		// and the error output read on their own threads, so that
+		// no pipe fills up while dot waits on another one.
+		long timeout = Long.getLong(TIMEOUT_PROPERTY, DEFAULT_TIMEOUT);
 		Process graphVizProcess = new ProcessBuilder(
 			// can also do 
 			//"dot", "-y" instead of "fdp"
 			//fdp, dot, sfdp, neato are all provided by
 			// graphViz. Some use flipped y coordinates, 
 			// some don't. -y controls flipped y.
-			"dot", "-Tplain").start();
-		
-		// std in buffer
-		OutputStream graphVizOut = graphVizProcess.getOutputStream();
-
-		// std error buffer 
-		BufferedReader graphVizErrorReader = new BufferedReader(
-				new InputStreamReader(graphVizProcess.getErrorStream()));
-		
-		// std out buffer 
-		BufferedReader graphVizReader = new BufferedReader(
-				new InputStreamReader(graphVizProcess.getInputStream()));
-
-		// start the error reader
-		new ReaderThread(graphVizErrorReader).start();
-
-		//System.out.println(graphVizIn);
-		byte[] inFileBuffer = graphVizIn.getBytes("utf-8");
-		ByteArrayOutputStream baos = new ByteArrayOutputStream();
-		baos.write(inFileBuffer, 0, inFileBuffer.length);
-		baos.writeTo(graphVizOut);
-		graphVizOut.flush();
-		graphVizOut.close();
-		try {
-			if(!System.getProperty("os.name").contains("Windows"))
-			{
-				graphVizProcess.waitFor();
+			System.getProperty(DOT_PROPERTY, "dot"), "-Tplain").start();
+
+		// std in
+		AtomicReference<IOException> writeError = new AtomicReference<>();
+		Thread writer = daemon("codesmell-graphviz-writer", () -> {
+			try (Writer graphVizOut = new BufferedWriter(new OutputStreamWriter(
+					graphVizProcess.getOutputStream(), StandardCharsets.UTF_8))) {
+				writeGraphVizScript(graphVizOut, graph, classes, relations);
+			} catch (IOException e) {
+				writeError.set(e);
 			}
-			else {
-				Thread.sleep(500);
+		});
+
+		// std error
+		ArrayList<String> errorLines = new ArrayList<String>();
+		Thread errorReader = daemon("codesmell-graphviz-errors", () -> {
+			try (BufferedReader graphVizErrorReader = new BufferedReader(
+					new InputStreamReader(graphVizProcess.getErrorStream()))) {
+				String line;
+				while ((line = graphVizErrorReader.readLine()) != null) {
+					Log.info("graphViz: %s", line);
+					synchronized (errorLines) {
+						if (errorLines.size() < ERROR_LINES) {
+							errorLines.add(line);
+						}
+					}
+				}
+			} catch (IOException e) {
+				// dot was killed
 			}
+		});
 
+		// dot is killed if it has not finished in time,
+		// which ends its output
+		AtomicBoolean timedOut = new AtomicBoolean();
+		Thread watchdog = daemon("codesmell-graphviz-watchdog", () -> {
+			try {
+				if (!graphVizProcess.waitFor(timeout, TimeUnit.SECONDS)) {
+					timedOut.set(true);
+					graphVizProcess.destroyForcibly();
+				}
+			} catch (InterruptedException e) {
+				// the layout ended first
+			}
+		});
 
-		} catch (InterruptedException e) {}
-		return graphVizReader;
+		// std out, parsed on this thread as dot prints it
+		int lineCount = 0;
+		boolean completed = false;
+		try {
+			try (BufferedReader graphVizReader = new BufferedReader(
+					new InputStreamReader(graphVizProcess.getInputStream(),
+						StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = graphVizReader.readLine()) != null) {
+					parseDotLine(graph, line, layout);
+					lineCount++;
+				}
+			} catch (IOException e) {
+				if (!timedOut.get()) {
+					throw e;
+				}
+				// the output was cut off when dot was killed
+			}
+			int exitCode = graphVizProcess.waitFor();
+			writer.join();
+			errorReader.join(1000);
+			if (timedOut.get()) {
+				throw new IOException(String.format(
+					"dot (graphViz) did not lay out %d classes within %d s",
+					classes.size(), timeout));
+			}
+			if (exitCode != 0) {
+				synchronized (errorLines) {
+					throw new IOException(String.format(
+						"dot (graphViz) failed with exit code %d:\n%s",
+						exitCode, String.join("\n", errorLines)));
+				}
+			}
+			if (writeError.get() != null) {
+				throw new IOException(
+					"could not write the graph to dot (graphViz)",
+					writeError.get());
+			}
+			completed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+				"interrupted while waiting for dot (graphViz)");
+		} finally {
+			watchdog.interrupt();
+			if (!completed) {
+				graphVizProcess.destroyForcibly();
+			}
+		}
+		return lineCount;
+	}
+
+	private static Thread daemon(String name, Runnable task) {
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
 	}
 
-	private static String compileGraphVizInvokeCommand(ArrayList<UMLClass> classes,
+	// package-private for the benchmarks (src/jmh)
+	static String compileGraphVizInvokeCommand(ArrayList<UMLClass> classes,
 			ArrayList<ClassRelation> relations) {
-		StringBuilder graphVizIn = new StringBuilder(
-			"digraph G {\nsplines=polyline\n" +
-			"nodesep=" + NODE_SEP + "\n");
-		appendClassParameters(graphVizIn, classes);
-		appendPathParameters(graphVizIn, relations);
-		graphVizIn.append("}");
+		StringWriter graphVizIn = new StringWriter();
+		try {
+			writeGraphVizScript(graphVizIn, new DotGraph(classes, relations),
+				classes, relations);
+		} catch (IOException e) {
+			// a StringWriter does not throw
+			throw new UncheckedIOException(e);
+		}
 		return graphVizIn.toString();
 	}
 
-	private static void appendClassParameters(StringBuilder graphVizIn,
-			ArrayList<UMLClass> classes) {
+	private static void writeGraphVizScript(Writer graphVizIn,
+			DotGraph graph, ArrayList<UMLClass> classes,
+			ArrayList<ClassRelation> relations) throws IOException {
+		graphVizIn.write("digraph G {\nsplines=polyline\n" +
+			"nodesep=" + NODE_SEP + "\n");
 		for (UMLClass c : classes) {
-			graphVizIn.append(String.format(
-				"\"%s\" [width=%f, height=%f, " +
+			graphVizIn.write(String.format(
+				"%s [width=%f, height=%f, " +
 				"shape=\"rectangle\", fixedsize=true]\n", 
-				c.name, c.getWidth() * SCALING_FACTOR, 
+				quote(graph.id(c)), c.getWidth() * SCALING_FACTOR, 
 				c.getHeight() * SCALING_FACTOR));
 		}
-	}
-
-	private static void appendPathParameters(StringBuilder graphVizIn,
-			ArrayList<ClassRelation> relations) {
 		for (ClassRelation cr : relations) {
-			graphVizIn.append(
-				String.format("\"%s\" -> \"%s\"\n", 
-				cr.source.name, cr.target.name));
+			graphVizIn.write(
+				String.format("%s -> %s\n", 
+				quote(graph.id(cr.source)), quote(graph.id(cr.target))));
 		}
+		graphVizIn.write("}\n");
+	}
+
+	// a quoted dot ID, which may hold any character
+	private static String quote(String id) {
+		return "\"" + id.replace("\"", "\\\"") + "\"";
 	}
 }
@@ -0,0 +1,180 @@
+package com.CodeSmell.control;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.CodeSmell.log.Log;
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.ClassRelation.RelationshipType;
+import com.CodeSmell.model.PackageNode;
+import com.CodeSmell.model.PackageRelation;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.CPGClass;
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.CodePropertyGraph.Relation;
+import com.CodeSmell.parser.Package;
+
+/**
+ * The diagram drawn when zoomed too far out for classes to be read:
+ * a box for each package, sized by its number of classes and coloured
+ * by its smells, and a path for the relations between the classes of
+ * each pair of packages, labelled with their number.
+ *
+ * <p>
+ * It is laid out once, when the diagram is built (or changed), along
+ * with the diagram of classes, so that zooming in and out only changes
+ * what the view shows. Since it has few nodes, it is always laid out
+ * in process (see {@link LayeredLayout}) rather than with graphViz.
+ * </p>
+ */
+public class PackageDiagram {
+
+	// the height of the box of a package of one class, and how much
+	// it grows with the square root of the number of classes (so that
+	// the area of a box follows the number of classes)
+	private static final double BASE_SIZE = 120;
+	private static final double SIZE_PER_CLASS = 30;
+
+	// the width of a box, relative to its height
+	private static final double ASPECT_RATIO = 1.5;
+
+	private final ArrayList<PackageNode> packages;
+	private final ArrayList<PackageRelation> relations;
+
+	// the laid out path of each relation, given to it when rendered
+	private final ArrayList<ArrayList<Position>> paths =
+		new ArrayList<ArrayList<Position>>();
+
+	private PackageDiagram(ArrayList<PackageNode> packages,
+			ArrayList<PackageRelation> relations) {
+		this.packages = packages;
+		this.relations = relations;
+	}
+
+	/**
+	 * Group the classes and relations of cpg by package and lay
+	 * the packages out (without rendering them)
+	 */
+	public static PackageDiagram build(CodePropertyGraph cpg)
+			throws IOException {
+		// the package of each class
+		Map<CPGClass, String> packageOf = new HashMap<CPGClass, String>();
+		for (Package pkg : cpg.getPackages()) {
+			for (Package.File file : pkg.files) {
+				for (CPGClass c : file.classes) {
+					packageOf.put(c, pkg.packageName);
+				}
+			}
+		}
+		LinkedHashMap<String, int[]> counts = new LinkedHashMap<String, int[]>();
+		for (CPGClass c : cpg.getClasses()) {
+			// (classes in no file of a package, by the package they declare)
+			String name = packageOf.computeIfAbsent(c, k -> k.packageName);
+			int[] count = counts.computeIfAbsent(name, k -> new int[2]);
+			count[0]++;
+			count[1] += c.getSmells().size();
+		}
+		double maxSmellsPerClass = 0;
+		for (int[] count : counts.values()) {
+			maxSmellsPerClass = Math.max(maxSmellsPerClass,
+				(double) count[1] / count[0]);
+		}
+
+		LinkedHashMap<String, PackageNode> nodes =
+			new LinkedHashMap<String, PackageNode>();
+		for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+			int classes = entry.getValue()[0];
+			int smells = entry.getValue()[1];
+			double heat = (maxSmellsPerClass == 0) ? 0
+				: smells / (classes * maxSmellsPerClass);
+			double height = BASE_SIZE + SIZE_PER_CLASS * Math.sqrt(classes);
+			nodes.put(entry.getKey(), new PackageNode(entry.getKey(),
+				classes, smells, heat, height * ASPECT_RATIO, height));
+		}
+
+		// the relations between classes of different packages,
+		// counted by source and target package
+		LinkedHashMap<String, int[]> relationCounts =
+			new LinkedHashMap<String, int[]>();
+		for (Relation r : cpg.getRelations()) {
+			String source = packageOf.get(r.source);
+			String target = packageOf.get(r.destination);
+			if (source != null && target != null && !source.equals(target)) {
+				relationCounts.computeIfAbsent(source + "\n" + target,
+					k -> new int[1])[0]++;
+			}
+		}
+		ArrayList<PackageRelation> relations = new ArrayList<PackageRelation>();
+		for (Map.Entry<String, int[]> entry : relationCounts.entrySet()) {
+			String[] ends = entry.getKey().split("\n", 2);
+			PackageRelation r = new PackageRelation(nodes.get(ends[0]),
+				nodes.get(ends[1]), entry.getValue()[0]);
+			r.source.addRelationship(r);
+			r.target.addRelationship(r);
+			relations.add(r);
+		}
+
+		PackageDiagram diagram = new PackageDiagram(
+			new ArrayList<PackageNode>(nodes.values()), relations);
+		diagram.layout();
+		Log.info("package diagram: %d packages, %d relations",
+			nodes.size(), relations.size());
+		return diagram;
+	}
+
+	private void layout() throws IOException {
+		// the layout engines lay out classes, so each package
+		// is laid out as a class of the size of its box
+		ArrayList<UMLClass> boxes = new ArrayList<UMLClass>();
+		Map<PackageNode, UMLClass> boxOf = new HashMap<PackageNode, UMLClass>();
+		for (PackageNode p : packages) {
+			UMLClass box = new UMLClass(p.name, "package " + p.name,
+				new ArrayList<>());
+			box.resize(p.width, p.height);
+			boxes.add(box);
+			boxOf.put(p, box);
+		}
+		ArrayList<ClassRelation> edges = new ArrayList<ClassRelation>();
+		for (PackageRelation r : relations) {
+			edges.add(new ClassRelation(boxOf.get(r.source),
+				boxOf.get(r.target), RelationshipType.DEPENDENCY, ""));
+		}
+		Layout layout = new ComponentLayout(LayoutManager.LAYERED)
+			.layout(boxes, edges);
+		for (PackageNode p : packages) {
+			Position position = layout.getPosition(boxOf.get(p));
+			p.setPosition(position.x, position.y);
+		}
+		for (int i = 0; i < relations.size(); i++) {
+			paths.add(layout.getPath(edges.get(i)));
+		}
+	}
+
+	public void render() {
+		for (PackageNode p : packages) {
+			p.render();
+		}
+		for (int i = 0; i < relations.size(); i++) {
+			relations.get(i).setPath(paths.get(i));
+		}
+	}
+
+	public void remove() {
+		// (the paths of the relations are removed with the packages)
+		for (PackageNode p : packages) {
+			p.remove();
+		}
+	}
+
+	public ArrayList<PackageNode> getPackages() {
+		return new ArrayList<PackageNode>(packages);
+	}
+
+	public ArrayList<PackageRelation> getRelations() {
+		return new ArrayList<PackageRelation>(relations);
+	}
+}
@@ -0,0 +1,161 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.log.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a directory tree for changes to java source files using a {@link WatchService}.
+ *
+ * <p>
+ * Bursts of changes (e.g. an editor writing a temporary file, renaming it and touching the original) are
+ * debounced: the listener is called once no further change has been seen for the quiet period, with all the
+ * files changed during the burst. The listener is called on the watcher thread.
+ * </p>
+ *
+ * <p>
+ * A deleted directory is reported itself, as the files it contained are not. If events were lost (the watch
+ * service overflowed), which files changed is not known: the root directory is reported along with every java file
+ * within it, so the listener compares the whole tree again.
+ * </p>
+ */
+public class SourceWatcher implements Closeable {
+
+    /**
+     * The default time (in milliseconds) without changes after which a burst of changes is reported
+     */
+    public static final long DEFAULT_QUIET_PERIOD = 200;
+
+    private final Path root;
+    private final long quietPeriod;
+    private final Consumer<Set<Path>> listener;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * Create a watcher for the directory tree rooted at root.
+     *
+     * @param root        - The directory to watch (sub directories, including new ones, are watched as well)
+     * @param quietPeriod - The time in milliseconds without changes after which changes are reported
+     * @param listener    - Called with the java files that were created, modified or deleted, the directories
+     *                    deleted, and the root directory if any change may have been missed
+     * @throws IOException if the directory tree cannot be registered
+     */
+    public SourceWatcher(Path root, long quietPeriod, Consumer<Set<Path>> listener) throws IOException {
+        this.root = root;
+        this.quietPeriod = quietPeriod;
+        this.listener = listener;
+        this.watchService = root.getFileSystem().newWatchService();
+        registerTree(root);
+        this.thread = new Thread(this::watch, "codesmell-source-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    public SourceWatcher(Path root, Consumer<Set<Path>> listener) throws IOException {
+        this(root, DEFAULT_QUIET_PERIOD, listener);
+    }
+
+    /**
+     * Start watching for changes.
+     */
+    public void start() {
+        thread.start();
+        Log.info("Watching %s for changes", root);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void registerTree(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                d.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void watch() {
+        Set<Path> changed = new LinkedHashSet<>();
+        while (!closed) {
+            WatchKey key;
+            try {
+                // wait indefinitely for the first change of a burst, then
+                // only for the quiet period for any further changes
+                key = changed.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(quietPeriod, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            if (key == null) {
+                Set<Path> burst = changed;
+                changed = new LinkedHashSet<>();
+                try {
+                    listener.accept(burst);
+                } catch (RuntimeException e) {
+                    Log.error(e, "Failed to handle changes to %d files", burst.size());
+                }
+                continue;
+            }
+            addChanges((Path) key.watchable(), key.pollEvents(), changed);
+            key.reset();
+        }
+    }
+
+    /**
+     * Add the source files changed by the events of a watched directory to changed.
+     */
+    void addChanges(Path dir, List<WatchEvent<?>> events, Set<Path> changed) {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == OVERFLOW) {
+                Log.warn("Changes to %s were missed, comparing the whole tree again", root);
+                changed.add(root);
+                addTree(root, changed);
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                // files may have been written before the directory was registered
+                addTree(path, changed);
+            } else if (isSourceFile(path)) {
+                changed.add(path);
+            } else if (event.kind() == ENTRY_DELETE) {
+                // (possibly a directory, whose files are not reported)
+                changed.add(path);
+            }
+        }
+    }
+
+    private void addTree(Path dir, Set<Path> changed) {
+        // (registering a directory already registered does nothing)
+        try {
+            registerTree(dir);
+            try (var files = Files.walk(dir)) {
+                files.filter(SourceWatcher::isSourceFile).forEach(changed::add);
+            }
+        } catch (IOException e) {
+            Log.warn("Could not watch %s: %s", dir, e);
+        }
+    }
+
+    private static boolean isSourceFile(Path path) {
+        return path.toString().endsWith(".java");
+    }
+}
@@ -0,0 +1,355 @@
+package com.CodeSmell.log;
+
+import java.io.PrintStream;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A leveled, asynchronous logger used throughout the CodeSmell tool in place of direct calls to
+ * {@link System#out}.
+ *
+ * <p>
+ * Messages are placed into a bounded ring buffer by the calling thread and written to the console by a single
+ * daemon writer thread, so that hot paths (ingest, layout) never block on console I/O. Formatting of the message
+ * is deferred to the writer thread. If the buffer is full, the oldest message of the lowest level waiting is
+ * dropped (or the new message, if it is of a lower level than all those waiting), so that a burst of debug output
+ * cannot push out the error which explains a failure. A count of the dropped messages is reported once the writer
+ * catches up.
+ * </p>
+ *
+ * <p>
+ * By default only {@link Level#INFO} and above are emitted, which gives summary output. Verbose dumps are logged
+ * at {@link Level#DEBUG} and only appear when the debug flag is set, either with the system property
+ * <code>-Dcodesmell.debug=true</code> or the <code>--debug</code> command line argument.
+ * </p>
+ */
+public final class Log {
+
+    /**
+     * The severity of a log message, in increasing order
+     */
+    public enum Level {
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR
+    }
+
+    /**
+     * The maximum number of messages that can be waiting to be written
+     */
+    public static final int BUFFER_CAPACITY = 8192;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private static final RingBuffer buffer = new RingBuffer(BUFFER_CAPACITY);
+
+    private static volatile Level threshold = Boolean.getBoolean("codesmell.debug") ? Level.DEBUG : Level.INFO;
+
+    private static volatile PrintStream out = System.out;
+
+    private static volatile PrintStream err = System.err;
+
+    static {
+        Thread writer = new Thread(Log::drain, "codesmell-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1000)));
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Set the minimum level of messages which will be written.
+     *
+     * @param level - The lowest level that should be emitted
+     */
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    public static Level getLevel() {
+        return threshold;
+    }
+
+    /**
+     * Enable or disable verbose (debug) output.
+     *
+     * @param debug - If true, debug messages will be written
+     */
+    public static void setDebug(boolean debug) {
+        setLevel(debug ? Level.DEBUG : Level.INFO);
+    }
+
+    public static boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(threshold) >= 0;
+    }
+
+    /**
+     * Redirect the output of the writer thread (INFO and DEBUG messages go to out, WARN and ERROR to err).
+     *
+     * @param outStream - The stream for INFO and DEBUG messages
+     * @param errStream - The stream for WARN and ERROR messages
+     */
+    public static void setOutput(PrintStream outStream, PrintStream errStream) {
+        flush();
+        out = outStream;
+        err = errStream;
+    }
+
+    public static void debug(String format, Object... args) {
+        log(Level.DEBUG, null, format, args);
+    }
+
+    /**
+     * Log a debug message whose (potentially expensive) construction is skipped entirely
+     * when debug output is disabled.
+     *
+     * @param message - Supplies the message to log
+     */
+    public static void debug(Supplier<String> message) {
+        if (isDebugEnabled()) {
+            log(Level.DEBUG, null, "%s", new Object[]{message.get()});
+        }
+    }
+
+    public static void info(String format, Object... args) {
+        log(Level.INFO, null, format, args);
+    }
+
+    public static void warn(String format, Object... args) {
+        log(Level.WARN, null, format, args);
+    }
+
+    public static void error(String format, Object... args) {
+        log(Level.ERROR, null, format, args);
+    }
+
+    public static void error(Throwable t, String format, Object... args) {
+        log(Level.ERROR, t, format, args);
+    }
+
+    /**
+     * Wait (up to 5 seconds) until all messages currently in the buffer have been written.
+     */
+    public static void flush() {
+        flush(5000);
+    }
+
+    private static void flush(long timeoutMillis) {
+        buffer.awaitEmpty(timeoutMillis);
+    }
+
+    /**
+     * Returns the total number of messages dropped because the buffer was full.
+     */
+    public static long droppedCount() {
+        return buffer.totalDropped();
+    }
+
+    private static void log(Level level, Throwable t, String format, Object[] args) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        buffer.put(new Entry(level, LocalTime.now(), Thread.currentThread().getName(), format, args, t));
+    }
+
+    private static void drain() {
+        while (true) {
+            Entry e;
+            try {
+                e = buffer.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            long dropped = buffer.takeDropped();
+            if (dropped > 0) {
+                err.printf("%s WARN  [log] %d messages dropped, log buffer was full%n",
+                        LocalTime.now().format(TIME_FORMAT), dropped);
+            }
+            write(e);
+            buffer.markWritten();
+        }
+    }
+
+    private static void write(Entry e) {
+        String message;
+        try {
+            message = (e.args == null || e.args.length == 0) ? e.format : String.format(e.format, e.args);
+        } catch (RuntimeException ex) {
+            message = e.format;
+        }
+        PrintStream stream = (e.level.compareTo(Level.WARN) >= 0) ? err : out;
+        stream.printf("%s %-5s [%s] %s%n", e.time.format(TIME_FORMAT), e.level, e.thread, message);
+        if (e.thrown != null) {
+            e.thrown.printStackTrace(stream);
+        }
+    }
+
+    static final class Entry {
+        final Level level;
+        final LocalTime time;
+        final String thread;
+        final String format;
+        final Object[] args;
+        final Throwable thrown;
+
+        Entry(Level level, LocalTime time, String thread, String format, Object[] args, Throwable thrown) {
+            this.level = level;
+            this.time = time;
+            this.thread = thread;
+            this.format = format;
+            this.args = args;
+            this.thrown = thrown;
+        }
+    }
+
+    /**
+     * A fixed size, multiple producer, single consumer ring buffer. Producers never block: when the buffer is full
+     * the oldest entry of the lowest level is dropped, or the new entry if its level is lower still.
+     */
+    static final class RingBuffer {
+        private final Entry[] entries;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition drained = lock.newCondition();
+        // the number of entries waiting at each level
+        private final int[] levelCounts = new int[Level.values().length];
+        private int head;
+        private int size;
+        private boolean writing;
+        private long dropped;
+        private long totalDropped;
+
+        RingBuffer(int capacity) {
+            this.entries = new Entry[capacity];
+        }
+
+        void put(Entry e) {
+            lock.lock();
+            try {
+                if (size == entries.length) {
+                    dropped++;
+                    totalDropped++;
+                    Level lowest = lowestLevel();
+                    if (lowest.compareTo(e.level) > 0) {
+                        return;
+                    }
+                    removeOldest(lowest);
+                }
+                entries[(head + size) % entries.length] = e;
+                size++;
+                levelCounts[e.level.ordinal()]++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Entry take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (size == 0) {
+                    notEmpty.await();
+                }
+                Entry e = entries[head];
+                entries[head] = null;
+                head = (head + 1) % entries.length;
+                size--;
+                levelCounts[e.level.ordinal()]--;
+                writing = true;
+                return e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Level lowestLevel() {
+            for (Level level : Level.values()) {
+                if (levelCounts[level.ordinal()] > 0) {
+                    return level;
+                }
+            }
+            return Level.ERROR;
+        }
+
+        private void removeOldest(Level level) {
+            // (the entries before it move up one place, so the order is kept)
+            int i = 0;
+            while (entries[(head + i) % entries.length].level != level) {
+                i++;
+            }
+            for (; i > 0; i--) {
+                entries[(head + i) % entries.length] = entries[(head + i - 1) % entries.length];
+            }
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            size--;
+            levelCounts[level.ordinal()]--;
+        }
+
+        void markWritten() {
+            lock.lock();
+            try {
+                writing = false;
+                if (size == 0) {
+                    drained.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long takeDropped() {
+            lock.lock();
+            try {
+                long d = dropped;
+                dropped = 0;
+                return d;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long totalDropped() {
+            lock.lock();
+            try {
+                return totalDropped;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void awaitEmpty(long timeoutMillis) {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            lock.lock();
+            try {
+                while ((size > 0 || writing) && remaining > 0) {
+                    remaining = drained.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
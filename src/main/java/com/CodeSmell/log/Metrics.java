@@ -0,0 +1,254 @@
+package com.CodeSmell.log;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Named phases and counters of an analysis run, to see where the time of a run goes.
+ *
+ * <p>
+ * Every phase and counter update is emitted as a JDK Flight Recorder event (category CodeSmell, see
+ * <code>-XX:StartFlightRecording</code>) and accumulated, so that {@link #logSummary()} can print a table of the
+ * run once it is done. Phases measured by joern_query.py are written to its log file as <code>[timing]</code>
+ * lines and recorded through {@link #recordTimingLine(String)} by the thread reading that file.
+ * </p>
+ *
+ * <pre>
+ * try (Metrics.Phase phase = Metrics.phase("parser.relations")) {
+ *     new RelationshipManager(cpg);
+ * }
+ * Metrics.count(Metrics.RELATIONS, cpg.getRelations().size());
+ * </pre>
+ *
+ * <p>
+ * Phases may be nested (e.g. graphviz runs within the layout), the totals of nested phases are not subtracted
+ * from the enclosing phase.
+ * </p>
+ */
+public final class Metrics {
+
+    public static final String CLASSES = "classes";
+    public static final String METHODS = "methods";
+    public static final String INSTRUCTIONS = "instructions";
+    public static final String RELATIONS = "relations";
+    public static final String DETECTIONS = "detections";
+
+    // e.g. "10/19/2026 08:00:00 INFO [timing] import 12.345"
+    private static final Pattern TIMING_LINE = Pattern.compile("\\[timing] (\\S+) (\\d+(?:\\.\\d+)?)");
+
+    private static final Map<String, Total> phases = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * The accumulated time and number of runs of a phase
+     */
+    private static final class Total {
+        final LongAdder nanos = new LongAdder();
+        final LongAdder calls = new LongAdder();
+    }
+
+    @Name("com.CodeSmell.Phase")
+    @Label("CodeSmell Phase")
+    @Category("CodeSmell")
+    @Description("A phase of the analysis, measured within the JVM")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+    }
+
+    @Name("com.CodeSmell.ExternalPhase")
+    @Label("CodeSmell External Phase")
+    @Category("CodeSmell")
+    @Description("A phase of the analysis measured by joern_query.py")
+    static final class ExternalPhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("com.CodeSmell.Counter")
+    @Label("CodeSmell Counter")
+    @Category("CodeSmell")
+    @Description("An increment of a counter of the analysis")
+    static final class CounterEvent extends Event {
+        @Label("Counter")
+        String counter;
+
+        @Label("Increment")
+        long increment;
+
+        @Label("Total")
+        long total;
+    }
+
+    /**
+     * A running phase, ended by {@link #close()}.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start;
+        private final PhaseEvent event;
+
+        private Phase(String name) {
+            this.name = name;
+            this.event = new PhaseEvent();
+            this.event.begin();
+            this.start = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.commit();
+            }
+            add(name, elapsed);
+        }
+    }
+
+    /**
+     * Start a phase, to be ended by closing it (with try-with-resources).
+     *
+     * @param name - The name of the phase, e.g. "parser.relations"
+     * @return The running phase
+     */
+    public static Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Run work as a phase.
+     *
+     * @param name - The name of the phase
+     * @param work - The work to measure
+     * @return The result of work
+     */
+    public static <T> T time(String name, Supplier<T> work) {
+        try (Phase phase = phase(name)) {
+            return work.get();
+        }
+    }
+
+    /**
+     * Record a phase measured outside of the JVM.
+     *
+     * @param name  - The name of the phase
+     * @param nanos - The time it took
+     */
+    public static void record(String name, long nanos) {
+        ExternalPhaseEvent event = new ExternalPhaseEvent();
+        if (event.shouldCommit()) {
+            event.phase = name;
+            event.elapsed = nanos;
+            event.commit();
+        }
+        add(name, nanos);
+    }
+
+    /**
+     * Record the timing within a line of the joern_query.py log, if it contains one. The phase is recorded with the
+     * prefix "joern.".
+     *
+     * @param line - A line of the joern_query.py log
+     * @return True if the line contained a timing
+     */
+    public static boolean recordTimingLine(String line) {
+        Matcher m = TIMING_LINE.matcher(line);
+        if (!m.find()) {
+            return false;
+        }
+        double seconds = Double.parseDouble(m.group(2));
+        record("joern." + m.group(1), (long) (seconds * TimeUnit.SECONDS.toNanos(1)));
+        return true;
+    }
+
+    /**
+     * Add to a counter.
+     *
+     * @param counter   - The name of the counter, e.g. {@link #CLASSES}
+     * @param increment - The amount to add
+     */
+    public static void count(String counter, long increment) {
+        LongAdder adder = counters.computeIfAbsent(counter, c -> new LongAdder());
+        adder.add(increment);
+        CounterEvent event = new CounterEvent();
+        if (event.shouldCommit()) {
+            event.counter = counter;
+            event.increment = increment;
+            event.total = adder.sum();
+            event.commit();
+        }
+    }
+
+    /**
+     * @return The total time of a phase in milliseconds (0 if it has not run)
+     */
+    public static long totalMillis(String phase) {
+        Total total = phases.get(phase);
+        return (total == null) ? 0 : TimeUnit.NANOSECONDS.toMillis(total.nanos.sum());
+    }
+
+    /**
+     * @return The value of a counter (0 if it was never counted)
+     */
+    public static long counter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return (adder == null) ? 0 : adder.sum();
+    }
+
+    /**
+     * Forget all phases and counters, e.g. before the next run in watch mode.
+     */
+    public static void reset() {
+        phases.clear();
+        counters.clear();
+    }
+
+    /**
+     * @return A table of the time and number of runs of each phase (sorted by name) followed by the counters
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-36s %8s %12s%n", "phase", "calls", "total ms"));
+        new TreeMap<>(phases).forEach((name, total) -> sb.append(String.format("%-36s %8d %12.1f%n",
+                name, total.calls.sum(), total.nanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1))));
+        sb.append(String.format("%-36s %21s%n", "counter", "value"));
+        new TreeMap<>(counters).forEach((name, value) ->
+                sb.append(String.format("%-36s %21d%n", name, value.sum())));
+        return sb.toString();
+    }
+
+    /**
+     * Log the {@link #summary()} of the run.
+     */
+    public static void logSummary() {
+        Log.info("Run summary%n%s", summary());
+    }
+
+    private static void add(String name, long nanos) {
+        Total total = phases.computeIfAbsent(name, n -> new Total());
+        total.nanos.add(nanos);
+        total.calls.increment();
+    }
+}
@@ -27,6 +27,10 @@ public class ClassRelation extends RenderObject {
         return path;
     }
 
+    public int getPathContainerId() {
+        return pathContainerId;
+    }
+
     public void setPath(ArrayList<Position> path) {
         this.path = path;
         RenderEvent re = new RenderEvent(RenderEvent.Type.RENDER, this);
@@ -0,0 +1,64 @@
+package com.CodeSmell.model;
+
+import java.util.ArrayList;
+
+/**
+ * A package drawn as a single box in place of its classes, when the
+ * diagram is zoomed too far out for them to be read
+ */
+public class PackageNode extends RenderObject {
+
+	public final String name;
+	public final int classCount;
+	// the number of smells detected in the classes of the package
+	public final int smellCount;
+	// the smells per class of the package, relative to the package
+	// with the most (from 0, no smells, to 1)
+	public final double heat;
+	public final double width;
+	public final double height;
+	private int id;
+	private Position position;
+	private ArrayList<PackageRelation> relations;
+
+	public PackageNode(String name, int classCount, int smellCount,
+			double heat, double width, double height) {
+		this.name = name;
+		this.classCount = classCount;
+		this.smellCount = smellCount;
+		this.heat = heat;
+		this.width = width;
+		this.height = height;
+		this.id = -1; // id is set on render
+		this.position = new Position(0, 0);
+		this.relations = new ArrayList<PackageRelation>();
+	}
+
+	public void addRelationship(PackageRelation r) {
+		this.relations.add(r);
+	}
+
+	public void setPosition(double x, double y) {
+		// (packages are positioned before they are rendered)
+		this.position = new Position(x, y);
+	}
+
+	@Override
+	public void render() {
+		RenderEvent re = new RenderEvent(RenderEvent.Type.RENDER, this);
+		dispatchToRenderEventListeners(re);
+		this.id = (Integer) re.getResponse();
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	public Position getPosition() {
+		return this.position;
+	}
+
+	public ArrayList<PackageRelation> getRelations() {
+		return this.relations;
+	}
+}
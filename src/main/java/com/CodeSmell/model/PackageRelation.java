@@ -0,0 +1,32 @@
+package com.CodeSmell.model;
+
+import java.util.ArrayList;
+
+/**
+ * The relations between the classes of two packages, drawn as a
+ * single path between the boxes of the packages
+ */
+public class PackageRelation extends RenderObject {
+
+	public final PackageNode source;
+	public final PackageNode target;
+	// the number of class relations from source to target
+	public final int count;
+	private ArrayList<Position> path;
+
+	public PackageRelation(PackageNode source, PackageNode target, int count) {
+		this.source = source;
+		this.target = target;
+		this.count = count;
+	}
+
+	public ArrayList<Position> getPath() {
+		return path;
+	}
+
+	public void setPath(ArrayList<Position> path) {
+		this.path = path;
+		RenderEvent re = new RenderEvent(RenderEvent.Type.RENDER, this);
+		dispatchToRenderEventListeners(re);
+	}
+}
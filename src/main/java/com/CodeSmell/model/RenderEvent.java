@@ -8,7 +8,12 @@ public class RenderEvent {
 
 	public enum Type {
 		RENDER,
-		REPOSITION
+		REPOSITION,
+		UPDATE,
+		REMOVE,
+		// asks for the size of a class whose box was drawn
+		// without being measured (see UMLClass.render)
+		MEASURE
 	}
 
 	public final Type type;
@@ -26,4 +26,11 @@ public abstract class RenderObject {
 		RenderEvent re = new RenderEvent(RenderEvent.Type.RENDER, this);
 		dispatchToRenderEventListeners(re);
 	}
+
+	public void remove() {
+		// removes a rendered object from the view
+
+		RenderEvent re = new RenderEvent(RenderEvent.Type.REMOVE, this);
+		dispatchToRenderEventListeners(re);
+	}
 }
\ No newline at end of file
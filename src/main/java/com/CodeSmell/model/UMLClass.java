@@ -1,6 +1,7 @@
 package com.CodeSmell.model;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import com.CodeSmell.*;
 import com.CodeSmell.parser.CPGClass.Method;
@@ -10,6 +11,9 @@ import com.CodeSmell.smell.Smell;
 public class UMLClass extends RenderObject {
 	
 	public final String name;
+	// the fully qualified name, which unlike the name
+	// is unique within a diagram
+	public final String fullName;
 	private int id;
 	private ArrayList<Method> methods;
 	private ArrayList<Attribute> attributes;
@@ -19,9 +23,16 @@ public class UMLClass extends RenderObject {
 	private Position position;
 	private double width;
 	private double height;
+	// false while the box drawn for the class is still to be measured
+	private boolean measured;
   
 	public UMLClass(String name, ArrayList<Smell> smells) {
+		this(name, name, smells);
+	}
+
+	public UMLClass(String name, String fullName, ArrayList<Smell> smells) {
 		this.name = name;
+		this.fullName = fullName;
 		this.id = -1; // id is set on render
 		this.methods = new ArrayList<Method>();
 		this.attributes = new ArrayList<Attribute>();
@@ -29,6 +40,7 @@ public class UMLClass extends RenderObject {
 		this.position = new Position(0, 0);
 		this.width = 0.0;
 		this.height = 0.0;
+		this.measured = true;
 		this.smells = smells;
 	}
 
@@ -44,6 +56,10 @@ public class UMLClass extends RenderObject {
 		this.relations.add(r);
 	}
 
+	public void removeRelationship(ClassRelation r) {
+		this.relations.remove(r);
+	}
+
 	public void setPosition(double x, double y) {
 		this.position = new Position(x, y);
 		RenderEvent re = new RenderEvent(RenderEvent.Type.REPOSITION, this);
@@ -59,14 +75,64 @@ public class UMLClass extends RenderObject {
 		*/
 
 		// first render the object to get its dimensions
+		// (or null, if the view measures boxes later, many at once)
 		RenderEvent re = new RenderEvent(RenderEvent.Type.RENDER, this);
 		dispatchToRenderEventListeners(re);
     
 		Pair<Integer, Pair<Double, Double>> p;
 		p = (Pair<Integer, Pair<Double, Double>>) re.getResponse();
 		this.id = p.first;
-		this.width = p.second.first;
-		this.height = p.second.second;
+		setSize(p.second);
+	}
+
+	public void update(List<Method> methods, List<Attribute> attributes,
+			ArrayList<Smell> smells) {
+		/**
+		 * Replaces the fields and smells of an already rendered
+		 * class, redrawing its box in place (position and relation
+		 * paths are kept)
+		*/
+
+		this.methods = new ArrayList<Method>(methods);
+		this.attributes = new ArrayList<Attribute>(attributes);
+		this.smells = smells;
+		RenderEvent re = new RenderEvent(RenderEvent.Type.UPDATE, this);
+		dispatchToRenderEventListeners(re);
+
+		setSize((Pair<Double, Double>) re.getResponse());
+	}
+
+	private void setSize(Pair<Double, Double> size) {
+		this.measured = size != null;
+		if (measured) {
+			this.width = size.first;
+			this.height = size.second;
+		}
+	}
+
+	public void resize(double width, double height) {
+		/**
+		 * Replaces the size given when the class was rendered (an
+		 * estimate) with the size its box was measured at, without
+		 * redrawing it. The class should be laid out again.
+		*/
+
+		this.width = width;
+		this.height = height;
+		this.measured = true;
+	}
+
+	private void measure() {
+		// asks the view for the size of the box
+		// the first time it is needed
+		if (!measured) {
+			RenderEvent re = new RenderEvent(RenderEvent.Type.MEASURE, this);
+			dispatchToRenderEventListeners(re);
+			Pair<Double, Double> size = (Pair<Double, Double>) re.getResponse();
+			this.width = size.first;
+			this.height = size.second;
+			this.measured = true;
+		}
 	}
 
 	public ArrayList<Attribute> getAttributes() {
@@ -82,10 +148,12 @@ public class UMLClass extends RenderObject {
 	}
 
 	public Double getWidth() {
+		measure();
 		return this.width;
 	}
 
 	public Double getHeight() {
+		measure();
 		return this.height;
 	}
 
@@ -1,7 +1,12 @@
 package com.CodeSmell.parser;
 
 import com.CodeSmell.smell.Smell;
+import com.google.gson.annotations.JsonAdapter;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,6 +32,7 @@ public class CPGClass implements Serializable {
     /**
      * The package that the class belongs to, if any
      */
+    @JsonAdapter(StringPool.Adapter.class)
     public final String packageName;
 
     /**
@@ -57,6 +63,7 @@ public class CPGClass implements Serializable {
     /**
      * The full filepath pointing to where the class is stored
      */
+    @JsonAdapter(StringPool.Adapter.class)
     public final String filePath;
 
     /**
@@ -89,6 +96,12 @@ public class CPGClass implements Serializable {
      */
     private List<CPGClass> inheritsFrom;
 
+    /**
+     * The full names of the types the class extends or implements as declared, as given by joern
+     * (inheritsFromTypeFullName), or null if unknown (e.g. a graph read from an older snapshot)
+     */
+    private List<String> inheritsFromTypeFullName;
+
     /**
      * An array of all of the {@link Attribute} that a class has
      */
@@ -104,7 +117,31 @@ public class CPGClass implements Serializable {
      */
     private List<CodePropertyGraph.Relation> outwardRelations;
 
-    private ArrayList<Smell> smells = new ArrayList<Smell>();
+    // smells are detected after parsing and are not part of the serialized backup
+    private transient ArrayList<Smell> smells = new ArrayList<Smell>();
+
+    // the fields serialized with the class: the references to other classes (and to their members)
+    // are written by the CodePropertyGraph once all of its classes have been written, so that
+    // serialization does not recurse from class to class through them (see writeReferences)
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("classFullName", String.class),
+            new ObjectStreamField("packageName", String.class),
+            new ObjectStreamField("importStatements", String[].class),
+            new ObjectStreamField("code", String.class),
+            new ObjectStreamField("lineNumber", int.class),
+            new ObjectStreamField("modifiers", List.class),
+            new ObjectStreamField("classType", ClassType.class),
+            new ObjectStreamField("filePath", String.class),
+            new ObjectStreamField("fileLength", int.class),
+            new ObjectStreamField("emptyLines", int.class),
+            new ObjectStreamField("nonEmptyLines", int.class),
+            new ObjectStreamField("timesCalled", int.class),
+            new ObjectStreamField("timesCalling", int.class),
+            new ObjectStreamField("inheritsFromTypeFullName", List.class),
+            new ObjectStreamField("attributes", List.class),
+            new ObjectStreamField("methods", List.class)
+    };
 
     public CPGClass(String name,
                     String classFullName,
@@ -162,12 +199,35 @@ public class CPGClass implements Serializable {
         this.inheritsFrom = Collections.unmodifiableList(inheritsFrom);
     }
 
+    /**
+     * @return The full names of the declared supertypes of the class (including those outside of the project), or
+     * null if they are unknown and must be read from the declaration
+     */
+    public List<String> getInheritsFromTypeFullName() {
+        return (inheritsFromTypeFullName == null) ? null : new ArrayList<>(inheritsFromTypeFullName);
+    }
+
+    protected void setInheritsFromTypeFullName(List<String> inheritsFromTypeFullName) {
+        this.inheritsFromTypeFullName = Collections.unmodifiableList(inheritsFromTypeFullName);
+    }
+
     public void addSmell(Smell smell)
     {
-        smells.add(smell);
+        getSmells().add(smell);
+    }
+
+    /**
+     * Remove all smells added to the class, so that they can be detected again
+     */
+    public void clearSmells() {
+        getSmells().clear();
     }
 
     public ArrayList<Smell> getSmells() {
+       if (smells == null) {
+           // not set when read from the backup file
+           smells = new ArrayList<Smell>();
+       }
        return smells;
     }
 
@@ -180,6 +240,13 @@ public class CPGClass implements Serializable {
         this.outwardRelations.add(r);
     }
 
+    /**
+     * Remove all outward relations of a given class, so that they can be reassigned
+     */
+    protected void clearOutwardRelations() {
+        this.outwardRelations.clear();
+    }
+
     /**
      * Returns all the outward relations of a given class
      *
@@ -189,6 +256,70 @@ public class CPGClass implements Serializable {
         return new ArrayList<>(this.outwardRelations);
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.inheritsFrom = new ArrayList<>();
+        this.outwardRelations = new ArrayList<>();
+    }
+
+    /**
+     * Write the references of the class and of its members to other classes and members, which must all have
+     * been written already (the CodePropertyGraph writes all of its classes first)
+     */
+    void writeReferences(ObjectOutputStream out) throws IOException {
+        writeList(out, inheritsFrom);
+        writeList(out, outwardRelations);
+        for (Attribute attribute : attributes) {
+            out.writeObject(attribute.getParent());
+            writeList(out, attribute.typeList);
+        }
+        for (Method method : methods) {
+            out.writeObject(method.getParent());
+            writeList(out, method.methodCalls);
+            writeList(out, method.attributeCalls);
+            for (Method.Parameter parameter : method.parameters) {
+                writeList(out, parameter.typeList);
+            }
+        }
+    }
+
+    /**
+     * Read the references written by {@link #writeReferences}
+     */
+    void readReferences(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        inheritsFrom = Collections.unmodifiableList(readList(in));
+        outwardRelations = readList(in);
+        for (Attribute attribute : attributes) {
+            attribute.setParent((CPGClass) in.readObject());
+            attribute.setTypeList(readList(in));
+        }
+        for (Method method : methods) {
+            method.setParent((CPGClass) in.readObject());
+            method.setMethodCalls(readList(in));
+            method.setAttributeCalls(readList(in));
+            for (Method.Parameter parameter : method.parameters) {
+                parameter.setTypeList(readList(in));
+            }
+        }
+    }
+
+    private static void writeList(ObjectOutputStream out, List<?> list) throws IOException {
+        out.writeInt(list.size());
+        for (Object o : list) {
+            out.writeObject(o);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readList(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        int size = in.readInt();
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add((T) in.readObject());
+        }
+        return list;
+    }
+
     @Override
     public String toString() {
         return this.name;
@@ -280,12 +411,13 @@ public class CPGClass implements Serializable {
          * The name of the package in which the type of the Attribute originates from
          * (i.e. "java.util.List")
          */
+        @JsonAdapter(StringPool.Adapter.class)
         public final String packageName;
 
         /**
          * The parent class which owns this attribute
          */
-        private final CPGClass[] parentClass;
+        private CPGClass[] parentClass;
 
         /**
          * The full line of code in which the attribute is declared
@@ -306,6 +438,7 @@ public class CPGClass implements Serializable {
         /**
          * The full type of the attribute
          */
+        @JsonAdapter(StringPool.Adapter.class)
         public final String attributeType;
 
         /**
@@ -314,6 +447,16 @@ public class CPGClass implements Serializable {
          */
         private List<CPGClass> typeList;
 
+        // (the parent and the type list are written by CPGClass#writeReferences)
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("name", String.class),
+                new ObjectStreamField("packageName", String.class),
+                new ObjectStreamField("code", String.class),
+                new ObjectStreamField("lineNumber", int.class),
+                new ObjectStreamField("modifiers", List.class),
+                new ObjectStreamField("attributeType", String.class)
+        };
+
         public Attribute(String name,
                          String packageName,
                          String code,
@@ -346,6 +489,12 @@ public class CPGClass implements Serializable {
             this.typeList = Collections.unmodifiableList(typeList);
         }
 
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            this.parentClass = new CPGClass[1];
+            this.typeList = new ArrayList<>();
+        }
+
         @Override
         public String toString() {
             return this.name + " : " + this.attributeType;
@@ -370,7 +519,7 @@ public class CPGClass implements Serializable {
         /**
          * The class which owns the method
          */
-        private final CPGClass[] parentClass;
+        private CPGClass[] parentClass;
 
         /**
          * The method body containing the name of the method along with all of its parameters, if any
@@ -391,6 +540,7 @@ public class CPGClass implements Serializable {
         /**
          * The return type of the method, if any
          */
+        @JsonAdapter(StringPool.Adapter.class)
         public final String returnType;
 
         /**
@@ -410,9 +560,10 @@ public class CPGClass implements Serializable {
 
 
         /**
-         * All the method {@link Instruction} belonging to a method
+         * All the method {@link Instruction} belonging to a method (only replaced through setInstructions, by the
+         * {@link InstructionStore} in bounded-memory mode)
          */
-        public final List<Instruction> instructions;
+        private List<Instruction> instructions;
         public String parentClassName;
 
         /**
@@ -425,6 +576,20 @@ public class CPGClass implements Serializable {
          */
         private List<Attribute> attributeCalls;
 
+        // (the parent and the calls are written by CPGClass#writeReferences)
+        private static final ObjectStreamField[] serialPersistentFields = {
+                new ObjectStreamField("name", String.class),
+                new ObjectStreamField("methodBody", String.class),
+                new ObjectStreamField("modifiers", List.class),
+                new ObjectStreamField("parameters", List.class),
+                new ObjectStreamField("returnType", String.class),
+                new ObjectStreamField("lineNumberStart", int.class),
+                new ObjectStreamField("lineNumberEnd", int.class),
+                new ObjectStreamField("totalMethodLength", int.class),
+                new ObjectStreamField("instructions", List.class),
+                new ObjectStreamField("parentClassName", String.class)
+        };
+
         public Method(String name,
                       String methodBody,
                       ArrayList<Modifier> modifiers,
@@ -485,6 +650,25 @@ public class CPGClass implements Serializable {
             this.attributeCalls = Collections.unmodifiableList(attributeCalls);
         }
 
+        /**
+         * Return the instructions of a method (not copied, as in bounded-memory mode they are read from the
+         * instruction store as the list is iterated)
+         *
+         * @return - All the instructions of the method
+         */
+        public List<Instruction> getInstructions() {
+            return instructions;
+        }
+
+        /**
+         * Replace the instructions of a method with a list holding the same instructions
+         *
+         * @param instructions - The instructions belonging to the method
+         */
+        protected void setInstructions(List<Instruction> instructions) {
+            this.instructions = instructions;
+        }
+
         public CPGClass getParent() {
             return parentClass[0];
         }
@@ -493,6 +677,13 @@ public class CPGClass implements Serializable {
             parentClass[0] = parent;
         }
 
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            this.parentClass = new CPGClass[1];
+            this.methodCalls = new ArrayList<>();
+            this.attributeCalls = new ArrayList<>();
+        }
+
         @Override
         public String toString() {
             if (!returnType.equals("")) {
@@ -522,6 +713,7 @@ public class CPGClass implements Serializable {
             /**
              * The full type of the method parameter
              */
+            @JsonAdapter(StringPool.Adapter.class)
             public final String type;
 
             /**
@@ -530,6 +722,13 @@ public class CPGClass implements Serializable {
              */
             private List<CPGClass> typeList;
 
+            // (the type list is written by CPGClass#writeReferences)
+            private static final ObjectStreamField[] serialPersistentFields = {
+                    new ObjectStreamField("code", String.class),
+                    new ObjectStreamField("name", String.class),
+                    new ObjectStreamField("type", String.class)
+            };
+
             public Parameter(String code, String name, String type) {
                 this.code = code;
                 this.name = name;
@@ -545,6 +744,11 @@ public class CPGClass implements Serializable {
                 this.typeList = Collections.unmodifiableList(typeList);
             }
 
+            private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+                in.defaultReadObject();
+                this.typeList = new ArrayList<>();
+            }
+
             @Override
             public String toString() {
                 return this.type + " : " + this.name;
@@ -564,11 +768,13 @@ public class CPGClass implements Serializable {
             /**
              * The label associated with each line of code (i.e. METHOD_RETURN, CALL, FIELD_IDENTIFIER, LOCAL, etc)
              */
+            @JsonAdapter(StringPool.Adapter.class)
             public final String label;
 
             /**
              * The line of code
              */
+            @JsonAdapter(StringPool.Adapter.class)
             public final String code;
 
             /**
@@ -579,6 +785,7 @@ public class CPGClass implements Serializable {
             /**
              * The name of the method that the instruction is calling, if any
              */
+            @JsonAdapter(StringPool.Adapter.class)
             public final String methodCall;
 
             public Instruction(String label, String code, int lineNumber, String methodCall) {
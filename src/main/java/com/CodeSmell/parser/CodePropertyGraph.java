@@ -2,8 +2,18 @@ package com.CodeSmell.parser;
 
 import com.CodeSmell.model.ClassRelation.RelationshipType;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The CodePropertyGraph which contains all the classes and relations
@@ -24,10 +34,38 @@ public class CodePropertyGraph implements Serializable {
      */
     private ArrayList<Relation> relations;
 
+    /**
+     * The content hash of every java file within the analysed directory when the CodePropertyGraph was built,
+     * including files which yield no class, keyed by normalized file path (empty if the directory was not scanned)
+     */
+    private HashMap<String, String> sourceHashes;
+
+    /**
+     * The type hierarchy of the classes, built on first use (null until then, and after the classes change)
+     */
+    private transient HierarchyIndex hierarchy;
+
     protected CodePropertyGraph() {
         this.packages = new ArrayList<>();
         this.classes = new ArrayList<>();
         this.relations = new ArrayList<>();
+        this.sourceHashes = new HashMap<>();
+    }
+
+    // the classes only serialize their own fields: their references to one another are written once all of them
+    // have been written, so that the depth of the stack does not grow with the size of the graph
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (CPGClass c : classes) {
+            c.writeReferences(out);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        for (CPGClass c : classes) {
+            c.readReferences(in);
+        }
     }
 
     @Override
@@ -51,6 +89,36 @@ public class CodePropertyGraph implements Serializable {
         return new ArrayList<>(this.relations);
     }
 
+    /**
+     * @return The content hash of every java file the CodePropertyGraph was built from, keyed by normalized file
+     * path (empty if not known)
+     */
+    public Map<String, String> getSourceHashes() {
+        return Collections.unmodifiableMap(this.sourceHashes);
+    }
+
+    /**
+     * Record the java files within the analysed directory, as scanned when the CodePropertyGraph was built
+     *
+     * @param sourceHashes - The content hashes, keyed by normalized file path (see {@link SourceDiff#scan})
+     */
+    protected void setSourceHashes(Map<String, String> sourceHashes) {
+        this.sourceHashes = new HashMap<>(sourceHashes);
+    }
+
+    /**
+     * @return The type hierarchy of the classes of the CodePropertyGraph, built once until classes are added or
+     * removed
+     */
+    public HierarchyIndex getHierarchy() {
+        HierarchyIndex hierarchy = this.hierarchy;
+        if (hierarchy == null) {
+            hierarchy = new HierarchyIndex(this);
+            this.hierarchy = hierarchy;
+        }
+        return hierarchy;
+    }
+
     protected void addPackage(Package pkg) {
         this.packages.add(pkg);
     }
@@ -62,6 +130,7 @@ public class CodePropertyGraph implements Serializable {
      */
     protected void addClass(CPGClass c) {
         this.classes.add(c);
+        this.hierarchy = null;
     }
 
     /**
@@ -73,6 +142,44 @@ public class CodePropertyGraph implements Serializable {
         this.relations.add(r);
     }
 
+    /**
+     * Remove a {@link CPGClass} from the CodePropertyGraph
+     *
+     * @param c - The class to be removed
+     */
+    protected void removeClass(CPGClass c) {
+        this.classes.remove(c);
+        this.hierarchy = null;
+    }
+
+    /**
+     * Replace all the classes of the CodePropertyGraph, keeping the given order
+     *
+     * @param classes - The classes the CodePropertyGraph should contain
+     */
+    protected void setClasses(List<CPGClass> classes) {
+        this.classes = new ArrayList<>(classes);
+        this.hierarchy = null;
+    }
+
+    /**
+     * Remove {@link Relation}s from the CodePropertyGraph, in a single pass over its relations
+     *
+     * @param removed - The relations to be removed (compared by identity)
+     */
+    protected void removeRelations(Collection<Relation> removed) {
+        Set<Relation> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(removed);
+        this.relations.removeIf(toRemove::contains);
+    }
+
+    /**
+     * Remove all packages from the CodePropertyGraph, so that they can be determined again
+     */
+    protected void clearPackages() {
+        this.packages.clear();
+    }
+
     /**
      * A relationship that exists between two classes, with a type and associated multiplicity (if any)
      */
@@ -0,0 +1,92 @@
+package com.CodeSmell.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helper methods for computing content hashes (SHA-256, hex encoded) of source files.
+ */
+public final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * Create a new SHA-256 message digest.
+     *
+     * @return A new MessageDigest object
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Return the hash of the file located at filePath, or an empty string if the file cannot be read.
+     *
+     * @param filePath - The path of the file to hash
+     * @return The hex encoded SHA-256 hash of the file's contents
+     */
+    public static String ofFile(String filePath) {
+        return ofFile(Paths.get(filePath));
+    }
+
+    /**
+     * Return the hash of the file located at path, or an empty string if the file cannot be read.
+     *
+     * @param path - The path of the file to hash
+     * @return The hex encoded SHA-256 hash of the file's contents
+     */
+    public static String ofFile(Path path) {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            return "";
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Return the hash of a string (encoded as UTF-8).
+     *
+     * @param str - The string to hash
+     * @return The hex encoded SHA-256 hash of str
+     */
+    public static String ofString(String str) {
+        return toHex(newDigest().digest(str.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Normalize a file path so that paths reported by Joern and paths found on disk can be compared.
+     *
+     * @param filePath - The path to normalize
+     * @return The absolute, normalized form of filePath
+     */
+    public static String normalizePath(String filePath) {
+        return Paths.get(filePath).toAbsolutePath().normalize().toString();
+    }
+
+    public static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
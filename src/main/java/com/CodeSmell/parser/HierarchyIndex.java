@@ -0,0 +1,224 @@
+package com.CodeSmell.parser;
+
+import java.util.*;
+
+/**
+ * The type hierarchy of a CodePropertyGraph: the direct supertypes of each class and its transitive ancestors and
+ * descendants, as bitsets over dense class ids (the index of the class in {@link CodePropertyGraph#getClasses()}).
+ *
+ * <p>
+ * Supertypes are resolved from the full names joern gives for each class
+ * ({@link CPGClass#getInheritsFromTypeFullName()}), or from the class declaration for graphs without them.
+ * Supertypes outside of the project are ignored. An index is built once per graph by
+ * {@link CodePropertyGraph#getHierarchy()}, and again after classes are added or removed.
+ * </p>
+ */
+public class HierarchyIndex {
+
+    private final List<CPGClass> classes;
+    private final Map<CPGClass, Integer> ids = new IdentityHashMap<>();
+    private final List<List<CPGClass>> supertypes = new ArrayList<>();
+    private final BitSet[] subtypes;
+    private final BitSet[] ancestors;
+    private final BitSet[] descendants;
+
+    public HierarchyIndex(CodePropertyGraph cpg) {
+        this.classes = cpg.getClasses();
+        for (int id = 0; id < classes.size(); id++) {
+            ids.put(classes.get(id), id);
+        }
+        SymbolTable symbols = new SymbolTable(cpg);
+        Map<String, CPGClass> byName = new HashMap<>();
+        classes.forEach(cpgClass -> byName.putIfAbsent(cpgClass.name, cpgClass));
+        for (CPGClass cpgClass : classes) {
+            supertypes.add(Collections.unmodifiableList(resolveSupertypes(cpgClass, symbols, byName)));
+        }
+
+        int size = classes.size();
+        this.ancestors = new BitSet[size];
+        this.subtypes = new BitSet[size];
+        this.descendants = new BitSet[size];
+        for (int id = 0; id < size; id++) {
+            subtypes[id] = new BitSet();
+            descendants[id] = new BitSet();
+        }
+        for (int id = 0; id < size; id++) {
+            for (CPGClass supertype : supertypes.get(id)) {
+                subtypes[ids.get(supertype)].set(id);
+            }
+        }
+        for (int id = 0; id < size; id++) {
+            computeAncestors(id, new BitSet());
+            for (int a = ancestors[id].nextSetBit(0); a >= 0; a = ancestors[id].nextSetBit(a + 1)) {
+                descendants[a].set(id);
+            }
+        }
+    }
+
+    /**
+     * The direct supertypes of a class, in declaration order. Full names are looked up by full name (or name),
+     * declarations are split into words which are looked up by class name, as the Parser always has.
+     */
+    private static List<CPGClass> resolveSupertypes(CPGClass cpgClass, SymbolTable symbols,
+                                                    Map<String, CPGClass> byName) {
+        Set<CPGClass> resolved = new LinkedHashSet<>();
+        List<String> fullNames = cpgClass.getInheritsFromTypeFullName();
+        if (fullNames != null) {
+            for (String fullName : fullNames) {
+                // the type arguments of a generic supertype are not part of its name
+                int arguments = fullName.indexOf('<');
+                CPGClass supertype = symbols.lookup((arguments < 0) ? fullName : fullName.substring(0, arguments));
+                if (supertype != null && supertype != cpgClass) {
+                    resolved.add(supertype);
+                }
+            }
+        } else {
+            for (String word : cpgClass.code.replaceAll(",", " ").split(" ")) {
+                CPGClass supertype = word.equals(cpgClass.name) ? null : byName.get(word);
+                if (supertype != null) {
+                    resolved.add(supertype);
+                }
+            }
+        }
+        return new ArrayList<>(resolved);
+    }
+
+    // depth first, a cycle in a malformed hierarchy is cut where it is found
+    private BitSet computeAncestors(int id, BitSet visiting) {
+        if (ancestors[id] != null) {
+            return ancestors[id];
+        }
+        BitSet result = new BitSet();
+        if (visiting.get(id)) {
+            return result;
+        }
+        visiting.set(id);
+        for (CPGClass supertype : supertypes.get(id)) {
+            int superId = ids.get(supertype);
+            result.set(superId);
+            result.or(computeAncestors(superId, visiting));
+        }
+        visiting.clear(id);
+        result.clear(id);
+        ancestors[id] = result;
+        return result;
+    }
+
+    /**
+     * @return The number of classes indexed
+     */
+    public int size() {
+        return classes.size();
+    }
+
+    /**
+     * @return The dense id of a class, or -1 if it is not part of the indexed graph
+     */
+    public int id(CPGClass cpgClass) {
+        Integer id = ids.get(cpgClass);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * @return The class with the given id
+     */
+    public CPGClass get(int id) {
+        return classes.get(id);
+    }
+
+    /**
+     * @return The classes whose ids are set in bits, in id order
+     */
+    public List<CPGClass> classes(BitSet bits) {
+        List<CPGClass> result = new ArrayList<>(bits.cardinality());
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            result.add(classes.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return The classes and interfaces a class directly extends or implements, in declaration order
+     */
+    public List<CPGClass> supertypes(CPGClass cpgClass) {
+        return supertypes.get(checkedId(cpgClass));
+    }
+
+    /**
+     * @return The class (not interface) a class directly extends, or null if it does not extend a class of the
+     * project
+     */
+    public CPGClass superclass(CPGClass cpgClass) {
+        for (CPGClass supertype : supertypes(cpgClass)) {
+            if (supertype.classType != CPGClass.ClassType.INTERFACE) {
+                return supertype;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The superclass of a class, its superclass and so on (nearest first)
+     */
+    public List<CPGClass> superclasses(CPGClass cpgClass) {
+        List<CPGClass> chain = new ArrayList<>();
+        BitSet seen = new BitSet();
+        seen.set(checkedId(cpgClass));
+        for (CPGClass c = superclass(cpgClass); c != null && !seen.get(id(c)); c = superclass(c)) {
+            seen.set(id(c));
+            chain.add(c);
+        }
+        return chain;
+    }
+
+    /**
+     * @return A copy of the ids of all the (transitive) supertypes of a class
+     */
+    public BitSet ancestors(CPGClass cpgClass) {
+        return (BitSet) ancestors[checkedId(cpgClass)].clone();
+    }
+
+    /**
+     * @return A copy of the ids of all the (transitive) subtypes of a class
+     */
+    public BitSet descendants(CPGClass cpgClass) {
+        return (BitSet) descendants[checkedId(cpgClass)].clone();
+    }
+
+    /**
+     * @return True if sub extends or implements supertype, directly or indirectly (a class is not its own subtype)
+     */
+    public boolean isSubtype(CPGClass sub, CPGClass supertype) {
+        int superId = id(supertype);
+        return superId >= 0 && ancestors[checkedId(sub)].get(superId);
+    }
+
+    /**
+     * @return The classes and interfaces that directly extend or implement a class or interface, in id order
+     */
+    public List<CPGClass> subtypes(CPGClass cpgClass) {
+        return classes(subtypes[checkedId(cpgClass)]);
+    }
+
+    /**
+     * @return The classes (not interfaces) that implement an interface, directly or through a superclass or
+     * subinterface, in id order
+     */
+    public List<CPGClass> realizations(CPGClass iface) {
+        List<CPGClass> realizations = new ArrayList<>();
+        for (CPGClass c : classes(descendants[checkedId(iface)])) {
+            if (c.classType != CPGClass.ClassType.INTERFACE) {
+                realizations.add(c);
+            }
+        }
+        return realizations;
+    }
+
+    private int checkedId(CPGClass cpgClass) {
+        Integer id = ids.get(cpgClass);
+        if (id == null) {
+            throw new IllegalArgumentException(cpgClass.name + " is not part of the indexed graph");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,431 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.log.Log;
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CPGClass.Method.Instruction;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link Method#instructions} of a CodePropertyGraph out of the Java heap, for analysing projects whose
+ * instructions do not fit in memory or whose millions of small instruction objects keep the GC busy.
+ *
+ * <p>
+ * The instructions of each method are appended to a segment as they are read from joern_query, and the method
+ * keeps a small list in their place which reads them back through an LRU cache of the most recently used methods.
+ * The segment is either a file ({@link #createTemporary(int)}, bounded-memory mode) or a series of direct
+ * ByteBuffer arenas outside of the heap ({@link #createOffHeap(int)}). When a method is not cached, the records
+ * following it in the segment are read along with it, so scans over the methods in the order they were read (as
+ * the stats and most smells do) read the segment sequentially.
+ * </p>
+ *
+ * <p>
+ * Spilled instructions are written to snapshots like any other list. The segment is only valid while the store is
+ * open.
+ * </p>
+ */
+public class InstructionStore implements Closeable {
+
+    /**
+     * The default number of methods whose instructions are kept on the heap
+     */
+    public static final int DEFAULT_CACHED_METHODS = 4096;
+
+    // the number of bytes read at once when a method is not cached
+    private static final int READ_AHEAD_BYTES = 64 * 1024;
+
+    // the size of each off-heap arena (larger records get an arena of their own)
+    private static final int ARENA_BYTES = 8 * 1024 * 1024;
+
+    private final Segment segment;
+    private final LinkedHashMap<Long, List<Instruction>> cache;
+    // the number of records decoded at once, a small share of the cache so that read-ahead does not flush it
+    private final int readAheadRecords;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a store writing to a segment file (replacing its contents).
+     *
+     * @param segment       - The segment file
+     * @param cachedMethods - The number of methods whose instructions are kept on the heap
+     * @param deleteOnClose - If true the segment is deleted when the store is closed
+     */
+    public InstructionStore(File segment, int cachedMethods, boolean deleteOnClose) throws IOException {
+        this(new FileSegment(segment, deleteOnClose), cachedMethods);
+    }
+
+    private InstructionStore(Segment segment, int cachedMethods) {
+        this.segment = segment;
+        this.readAheadRecords = Math.max(1, cachedMethods / 8);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<Instruction>> eldest) {
+                return size() > cachedMethods;
+            }
+        };
+    }
+
+    /**
+     * Create a store in a temporary segment file, deleted when the store is closed or the JVM exits.
+     *
+     * @param cachedMethods - The number of methods whose instructions are kept on the heap
+     */
+    public static InstructionStore createTemporary(int cachedMethods) throws IOException {
+        File segment = File.createTempFile("codesmell-instructions", ".seg");
+        segment.deleteOnExit();
+        Log.info("Bounded-memory mode: instructions are kept in %s (%d methods cached)", segment, cachedMethods);
+        return new InstructionStore(segment, cachedMethods, true);
+    }
+
+    /**
+     * Create a store keeping instructions in direct ByteBuffers, released when the store is closed and no longer
+     * referenced (their total size is limited by <code>-XX:MaxDirectMemorySize</code>).
+     *
+     * @param cachedMethods - The number of methods whose instructions are kept on the heap
+     */
+    public static InstructionStore createOffHeap(int cachedMethods) {
+        Log.info("Off-heap mode: instructions are kept in direct buffers (%d methods cached)", cachedMethods);
+        return new InstructionStore(new OffHeapSegment(), cachedMethods);
+    }
+
+    /**
+     * @return True if list is held by an InstructionStore rather than on the heap
+     */
+    public static boolean isSpilled(List<Instruction> list) {
+        return list instanceof SpilledList;
+    }
+
+    /**
+     * Move the instructions of every method declared by the classes of cpg to the segment.
+     */
+    public void spill(CodePropertyGraph cpg) {
+        cpg.getClasses().forEach(this::spill);
+    }
+
+    /**
+     * Move the instructions of every method declared by a class to the segment. Methods whose instructions are
+     * already spilled are left as they are.
+     */
+    public void spill(CPGClass cpgClass) {
+        for (Method method : cpgClass.getMethods()) {
+            if ((method.getParent() == null || method.getParent() == cpgClass) && !isSpilled(method.getInstructions())) {
+                method.setInstructions(spill(method.getInstructions()));
+            }
+        }
+    }
+
+    /**
+     * Append instructions to the segment.
+     *
+     * @return A list reading the instructions back from the segment
+     */
+    public synchronized List<Instruction> spill(List<Instruction> instructions) {
+        long offset;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(bytes);
+            record.writeInt(instructions.size());
+            for (Instruction instruction : instructions) {
+                writeString(record, instruction.label);
+                writeString(record, instruction.code);
+                record.writeInt(instruction.lineNumber);
+                writeString(record, instruction.methodCall);
+            }
+            offset = segment.append(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to " + segment, e);
+        }
+        return new SpilledList(this, offset, instructions.size());
+    }
+
+    /**
+     * @return The number of bytes written to the segment
+     */
+    public synchronized long segmentBytes() {
+        return segment.size();
+    }
+
+    /**
+     * @return The share of the reads that were served from the cache
+     */
+    public synchronized double hitRatio() {
+        long reads = hits + misses;
+        return (reads == 0) ? 1.0 : (double) hits / reads;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        cache.clear();
+        segment.close();
+    }
+
+    private synchronized List<Instruction> load(SpilledList list) {
+        List<Instruction> instructions = cache.get(list.offset);
+        if (instructions != null) {
+            hits++;
+            return instructions;
+        }
+        misses++;
+        try {
+            return readAhead(list.offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + segment, e);
+        }
+    }
+
+    /**
+     * Read the record at offset and the complete records following it within READ_AHEAD_BYTES (at most
+     * readAheadRecords) into the cache.
+     */
+    private List<Instruction> readAhead(long offset) throws IOException {
+        ByteBuffer buffer = segment.read(offset, READ_AHEAD_BYTES);
+        List<Instruction> first = null;
+        long recordOffset = offset;
+        for (int records = 0; records < readAheadRecords && buffer.remaining() >= Integer.BYTES; records++) {
+            int recordLength = buffer.getInt(buffer.position());
+            if (buffer.remaining() < Integer.BYTES + recordLength) {
+                break;
+            }
+            buffer.getInt();
+            List<Instruction> instructions = readRecord(buffer);
+            if (first == null) {
+                first = instructions;
+            } else {
+                cache.putIfAbsent(recordOffset, instructions);
+            }
+            recordOffset += Integer.BYTES + recordLength;
+        }
+        // put last, so that read-ahead does not evict the requested method
+        cache.put(offset, first);
+        return first;
+    }
+
+    private static List<Instruction> readRecord(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<Instruction> instructions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String label = readString(buffer);
+            String code = readString(buffer);
+            int lineNumber = buffer.getInt();
+            String methodCall = readString(buffer);
+            instructions.add(new Instruction(label, code, lineNumber, methodCall));
+        }
+        return Collections.unmodifiableList(instructions);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Where the records of a store are kept. Each record is its length (an int) followed by its bytes, and records
+     * are consecutive, so that the offset of the next record follows from the length of the previous one.
+     */
+    private interface Segment extends Closeable {
+
+        /**
+         * Append the length of record and record.
+         *
+         * @return The offset of the record
+         */
+        long append(ByteArrayOutputStream record) throws IOException;
+
+        /**
+         * @return A buffer positioned at the record at offset, holding the whole record and as many of the bytes
+         * following it as available, up to bytes
+         */
+        ByteBuffer read(long offset, int bytes) throws IOException;
+
+        /**
+         * @return The number of bytes appended
+         */
+        long size();
+    }
+
+    private static final class FileSegment implements Segment {
+        private final File file;
+        private final boolean deleteOnClose;
+        private final FileChannel channel;
+        private final DataOutputStream writer;
+        private long position;
+        private boolean flushed = true;
+
+        FileSegment(File file, boolean deleteOnClose) throws IOException {
+            this.file = file;
+            this.deleteOnClose = deleteOnClose;
+            this.writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        @Override
+        public long append(ByteArrayOutputStream record) throws IOException {
+            long offset = position;
+            writer.writeInt(record.size());
+            record.writeTo(writer);
+            position += Integer.BYTES + record.size();
+            flushed = false;
+            return offset;
+        }
+
+        @Override
+        public ByteBuffer read(long offset, int bytes) throws IOException {
+            if (!flushed) {
+                writer.flush();
+                flushed = true;
+            }
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, offset);
+            int recordLength = length.flip().getInt();
+            ByteBuffer buffer = ByteBuffer.allocate(
+                    (int) Math.min(Math.max(bytes, Integer.BYTES + recordLength), position - offset));
+            readFully(buffer, offset);
+            return buffer.flip();
+        }
+
+        private void readFully(ByteBuffer buffer, long offset) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new EOFException("Truncated segment " + file);
+                }
+            }
+        }
+
+        @Override
+        public long size() {
+            return position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+            channel.close();
+            if (deleteOnClose) {
+                file.delete();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+    }
+
+    /**
+     * Records kept in direct ByteBuffer arenas. An offset is the index of the arena (high int) and the position of
+     * the record within it (low int), records do not span arenas.
+     */
+    private static final class OffHeapSegment implements Segment {
+        private final List<ByteBuffer> arenas = new ArrayList<>();
+        private long size;
+
+        @Override
+        public long append(ByteArrayOutputStream record) {
+            int length = Integer.BYTES + record.size();
+            ByteBuffer arena = arenas.isEmpty() ? null : arenas.get(arenas.size() - 1);
+            if (arena == null || arena.remaining() < length) {
+                arena = ByteBuffer.allocateDirect(Math.max(ARENA_BYTES, length));
+                arenas.add(arena);
+            }
+            long offset = ((long) (arenas.size() - 1) << 32) | arena.position();
+            arena.putInt(record.size());
+            arena.put(record.toByteArray());
+            size += length;
+            return offset;
+        }
+
+        @Override
+        public ByteBuffer read(long offset, int bytes) {
+            ByteBuffer arena = arenas.get((int) (offset >>> 32));
+            int position = (int) offset;
+            int recordLength = Integer.BYTES + arena.getInt(position);
+            ByteBuffer buffer = arena.duplicate();
+            buffer.limit(Math.min(arena.position(), position + Math.max(bytes, recordLength)));
+            buffer.position(position);
+            return buffer;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void close() {
+            // direct buffers are freed once they are no longer referenced
+            arenas.clear();
+        }
+
+        @Override
+        public String toString() {
+            return "off-heap arenas";
+        }
+    }
+
+    /**
+     * The instructions of a method, read from the store whenever they are used. Written to snapshots as a
+     * regular list.
+     */
+    private static final class SpilledList extends AbstractList<Instruction> implements RandomAccess, Serializable {
+        private final transient InstructionStore store;
+        private final long offset;
+        private final int size;
+
+        SpilledList(InstructionStore store, long offset, int size) {
+            this.store = store;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public Instruction get(int index) {
+            return store.load(this).get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<Instruction> iterator() {
+            return store.load(this).iterator();
+        }
+
+        @Override
+        public Spliterator<Instruction> spliterator() {
+            return store.load(this).spliterator();
+        }
+
+        @Override
+        public void forEach(Consumer<? super Instruction> action) {
+            store.load(this).forEach(action);
+        }
+
+        private Object writeReplace() {
+            return new ArrayList<>(store.load(this));
+        }
+    }
+}
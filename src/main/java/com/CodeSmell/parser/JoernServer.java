@@ -8,12 +8,19 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Random;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import java.net.ServerSocket;
 
+import com.CodeSmell.log.Log;
+import com.CodeSmell.log.Metrics;
 import com.CodeSmell.parser.Parser;
 
 public class JoernServer {
@@ -21,6 +28,9 @@ public class JoernServer {
 
     private static Random rand = new Random();
     InputStream joernStream;
+    private Process joernServerProcess;
+    private int serverPort;
+    private boolean logReaderStarted;
 
     public static int nextFreePort(int from, int to) {
         // https://stackoverflow.com/questions/2675362/how-to-find-an-available-port
@@ -48,47 +58,60 @@ public class JoernServer {
 
         private BufferedReader reader;
 
+        // if false, the thread ends once the end of the stream is reached
+        private boolean follow;
+
         public ReaderThread(BufferedReader reader) {
+            this(reader, true);
+        }
+
+        public ReaderThread(BufferedReader reader, boolean follow) {
             this.reader = reader;
+            this.follow = follow;
         }
 
         public void run() {
-            while (true) {
+            do {
                 try {
                     String line;
                     while ((line = this.reader.readLine()) != null) {
-                        System.out.println(line);
+                        // joern_query.py reports the time of its phases as [timing] lines
+                        Metrics.recordTimingLine(line);
+                        Log.info("%s", line);
                     }
                 } catch (IOException e) {
-                    e.printStackTrace();
-                    System.exit(1);
+                    // (the output of joern is only logged, a failed
+                    // analysis is reported by the reader of its stream)
+                    Log.error(e, "Could not read the output of joern");
+                    return;
                 }
-            }
+            } while (follow);
         }
     }
 
-    public InputStream getStream() {
-        return this.joernStream;
+    /**
+     * @return True if the joern server started by this object is still running
+     */
+    public boolean isRunning() {
+        return joernServerProcess != null && joernServerProcess.isAlive();
     }
 
-    public void start(File directory) {
-        if (!directory.isDirectory()) {
-            throw new RuntimeException("JoernServer got bad directory: " + directory);
+    /**
+     * Stop the joern server, if it is running.
+     */
+    public void stop() {
+        if (isRunning()) {
+            joernServerProcess.destroy();
         }
+        joernServerProcess = null;
+    }
 
-        // Get the path to joern
-        String joernPath = System.getProperty("user.home") + "/bin/joern/joern-cli";
-
-        String cwd = String.valueOf(Paths.get("").toAbsolutePath());
-        String directoryPath = cwd + "/src/main/python";
-
+    private void startServer() throws IOException {
         // Start up a command prompt terminal (no popup) and start the joern server
-        ProcessBuilder joernServerBuilder, joernQueryBuilder, windowsPortFinderBuilder;
+        ProcessBuilder joernServerBuilder;
 
-        int serverPort = nextFreePort(8000, 9999);
+        serverPort = nextFreePort(8000, 9999);
 
-        // Open terminal and start the joern server once process for joernServerBuilder starts
-        windowsPortFinderBuilder = new ProcessBuilder("cmd.exe", "/c", "netstat -ano | findstr 8080");
         if (System.getProperty("os.name").contains("Windows")) {
             joernServerBuilder = new ProcessBuilder("cmd.exe", "/c", "joern", "--server",
                     "--server-host", "localhost",
@@ -97,19 +120,74 @@ public class JoernServer {
             joernServerBuilder = new ProcessBuilder("joern", "--server-host", "localhost",
                     "--server-port", String.valueOf(serverPort), "--server");
         }
-        joernQueryBuilder = new ProcessBuilder("python", "joern_query.py",
-                directory.toString(), 
-                String.valueOf(serverPort)).directory(new File(directoryPath));
+
+        // Start the server
+        joernServerProcess = joernServerBuilder.start();
+        BufferedReader joernServerReader = new BufferedReader(
+                new InputStreamReader(joernServerProcess.getInputStream()));
+        BufferedReader errorReader = new BufferedReader(
+                new InputStreamReader(joernServerProcess.getErrorStream()));
+        new ReaderThread(joernServerReader).start();
+        new ReaderThread(errorReader).start();
+
+        if (!logReaderStarted) {
+            // log joern_query.py loggin.info() output
+            new ReaderThread(
+                    new BufferedReader(
+                            new FileReader(
+                                    Parser.JOERN_QUERY_LOGFILE))).start();
+            logReaderStarted = true;
+        }
+    }
+
+    public InputStream getStream() {
+        return this.joernStream;
+    }
+
+    public void start(File directory) {
+        start(directory, null);
+    }
+
+    /**
+     * Start joern and joern_query.py, retrieving only the classes declared within the given files.
+     *
+     * @param directory - The directory containing the source code
+     * @param files     - The source files whose classes should be retrieved, or null to retrieve all classes
+     */
+    public void start(File directory, Collection<String> files) {
+        if (!directory.isDirectory()) {
+            throw new RuntimeException("JoernServer got bad directory: " + directory);
+        }
+
+        // Get the path to joern
+        String joernPath = System.getProperty("user.home") + "/bin/joern/joern-cli";
+
+        String cwd = String.valueOf(Paths.get("").toAbsolutePath());
+        String directoryPath = cwd + "/src/main/python";
+
+        List<String> queryCommand = new ArrayList<>(List.of("python", "joern_query.py"));
 
         try {
-            // Start the server
-            Process joernServerProcess = joernServerBuilder.start();
-            BufferedReader joernServerReader = new BufferedReader(
-                    new InputStreamReader(joernServerProcess.getInputStream()));
-            BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(joernServerProcess.getErrorStream()));
-            new ReaderThread(joernServerReader).start();
-            new ReaderThread(errorReader).start();
+            // A server that is already running (e.g. in watch mode) is reused, joern_query.py
+            // then does not need to wait for it to start up.
+            if (isRunning()) {
+                queryCommand.add("--server-ready");
+            } else {
+                startServer();
+            }
+            if (files != null) {
+                // joern_query.py reads the files to retrieve from a list file, one path per line
+                Path fileList = Files.createTempFile("codesmell-files", ".txt");
+                fileList.toFile().deleteOnExit();
+                Files.write(fileList, files);
+                queryCommand.add("--files");
+                queryCommand.add(fileList.toAbsolutePath().toString());
+            }
+            queryCommand.add(directory.toString());
+            queryCommand.add(String.valueOf(serverPort));
+            ProcessBuilder joernQueryBuilder = new ProcessBuilder(queryCommand)
+                    .directory(new File(directoryPath));
+
             // Execute queries against the local joern server instance.
             Process joernQueryProcess = joernQueryBuilder.start();
 
@@ -117,16 +195,10 @@ public class JoernServer {
             new ReaderThread(
                     new BufferedReader(
                             new InputStreamReader(
-                                    joernQueryProcess.getErrorStream()))).start();
-
-            // log joern_query.py loggin.info() output
-            new ReaderThread(
-                    new BufferedReader(
-                            new FileReader(
-                                    Parser.JOERN_QUERY_LOGFILE))).start();
+                                    joernQueryProcess.getErrorStream())), false).start();
 
             this.joernStream = joernQueryProcess.getInputStream();
-            System.out.println("Exiting JoernServer callstack");
+            Log.debug("Exiting JoernServer callstack");
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -66,14 +66,20 @@ public final class Package implements Serializable {
          */
         public final String filePath;
 
+        /**
+         * The SHA-256 hash of the file's contents at the time it was analysed (empty if the file could not be read)
+         */
+        public final String contentHash;
+
         /**
          * All the classes that reside within the file
          */
         public final ArrayList<CPGClass> classes = new ArrayList<>();
 
-        public File(String fileName, String filePath) {
+        public File(String fileName, String filePath, String contentHash) {
             this.fileName = fileName;
             this.filePath = filePath;
+            this.contentHash = contentHash;
         }
 
         /**
@@ -90,6 +96,7 @@ public final class Package implements Serializable {
             return "File{" +
                     "fileName='" + fileName + '\'' +
                     ", filePath='" + filePath + '\'' +
+                    ", contentHash='" + contentHash + '\'' +
                     ", classes=" + classes +
                     '}';
         }
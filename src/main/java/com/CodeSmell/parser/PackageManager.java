@@ -1,6 +1,7 @@
 package com.CodeSmell.parser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
@@ -11,16 +12,27 @@ import static java.util.Comparator.comparing;
 
 public class PackageManager {
     public PackageManager(CodePropertyGraph cpg) {
-        determineDistinctPackages(cpg);
+        this(cpg, Collections.emptyMap());
+    }
+
+    /**
+     * Create a PackageManager, reusing already computed content hashes for files whose contents are known.
+     *
+     * @param cpg        - The CodePropertyGraph containing all existing classes and relations
+     * @param fileHashes - Content hashes of files, keyed by their normalized file path
+     */
+    public PackageManager(CodePropertyGraph cpg, Map<String, String> fileHashes) {
+        determineDistinctPackages(cpg, fileHashes);
     }
 
     /**
      * Iterate through the cpg to determine all the distinct packages and sub-packages, additionally creating
      * files which possess 1 or more classes each (accounts for nested classes).
      *
-     * @param cpg The CodePropertyGraph containing all existing classes and relations
+     * @param cpg        The CodePropertyGraph containing all existing classes and relations
+     * @param fileHashes Content hashes of files that do not need to be read again
      */
-    private static void determineDistinctPackages(CodePropertyGraph cpg) {
+    private static void determineDistinctPackages(CodePropertyGraph cpg, Map<String, String> fileHashes) {
         // Get all package names, mapped to an array list of files
         TreeMap<String, ArrayList<File>> packageNames = new TreeMap<>();
         ArrayList<Package> distinctPackages = new ArrayList<>();
@@ -31,7 +43,11 @@ public class PackageManager {
             packageNames.putIfAbsent(packageName, new ArrayList<>());
             if (filePath.contains(fileName)) {
                 // Handle adding of new files and classes within those files
-                File newFile = new File(fileName, filePath);
+                String contentHash = fileHashes.get(ContentHash.normalizePath(filePath));
+                if (contentHash == null) {
+                    contentHash = ContentHash.ofFile(filePath);
+                }
+                File newFile = new File(fileName, filePath, contentHash);
                 var fileClasses = cpg.getClasses()
                         .stream()
                         .filter(nestedClasses -> nestedClasses.filePath.equals(filePath))
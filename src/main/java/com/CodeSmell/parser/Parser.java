@@ -1,6 +1,9 @@
 package com.CodeSmell.parser;
 
+import com.CodeSmell.log.Log;
+import com.CodeSmell.log.Metrics;
 import com.CodeSmell.parser.CPGClass.*;
+import com.CodeSmell.parser.CodePropertyGraph.Relation;
 import com.CodeSmell.stat.Helper;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
@@ -23,13 +26,16 @@ public class Parser {
     public static final File JOERN_QUERY_LOGFILE = new File(
             "src/main/python/joern_query.log");
 
+    // where the instructions of the classes read are kept, or null to keep them on the heap
+    private static InstructionStore instructionStore;
+
     static {
         JOERN_QUERY_LOGFILE.delete();
         try {
             JOERN_QUERY_LOGFILE.createNewFile();
         } catch (IOException e) {
-            e.printStackTrace();
-            System.exit(1);
+            // only needed when joern is run (from the project directory), e.g. not when reading a snapshot
+            Log.warn("Could not create %s: %s", JOERN_QUERY_LOGFILE, e);
         }
     }
 
@@ -73,19 +79,46 @@ public class Parser {
     private static void readFromJoernQuery(CodePropertyGraph cpg,
                                            BufferedInputStream bis, Gson gson) throws IOException {
 
-        int classSize = nextInputSize(bis);
+        int classSize;
+        try (Metrics.Phase phase = Metrics.phase("parser.frameTransfer")) {
+            classSize = nextInputSize(bis);
+        }
+        StringPool pool = StringPool.begin();
+        try {
+            readClasses(cpg, bis, gson, classSize);
+        } finally {
+            pool.end();
+        }
+        Log.info("Deduplicated %d strings (%d bytes)", pool.duplicates(), pool.savedBytes());
+    }
+
+    private static void readClasses(CodePropertyGraph cpg, BufferedInputStream bis, Gson gson,
+                                    int classSize) throws IOException {
+        long totalBytes = 0;
         do {
-            System.out.println("Reading in new class of size: " + classSize);
-            String classJson = nextJson(bis, classSize);
-            System.out.println(classJson);
-            CPGClass cpgClass = gson.fromJson(classJson, CPGClass.class);
+            Log.debug("Reading in new class of size: %d", classSize);
+            String classJson;
+            try (Metrics.Phase phase = Metrics.phase("parser.frameTransfer")) {
+                classJson = nextJson(bis, classSize);
+            }
+            Log.debug("%s", classJson);
+            totalBytes += classSize;
+            CPGClass cpgClass;
+            try (Metrics.Phase phase = Metrics.phase("parser.gsonDecode")) {
+                cpgClass = gson.fromJson(classJson, CPGClass.class);
+            }
             if (cpgClass != null) {
+                if (instructionStore != null) {
+                    instructionStore.spill(cpgClass);
+                }
                 cpg.addClass(cpgClass);
-                System.out.println(cpgClass.name);
+                Log.debug("Read class %s", cpgClass.name);
             } else {
                 throw new IllegalArgumentException("Bad JSON read by Parser.");
             }
-            classSize = nextInputSize(bis);
+            try (Metrics.Phase phase = Metrics.phase("parser.frameTransfer")) {
+                classSize = nextInputSize(bis);
+            }
         } while (classSize > 0);
 
         if (classSize != -1) {
@@ -94,6 +127,35 @@ public class Parser {
             throw new IllegalArgumentException(
                     "Parser given illegal class size " + classSize);
         }
+        Log.info("Read %d classes (%d bytes) from joern_query", cpg.getClasses().size(), totalBytes);
+    }
+
+    /**
+     * Keep the instructions of the classes read from now on in store rather than on the heap (bounded-memory mode).
+     *
+     * @param store - The store to spill instructions to, or null to keep them on the heap
+     */
+    public static void setInstructionStore(InstructionStore store) {
+        instructionStore = store;
+    }
+
+    /**
+     * @return The store instructions are spilled to, or null if they are kept on the heap
+     */
+    public static InstructionStore getInstructionStore() {
+        return instructionStore;
+    }
+
+    /**
+     * Move the instructions of a CodePropertyGraph read from a snapshot to the {@link InstructionStore}, if
+     * bounded-memory mode is enabled.
+     *
+     * @param cpg - The CodePropertyGraph read
+     */
+    public static void spillInstructions(CodePropertyGraph cpg) {
+        if (instructionStore != null) {
+            instructionStore.spill(cpg);
+        }
     }
 
     /**
@@ -105,57 +167,297 @@ public class Parser {
      * @param serializedObject - if true read serialized backup, if false read as
      *                         joern_query.py  standard output
      * @return A CodePropertyGraph object containing the source code classes and all relations
+     * @throws InvalidClassException if the backup was written by another version
+     * @throws UncheckedIOException  if the stream cannot be read or the backup file cannot be written
      */
     public static CodePropertyGraph initializeCPG(InputStream cpgStream,
                                                   boolean serializedObject) throws InvalidClassException {
+        return initializeCPG(cpgStream, serializedObject, Collections.emptyMap());
+    }
+
+    /**
+     * Same as {@link #initializeCPG(InputStream, boolean)}, recording the java files of the analysed directory in
+     * the CodePropertyGraph read from joern_query, so that later changes can be found (see {@link SourceDiff}).
+     *
+     * @param sourceHashes - The content hashes of the java files given to joern (see {@link SourceDiff#scan})
+     */
+    public static CodePropertyGraph initializeCPG(InputStream cpgStream, boolean serializedObject,
+                                                  Map<String, String> sourceHashes) throws InvalidClassException {
 
         CodePropertyGraph cpg = new CodePropertyGraph();
 
         if (!serializedObject) {
-            System.out.println("Reading in CPG from joern_query.");
+            Log.info("Reading in CPG from joern_query.");
             try {
                 Gson gson = new GsonBuilder()
                         .setExclusionStrategies(new ArrayListExclusion())
                         .create();
                 readFromJoernQuery(cpg, new BufferedInputStream(cpgStream), gson);
             } catch (IOException e) {
-                e.printStackTrace();
-                System.exit(1);
+                throw new UncheckedIOException("Could not read the CPG from joern_query", e);
             }
-            updateCPG(cpg);
+            cpg.setSourceHashes(sourceHashes);
+            updateCPG(cpg, sourceHashes);
             writeBackup(cpg);
 
         } else {
-            System.out.println("Reading backup file");
+            Log.info("Reading backup file");
             try {
                 ObjectInputStream ois = new ObjectInputStream(cpgStream);
                 cpg = (CodePropertyGraph) ois.readObject();
+                spillInstructions(cpg);
             } catch (InvalidClassException e) {
-                e.printStackTrace();
                 throw e;
-            } catch (Exception e) {
-                e.printStackTrace();
-                System.exit(1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the backup file", e);
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new UncheckedIOException(new InvalidObjectException("Not a CodeSmell backup file: " + e));
+            }
+        }
+        Log.info("Project read: %d classes, %d relations",
+                cpg.getClasses().size(), cpg.getRelations().size());
+        return cpg;
+    }
+
+    /**
+     * Update a previously built CodePropertyGraph after some of the source files it was built from have changed.
+     *
+     * <p>
+     * The classes of changed and added files are read from cpgStream (joern_query.py run with only those files) and
+     * spliced into cpg in place of the classes of changed and removed files. Only the classes that may refer to a
+     * replaced class have their properties and relations resolved again, the rest of the graph is kept as is.
+     * The updated cpg is then serialized to the backup file.
+     * </p>
+     *
+     * @param cpg       - The previously built CodePropertyGraph (e.g. read from the backup file)
+     * @param cpgStream - The input stream from JoernServer, or null if no files need to be queried
+     * @param diff      - The files that have changed since cpg was built
+     * @return The updated CodePropertyGraph
+     * @throws UncheckedIOException if the stream cannot be read or the backup file cannot be written
+     */
+    public static CodePropertyGraph updateCPG(CodePropertyGraph cpg, InputStream cpgStream, SourceDiff diff) {
+        if (diff.isEmpty()) {
+            Log.info("No source files changed since the backup was written");
+            return cpg;
+        }
+        CodePropertyGraph changedClasses = new CodePropertyGraph();
+        if (cpgStream != null) {
+            Log.info("Reading in changed classes from joern_query.");
+            try {
+                Gson gson = new GsonBuilder()
+                        .setExclusionStrategies(new ArrayListExclusion())
+                        .create();
+                readFromJoernQuery(changedClasses, new BufferedInputStream(cpgStream), gson);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the changed classes from joern_query", e);
             }
         }
-        System.out.printf("Project read: %d classes, %d relations\n",
+        spliceClasses(cpg, changedClasses.getClasses(), diff);
+        writeBackup(cpg);
+        Log.info("Project updated (%d changed, %d added, %d removed files): %d classes, %d relations",
+                diff.changedFiles.size(), diff.addedFiles.size(), diff.removedFiles.size(),
                 cpg.getClasses().size(), cpg.getRelations().size());
         return cpg;
     }
 
+    /**
+     * Add the size of cpg (classes, own methods, their instructions and relations) to the counters of the run.
+     *
+     * @param cpg - The analysed CodePropertyGraph
+     */
+    public static void countGraph(CodePropertyGraph cpg) {
+        long methods = 0, instructions = 0;
+        for (CPGClass cpgClass : cpg.getClasses()) {
+            for (Method method : cpgClass.getMethods()) {
+                if (method.getParent() == cpgClass) {
+                    methods++;
+                    instructions += method.getInstructions().size();
+                }
+            }
+        }
+        Metrics.count(Metrics.CLASSES, cpg.getClasses().size());
+        Metrics.count(Metrics.METHODS, methods);
+        Metrics.count(Metrics.INSTRUCTIONS, instructions);
+        Metrics.count(Metrics.RELATIONS, cpg.getRelations().size());
+    }
+
+    /**
+     * Replace the classes of the stale files of diff with newClasses, then resolve the properties and relations
+     * of the new classes and of every existing class that may refer to a replaced class.
+     *
+     * @param cpg        - The CodePropertyGraph to update
+     * @param newClasses - The (unprocessed) classes read from the changed and added files
+     * @param diff       - The files that have changed since cpg was built
+     */
+    protected static void spliceClasses(CodePropertyGraph cpg, List<CPGClass> newClasses, SourceDiff diff) {
+        Set<String> staleFiles = diff.staleFiles();
+        Set<CPGClass> staleClasses = cpg.getClasses()
+                .stream()
+                .filter(cpgClass -> staleFiles.contains(ContentHash.normalizePath(cpgClass.filePath)))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        // Any class mentioning one of these names may now resolve to a different class
+        Set<String> changedNames = new HashSet<>();
+        for (CPGClass cpgClass : staleClasses) {
+            changedNames.add(cpgClass.name);
+            changedNames.add(cpgClass.classFullName);
+        }
+        for (CPGClass cpgClass : newClasses) {
+            changedNames.add(cpgClass.name);
+            changedNames.add(cpgClass.classFullName);
+        }
+        Set<CPGClass> affectedClasses = cpg.getClasses()
+                .stream()
+                .filter(cpgClass -> !staleClasses.contains(cpgClass)
+                        && refersToChangedClass(cpgClass, staleClasses, changedNames))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        // Subclasses inherit the members of every superclass, so the subtypes of a changed class are affected too
+        HierarchyIndex hierarchy = cpg.getHierarchy();
+        BitSet subtypes = new BitSet();
+        staleClasses.forEach(cpgClass -> subtypes.or(hierarchy.descendants(cpgClass)));
+        affectedClasses.forEach(cpgClass -> subtypes.or(hierarchy.descendants(cpgClass)));
+        hierarchy.classes(subtypes)
+                .stream()
+                .filter(cpgClass -> !staleClasses.contains(cpgClass))
+                .forEach(affectedClasses::add);
+
+        // Remove every relation touching a stale or affected class, remembering the sources to reassign
+        Set<CPGClass> relationSources = new LinkedHashSet<>(affectedClasses);
+        List<Relation> touchedRelations = new ArrayList<>();
+        for (Relation relation : cpg.getRelations()) {
+            boolean sourceTouched = staleClasses.contains(relation.source) || affectedClasses.contains(relation.source);
+            boolean destinationTouched = staleClasses.contains(relation.destination)
+                    || affectedClasses.contains(relation.destination);
+            if (sourceTouched || destinationTouched) {
+                touchedRelations.add(relation);
+                if (!staleClasses.contains(relation.source)) {
+                    relationSources.add(relation.source);
+                }
+            }
+        }
+        cpg.removeRelations(touchedRelations);
+        // The new classes of a file take the place of its stale classes, as resolving inheritance depends on the
+        // order of the classes; the classes of added files are appended
+        Map<String, List<CPGClass>> newClassesByFile = new LinkedHashMap<>();
+        for (CPGClass cpgClass : newClasses) {
+            newClassesByFile.computeIfAbsent(ContentHash.normalizePath(cpgClass.filePath), f -> new ArrayList<>())
+                    .add(cpgClass);
+        }
+        List<CPGClass> classes = new ArrayList<>();
+        for (CPGClass cpgClass : cpg.getClasses()) {
+            if (!staleClasses.contains(cpgClass)) {
+                classes.add(cpgClass);
+            } else {
+                List<CPGClass> replacements = newClassesByFile.remove(ContentHash.normalizePath(cpgClass.filePath));
+                if (replacements != null) {
+                    classes.addAll(replacements);
+                }
+            }
+        }
+        newClassesByFile.values().forEach(classes::addAll);
+        cpg.setClasses(classes);
+
+        // Affected classes lose their inherited members and resolved calls, so that they are resolved again
+        // exactly as in a full analysis (inherited members are merged again when inheritsFrom is resolved)
+        for (CPGClass cpgClass : affectedClasses) {
+            cpgClass.setAttributes(cpgClass.getAttributes()
+                    .stream()
+                    .filter(attribute -> attribute.getParent() == cpgClass)
+                    .collect(Collectors.toList()));
+            cpgClass.setMethods(cpgClass.getMethods()
+                    .stream()
+                    .filter(method -> method.getParent() == cpgClass)
+                    .collect(Collectors.toList()));
+            for (Method method : cpgClass.getMethods()) {
+                method.setMethodCalls(new ArrayList<>());
+                method.setAttributeCalls(new ArrayList<>());
+            }
+        }
+        Set<CPGClass> classesToUpdate = new HashSet<>(newClasses);
+        classesToUpdate.addAll(affectedClasses);
+        try (Metrics.Phase phase = Metrics.phase("parser.classProperties")) {
+            updateCPGClassProperties(cpg, cpg.getClasses()
+                    .stream()
+                    .filter(classesToUpdate::contains)
+                    .collect(Collectors.toList()));
+        }
+
+        relationSources.addAll(newClasses);
+        try (Metrics.Phase phase = Metrics.phase("parser.relations")) {
+            RelationshipManager.reassignRelations(cpg, cpg.getClasses()
+                    .stream()
+                    .filter(relationSources::contains)
+                    .collect(Collectors.toList()));
+        }
+        try (Metrics.Phase phase = Metrics.phase("parser.packages")) {
+            cpg.clearPackages();
+            new PackageManager(cpg, diff.currentHashes);
+        }
+        cpg.setSourceHashes(diff.currentHashes);
+        Log.info("Replaced %d classes with %d classes, %d dependent classes resolved again",
+                staleClasses.size(), newClasses.size(), affectedClasses.size());
+    }
+
+    /**
+     * Determine whether a class refers (through inheritance, members, types, calls or names used in its code)
+     * to one of the stale classes or to a class name that has changed.
+     */
+    private static boolean refersToChangedClass(CPGClass cpgClass, Set<CPGClass> staleClasses,
+                                                Set<String> changedNames) {
+        if (cpgClass.getInheritsFrom().stream().anyMatch(staleClasses::contains)
+                || containsName(cpgClass.code, changedNames)) {
+            return true;
+        }
+        for (Attribute attribute : cpgClass.getAttributes()) {
+            if (staleClasses.contains(attribute.getParent())
+                    || attribute.getTypeList().stream().anyMatch(staleClasses::contains)
+                    || containsName(attribute.attributeType, changedNames)) {
+                return true;
+            }
+        }
+        for (Method method : cpgClass.getMethods()) {
+            if (staleClasses.contains(method.getParent())
+                    || method.getMethodCalls().stream().anyMatch(call -> staleClasses.contains(call.getParent()))
+                    || method.getAttributeCalls().stream().anyMatch(call -> staleClasses.contains(call.getParent()))) {
+                return true;
+            }
+            for (Method.Parameter parameter : method.parameters) {
+                if (parameter.getTypeList().stream().anyMatch(staleClasses::contains)
+                        || containsName(parameter.type, changedNames)) {
+                    return true;
+                }
+            }
+            for (Method.Instruction instruction : method.getInstructions()) {
+                if (instruction.label.equals("CALL")) {
+                    String[] splitted = instruction.methodCall.split("\\$");
+                    if (splitted.length == 3 && changedNames.contains(splitted[1].trim())) {
+                        return true;
+                    }
+                } else if (instruction.label.equals("IDENTIFIER") && changedNames.contains(instruction.code)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsName(String str, Set<String> names) {
+        for (String token : str.split("[^\\w.$]+")) {
+            if (names.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected static void writeBackup(CodePropertyGraph cpg) {
         // write the resulting CPG
         // to a backup file for recovery in the event of a crash
-        try {
-            FileOutputStream fos = new FileOutputStream(
-                    CPG_BACKUP_JSON.getPath());
-            ObjectOutputStream oos = new ObjectOutputStream(fos);
+        try (Metrics.Phase phase = Metrics.phase("parser.backup");
+             ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(
+                     new FileOutputStream(CPG_BACKUP_JSON.getPath())))) {
             oos.writeObject(cpg);
-            oos.flush();
-            oos.close();
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.exit(1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the backup file " + CPG_BACKUP_JSON, e);
         }
     }
 
@@ -165,9 +467,22 @@ public class Parser {
      * @param cpg
      */
     protected static void updateCPG(CodePropertyGraph cpg) {
-        updateCPGClassProperties(cpg);
-        RelationshipManager relationshipManager = new RelationshipManager(cpg);
-        PackageManager packageManager = new PackageManager(cpg);
+        updateCPG(cpg, Collections.emptyMap());
+    }
+
+    /**
+     * @param fileHashes - Content hashes of files already computed, which do not need to be read again
+     */
+    private static void updateCPG(CodePropertyGraph cpg, Map<String, String> fileHashes) {
+        try (Metrics.Phase phase = Metrics.phase("parser.classProperties")) {
+            updateCPGClassProperties(cpg);
+        }
+        try (Metrics.Phase phase = Metrics.phase("parser.relations")) {
+            RelationshipManager relationshipManager = new RelationshipManager(cpg);
+        }
+        try (Metrics.Phase phase = Metrics.phase("parser.packages")) {
+            PackageManager packageManager = new PackageManager(cpg, fileHashes);
+        }
     }
 
     /**
@@ -178,27 +493,40 @@ public class Parser {
      * @param cpg - The CodePropertyGraph containing the source code information
      */
     protected static void updateCPGClassProperties(CodePropertyGraph cpg) {
+        updateCPGClassProperties(cpg, cpg.getClasses());
+    }
+
+    /**
+     * Updates the properties of the given classes only, resolving references against every class within the CPG.
+     * The attributes and methods of the given classes must not yet include inherited members.
+     *
+     * @param cpg             - The CodePropertyGraph containing the source code information
+     * @param classesToUpdate - The classes (within cpg) whose properties should be updated
+     */
+    protected static void updateCPGClassProperties(CodePropertyGraph cpg, List<CPGClass> classesToUpdate) {
         LinkedHashMap<Method, ArrayList<Method>> methodCallMap = new LinkedHashMap<>();
         LinkedHashMap<Method, ArrayList<Attribute>> attributeCallMap = new LinkedHashMap<>();
         // Set parent classes for all attributes and methods
-        cpg.getClasses()
+        classesToUpdate
                 .forEach(cpgClass -> cpgClass.getAttributes()
                         .forEach(attribute -> attribute.setParent(cpgClass)));
-        cpg.getClasses()
+        classesToUpdate
                 .forEach(cpgClass -> cpgClass.getMethods()
                         .forEach(method -> method.setParent(cpgClass)));
         // Set inheritsFrom lists for all classes within cpg
         // Additionally, if a class inheritsFrom a superclass, add all of its attributes and methods here.
-        cpg.getClasses().forEach(cpgClass -> cpgClass.setInheritsFrom(returnInheritsFrom(cpgClass, cpg)));
+        HierarchyIndex hierarchy = cpg.getHierarchy();
+        classesToUpdate.forEach(cpgClass -> cpgClass.setInheritsFrom(returnInheritsFrom(cpgClass, hierarchy)));
 
-        // Set typeLists for all attributes
-        cpg.getClasses()
+        // Set typeLists for all attributes, resolving each distinct type signature once
+        SymbolTable symbols = new SymbolTable(cpg);
+        classesToUpdate
                 .forEach(cpgClass -> cpgClass.getAttributes()
-                        .forEach(attribute -> attribute.setTypeList(returnTypeLists(attribute.attributeType, cpg))));
-        for (CPGClass cpgClass : cpg.getClasses()) {
+                        .forEach(attribute -> attribute.setTypeList(symbols.resolve(attribute.attributeType))));
+        for (CPGClass cpgClass : classesToUpdate) {
             for (Method method : cpgClass.getMethods()) {
                 // Set typeLists for all parameters of the method
-                method.parameters.forEach(parameter -> parameter.setTypeList(returnTypeLists(parameter.type, cpg)));
+                method.parameters.forEach(parameter -> parameter.setTypeList(symbols.resolve(parameter.type)));
                 // Get the attribute and method calls of each method
                 methodCallMap.put(method, returnMethodCalls(cpg, method));
                 attributeCallMap.put(method, returnAttributeCalls(cpg, method));
@@ -223,7 +551,7 @@ public class Parser {
         ArrayList<Method> methodCalls = new ArrayList<>();
         // Get all possible calls where the instruction's methodCall is not empty
         Set<String> allDistinctCalls = new HashSet<>();
-        methodToUpdate.instructions
+        methodToUpdate.getInstructions()
                 .stream()
                 .filter(instruction -> instruction.label.equals("CALL")
                         && (!instruction.methodCall.equals("")))
@@ -266,17 +594,18 @@ public class Parser {
      */
     protected static ArrayList<Attribute> returnAttributeCalls(CodePropertyGraph cpg, Method methodToUpdate) {
         Helper helper = new Helper(cpg);
-        Set<CPGClass> allPossibleClasses = new HashSet<>();
+        // Linked sets keep the outcome independent of identity hash codes when attributes share a name
+        Set<CPGClass> allPossibleClasses = new LinkedHashSet<>();
         // Get all local classes created
-        Set<CPGClass> allLocalTypes = new HashSet<>();
+        Set<CPGClass> allLocalTypes = new LinkedHashSet<>();
         methodToUpdate.getMethodCalls()
                 .stream()
                 .filter(method -> method.name.equals(method.getParent().name))
                 .forEach(method -> allLocalTypes.add(method.getParent()));
-        Set<Attribute> possibleAttributes = new HashSet<>();
+        Set<Attribute> possibleAttributes = new LinkedHashSet<>();
         HashMap<String, Attribute> attributes = new HashMap<>();
         HashMap<String, Integer> fieldLine = new HashMap<>();
-        methodToUpdate.instructions
+        methodToUpdate.getInstructions()
                 .stream()
                 .filter(instruction -> instruction.label.equals("FIELD_IDENTIFIER"))
                 .forEach(ins -> fieldLine.putIfAbsent(ins.code, ins.lineNumber));
@@ -304,7 +633,7 @@ public class Parser {
                 .filter(parameter -> parameter.getTypeList().size() == 1)
                 .forEach(parameter -> allPossibleClasses.addAll(parameter.getTypeList()));
         Set<String> staticClasses = new HashSet<String>();
-        methodToUpdate.instructions
+        methodToUpdate.getInstructions()
                 .stream()
                 .filter(instruction -> instruction.label.equals("IDENTIFIER") && helper.allClassNames.contains(instruction.code))
                 .forEach(instruction -> staticClasses.add(instruction.code));
@@ -331,60 +660,30 @@ public class Parser {
 
 
     /**
-     * Return the list of CPGClasses that a given CPGClass inherits from (either interfaces or class / abstract class)
+     * Return the list of CPGClasses that a given CPGClass inherits from (either interfaces or class / abstract class),
+     * adding the attributes and methods declared by each of its superclasses (nearest first) to the class
      */
-    protected static ArrayList<CPGClass> returnInheritsFrom(CPGClass cpgClass, CodePropertyGraph cpg) {
-        String[] code = cpgClass.code.replaceAll(",", " ").split(" ");
-        ArrayList<CPGClass> inheritsFrom = new ArrayList<>();
-        for (String splitStr : code) {
-            var classFindResult = cpg.getClasses()
-                    .stream()
-                    .filter(cpgToFind -> cpgToFind.name.equals(splitStr)
-                            && !cpgToFind.name.equals(cpgClass.name))
-                    .limit(2)
-                    .collect(Collectors.toList());
-            if (!classFindResult.isEmpty()) {
-                inheritsFrom.add(classFindResult.get(0));
-            }
-        }
+    protected static ArrayList<CPGClass> returnInheritsFrom(CPGClass cpgClass, HierarchyIndex hierarchy) {
+        ArrayList<CPGClass> inheritsFrom = new ArrayList<>(hierarchy.supertypes(cpgClass));
         // Add all super class attributes and methods
-        var inheritanceCheck = inheritsFrom
-                .stream()
-                .filter(cpgToFind -> !cpgToFind.classType.equals(CPGClass.ClassType.INTERFACE))
-                .collect(Collectors.toList());
-        if (!inheritanceCheck.isEmpty()) {
-            CPGClass superClass = inheritanceCheck.get(0);
+        List<CPGClass> superClasses = hierarchy.superclasses(cpgClass);
+        if (!superClasses.isEmpty()) {
             Set<Attribute> allAttributes = new LinkedHashSet<>(cpgClass.getAttributes());
             Set<Method> allMethods = new LinkedHashSet<>(cpgClass.getMethods());
-            allAttributes.addAll(superClass.getAttributes());
-            allMethods.addAll(superClass.getMethods());
+            for (CPGClass superClass : superClasses) {
+                superClass.getAttributes()
+                        .stream()
+                        .filter(attribute -> attribute.getParent() == superClass)
+                        .forEach(allAttributes::add);
+                superClass.getMethods()
+                        .stream()
+                        .filter(method -> method.getParent() == superClass)
+                        .forEach(allMethods::add);
+            }
             cpgClass.setAttributes(new ArrayList<>(allAttributes));
             cpgClass.setMethods(new ArrayList<>(allMethods));
         }
         return inheritsFrom;
     }
 
-    /**
-     * Return all the types (CPGClass) that are associated within a given string belonging to a parameter or
-     * attribute
-     *
-     * @param type
-     * @param cpg
-     * @return
-     */
-    protected static ArrayList<CPGClass> returnTypeLists(String type, CodePropertyGraph cpg) {
-        type = type.replace("<", " ").replace(">", " ").replace("[]", "");
-        String[] splitStr = type.split(" ");
-        Set<CPGClass> distinctTypes = new HashSet<>();
-        for (String str : splitStr) {
-            var typeCheck = cpg.getClasses()
-                    .stream()
-                    .filter(cpgClass -> cpgClass.name.equals(str) || cpgClass.classFullName.equals(str))
-                    .collect(Collectors.toList());
-            if (!typeCheck.isEmpty()) {
-                distinctTypes.add(typeCheck.get(0));
-            }
-        }
-        return new ArrayList<>(distinctTypes);
-    }
 }
\ No newline at end of file
@@ -30,6 +30,26 @@ public class RelationshipManager {
         }
     }
 
+    /**
+     * Assign all possible relations whose source is one of the given classes. Used when only some classes of the
+     * cpg have changed; relations of the given classes must have been removed from the cpg beforehand.
+     *
+     * @param cpg     - The CodePropertyGraph containing all existing classes and relations
+     * @param sources - The classes whose outward relations should be assigned
+     */
+    protected static void reassignRelations(CodePropertyGraph cpg, Collection<CPGClass> sources) {
+        assignInheritance(cpg, sources);
+        assignRealization(cpg, sources);
+        assignAssociation(cpg, sources);
+        assignDependency(cpg, sources);
+        sources.forEach(CPGClass::clearOutwardRelations);
+        Set<CPGClass> sourceSet = new HashSet<>(sources);
+        cpg.getRelations()
+                .stream()
+                .filter(relation -> sourceSet.contains(relation.source))
+                .forEach(relation -> relation.source.addOutwardRelation(relation));
+    }
+
     /**
      * Iterates through all the added relations within cpg to add the respective outward relations to the sourceClass.
      */
@@ -56,7 +76,11 @@ public class RelationshipManager {
      * </p>
      **/
     protected static void assignAssociation(CodePropertyGraph cpg) {
-        for (CPGClass cpgClass : cpg.getClasses()) {
+        assignAssociation(cpg, cpg.getClasses());
+    }
+
+    protected static void assignAssociation(CodePropertyGraph cpg, Collection<CPGClass> sources) {
+        for (CPGClass cpgClass : sources) {
             HashMap<String, Long> typeCountMap = new HashMap<>();
             Set<CPGClass> uniqueDestinationClasses = new HashSet<>();
             Set<Attribute> filteredAttribute = new HashSet<>();
@@ -164,7 +188,7 @@ public class RelationshipManager {
         // The constructor's instruction contains "= new (destination class name)"
         else if (!constructorResult.isEmpty() && !filteredAttributes.isEmpty()) {
             Method sourceConstructor = constructorResult.get(0);
-            var constructorIns = sourceConstructor.instructions
+            var constructorIns = sourceConstructor.getInstructions()
                     .stream()
                     .filter(instruction -> instruction.code.contains(codeToFind))
                     .collect(Collectors.toList());
@@ -179,9 +203,17 @@ public class RelationshipManager {
      * Iterates through the cpg, assigning dependencies based off of method parameters and method calls.
      */
     protected static void assignDependency(CodePropertyGraph cpg) {
+        assignDependency(cpg, cpg.getClasses());
+    }
+
+    protected static void assignDependency(CodePropertyGraph cpg, Collection<CPGClass> sources) {
         Helper helper = new Helper(cpg);
+        Set<CPGClass> sourceSet = new HashSet<>(sources);
         for (Method method : helper.allMethods) {
             CPGClass methodParent = method.getParent();
+            if (!sourceSet.contains(methodParent)) {
+                continue;
+            }
             var filteredRelations = cpg.getRelations()
                     .stream()
                     .filter(relation -> (relation.type.equals(RelationshipType.UNIDIRECTIONAL_ASSOCIATION) ||
@@ -223,7 +255,11 @@ public class RelationshipManager {
      * @param cpg - The CodePropertyGraph containing all existing classes and relations
      */
     protected static void assignInheritance(CodePropertyGraph cpg) {
-        for (CPGClass cpgClass : cpg.getClasses()) {
+        assignInheritance(cpg, cpg.getClasses());
+    }
+
+    protected static void assignInheritance(CodePropertyGraph cpg, Collection<CPGClass> sources) {
+        for (CPGClass cpgClass : sources) {
             var filteredInherits = cpgClass.getInheritsFrom()
                     .stream()
                     .filter(cpgToFind -> !cpgToFind.classType.equals(CPGClass.ClassType.INTERFACE))
@@ -244,7 +280,11 @@ public class RelationshipManager {
      * Iterates through the cpg and assigns realization relationships.
      */
     protected static void assignRealization(CodePropertyGraph cpg) {
-        for (CPGClass cpgClass : cpg.getClasses()) {
+        assignRealization(cpg, cpg.getClasses());
+    }
+
+    protected static void assignRealization(CodePropertyGraph cpg, Collection<CPGClass> sources) {
+        for (CPGClass cpgClass : sources) {
             var filteredInherits = cpgClass.getInheritsFrom()
                     .stream()
                     .filter(cpgToFind -> cpgToFind.classType.equals(CPGClass.ClassType.INTERFACE))
@@ -0,0 +1,304 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.log.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * A directory of CodePropertyGraph snapshots (serialized backups), addressed by the content of the analysed
+ * source tree.
+ *
+ * <p>
+ * The key of a snapshot is a hash of the tool version, the analysed directory and the relative path and content
+ * hash of every java file within it, so a snapshot is reused whenever the same code is analysed again, regardless
+ * of which other projects were analysed in between. The most recent snapshot of each directory is also recorded,
+ * so that a changed tree can be re-analysed incrementally from it. When the total size of the snapshots exceeds
+ * the limit, the least recently used snapshots are removed.
+ * </p>
+ * <p>
+ * The layouts of the diagrams drawn from the snapshots are kept alongside them, under keys computed by the layout
+ * code, so that a diagram which did not change is not laid out again.
+ * </p>
+ */
+public class SnapshotCache {
+
+    /**
+     * Part of every key. Must be changed whenever joern_query.py or the serialized form of the CodePropertyGraph
+     * changes, so that snapshots written by an older version are not used.
+     */
+    public static final String TOOL_VERSION = "CodeSmell-1.0-cpg-5";
+
+    /**
+     * The default limit on the total size of the snapshots (512 MiB)
+     */
+    public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+    private static final String SNAPSHOT_EXTENSION = ".cpg";
+    private static final String LAYOUT_EXTENSION = ".layout";
+    private static final String LATEST_INDEX = "latest.properties";
+    // prefix of the entries of the latest index recording the most recent layout of each layout engine
+    private static final String LATEST_LAYOUT = "layout:";
+
+    private static SnapshotCache defaultCache;
+
+    private final File directory;
+    private final long maxBytes;
+
+    /**
+     * Create a cache storing its snapshots within directory (created if needed).
+     *
+     * @param directory - The cache directory
+     * @param maxBytes  - The limit on the total size of the snapshots
+     */
+    public SnapshotCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        directory.mkdirs();
+    }
+
+    /**
+     * Returns the cache used by the application, located at <code>-Dcodesmell.cache.dir</code> (by default
+     * <code>~/.codesmell/snapshots</code>) and limited to <code>-Dcodesmell.cache.maxBytes</code>.
+     */
+    public static synchronized SnapshotCache getDefault() {
+        if (defaultCache == null) {
+            String dir = System.getProperty("codesmell.cache.dir",
+                    System.getProperty("user.home") + File.separator + ".codesmell" + File.separator + "snapshots");
+            long max = Long.getLong("codesmell.cache.maxBytes", DEFAULT_MAX_BYTES);
+            defaultCache = new SnapshotCache(new File(dir), max);
+        }
+        return defaultCache;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Compute the key of a source tree.
+     *
+     * @param sourceDirectory - The analysed directory
+     * @param fileHashes      - The content hash of every java file within sourceDirectory, keyed by normalized path
+     *                        (see {@link SourceDiff#scan(File)})
+     * @return The hex encoded key
+     */
+    public static String key(File sourceDirectory, Map<String, String> fileHashes) {
+        String root = ContentHash.normalizePath(sourceDirectory.getPath());
+        Path rootPath = Path.of(root);
+        TreeMap<String, String> relativeHashes = new TreeMap<>();
+        fileHashes.forEach((path, hash) ->
+                relativeHashes.put(rootPath.relativize(Path.of(path)).toString().replace('\\', '/'), hash));
+        MessageDigest digest = ContentHash.newDigest();
+        digest.update((TOOL_VERSION + "\n" + root + "\n").getBytes(StandardCharsets.UTF_8));
+        relativeHashes.forEach((path, hash) ->
+                digest.update((path + " " + hash + "\n").getBytes(StandardCharsets.UTF_8)));
+        return ContentHash.toHex(digest.digest());
+    }
+
+    /**
+     * @return True if a snapshot with the given key is stored
+     */
+    public boolean contains(String key) {
+        return snapshotFile(key).isFile();
+    }
+
+    /**
+     * Read the snapshot with the given key.
+     *
+     * @param key - The key of the source tree
+     * @return The stored CodePropertyGraph, or null if there is none (or it can no longer be read)
+     */
+    public synchronized CodePropertyGraph load(String key) {
+        File snapshot = snapshotFile(key);
+        if (!snapshot.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(snapshot)))) {
+            CodePropertyGraph cpg = (CodePropertyGraph) ois.readObject();
+            // mark as recently used
+            snapshot.setLastModified(System.currentTimeMillis());
+            Log.info("Snapshot %s read from cache", shortKey(key));
+            return cpg;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            Log.warn("Removing unreadable snapshot %s: %s", shortKey(key), e);
+            snapshot.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Read the most recently stored snapshot of a directory, which may have been built from different contents.
+     *
+     * @param sourceDirectory - The analysed directory
+     * @return The CodePropertyGraph, or null if no snapshot of the directory is stored
+     */
+    public synchronized CodePropertyGraph loadLatest(File sourceDirectory) {
+        String key = readLatestIndex().getProperty(ContentHash.normalizePath(sourceDirectory.getPath()));
+        return (key == null) ? null : load(key);
+    }
+
+    /**
+     * Store a snapshot (a backup file written by {@link Parser}) under the given key, then evict the least
+     * recently used snapshots if the cache is too large.
+     *
+     * @param key             - The key of the source tree the snapshot was built from
+     * @param sourceDirectory - The analysed directory
+     * @param snapshot        - The serialized CodePropertyGraph to copy into the cache
+     */
+    public synchronized void put(String key, File sourceDirectory, File snapshot) {
+        File target = snapshotFile(key);
+        try {
+            // copy to a temporary file first so that a partially written snapshot is never read
+            Path temp = Files.createTempFile(directory.toPath(), key, ".tmp");
+            Files.copy(snapshot.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            target.setLastModified(System.currentTimeMillis());
+            Properties latest = readLatestIndex();
+            latest.setProperty(ContentHash.normalizePath(sourceDirectory.getPath()), key);
+            writeLatestIndex(latest);
+        } catch (IOException e) {
+            Log.warn("Snapshot could not be stored in %s: %s", directory, e);
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Read the layout stored under the given key.
+     *
+     * @param key - The key of the layout
+     * @return The stored layout, or null if there is none (or it can no longer be read)
+     */
+    public synchronized Object loadLayout(String key) {
+        File layout = layoutFile(key);
+        if (!layout.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(layout)))) {
+            Object stored = ois.readObject();
+            layout.setLastModified(System.currentTimeMillis());
+            Log.info("Layout %s read from cache", shortKey(key));
+            return stored;
+        } catch (IOException | ClassNotFoundException e) {
+            Log.warn("Removing unreadable layout %s: %s", shortKey(key), e);
+            layout.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Read the most recently stored layout of a layout engine, which may be the layout of a different diagram.
+     *
+     * @param name - The name of the layout engine
+     * @return The stored layout, or null if the engine has no stored layout
+     */
+    public synchronized Object loadLatestLayout(String name) {
+        String key = readLatestIndex().getProperty(LATEST_LAYOUT + name);
+        return (key == null) ? null : loadLayout(key);
+    }
+
+    /**
+     * Store a layout under the given key, then evict the least recently used entries if the cache is too large.
+     *
+     * @param key    - The key of the layout
+     * @param name   - The name of the layout engine which computed it
+     * @param layout - The layout
+     */
+    public synchronized void putLayout(String key, String name, Serializable layout) {
+        File target = layoutFile(key);
+        try {
+            Path temp = Files.createTempFile(directory.toPath(), key, ".tmp");
+            try (ObjectOutputStream oos = new ObjectOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp.toFile())))) {
+                oos.writeObject(layout);
+            }
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Properties latest = readLatestIndex();
+            latest.setProperty(LATEST_LAYOUT + name, key);
+            writeLatestIndex(latest);
+        } catch (IOException e) {
+            Log.warn("Layout could not be stored in %s: %s", directory, e);
+            return;
+        }
+        evict();
+    }
+
+    /**
+     * Remove the least recently used snapshots and layouts until their total size is within the limit. The most
+     * recently used entry is always kept.
+     */
+    public synchronized void evict() {
+        File[] files = directory.listFiles(SnapshotCache::isEntry);
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+        long total = 0;
+        for (int i = 0; i < files.length; i++) {
+            total += files[i].length();
+            if (i > 0 && total > maxBytes) {
+                Log.debug("Evicting %s", files[i].getName());
+                total -= files[i].length();
+                files[i].delete();
+            }
+        }
+    }
+
+    /**
+     * @return The total size of all stored snapshots and layouts, in bytes
+     */
+    public long totalBytes() {
+        File[] files = directory.listFiles(SnapshotCache::isEntry);
+        long total = 0;
+        if (files != null) {
+            for (File f : files) {
+                total += f.length();
+            }
+        }
+        return total;
+    }
+
+    private static String shortKey(String key) {
+        return key.substring(0, Math.min(12, key.length()));
+    }
+
+    private File snapshotFile(String key) {
+        return new File(directory, key + SNAPSHOT_EXTENSION);
+    }
+
+    private File layoutFile(String key) {
+        return new File(directory, key + LAYOUT_EXTENSION);
+    }
+
+    private static boolean isEntry(File dir, String name) {
+        return name.endsWith(SNAPSHOT_EXTENSION) || name.endsWith(LAYOUT_EXTENSION);
+    }
+
+    private Properties readLatestIndex() {
+        Properties latest = new Properties();
+        File index = new File(directory, LATEST_INDEX);
+        if (index.isFile()) {
+            try (Reader reader = Files.newBufferedReader(index.toPath(), StandardCharsets.UTF_8)) {
+                latest.load(reader);
+            } catch (IOException e) {
+                Log.warn("Could not read %s: %s", index, e);
+            }
+        }
+        return latest;
+    }
+
+    private void writeLatestIndex(Properties latest) throws IOException {
+        File index = new File(directory, LATEST_INDEX);
+        try (Writer writer = Files.newBufferedWriter(index.toPath(), StandardCharsets.UTF_8)) {
+            latest.store(writer, "most recent snapshot of each analysed directory");
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.CodeSmell.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * The differences between the source files a CodePropertyGraph was built from and the source files currently
+ * within the analysed directory, determined by comparing the content hash of each file.
+ */
+public final class SourceDiff {
+
+    /**
+     * Files which existed previously but whose contents have changed
+     */
+    public final Set<String> changedFiles;
+
+    /**
+     * Files which did not exist previously
+     */
+    public final Set<String> addedFiles;
+
+    /**
+     * Files which existed previously but no longer exist
+     */
+    public final Set<String> removedFiles;
+
+    /**
+     * The content hashes of every source file currently within the directory, keyed by normalized file path
+     */
+    public final Map<String, String> currentHashes;
+
+    SourceDiff(Set<String> changedFiles, Set<String> addedFiles, Set<String> removedFiles,
+               Map<String, String> currentHashes) {
+        this.changedFiles = Collections.unmodifiableSet(new TreeSet<>(changedFiles));
+        this.addedFiles = Collections.unmodifiableSet(new TreeSet<>(addedFiles));
+        this.removedFiles = Collections.unmodifiableSet(new TreeSet<>(removedFiles));
+        this.currentHashes = Collections.unmodifiableMap(new HashMap<>(currentHashes));
+    }
+
+    /**
+     * Compare the files a CodePropertyGraph was built from against the java files currently within directory.
+     *
+     * @param cpg       - A previously built CodePropertyGraph (e.g. read from the backup file)
+     * @param directory - The directory containing the source code
+     * @return The differences between the two, or null if cpg was not built from the given directory
+     * @throws IOException if the directory cannot be read
+     */
+    public static SourceDiff compute(CodePropertyGraph cpg, File directory) throws IOException {
+        return compute(cpg, directory, scan(directory));
+    }
+
+    /**
+     * Compute the content hash of every java file within directory.
+     *
+     * @param directory - The directory containing the source code
+     * @return The content hashes, keyed by normalized file path
+     * @throws IOException if the directory cannot be read
+     */
+    public static Map<String, String> scan(File directory) throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(".java"))
+                    .forEach(path -> hashes.put(ContentHash.normalizePath(path.toString()),
+                            ContentHash.ofFile(path)));
+        }
+        return hashes;
+    }
+
+    /**
+     * Update the hashes of an earlier scan for the paths reported changed (e.g. by a watcher), rather than scanning
+     * the whole directory again. A changed java file is hashed again, or dropped if it no longer exists; any other
+     * path is taken to be a directory whose files are all dropped and, if it still exists, scanned again.
+     *
+     * @param hashes  - The result of an earlier {@link #scan(File)}
+     * @param changed - The java files changed since, and the directories created, deleted or to be compared entirely
+     * @return The content hashes, keyed by normalized file path
+     * @throws IOException if a directory cannot be read
+     */
+    public static Map<String, String> rescan(Map<String, String> hashes, Set<Path> changed) throws IOException {
+        Map<String, String> rescanned = new HashMap<>(hashes);
+        for (Path path : changed) {
+            String normalized = ContentHash.normalizePath(path.toString());
+            if (normalized.endsWith(".java")) {
+                if (Files.isRegularFile(path)) {
+                    rescanned.put(normalized, ContentHash.ofFile(path));
+                } else {
+                    rescanned.remove(normalized);
+                }
+            } else {
+                rescanned.keySet().removeIf(file -> file.startsWith(normalized + File.separator));
+                if (Files.isDirectory(path)) {
+                    rescanned.putAll(scan(path.toFile()));
+                }
+            }
+        }
+        return rescanned;
+    }
+
+    /**
+     * Compare the files a CodePropertyGraph was built from against already computed hashes of the java files
+     * currently within directory.
+     *
+     * @param cpg           - A previously built CodePropertyGraph
+     * @param directory     - The directory containing the source code
+     * @param currentHashes - The result of {@link #scan(File)} for directory
+     * @return The differences between the two, or null if cpg was not built from the given directory
+     */
+    public static SourceDiff compute(CodePropertyGraph cpg, File directory, Map<String, String> currentHashes) {
+        String root = ContentHash.normalizePath(directory.getPath());
+        // every file scanned when cpg was built, including those which yield no class (e.g. package-info.java);
+        // graphs built without a scan only know the files of their classes
+        Map<String, String> previousHashes = new HashMap<>(cpg.getSourceHashes());
+        if (previousHashes.isEmpty()) {
+            for (CPGClass cpgClass : cpg.getClasses()) {
+                previousHashes.put(ContentHash.normalizePath(cpgClass.filePath), null);
+            }
+            for (Package pkg : cpg.getPackages()) {
+                for (Package.File file : pkg.files) {
+                    previousHashes.put(ContentHash.normalizePath(file.filePath), file.contentHash);
+                }
+            }
+        }
+        Set<String> previousFiles = previousHashes.keySet();
+        if (previousFiles.isEmpty() || !previousFiles.stream().allMatch(path -> path.startsWith(root + File.separator))) {
+            return null;
+        }
+        Set<String> changed = new HashSet<>();
+        Set<String> added = new HashSet<>();
+        Set<String> removed = new HashSet<>();
+        for (Map.Entry<String, String> entry : currentHashes.entrySet()) {
+            String path = entry.getKey();
+            if (!previousFiles.contains(path)) {
+                added.add(path);
+            } else if (!entry.getValue().equals(previousHashes.get(path))) {
+                // files without a recorded hash are treated as changed
+                changed.add(path);
+            }
+        }
+        for (String path : previousFiles) {
+            if (!currentHashes.containsKey(path)) {
+                removed.add(path);
+            }
+        }
+        return new SourceDiff(changed, added, removed, currentHashes);
+    }
+
+    /**
+     * @return True if no file has been changed, added or removed
+     */
+    public boolean isEmpty() {
+        return changedFiles.isEmpty() && addedFiles.isEmpty() && removedFiles.isEmpty();
+    }
+
+    /**
+     * @return The files that must be queried again (changed and added files)
+     */
+    public Set<String> filesToQuery() {
+        Set<String> files = new TreeSet<>(changedFiles);
+        files.addAll(addedFiles);
+        return files;
+    }
+
+    /**
+     * @return The files whose previously parsed classes are no longer valid (changed and removed files)
+     */
+    public Set<String> staleFiles() {
+        Set<String> files = new TreeSet<>(changedFiles);
+        files.addAll(removedFiles);
+        return files;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceDiff{" +
+                "changedFiles=" + changedFiles +
+                ", addedFiles=" + addedFiles +
+                ", removedFiles=" + removedFiles +
+                '}';
+    }
+}
@@ -0,0 +1,111 @@
+package com.CodeSmell.parser;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A canonicalizing map of the strings read while ingesting a project, so that the type names, package names, file
+ * paths and instruction code repeated across a project are held once.
+ *
+ * <p>
+ * The fields to deduplicate are annotated with <code>@JsonAdapter(StringPool.Adapter.class)</code>, which interns
+ * the strings Gson reads for them in the pool of the running ingest (see {@link #begin()}). The pool is dropped
+ * when the ingest ends, the deduplicated strings stay shared by the graph (and by its snapshots, as Java
+ * serialization writes a shared object once).
+ * </p>
+ */
+public final class StringPool {
+
+    private static volatile StringPool current;
+
+    private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    private StringPool() {
+    }
+
+    /**
+     * Start interning the strings read by Gson in a new pool, until {@link #end()}.
+     *
+     * @return The new pool
+     */
+    public static StringPool begin() {
+        StringPool pool = new StringPool();
+        current = pool;
+        return pool;
+    }
+
+    /**
+     * Stop interning strings in this pool, releasing the map (the strings stay shared by the graph).
+     */
+    public void end() {
+        if (current == this) {
+            current = null;
+        }
+        strings.clear();
+    }
+
+    /**
+     * @return The canonical instance of s, or s if it is the first of its value (or null)
+     */
+    public String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        String canonical = strings.putIfAbsent(s, s);
+        if (canonical == null) {
+            return s;
+        }
+        duplicates.increment();
+        savedBytes.add(stringSize(s));
+        return canonical;
+    }
+
+    /**
+     * @return The number of strings replaced by their canonical instance
+     */
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return An estimate of the heap no longer used by the replaced strings
+     */
+    public long savedBytes() {
+        return savedBytes.sum();
+    }
+
+    // a compact (latin-1) string on a 64-bit JVM with compressed references: the String and its byte[]
+    private static long stringSize(String s) {
+        return 24 + ((16 + s.length() + 7) & ~7);
+    }
+
+    /**
+     * Reads strings through the pool of the running ingest (if any).
+     */
+    public static final class Adapter extends TypeAdapter<String> {
+
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String s = in.nextString();
+            StringPool pool = current;
+            return (pool == null) ? s : pool.intern(s);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.CodeSmell.parser;
+
+import java.util.*;
+
+/**
+ * The classes of a CodePropertyGraph by name and by full name, and the classes referred to by each distinct type
+ * signature resolved through it.
+ *
+ * <p>
+ * A table is built for one pass over a graph (e.g. {@link Parser#updateCPGClassProperties(CodePropertyGraph)}) and
+ * must not be used after classes are added to or removed from the graph.
+ * </p>
+ */
+public class SymbolTable {
+
+    // the first class of the graph with a name or full name, as found by a search of cpg.getClasses()
+    private final Map<String, CPGClass> classes = new HashMap<>();
+    private final Map<String, List<CPGClass>> signatures = new HashMap<>();
+
+    public SymbolTable(CodePropertyGraph cpg) {
+        for (CPGClass cpgClass : cpg.getClasses()) {
+            classes.putIfAbsent(cpgClass.name, cpgClass);
+            classes.putIfAbsent(cpgClass.classFullName, cpgClass);
+        }
+    }
+
+    /**
+     * @param name - The name or full name of a class
+     * @return The first class of the graph with that name or full name, or null if there is none
+     */
+    public CPGClass lookup(String name) {
+        return classes.get(name);
+    }
+
+    /**
+     * Resolve the types of a signature to the classes of the graph. Each distinct signature is only parsed and
+     * resolved once.
+     *
+     * @param signature - The type signature of an attribute or parameter, e.g. "Map&lt;String, List&lt;Order&gt;&gt;"
+     * @return The distinct classes of the graph referred to by signature, in the order they appear (unmodifiable)
+     */
+    public List<CPGClass> resolve(String signature) {
+        return signatures.computeIfAbsent(signature, s -> {
+            Set<CPGClass> types = new LinkedHashSet<>();
+            for (String name : TypeSignature.typeNames(s)) {
+                CPGClass cpgClass = classes.get(name);
+                if (cpgClass != null) {
+                    types.add(cpgClass);
+                }
+            }
+            // not List.copyOf, whose serial form cannot be read back within the cycles of a graph
+            return Collections.unmodifiableList(new ArrayList<>(types));
+        });
+    }
+}
@@ -0,0 +1,231 @@
+package com.CodeSmell.parser;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed Java type signature, as found in the type of an {@link CPGClass.Attribute} or
+ * {@link CPGClass.Method.Parameter} (i.e. "Map&lt;String, List&lt;? extends Order&gt;&gt;[]").
+ *
+ * <pre>
+ * type      := wildcard | reference dims
+ * wildcard  := "?" [("extends" | "super") reference {"&amp;" reference}]
+ * reference := name [arguments] {"." name [arguments]}
+ * arguments := "&lt;" [type {"," type}] "&gt;"
+ * dims      := {"[" "]"} ["..."]
+ * </pre>
+ */
+public final class TypeSignature {
+
+    /**
+     * The wildcard name
+     */
+    public static final String WILDCARD = "?";
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[\\p{L}_$][\\p{L}\\p{N}_$]*");
+    private static final Pattern QUALIFIED_NAME = Pattern.compile(
+            IDENTIFIER.pattern() + "(?:\\s*\\.\\s*" + IDENTIFIER.pattern() + ")*");
+
+    /**
+     * The (possibly fully qualified) name of the type, or {@link #WILDCARD}
+     */
+    public final String name;
+
+    /**
+     * The type arguments of a generic type (empty if there are none), or the bounds of a wildcard
+     */
+    public final List<TypeSignature> arguments;
+
+    /**
+     * The number of array dimensions (varargs count as one)
+     */
+    public final int dimensions;
+
+    // true for "? super" wildcards
+    private final boolean lowerBound;
+
+    private TypeSignature(String name, List<TypeSignature> arguments, int dimensions, boolean lowerBound) {
+        this.name = name;
+        this.arguments = Collections.unmodifiableList(arguments);
+        this.dimensions = dimensions;
+        this.lowerBound = lowerBound;
+    }
+
+    /**
+     * Parse a type signature.
+     *
+     * @param signature - The signature, e.g. "java.util.List&lt;Order&gt;"
+     * @return The parsed signature
+     * @throws IllegalArgumentException If signature is not a valid type signature
+     */
+    public static TypeSignature parse(String signature) {
+        Reader reader = new Reader(signature);
+        TypeSignature type = reader.type();
+        reader.skipSpace();
+        if (!reader.atEnd()) {
+            throw reader.error("Unexpected '" + reader.peek() + "'");
+        }
+        return type;
+    }
+
+    /**
+     * The names of the types in a signature, in the order they appear. Signatures that cannot be parsed (e.g. the
+     * "&lt;unresolvedNamespace&gt;" types of joern) give every identifier found in them.
+     *
+     * @param signature - A type signature
+     * @return The distinct names of the types in signature (without wildcards)
+     */
+    public static List<String> typeNames(String signature) {
+        Set<String> names = new LinkedHashSet<>();
+        try {
+            parse(signature).collectNames(names);
+        } catch (IllegalArgumentException e) {
+            Matcher m = QUALIFIED_NAME.matcher(signature);
+            while (m.find()) {
+                names.add(m.group().replaceAll("\\s", ""));
+            }
+            names.remove("extends");
+            names.remove("super");
+        }
+        return new ArrayList<>(names);
+    }
+
+    private void collectNames(Set<String> names) {
+        if (!name.equals(WILDCARD)) {
+            names.add(name);
+        }
+        arguments.forEach(argument -> argument.collectNames(names));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name);
+        if (name.equals(WILDCARD)) {
+            for (int i = 0; i < arguments.size(); i++) {
+                sb.append((i > 0) ? " & " : lowerBound ? " super " : " extends ").append(arguments.get(i));
+            }
+        } else if (!arguments.isEmpty()) {
+            StringJoiner joiner = new StringJoiner(", ", "<", ">");
+            arguments.forEach(argument -> joiner.add(argument.toString()));
+            sb.append(joiner);
+        }
+        sb.append("[]".repeat(dimensions));
+        return sb.toString();
+    }
+
+    /**
+     * A recursive descent parser of the grammar above.
+     */
+    private static final class Reader {
+        private final String s;
+        private int pos;
+
+        Reader(String s) {
+            this.s = s;
+        }
+
+        TypeSignature type() {
+            skipSpace();
+            if (accept('?')) {
+                List<TypeSignature> bounds = new ArrayList<>();
+                String keyword = peekIdentifier();
+                if (keyword != null && (keyword.equals("extends") || keyword.equals("super"))) {
+                    pos += keyword.length();
+                    do {
+                        bounds.add(reference());
+                    } while (accept('&'));
+                }
+                return new TypeSignature(WILDCARD, bounds, 0, "super".equals(keyword));
+            }
+            TypeSignature reference = reference();
+            int dimensions = 0;
+            while (accept('[')) {
+                expect(']');
+                dimensions++;
+            }
+            skipSpace();
+            if (s.startsWith("...", pos)) {
+                pos += 3;
+                dimensions++;
+            }
+            return (dimensions == 0) ? reference
+                    : new TypeSignature(reference.name, reference.arguments, dimensions, false);
+        }
+
+        TypeSignature reference() {
+            StringBuilder name = new StringBuilder();
+            List<TypeSignature> arguments = new ArrayList<>();
+            do {
+                skipSpace();
+                String identifier = peekIdentifier();
+                if (identifier == null) {
+                    throw error("Expected a type name");
+                }
+                pos += identifier.length();
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+                name.append(identifier);
+                if (accept('<')) {
+                    // the arguments of an outer class (Outer<A>.Inner) are kept with the inner class
+                    if (!accept('>')) {
+                        do {
+                            arguments.add(type());
+                        } while (accept(','));
+                        expect('>');
+                    }
+                }
+            } while (acceptDot());
+            return new TypeSignature(name.toString(), arguments, 0, false);
+        }
+
+        private boolean acceptDot() {
+            skipSpace();
+            if (pos < s.length() && s.charAt(pos) == '.' && !s.startsWith("...", pos)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private String peekIdentifier() {
+            skipSpace();
+            Matcher m = IDENTIFIER.matcher(s).region(pos, s.length());
+            return m.lookingAt() ? m.group() : null;
+        }
+
+        private boolean accept(char c) {
+            skipSpace();
+            if (pos < s.length() && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean atEnd() {
+            return pos >= s.length();
+        }
+
+        char peek() {
+            return s.charAt(pos);
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos + " of type signature \"" + s + "\"");
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.CodeSmell.smell;
 
+import com.CodeSmell.log.Metrics;
 import com.CodeSmell.parser.CodePropertyGraph;
-import com.CodeSmell.parser.CodePropertyGraph.Relation;
 import com.CodeSmell.parser.CPGClass;
 import com.CodeSmell.parser.CPGClass.*;
+import com.CodeSmell.parser.HierarchyIndex;
 import com.CodeSmell.model.Pair;
-import com.CodeSmell.model.ClassRelation.RelationshipType;
 import com.CodeSmell.stat.*;
 
 import java.util.HashMap;
@@ -16,6 +16,7 @@ import java.util.Comparator;
 import java.util.Set;
 import java.util.List;
 import java.util.Collections;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,12 +29,12 @@ public class Common {
 
     // temporary function to simplify running smell test routine
     public static Stream<Smell> buildSmellStream(CodePropertyGraph cpg) {
-        OrphanVariable s1  = new OrphanVariable(cpg);
-        FeatureEnvy s2  = new FeatureEnvy(cpg);
-        GodClass s3 = new GodClass(cpg);
-        InappropriateIntimacy s4 = new InappropriateIntimacy(cpg);
-        ISPViolation s5 = new ISPViolation(cpg);
-        RefusedBequest s6 = new RefusedBequest(cpg);
+        OrphanVariable s1  = detect("OrphanVariable", () -> new OrphanVariable(cpg));
+        FeatureEnvy s2  = detect("FeatureEnvy", () -> new FeatureEnvy(cpg));
+        GodClass s3 = detect("GodClass", () -> new GodClass(cpg));
+        InappropriateIntimacy s4 = detect("InappropriateIntimacy", () -> new InappropriateIntimacy(cpg));
+        ISPViolation s5 = detect("ISPViolation", () -> new ISPViolation(cpg));
+        RefusedBequest s6 = detect("RefusedBequest", () -> new RefusedBequest(cpg));
         Stream.Builder<Smell> sb = Stream.builder();
         sb.add(s1);
         sb.add(s2);
@@ -44,20 +45,28 @@ public class Common {
         return sb.build();
     }
 
+    // runs a detector as a phase of the run, until all of its detections are made (some smells detect when
+    // constructed, others only as detectNext() is called), leaving them in getDetections()
+    private static <T extends Smell> T detect(String name, Supplier<T> detector) {
+        T smell = Metrics.time("smell." + name, () -> {
+            T constructed = detector.get();
+            constructed.drainDetections();
+            return constructed;
+        });
+        Metrics.count(Metrics.DETECTIONS, smell.getDetections() == null ? 0 : smell.getDetections().size());
+        return smell;
+    }
+
     public static void initStatTracker(CodePropertyGraph cpg) {
-        stats = new StatTracker(cpg);
+        stats = Metrics.time("stats", () -> new StatTracker(cpg));
         List<CPGClass> ifaceClasses = stats
                 .distinctClassTypes.get(ClassType.INTERFACE);
-        List<Relation> realizations = stats
-                .distinctRelations.get(RelationshipType.REALIZATION);
+        HierarchyIndex hierarchy = cpg.getHierarchy();
         Common.interfaces = new HashMap<>();
 
+        // the classes and interfaces realizing each interface directly
         for (CPGClass iface : ifaceClasses) {
-            ArrayList<CPGClass> realizors = realizations.stream()
-                    .filter(r -> r.destination == iface)
-                    .map(r -> r.source)
-                    .collect(Collectors.toCollection(ArrayList::new));
-            Common.interfaces.put(iface, realizors);
+            Common.interfaces.put(iface, new ArrayList<>(hierarchy.subtypes(iface)));
         }
     }
 
@@ -79,11 +88,14 @@ public class Common {
         throw new IllegalArgumentException("No method stats for method " + m);
     }
 
-    // returns the list of methods declared within the interface
-    // which class c extends
+    // returns the list of methods declared within the (first) interface
+    // which class c implements
     public static Method[] interfaceMethods(CPGClass c) {
+        return interfaceMethods(c, firstInterface(c));
+    }
 
-        CPGClass iface = c.getInheritsFrom().get(0);
+    // returns the list of methods of class c declared within interface iface
+    public static Method[] interfaceMethods(CPGClass c, CPGClass iface) {
         Set<String> ifaceMethods = iface.getMethods()
                 .stream()
                 .map(m -> m.name)
@@ -95,10 +107,17 @@ public class Common {
                 .toArray(new Method[0]);
     }
 
-    // returns the method objects for the interface of a classifier
+    // returns the method objects for the (first) interface of a classifier
     public static Method[] originalInterfaceMethods(CPGClass c) {
-        CPGClass iface = c.getInheritsFrom().get(0);
-        return iface.getMethods().toArray(new Method[0]);
+        return firstInterface(c).getMethods().toArray(new Method[0]);
+    }
+
+    private static CPGClass firstInterface(CPGClass c) {
+        return c.getInheritsFrom()
+                .stream()
+                .filter(iface -> iface.classType == ClassType.INTERFACE)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(c.name + " does not implement an interface"));
     }
 
     // returns true if c2 is a nested class (within the same file) of c
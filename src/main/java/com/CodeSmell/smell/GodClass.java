@@ -1,5 +1,6 @@
 package com.CodeSmell.smell;
 
+import com.CodeSmell.log.Log;
 import com.CodeSmell.parser.CodePropertyGraph;
 import com.CodeSmell.parser.CPGClass;
 import com.CodeSmell.parser.CPGClass.*;
@@ -91,10 +92,8 @@ public class GodClass extends Smell {
 		for (int i=contentSorter.itemCount()-1; i >= 0; i--) {
 			CPGClass c =  contentSorter.getKey(i);
 			int lineCount = contentSorter.getVal(i);
-			System.out.print(c + ":  line count: " + lineCount);
-
 			if (lineCount < minLineCount) {
-				System.out.println("");
+				Log.debug("%s:  line count: %d", c, lineCount);
 				continue;
 			}
 
@@ -116,7 +115,8 @@ public class GodClass extends Smell {
 			int relationIndex =  relationSorter.getIndex(c);
 			int relationSize = relationSorter.getVal(relationIndex);
 			proportion = ((float) relationSize / relationSorter.getTotal());
-			System.out.println(" :  relation proportion: " + proportion);
+			Log.debug("%s:  line count: %d :  relation proportion: %f",
+				c, lineCount, proportion);
 			if (proportion > relationThreshold) {
 				description += String.format(
 					"%s contains %f%% of all relations (%d)",
@@ -1,5 +1,6 @@
 package com.CodeSmell.smell;
 
+import com.CodeSmell.log.Log;
 import com.CodeSmell.parser.CodePropertyGraph;
 import com.CodeSmell.parser.CPGClass;
 import com.CodeSmell.parser.CPGClass.Method.*;
@@ -85,7 +86,7 @@ public class ISPViolation extends Smell {
             return true;
         }
         boolean foundControlStructure = false;
-        for (Instruction i : m.instructions) {
+        for (Instruction i : m.getInstructions()) {
             if (!foundControlStructure && 
                     i.label.equals("CONTROL_STRUCTURE")) {
                 return false;
@@ -106,7 +107,7 @@ public class ISPViolation extends Smell {
             CPGClass[] implementors) {
 
         for (CPGClass c : implementors) {
-            Method[] ifaceMethods = Common.interfaceMethods(c);
+            Method[] ifaceMethods = Common.interfaceMethods(c, iface);
             for (Method m : ifaceMethods) {
                 if (isNotImplemented(m)) {
                     Method m2 = iface.getMethods()
@@ -116,12 +117,11 @@ public class ISPViolation extends Smell {
                             .orElseThrow(RuntimeException::new);
                     ArrayList<CPGClass> arr = this.segregations
                             .getOrDefault(m2, new ArrayList<>());
-                    System.out.print(m2 + " is not implemented in " + c.name);
-                    System.out.println(" within " + m.getParent());
+                    Log.debug("%s is not implemented in %s within %s", m2, c.name, m.getParent());
                     arr.add(c);
                     this.segregations.put(m2, arr);
                 } else {
-                    System.out.print(m + " is implemented in " + c.name);
+                    Log.debug("%s is implemented in %s", m, c.name);
                 }
             }
         }
@@ -144,10 +144,10 @@ public class ISPViolation extends Smell {
             Map.Entry<CPGClass, ArrayList<CPGClass>> iface = this.interfaces.next();
             CPGClass[] implementors = iface.getValue().toArray(new CPGClass[0]);
             if (containsViolation(iface.getKey(), implementors)) {
-                System.out.println(iface.getKey() + " contains violation");
+                Log.debug("%s contains violation", iface.getKey());
                 return processDetection(iface.getKey(), implementors.length);
             } else {
-                System.out.println(iface.getKey() + " does not contain violation");
+                Log.debug("%s does not contain violation", iface.getKey());
             }
         }
         return null;
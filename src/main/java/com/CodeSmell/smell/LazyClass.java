@@ -5,7 +5,7 @@ import com.CodeSmell.parser.CodePropertyGraph;
 import com.CodeSmell.stat.ClassStat;
 import com.CodeSmell.stat.MethodStat;
 import com.CodeSmell.stat.StatTracker;
-import javafx.util.Pair;
+import com.CodeSmell.model.Pair;
 
 import java.util.*;
 
@@ -87,7 +87,7 @@ public class LazyClass extends Smell {
         //If the class is not called and is not calling any other class it can be considered lazy as it
         //serves no use and should be considered for a refactor
         for (Map.Entry<CPGClass, Pair<Integer, Integer>> classesEntry : usesAndUsages.entrySet()) {
-            if (classesEntry.getValue().getKey() == 0 && classesEntry.getValue().getValue() == 0) {
+            if (classesEntry.getValue().first == 0 && classesEntry.getValue().second == 0) {
                 lazyClasses.add(classesEntry.getKey());
             }
         }
@@ -137,15 +137,15 @@ public class LazyClass extends Smell {
                 if (otherMethodStat.equals(methodStat)) {
                     continue;
                 } else {
-                    for (CPGClass.Method.Instruction instructions : methodStat.method.instructions) {
+                    for (CPGClass.Method.Instruction instructions : methodStat.method.getInstructions()) {
                         int sameLines = 0;
-                        for (CPGClass.Method.Instruction otherInstructions : otherMethodStat.method.instructions) {
+                        for (CPGClass.Method.Instruction otherInstructions : otherMethodStat.method.getInstructions()) {
                             if (otherInstructions.equals(instructions)) {
                                 sameLines++;
                             }
                         }
-                        if (otherMethodStat.method.instructions.size() > 0) {
-                            if (((float) (sameLines / otherMethodStat.method.instructions.size())) > 0.75) {
+                        if (otherMethodStat.method.getInstructions().size() > 0) {
+                            if (((float) (sameLines / otherMethodStat.method.getInstructions().size())) > 0.75) {
                                 lazySharedMethods.put(otherMethodStat.method.getParent(), methodStat.method.getParent());
                             }
                         }
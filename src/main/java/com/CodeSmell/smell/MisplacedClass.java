@@ -4,7 +4,7 @@ import com.CodeSmell.parser.CPGClass;
 import com.CodeSmell.parser.CodePropertyGraph;
 import com.CodeSmell.stat.ClassStat;
 import com.CodeSmell.stat.StatTracker;
-import javafx.util.Pair;
+import com.CodeSmell.model.Pair;
 
 import static com.CodeSmell.smell.Common.*;
 
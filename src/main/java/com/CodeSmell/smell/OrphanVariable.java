@@ -202,7 +202,7 @@ public class OrphanVariable extends Smell {
         List<Instruction> affectedInstructions = new ArrayList<>();
         List<String> attributeNames = new ArrayList<>();
         Arrays.stream(affectedAttributes).forEach(attribute -> attributeNames.add(attribute.name));
-        Arrays.stream(affectedMethods).forEach(method -> method.instructions
+        Arrays.stream(affectedMethods).forEach(method -> method.getInstructions()
                 .stream()
                 .filter(ins -> ins.label.equals("METHOD") || (ins.label.equals("FIELD_IDENTIFIER") && attributeNames.contains(ins.code)))
                 .forEach(affectedInstructions::add));
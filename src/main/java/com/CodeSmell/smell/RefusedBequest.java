@@ -1,12 +1,12 @@
 package com.CodeSmell.smell;
 
-import com.CodeSmell.model.ClassRelation;
 import com.CodeSmell.parser.CPGClass;
 import com.CodeSmell.parser.CPGClass.Attribute;
 import com.CodeSmell.parser.CPGClass.Method.*;
 import com.CodeSmell.parser.CPGClass.*;
 import com.CodeSmell.parser.CodePropertyGraph;
 import com.CodeSmell.parser.CodePropertyGraph.*;
+import com.CodeSmell.parser.HierarchyIndex;
 import com.CodeSmell.stat.AttributeStat;
 import com.CodeSmell.stat.MethodStat;
 
@@ -22,7 +22,7 @@ public class RefusedBequest extends Smell {
     public RefusedBequest(CodePropertyGraph cpg) {
         super("Refused Bequest", cpg);
         this.detections = new LinkedList<>();
-        detectAll(detections);
+        detectAll(cpg.getHierarchy(), detections);
     }
 
     @Override
@@ -41,10 +41,11 @@ public class RefusedBequest extends Smell {
     }
 
     /**
+     * @param hierarchy
      * @param detections
      */
-    protected static void detectAll(LinkedList<CodeFragment> detections) {
-        Map<CPGClass, List<CPGClass>> superToSubClasses = returnSuperToSubClasses(Common.stats.distinctRelations.get(ClassRelation.RelationshipType.INHERITANCE));
+    protected static void detectAll(HierarchyIndex hierarchy, LinkedList<CodeFragment> detections) {
+        Map<CPGClass, List<CPGClass>> superToSubClasses = returnSuperToSubClasses(hierarchy);
         for (Map.Entry<CPGClass, List<CPGClass>> entry : superToSubClasses.entrySet()) {
             CPGClass superClass = entry.getKey();
             List<CPGClass> subClasses = entry.getValue();
@@ -96,15 +97,15 @@ public class RefusedBequest extends Smell {
     }
 
     /**
-     * @param inheritanceRelations
+     * @param hierarchy
      * @return
      */
-    private static Map<CPGClass, List<CPGClass>> returnSuperToSubClasses(List<Relation> inheritanceRelations) {
+    private static Map<CPGClass, List<CPGClass>> returnSuperToSubClasses(HierarchyIndex hierarchy) {
         Map<CPGClass, List<CPGClass>> superToSubClasses = new HashMap<>();
-        for (Relation inheritanceRelation : inheritanceRelations) {
-            CPGClass subClass = inheritanceRelation.source;
-            CPGClass superClass = inheritanceRelation.destination;
-            if (hasUnusedProperties(subClass, superClass)) {
+        for (int id = 0; id < hierarchy.size(); id++) {
+            CPGClass subClass = hierarchy.get(id);
+            CPGClass superClass = hierarchy.superclass(subClass);
+            if (superClass != null && hasUnusedProperties(subClass, superClass)) {
                 superToSubClasses.putIfAbsent(superClass, new ArrayList<>());
                 superToSubClasses.get(superClass).add(subClass);
             }
@@ -31,6 +31,26 @@ public abstract class Smell {
         return false;
     }
 
+    /**
+     * Run the detection to completion and return every detection. Some smells
+     * detect when constructed, others one detection at a time in detectNext(),
+     * and detectNext() may take the detections out of getDetections(): once
+     * drained, getDetections() holds them all, whichever way the smell works.
+     * Draining again returns the same detections.
+     */
+    public final LinkedList<CodeFragment> drainDetections() {
+        LinkedList<CodeFragment> drained = new LinkedList<>();
+        while (detect()) {
+            drained.add(this.lastDetection);
+        }
+        LinkedList<CodeFragment> detections = getDetections();
+        if (detections == null) {
+            return drained;
+        }
+        detections.addAll(drained);
+        return detections;
+    }
+
     // a description of the smell
     public abstract String description();
 
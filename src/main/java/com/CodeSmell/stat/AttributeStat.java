@@ -44,7 +44,7 @@ public class AttributeStat {
         for (Method method : allMethods) {
             int count = 0;
             if (method.getAttributeCalls().contains(attribute)) {
-                count = Math.toIntExact(method.instructions
+                count = Math.toIntExact(method.getInstructions()
                         .stream()
                         .filter(instruction -> instruction.label.equals("FIELD_IDENTIFIER")
                                 && instruction.code.contains(attribute.name))
@@ -0,0 +1,382 @@
+package com.CodeSmell.stat;
+
+import com.CodeSmell.parser.CPGClass;
+import com.CodeSmell.parser.CPGClass.*;
+import com.CodeSmell.parser.CPGClass.Method.*;
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.CodePropertyGraph.Relation;
+import com.CodeSmell.parser.InstructionStore;
+import com.CodeSmell.parser.Package;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An estimate of the heap retained by a loaded {@link CodePropertyGraph} and its {@link StatTracker}, by component
+ * and by package, to find out what to blame when a large project runs out of memory.
+ *
+ * <p>
+ * The graph is walked from its classes, relations and packages, then the statistics are walked. Each object is
+ * counted once, in the component and package it is first reached from (so a string shared by a class and its
+ * stats is counted with the class). Sizes assume a 64-bit JVM with compressed references and compact strings:
+ * 12 byte object headers, 4 byte references and objects aligned to 8 bytes. JDK collections are estimated from
+ * their size rather than walked.
+ * </p>
+ */
+public class Footprint {
+
+    public static final String CLASS_HEADERS = "class headers";
+    public static final String ATTRIBUTES = "attributes";
+    public static final String METHOD_HEADERS = "method headers";
+    public static final String METHOD_BODIES = "methodBody strings";
+    public static final String INSTRUCTIONS = "instructions";
+    public static final String TYPE_LISTS = "type lists";
+    public static final String CALL_LISTS = "call lists";
+    public static final String RELATIONS = "relations";
+    public static final String PACKAGES = "packages";
+    public static final String STAT_MAPS = "stat maps";
+
+    /**
+     * The package name used for memory not belonging to the classes of a single package
+     */
+    public static final String SHARED = "(shared)";
+
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private static final Map<Class<?>, Long> shallowSizes = new ConcurrentHashMap<>();
+
+    /**
+     * The estimated bytes of each component, in the order of the component constants
+     */
+    public final Map<String, Long> byComponent = new LinkedHashMap<>();
+
+    /**
+     * The estimated bytes of the classes (and their stats) of each package, sorted by package name
+     */
+    public final Map<String, Long> byPackage = new TreeMap<>();
+
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long total;
+    private long sharedStringBytes;
+
+    /**
+     * Walk a CodePropertyGraph and (optionally) its statistics.
+     *
+     * @param cpg   - The loaded CodePropertyGraph
+     * @param stats - The StatTracker built from cpg, or null to only measure the graph
+     */
+    public Footprint(CodePropertyGraph cpg, StatTracker stats) {
+        for (String component : new String[]{CLASS_HEADERS, ATTRIBUTES, METHOD_HEADERS, METHOD_BODIES,
+                INSTRUCTIONS, TYPE_LISTS, CALL_LISTS, RELATIONS, PACKAGES, STAT_MAPS}) {
+            byComponent.put(component, 0L);
+        }
+        add(CLASS_HEADERS, SHARED, cpg, shallowSize(cpg));
+        add(CLASS_HEADERS, SHARED, cpg.getClasses(), listSize(cpg.getClasses().size()));
+        for (CPGClass cpgClass : cpg.getClasses()) {
+            walkClass(cpgClass);
+        }
+        add(RELATIONS, SHARED, cpg.getRelations(), listSize(cpg.getRelations().size()));
+        for (Relation relation : cpg.getRelations()) {
+            String pkg = relation.source.packageName;
+            add(RELATIONS, pkg, relation, shallowSize(relation));
+            string(RELATIONS, pkg, relation.multiplicity);
+        }
+        add(PACKAGES, SHARED, cpg.getPackages(), listSize(cpg.getPackages().size()));
+        for (Package pkg : cpg.getPackages()) {
+            walkPackage(pkg);
+        }
+        if (stats != null) {
+            walkStats(stats);
+        }
+    }
+
+    /**
+     * @return The estimated total number of bytes
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @return The estimated bytes saved by strings of the graph being shared (e.g. deduplicated by the
+     * {@link com.CodeSmell.parser.StringPool} during ingest), i.e. the bytes their further references would take if
+     * each held a copy of its own
+     */
+    public long sharedStringBytes() {
+        return sharedStringBytes;
+    }
+
+    /**
+     * @return A table of the bytes of each component, followed by the bytes of each package
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-40s %14s %7s%n", "component", "bytes", "share"));
+        byComponent.forEach((component, bytes) -> sb.append(row(component, bytes)));
+        sb.append(String.format("%-40s %14s %7s%n", "package", "bytes", "share"));
+        byPackage.forEach((pkg, bytes) -> sb.append(row(pkg, bytes)));
+        sb.append(String.format("%-40s %14d%n", "total", total));
+        sb.append(String.format("%-40s %14d%n", "saved by shared strings", sharedStringBytes));
+        return sb.toString();
+    }
+
+    private String row(String name, long bytes) {
+        return String.format("%-40s %14d %6.1f%%%n", name, bytes, (total == 0) ? 0.0 : 100.0 * bytes / total);
+    }
+
+    private void walkClass(CPGClass cpgClass) {
+        String pkg = cpgClass.packageName;
+        add(CLASS_HEADERS, pkg, cpgClass, shallowSize(cpgClass));
+        string(CLASS_HEADERS, pkg, cpgClass.name);
+        string(CLASS_HEADERS, pkg, cpgClass.classFullName);
+        string(CLASS_HEADERS, pkg, cpgClass.packageName);
+        string(CLASS_HEADERS, pkg, cpgClass.code);
+        string(CLASS_HEADERS, pkg, cpgClass.filePath);
+        if (cpgClass.importStatements != null) {
+            add(CLASS_HEADERS, pkg, cpgClass.importStatements, arraySize(cpgClass.importStatements.length));
+            for (String importStatement : cpgClass.importStatements) {
+                string(CLASS_HEADERS, pkg, importStatement);
+            }
+        }
+        add(CLASS_HEADERS, pkg, cpgClass.modifiers, listSize(cpgClass.modifiers.size()));
+        // the member lists also hold the inherited members, which are counted with the class declaring them
+        addBytes(CLASS_HEADERS, pkg, listSize(cpgClass.getAttributes().size()) + listSize(cpgClass.getMethods().size()));
+        addBytes(TYPE_LISTS, pkg, listSize(cpgClass.getInheritsFrom().size()));
+        List<String> supertypeNames = cpgClass.getInheritsFromTypeFullName();
+        if (supertypeNames != null) {
+            addBytes(TYPE_LISTS, pkg, listSize(supertypeNames.size()));
+            supertypeNames.forEach(name -> string(TYPE_LISTS, pkg, name));
+        }
+        addBytes(RELATIONS, pkg, listSize(cpgClass.getOutwardRelations().size()));
+
+        for (Attribute attribute : cpgClass.getAttributes()) {
+            if (attribute.getParent() == cpgClass || attribute.getParent() == null) {
+                walkAttribute(attribute, pkg);
+            }
+        }
+        for (Method method : cpgClass.getMethods()) {
+            if (method.getParent() == cpgClass || method.getParent() == null) {
+                walkMethod(method, pkg);
+            }
+        }
+    }
+
+    private void walkAttribute(Attribute attribute, String pkg) {
+        add(ATTRIBUTES, pkg, attribute, shallowSize(attribute) + arraySize(1));
+        string(ATTRIBUTES, pkg, attribute.name);
+        string(ATTRIBUTES, pkg, attribute.packageName);
+        string(ATTRIBUTES, pkg, attribute.code);
+        string(ATTRIBUTES, pkg, attribute.attributeType);
+        add(ATTRIBUTES, pkg, attribute.modifiers, listSize(attribute.modifiers.size()));
+        addBytes(TYPE_LISTS, pkg, listSize(attribute.getTypeList().size()));
+    }
+
+    private void walkMethod(Method method, String pkg) {
+        add(METHOD_HEADERS, pkg, method, shallowSize(method) + arraySize(1));
+        string(METHOD_HEADERS, pkg, method.name);
+        string(METHOD_HEADERS, pkg, method.returnType);
+        string(METHOD_HEADERS, pkg, method.parentClassName);
+        add(METHOD_HEADERS, pkg, method.modifiers, listSize(method.modifiers.size()));
+        add(METHOD_HEADERS, pkg, method.parameters, listSize(method.parameters.size()));
+        for (Parameter parameter : method.parameters) {
+            add(METHOD_HEADERS, pkg, parameter, shallowSize(parameter));
+            string(METHOD_HEADERS, pkg, parameter.code);
+            string(METHOD_HEADERS, pkg, parameter.name);
+            string(METHOD_HEADERS, pkg, parameter.type);
+            addBytes(TYPE_LISTS, pkg, listSize(parameter.getTypeList().size()));
+        }
+        string(METHOD_BODIES, pkg, method.methodBody);
+        addBytes(CALL_LISTS, pkg, listSize(method.getMethodCalls().size()) + listSize(method.getAttributeCalls().size()));
+
+        if (InstructionStore.isSpilled(method.getInstructions())) {
+            // in bounded-memory mode only the handle is retained, the instructions are read from the segment
+            add(INSTRUCTIONS, pkg, method.getInstructions(), shallowSize(method.getInstructions()));
+            return;
+        }
+        add(INSTRUCTIONS, pkg, method.getInstructions(), listSize(method.getInstructions().size()));
+        for (Instruction instruction : method.getInstructions()) {
+            add(INSTRUCTIONS, pkg, instruction, shallowSize(instruction));
+            string(INSTRUCTIONS, pkg, instruction.label);
+            string(INSTRUCTIONS, pkg, instruction.code);
+            string(INSTRUCTIONS, pkg, instruction.methodCall);
+        }
+    }
+
+    private void walkPackage(Package pkg) {
+        add(PACKAGES, pkg.packageName, pkg, shallowSize(pkg));
+        string(PACKAGES, pkg.packageName, pkg.packageName);
+        add(PACKAGES, pkg.packageName, pkg.files, listSize(pkg.files.size()));
+        for (Package.File file : pkg.files) {
+            add(PACKAGES, pkg.packageName, file, shallowSize(file));
+            string(PACKAGES, pkg.packageName, file.fileName);
+            string(PACKAGES, pkg.packageName, file.filePath);
+            string(PACKAGES, pkg.packageName, file.contentHash);
+            add(PACKAGES, pkg.packageName, file.classes, listSize(file.classes.size()));
+        }
+        add(PACKAGES, pkg.packageName, pkg.subPackages, listSize(pkg.subPackages.size()));
+        for (Package subPackage : pkg.subPackages) {
+            walkPackage(subPackage);
+        }
+    }
+
+    private void walkStats(StatTracker stats) {
+        // the stats of each class, method and attribute first, so that they are counted with its package
+        stats.classStats.forEach((cpgClass, classStat) -> deep(classStat, cpgClass.packageName));
+        stats.methodStats.forEach((method, methodStat) -> deep(methodStat, packageOf(method.getParent())));
+        stats.attributeStats.forEach((attribute, attributeStat) ->
+                deep(attributeStat, packageOf(attribute.getParent())));
+        deep(stats, SHARED);
+    }
+
+    private static String packageOf(CPGClass cpgClass) {
+        return (cpgClass == null) ? SHARED : cpgClass.packageName;
+    }
+
+    /**
+     * Count an object of the statistics and everything it references that was not counted yet. Objects of the
+     * graph itself are not walked, they have all been counted.
+     */
+    private void deep(Object o, String pkg) {
+        if (o == null || visited.contains(o) || isGraphObject(o) || o instanceof Enum) {
+            return;
+        }
+        if (o instanceof String) {
+            string(STAT_MAPS, pkg, (String) o);
+        } else if (o instanceof Integer) {
+            int value = (Integer) o;
+            // small values are cached by Integer.valueOf
+            add(STAT_MAPS, pkg, o, (value >= -128 && value <= 127) ? 0 : shallowSize(o));
+        } else if (o instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) o;
+            add(STAT_MAPS, pkg, map, mapSize(map));
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                deep(entry.getKey(), pkg);
+                deep(entry.getValue(), pkg);
+            }
+        } else if (o instanceof Collection) {
+            Collection<?> collection = (Collection<?>) o;
+            add(STAT_MAPS, pkg, collection, listSize(collection.size()));
+            for (Object element : collection) {
+                deep(element, pkg);
+            }
+        } else if (o.getClass().getPackageName().startsWith("com.CodeSmell")) {
+            add(STAT_MAPS, pkg, o, shallowSize(o));
+            for (Field field : referenceFields(o.getClass())) {
+                try {
+                    deep(field.get(o), pkg);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read " + field, e);
+                }
+            }
+        } else {
+            add(STAT_MAPS, pkg, o, shallowSize(o));
+        }
+    }
+
+    private static boolean isGraphObject(Object o) {
+        return o instanceof CPGClass || o instanceof Attribute || o instanceof Method || o instanceof Parameter
+                || o instanceof Instruction || o instanceof Relation || o instanceof CodePropertyGraph;
+    }
+
+    private static List<Field> referenceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private void string(String component, String pkg, String s) {
+        if (s == null) {
+            return;
+        }
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) {
+            latin1 = s.charAt(i) <= 0xFF;
+        }
+        // String (hash, coder, value) plus its byte array
+        long bytes = align(HEADER + REFERENCE + 4 + 1 + 1) + align(ARRAY_HEADER + (long) s.length() * (latin1 ? 1 : 2));
+        if (visited.add(s)) {
+            addBytes(component, pkg, bytes);
+        } else {
+            sharedStringBytes += bytes;
+        }
+    }
+
+    private void add(String component, String pkg, Object o, long bytes) {
+        if (visited.add(o)) {
+            addBytes(component, pkg, bytes);
+        }
+    }
+
+    private void addBytes(String component, String pkg, long bytes) {
+        byComponent.merge(component, bytes, Long::sum);
+        byPackage.merge(pkg == null ? SHARED : pkg, bytes, Long::sum);
+        total += bytes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static long arraySize(int length) {
+        return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+
+    private static long listSize(int size) {
+        // ArrayList (modCount, size, elementData) plus its array
+        return align(HEADER + 4 + 4 + REFERENCE) + arraySize(size);
+    }
+
+    private static long mapSize(Map<?, ?> map) {
+        int size = map.size();
+        if (map instanceof TreeMap) {
+            return align(HEADER + 4 * REFERENCE + 8) + size * align(HEADER + 5 * REFERENCE + 1);
+        }
+        if (map instanceof EnumMap) {
+            return align(HEADER + 4 * REFERENCE + 4) + 2 * arraySize(size);
+        }
+        // HashMap and LinkedHashMap: table of the next power of two above size / 0.75, and a node per entry
+        int capacity = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+        long nodeSize = align(HEADER + 4 + 3 * REFERENCE + ((map instanceof LinkedHashMap) ? 2 * REFERENCE : 0));
+        return align(HEADER + 6 * REFERENCE + 4 * 4) + arraySize(capacity) + size * nodeSize;
+    }
+
+    private static long shallowSize(Object o) {
+        return shallowSizes.computeIfAbsent(o.getClass(), Footprint::computeShallowSize);
+    }
+
+    private static long computeShallowSize(Class<?> type) {
+        long size = HEADER;
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> t = field.getType();
+                if (t == long.class || t == double.class) {
+                    size += 8;
+                } else if (t == int.class || t == float.class) {
+                    size += 4;
+                } else if (t == short.class || t == char.class) {
+                    size += 2;
+                } else if (t == byte.class || t == boolean.class) {
+                    size += 1;
+                } else {
+                    size += REFERENCE;
+                }
+            }
+        }
+        return align(size);
+    }
+}
@@ -85,7 +85,7 @@ public class MethodStat {
             Map<String, Set<Integer>> lineCallMap = new HashMap<>();
             lineCallMap.put(toFind, new HashSet<>());
             if (methodInCPG.getMethodCalls().contains(method)) {
-                var matchingInstructions = methodInCPG.instructions
+                var matchingInstructions = methodInCPG.getInstructions()
                         .stream()
                         .filter(instruction -> instruction.methodCall.equals(toFind))
                         .collect(Collectors.toList());
@@ -210,7 +210,7 @@ public class MethodStat {
     private static Map<Parameter, Integer> determineParameterUsage(Method method) {
         Map<Parameter, Integer> parameterUsage = new HashMap<>();
         for (Parameter parameter : method.parameters) {
-            var filteredInstructions = method.instructions
+            var filteredInstructions = method.getInstructions()
                     .stream()
                     .filter(ins -> ins.label.equals("IDENTIFIER") && ins.code.contains(parameter.name))
                     .collect(Collectors.toList());
@@ -234,7 +234,7 @@ public class MethodStat {
         String[] ignoredCode = new String[]{"<operator>", "<empty>"};
         List<String> ignoredLabelList = new ArrayList<>(Arrays.asList(ignoredLabels));
         List<String> ignoredCodeList = new ArrayList<>(Arrays.asList(ignoredCode));
-        var filteredIns = method.instructions
+        var filteredIns = method.getInstructions()
                 .stream()
                 .filter(ins -> !ignoredLabelList.contains(ins.label)
                         && !ignoredCodeList.contains(ins.code) && !ins.code.contains("$id")
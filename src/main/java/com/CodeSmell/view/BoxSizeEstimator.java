@@ -0,0 +1,181 @@
+package com.CodeSmell.view;
+
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.CPGClass.Attribute;
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CPGClass.Modifier;
+import com.CodeSmell.smell.Smell;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+
+import java.util.List;
+
+/**
+ * Works out the size of the box boxes.html draws for a class from the widths of the characters of its name, fields
+ * and smells, following the rules of the <code>.classBox</code> style of the page, so that the diagram can be laid
+ * out without waiting for the page to draw and measure the boxes.
+ *
+ * <p>
+ * The widths come either from the metrics of the sans-serif font of JavaFX (see {@link #fromFontMetrics()}) or, where
+ * no font can be loaded, from the standard widths of Helvetica. Either way the result is an estimate: the boxes are
+ * still measured once drawn, and the classes whose measured size differs are laid out again (see {@link WebBridge}).
+ * </p>
+ */
+public class BoxSizeEstimator {
+
+    // the font size of the page, in pixels (the em of the rules below)
+    private static final double FONT_SIZE = 16;
+
+    // .classBox: a 2px border, 0 1em padding, box-sizing: border-box
+    private static final double BORDER = 2;
+    private static final double SIDE_PADDING = FONT_SIZE;
+    private static final double MAX_WIDTH = 20 * FONT_SIZE;
+    private static final double MIN_HEIGHT = 10 * FONT_SIZE;
+
+    // .attributeContainer: 2px padding
+    private static final double ATTRIBUTE_PADDING = 2;
+
+    // the margin of a field (a paragraph), 1em above and below, collapsing between fields
+    private static final double FIELD_MARGIN = FONT_SIZE;
+
+    // .tooltip: the dotted border under the name and the smells
+    private static final double TOOLTIP_BORDER = 1;
+
+    // the widths of Helvetica (in thousandths of an em) of the characters ' ' to '~'
+    private static final int[] HELVETICA_WIDTHS = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584};
+
+    // Helvetica Bold is about this much wider
+    private static final double HELVETICA_BOLD_SCALE = 1.1;
+
+    // the line height of Helvetica, in ems
+    private static final double HELVETICA_LINE_HEIGHT = 1.15;
+
+    private static final char FIRST_CHAR = ' ';
+
+    // the widths (in pixels) of the characters from FIRST_CHAR,
+    // the last one being used for any character past the table
+    private final double[] widths;
+    private final double[] boldWidths;
+    private final double lineHeight;
+
+    private BoxSizeEstimator(double[] widths, double[] boldWidths, double lineHeight) {
+        this.widths = widths;
+        this.boldWidths = boldWidths;
+        this.lineHeight = lineHeight;
+    }
+
+    /**
+     * @return An estimator using the standard widths of Helvetica, which needs no font to be loaded
+     */
+    public static BoxSizeEstimator helvetica() {
+        double[] widths = new double[HELVETICA_WIDTHS.length + 1];
+        double[] boldWidths = new double[widths.length];
+        for (int i = 0; i < HELVETICA_WIDTHS.length; i++) {
+            widths[i] = HELVETICA_WIDTHS[i] * FONT_SIZE / 1000;
+            boldWidths[i] = widths[i] * HELVETICA_BOLD_SCALE;
+        }
+        // characters past '~' are given the width of a digit
+        widths[widths.length - 1] = widths['0' - FIRST_CHAR];
+        boldWidths[widths.length - 1] = boldWidths['0' - FIRST_CHAR];
+        return new BoxSizeEstimator(widths, boldWidths, HELVETICA_LINE_HEIGHT * FONT_SIZE);
+    }
+
+    /**
+     * Measure each character in the sans-serif font of JavaFX, which is the font the page uses unless WebView was
+     * given another one. Should be called once the JavaFX platform has started.
+     *
+     * @return The estimator, or {@link #helvetica()} if the font could not be measured
+     */
+    public static BoxSizeEstimator fromFontMetrics() {
+        try {
+            Font regular = Font.font("SansSerif", FONT_SIZE);
+            Font bold = Font.font("SansSerif", FontWeight.BOLD, FONT_SIZE);
+            double[] widths = new double[HELVETICA_WIDTHS.length + 1];
+            double[] boldWidths = new double[widths.length];
+            for (int i = 0; i < HELVETICA_WIDTHS.length; i++) {
+                String s = String.valueOf((char) (FIRST_CHAR + i));
+                widths[i] = textWidth(s, regular);
+                boldWidths[i] = textWidth(s, bold);
+            }
+            widths[widths.length - 1] = widths['0' - FIRST_CHAR];
+            boldWidths[widths.length - 1] = boldWidths['0' - FIRST_CHAR];
+            Text line = new Text("Xg");
+            line.setFont(regular);
+            return new BoxSizeEstimator(widths, boldWidths, line.getLayoutBounds().getHeight());
+        } catch (RuntimeException | Error e) {
+            // no graphics toolkit (as when running headless)
+            return helvetica();
+        }
+    }
+
+    private static double textWidth(String s, Font font) {
+        Text text = new Text(s);
+        text.setFont(font);
+        return text.getLayoutBounds().getWidth();
+    }
+
+    /**
+     * @return The width of a line of text, bold or not
+     */
+    double width(String s, boolean bold) {
+        double[] table = bold ? boldWidths : widths;
+        double width = 0;
+        for (int i = 0; i < s.length(); i++) {
+            int index = s.charAt(i) - FIRST_CHAR;
+            width += table[(index >= 0 && index < table.length) ? index : table.length - 1];
+        }
+        return width;
+    }
+
+    /**
+     * @return The estimated width and height of the box drawn for a class, with the fields and smells it has now
+     */
+    public Pair<Double, Double> estimate(UMLClass c) {
+        // the name, fields and smells are each drawn on one line (white-space: nowrap)
+        double contentWidth = width(c.name, false);
+        for (Method m : c.getMethods()) {
+            contentWidth = Math.max(contentWidth, width(m.name, isBold(m.modifiers)));
+        }
+        for (Attribute a : c.getAttributes()) {
+            contentWidth = Math.max(contentWidth,
+                    width(a.name, isBold(a.modifiers)) + 2 * ATTRIBUTE_PADDING);
+        }
+        // the smells follow one another on a single line (see RenderBatch)
+        double smellsWidth = 0;
+        for (Smell smell : c.getSmells()) {
+            for (int i = 0; i < smell.getDetections().size(); i++) {
+                if (smell.getDetections().get(i).classes != null) {
+                    smellsWidth += width(smell.name, false);
+                }
+            }
+        }
+        contentWidth = Math.max(contentWidth, smellsWidth);
+        double width = Math.min(MAX_WIDTH, contentWidth + 2 * (SIDE_PADDING + BORDER));
+
+        double height = 2 * BORDER + lineHeight + TOOLTIP_BORDER;
+        height += 2 * ATTRIBUTE_PADDING + fieldsHeight(c.getAttributes().size());
+        height += fieldsHeight(c.getMethods().size());
+        if (smellsWidth > 0) {
+            height += lineHeight + TOOLTIP_BORDER;
+        }
+        return new Pair<>(width, Math.max(MIN_HEIGHT, height));
+    }
+
+    private double fieldsHeight(int fields) {
+        // n lines with a margin above, below and between each
+        return (fields == 0) ? 0 : fields * lineHeight + (fields + 1) * FIELD_MARGIN;
+    }
+
+    private static boolean isBold(List<Modifier> modifiers) {
+        // final fields are drawn in bold
+        return modifiers.contains(Modifier.FINAL);
+    }
+}
@@ -0,0 +1,244 @@
+package com.CodeSmell.view;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.PackageNode;
+import com.CodeSmell.model.PackageRelation;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.CPGClass.Attribute;
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CPGClass.Modifier;
+import com.CodeSmell.smell.Smell;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The drawing commands {@link WebBridge} sends to boxes.html, collected so that many of them are applied by a
+ * single script (see <code>applyCommands</code> in boxes.html) instead of one script each.
+ *
+ * <p>
+ * The ids of class boxes and the numbers of relation paths, which boxes.html used to return, are given out here
+ * following the same rules, so that drawing never has to wait for the page. The boxes drawn or changed since they
+ * were last measured are measured when the commands are applied, all in one pass.
+ * </p>
+ */
+class RenderBatch {
+
+    private static final Gson GSON = new Gson();
+
+    private JsonArray commands = new JsonArray();
+
+    // ids are given to class boxes in the order they are drawn
+    private int nextClassId;
+
+    // ids are given to package boxes in the order they are drawn
+    private int nextPackageId;
+
+    // the number of paths drawn from each class box (paths are numbered
+    // in the order they are drawn, and their numbers are never reused)
+    private final HashMap<Integer, Integer> pathCounts = new HashMap<>();
+
+    private final LinkedHashSet<Integer> unmeasured = new LinkedHashSet<>();
+
+    // sizes measured but not yet asked for
+    private final HashMap<Integer, Pair<Double, Double>> sizes = new HashMap<>();
+
+    /**
+     * @return The number of commands waiting to be applied
+     */
+    int size() {
+        return commands.size();
+    }
+
+    boolean isEmpty() {
+        return commands.size() == 0;
+    }
+
+    /**
+     * Draw the box of a class at the origin, with its fields and smells.
+     *
+     * @return The id of the box
+     */
+    int renderClass(UMLClass c) {
+        int id = nextClassId++;
+        add("class", id, c.name);
+        addClassContents(c, id);
+        unmeasured.add(id);
+        return id;
+    }
+
+    /**
+     * Redraw the fields and smells of an already drawn class box.
+     */
+    void updateClass(UMLClass c) {
+        add("clear", c.getId());
+        addClassContents(c, c.getId());
+        sizes.remove(c.getId());
+        unmeasured.add(c.getId());
+    }
+
+    private void addClassContents(UMLClass c, int id) {
+        int fieldId = 0;
+        int smellId = 0;
+        for (Method m : c.getMethods()) {
+            add("field", false, id, m.name, modifiers(m.modifiers), c.name + ":" + id + "," + m.name + ":" + fieldId);
+            fieldId++;
+        }
+        for (Attribute a : c.getAttributes()) {
+            add("field", true, id, a.name, modifiers(a.modifiers), c.name + ":" + id + "," + a.name + ":" + fieldId);
+            fieldId++;
+        }
+        for (Smell smell : c.getSmells()) {
+            for (int i = 0; i < smell.getDetections().size(); i++) {
+                if (smell.getDetections().get(i).classes != null) {
+                    add("smell", id, smell.name, smell.description(), c.name + ":" + id + "," + smell.name + ":" + smellId);
+                    smellId++;
+                }
+            }
+        }
+    }
+
+    private static String modifiers(List<Modifier> modifiers) {
+        ArrayList<String> modStrings = new ArrayList<>();
+        for (Modifier modifier : modifiers) {
+            modStrings.add(modifier.modString);
+        }
+        return String.join(" ", modStrings).toLowerCase();
+    }
+
+    /**
+     * Remove a class box and the paths of its outward relations.
+     */
+    void removeClass(int id) {
+        add("removeClass", id);
+        pathCounts.remove(id);
+        unmeasured.remove(id);
+        sizes.remove(id);
+    }
+
+    void moveClass(int id, double x, double y) {
+        add("move", id, x, y);
+    }
+
+    /**
+     * Draw the path of a relation from its source class box.
+     *
+     * @return The number of the path within the paths of the source
+     */
+    int renderPath(ClassRelation cr) {
+        int classId = cr.source.getId();
+        int pathNumber = pathCounts.merge(classId, 1, Integer::sum) - 1;
+        add("path", classId, pathNumber, cr.type.toString(), points(cr.getPath()));
+        return pathNumber;
+    }
+
+    private static JsonArray points(List<Position> path) {
+        // the x and y of each point, one after the other
+        JsonArray points = new JsonArray();
+        for (Position p : path) {
+            points.add(p.x);
+            points.add(p.y);
+        }
+        return points;
+    }
+
+    void removePath(int classId, int pathNumber) {
+        add("removePath", classId, pathNumber);
+    }
+
+    /**
+     * Draw the box of a package, shown in place of the classes when zoomed out.
+     *
+     * @return The id of the box
+     */
+    int renderPackage(PackageNode p) {
+        int id = nextPackageId++;
+        add("package", id, p.name, p.getPosition().x, p.getPosition().y, p.width, p.height,
+                p.classCount, p.smellCount, p.heat);
+        return id;
+    }
+
+    void renderPackagePath(PackageRelation r) {
+        add("packagePath", r.source.getId(), r.target.getId(), r.count, points(r.getPath()));
+    }
+
+    /**
+     * Remove a package box and the paths from or to it.
+     */
+    void removePackage(int id) {
+        add("removePackage", id);
+    }
+
+    void drawDot(double x, double y, String colour) {
+        add("dot", x, y, colour);
+    }
+
+    /**
+     * Ask for a class box to be measured the next time the commands are applied, if it was not already.
+     */
+    void measure(int id) {
+        if (!sizes.containsKey(id)) {
+            unmeasured.add(id);
+        }
+    }
+
+    /**
+     * @return The measured size of a class box, or null if it has not been measured since it was drawn or changed
+     * (a size is only given once)
+     */
+    Pair<Double, Double> takeSize(int id) {
+        return sizes.remove(id);
+    }
+
+    /**
+     * @param measure - If the boxes drawn or changed since they were last measured should be measured
+     * @return The script applying (and removing) the commands waiting to be applied
+     */
+    String script(boolean measure) {
+        JsonArray toMeasure = new JsonArray();
+        if (measure) {
+            for (int id : unmeasured) {
+                toMeasure.add(id);
+            }
+            unmeasured.clear();
+        }
+        String script = "applyCommands(" + GSON.toJson(commands) + ", " + GSON.toJson(toMeasure) + ");";
+        commands = new JsonArray();
+        return script;
+    }
+
+    /**
+     * Keep the sizes returned by a script measuring class boxes, a JSON array of [id, width, height].
+     */
+    void readSizes(String response) {
+        for (JsonElement element : JsonParser.parseString(response).getAsJsonArray()) {
+            JsonArray size = element.getAsJsonArray();
+            sizes.put(size.get(0).getAsInt(), new Pair<>(size.get(1).getAsDouble(), size.get(2).getAsDouble()));
+        }
+    }
+
+    private void add(String command, Object... args) {
+        JsonArray c = new JsonArray();
+        c.add(command);
+        for (Object arg : args) {
+            if (arg instanceof JsonElement) {
+                c.add((JsonElement) arg);
+            } else if (arg instanceof Number) {
+                c.add((Number) arg);
+            } else if (arg instanceof Boolean) {
+                c.add((Boolean) arg);
+            } else {
+                c.add(String.valueOf(arg));
+            }
+        }
+        commands.add(c);
+    }
+}
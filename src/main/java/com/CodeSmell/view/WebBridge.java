@@ -1,5 +1,8 @@
 package com.CodeSmell.view;
 
+import com.CodeSmell.log.Metrics;
+import com.CodeSmell.model.PackageNode;
+import com.CodeSmell.model.PackageRelation;
 import com.CodeSmell.model.Pair;
 import com.CodeSmell.model.Position;
 import com.CodeSmell.model.Shape;
@@ -7,182 +10,225 @@ import com.CodeSmell.model.ClassRelation;
 import com.CodeSmell.model.RenderEvent;
 import com.CodeSmell.model.RenderObject;
 import com.CodeSmell.model.UMLClass;
-import com.CodeSmell.parser.CPGClass.Attribute;
-import com.CodeSmell.parser.CPGClass.Method;
-import com.CodeSmell.parser.CPGClass.Modifier;
-import com.CodeSmell.smell.Smell;
+import javafx.application.Platform;
+import javafx.concurrent.Worker;
 import javafx.scene.web.WebEngine;
 
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Draws the diagram in boxes.html. Drawing commands are collected in a {@link RenderBatch} and applied together,
+ * once the current event of the FX thread has been handled, once enough of them are waiting, or when the size of a
+ * class box is needed (which measures all the boxes drawn since the last time at once).
+ *
+ * <p>
+ * Given a {@link BoxSizeEstimator}, the size of a class is estimated when it is drawn instead, so that the diagram
+ * can be built and laid out on any thread, even before the page has loaded (commands wait until it has). The boxes
+ * are still measured when the commands are applied, and the classes whose measured size differs from the estimate
+ * are passed to the listener set with {@link #setResizeListener}, to be laid out again.
+ * </p>
+ */
+public class WebBridge implements RenderEventListener {
 
-// todo: support this in maven run configuration
-//import com.sun.webkit.dom.JSObject;
+    // the most commands applied by a single script
+    private static final int MAX_BATCH_COMMANDS = 5000;
 
-public class WebBridge implements RenderEventListener {
+    // measured sizes within this many pixels of the estimate are taken as equal
+    private static final double RESIZE_TOLERANCE = 2;
 
     private WebEngine engine;
 
-    public WebBridge(WebEngine engine) {
-        this.engine = engine;
-    }
+    private final RenderBatch batch = new RenderBatch();
 
+    private final BoxSizeEstimator estimator;
 
-    private Integer renderClass(UMLClass c) {
-        // renders a class box at the origin and return its id
+    // the classes whose size was estimated and is still to be measured, with the estimate, by id
+    private final HashMap<Integer, Pair<UMLClass, Pair<Double, Double>>> estimated = new HashMap<>();
 
-        // draw the box
-        //JS formats for a js method call, this calls engine on line 35
-        //engine return the result of the html form, as a result of the js function in the markup file
-        String js = String.format("renderClassBox('%s');", c.name);
-        Integer id = (Integer) this.engine.executeScript(js);
-        Integer fieldId = 0;
-        Integer smellId = 0;
-        ArrayList<String> modStrings = new ArrayList<String>();
+    private Consumer<Map<UMLClass, Pair<Double, Double>>> resizeListener = resized -> { };
 
-        // add the methods
-        for (Method m : c.getMethods()) {
-            for (Modifier methodModifier : m.modifiers) {
-                modStrings.add(methodModifier.modString);
-            }
-            String modifiers = String.join(" ", modStrings).toLowerCase();
-            js = String.format("addField(false, %d, '%s', '%s', '%s');",
-                    id, m.name, modifiers, c.name+":"+id+","+m.name+":"+fieldId);
-            this.engine.executeScript(js);
-            modStrings.clear();
-            fieldId++;
-        }
+    private boolean flushScheduled;
+
+    /**
+     * A bridge measuring each class box when its size is first needed, which must be used on the FX thread.
+     */
+    public WebBridge(WebEngine engine) {
+        this(engine, null);
+    }
 
-        // add the attributes
-        for (Attribute a : c.getAttributes()) {
-            for (Modifier attributeModifier : a.modifiers) {
-                modStrings.add(attributeModifier.modString);
+    /**
+     * A bridge estimating the size of each class box, which may be used on any thread.
+     */
+    public WebBridge(WebEngine engine, BoxSizeEstimator estimator) {
+        this.engine = engine;
+        this.estimator = estimator;
+        // the commands given before the page loaded are applied once it has
+        engine.getLoadWorker().stateProperty().addListener((ov, oldState, newState) -> {
+            if (newState == Worker.State.SUCCEEDED) {
+                flush(false);
             }
-            //Check for equality between a and the class smells list, if they are
-            //the same and have a hashmap that maps id(field) to smell, similar for method
-            //Add child to the field (smells container -> need to be id
-            //field.id = class + classIdNumber + field + fieldIdNumber +
-            String modifiers = String.join(" ", modStrings).toLowerCase();
-            js = String.format("addField(true, %d, '%s', '%s', '%s');",
-                    id, a.name, modifiers, c.name+":"+id+","+a.name+":"+fieldId);
-            this.engine.executeScript(js);
-            modStrings.clear();
-            fieldId++;
-        }
+        });
+    }
 
-        for(Smell smell : c.getSmells())
-        {
-            for(int i = 0 ; i <smell.getDetections().size(); i++)
-            {
-                if(smell.getDetections().get(i).classes!=null)
-                {
-                    js = String.format("addClassSmell(%d, '%s', '%s', '%s');",
-                            id, smell.name, smell.description(),  c.name+":"+id+","+smell.name+":"+smellId);
-                    this.engine.executeScript(js);
-                    smellId++;
+    /**
+     * Set what is done with the classes whose measured size differs from their estimated size. It is called on the
+     * FX thread, with the measured sizes, which have not yet been given to the classes (see {@link UMLClass#resize}).
+     */
+    public synchronized void setResizeListener(Consumer<Map<UMLClass, Pair<Double, Double>>> listener) {
+        this.resizeListener = listener;
+    }
+
+    /**
+     * Apply the waiting commands with a single script, on the FX thread, once the page has loaded (until then this
+     * does nothing). The boxes of the classes whose size was estimated are measured along with them.
+     *
+     * @param measure - If the class boxes drawn or changed since they were last measured should be measured
+     */
+    public void flush(boolean measure) {
+        Map<UMLClass, Pair<Double, Double>> resized;
+        Consumer<Map<UMLClass, Pair<Double, Double>>> listener;
+        synchronized (this) {
+            if (!isPageLoaded()) {
+                return;
+            }
+            measure = measure || !estimated.isEmpty();
+            if (batch.isEmpty() && !measure) {
+                return;
+            }
+            try (Metrics.Phase phase = Metrics.phase("render.webview.flush")) {
+                Metrics.count("render.webview.commands", batch.size());
+                Object sizes = this.engine.executeScript(batch.script(measure));
+                if (measure) {
+                    batch.readSizes((String) sizes);
                 }
             }
+            resized = takeResized();
+            listener = resizeListener;
+        }
+        if (!resized.isEmpty()) {
+            // (outside the lock, as the listener may draw)
+            listener.accept(resized);
         }
-
-        return id;
     }
 
-    private Integer renderPath(ClassRelation cr) {
-        // renders the path of a class relation to the
-        // browser view and returns the index position
-        // of its DOM data
-
-        int classId = cr.source.getId();
-        ArrayList<Position> path = cr.getPath();
-        // Create the path DOM object and ensure the first 
-        // node of the path borders a class object
-        String js = String.format("createRelationPath(%d, %f, %f)",
-                classId, path.get(0).x, path.get(0).y);
-        Integer pathNumber = (Integer) this.engine.executeScript(js);
-        if (pathNumber < 0) {
-            // the given coordinates cr.position.x, cr.position.y were
-            // not inside (or on the edge) of the drawing box
-            throw new RuntimeException("Bad starting location for path draw");
-        }
+    private boolean isPageLoaded() {
+        return Platform.isFxApplicationThread()
+                && engine.getLoadWorker().getState() == Worker.State.SUCCEEDED;
+    }
 
-        for (Position p : path) {
-            this.engine.executeScript(String.format(
-                "appendPathNode(%d, %d, %f, %f)", classId, pathNumber, p.x, p.y));
+    private Map<UMLClass, Pair<Double, Double>> takeResized() {
+        // the measured classes whose size differs from the estimate
+        Map<UMLClass, Pair<Double, Double>> resized = new LinkedHashMap<>();
+        Iterator<Map.Entry<Integer, Pair<UMLClass, Pair<Double, Double>>>> iter = estimated.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Integer, Pair<UMLClass, Pair<Double, Double>>> entry = iter.next();
+            Pair<Double, Double> size = batch.takeSize(entry.getKey());
+            if (size != null) {
+                iter.remove();
+                Pair<Double, Double> estimate = entry.getValue().second;
+                if (Math.abs(size.first - estimate.first) > RESIZE_TOLERANCE
+                        || Math.abs(size.second - estimate.second) > RESIZE_TOLERANCE) {
+                    resized.put(entry.getValue().first, size);
+                }
+            }
         }
-        this.engine.executeScript(String.format(
-                "renderPath(%d, %d, \"%s\")", classId, pathNumber, cr.type));
-        return pathNumber;
+        return resized;
     }
 
-    private void repositionClass(int id, double x, double y) {
-        // reposition a box with given id 
-        // todo: make considerations for dpi-scaling solution
-        String js = String.format("repositionClass(%d, %f, %f);",
-                id, x, y);
-        this.engine.executeScript(js);
+    private void commandAdded() {
+        if (batch.size() >= MAX_BATCH_COMMANDS && isPageLoaded()) {
+            flush(false);
+        } else if (!flushScheduled) {
+            // applied once the current event has been handled,
+            // along with whatever else it draws
+            flushScheduled = true;
+            Platform.runLater(() -> {
+                synchronized (this) {
+                    flushScheduled = false;
+                }
+                flush(false);
+            });
+        }
     }
 
     private Pair<Double, Double> getClassDimensions(int id) {
-        /*
-        Gets the dimensions (width, height) in units
-        (the unit scale may have to be converted to be proportional to
-        how the classes were sized in the layout manager)
-        */
-
-        // commented out and replaced with work around
-        // gets an array containing a classes width and height
-        // String js = String.format("boxDimensions(%d);", id);
-        // String this.engine.executeScript(js);
-        // JSObject box = (JSObject) this.engine.executeScript(js);
-        // return new int[] {box.getMember("width"), 
-        //       box.getMember("height")};
-        String getWidth = String.format("getClassWidth(%d);", id);
-        String getHeight = String.format("getClassHeight(%d);", id);
-        String w, h;
-        w = (String) this.engine.executeScript(getWidth);
-        h = (String) this.engine.executeScript(getHeight);
-        return new Pair(Double.parseDouble(w.substring(0, w.length() - 2)),
-                Double.parseDouble(h.substring(0, h.length() - 2)));
+        // the size of a class box, measuring it along with every
+        // other box that was drawn or changed since the last time
+        Pair<Double, Double> size = batch.takeSize(id);
+        if (size == null) {
+            batch.measure(id);
+            flush(true);
+            size = batch.takeSize(id);
+        }
+        return size;
     }
 
-    private void drawShape(Shape s) {
-        String js;
-        for (Position p : s.vertex) {
-            js = String.format("drawDot(%f, %f, \"%s\");",
-                    p.x, p.y, s.colour);
-            this.engine.executeScript(js);
+    private Pair<Double, Double> estimate(UMLClass c, int id) {
+        if (estimator == null) {
+            return null;
         }
+        Pair<Double, Double> size = estimator.estimate(c);
+        estimated.put(id, new Pair<>(c, size));
+        return size;
     }
+
 //THINK ABOUT HOW SMELLS DEFINE IN HERE, POTENTIALLY SEPERATE METHOD TO ADD SMELL TO CLASS
-    public void renderEventPerformed(RenderEvent e) {
+    public synchronized void renderEventPerformed(RenderEvent e) {
+        try (Metrics.Phase phase = Metrics.phase("render.webview")) {
+            handleRenderEvent(e);
+        }
+    }
+
+    private void handleRenderEvent(RenderEvent e) {
         Object source = e.source;
         if ((source instanceof RenderObject) == false) {
             throw new RuntimeException("Bad RenderEvent dispatcher.");
         }
         if (e.type == RenderEvent.Type.RENDER) {
             if (source instanceof UMLClass) {
-                //FOR LOOP THAT INTERATES THROUH ALL SMELLS IN UMLCLASS
-                //LOCAL METHOD ON EACH SMELL
-                //LOOK at the ren
-                //ID represents the front end obejct
-                Integer id = renderClass((UMLClass) source);
-                /*if(((UMLClass) source).name.equals("ConstantClass"))
-                {
-                    ((UMLClass) source).setPosition(100,100);
-                }*/
-                Pair<Double, Double> size = getClassDimensions(id);
-                Pair<Integer, Pair<Double, Double>> p = new Pair(id, size);
-                // add id and size to response
-                e.setResponse((Object) p);
+                // without an estimate, the box is measured when its size is
+                // first needed (see MEASURE), along with the others drawn by then
+                Integer id = batch.renderClass((UMLClass) source);
+                e.setResponse((Object) new Pair<>(id, estimate((UMLClass) source, id)));
             } else if (source instanceof ClassRelation) {
-                Integer id = renderPath((ClassRelation) source);
+                Integer id = batch.renderPath((ClassRelation) source);
                 e.setResponse((Object) id);
+            } else if (source instanceof PackageNode) {
+                Integer id = batch.renderPackage((PackageNode) source);
+                e.setResponse((Object) id);
+            } else if (source instanceof PackageRelation) {
+                batch.renderPackagePath((PackageRelation) source);
             } else if (source instanceof Shape) {
-                drawShape((Shape) source);
+                for (Position p : ((Shape) source).vertex) {
+                    batch.drawDot(p.x, p.y, ((Shape) source).colour);
+                }
             }
         } else if (e.type == RenderEvent.Type.REPOSITION) {
             UMLClass c = (UMLClass) source;
-            repositionClass(c.getId(), c.getPosition().x, c.getPosition().y);
+            batch.moveClass(c.getId(), c.getPosition().x, c.getPosition().y);
+        } else if (e.type == RenderEvent.Type.UPDATE) {
+            batch.updateClass((UMLClass) source);
+            e.setResponse((Object) estimate((UMLClass) source, ((UMLClass) source).getId()));
+        } else if (e.type == RenderEvent.Type.MEASURE) {
+            e.setResponse((Object) getClassDimensions(((UMLClass) source).getId()));
+        } else if (e.type == RenderEvent.Type.REMOVE) {
+            if (source instanceof UMLClass) {
+                batch.removeClass(((UMLClass) source).getId());
+                estimated.remove(((UMLClass) source).getId());
+            } else if (source instanceof ClassRelation) {
+                ClassRelation cr = (ClassRelation) source;
+                batch.removePath(cr.source.getId(), cr.getPathContainerId());
+            } else if (source instanceof PackageNode) {
+                batch.removePackage(((PackageNode) source).getId());
+            }
+        }
+        if (!batch.isEmpty()) {
+            commandAdded();
         }
     }
 
-}
\ No newline at end of file
+}
@@ -4,6 +4,9 @@ module jfx {
     requires javafx.graphics;
     requires javafx.web;
     requires java.desktop;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.jfr;
     requires com.google.gson;
 
     exports com.CodeSmell;
@@ -16,6 +19,7 @@ module jfx {
     opens com.CodeSmell.smell to com.google.gson, javafx.fxml;
     exports com.CodeSmell.view;
     opens com.CodeSmell.view to com.google.gson, javafx.fxml;
+    exports com.CodeSmell.log;
     exports com.CodeSmell.stat;
     opens com.CodeSmell.stat to com.google.gson, javafx.fxml;
 }
@@ -144,6 +144,23 @@ def return_all_distinct_package_names(all_classes):
     return sorted(package_names, key=str)
 
 
+def return_root_package_name(all_classes):
+    """Return the root (lowest sorted) package name of the given classes, or an empty string if there are none"""
+
+    all_pkgs = return_all_distinct_package_names(all_classes)
+    root_pkg = ""
+    if all_pkgs:
+        root_pkg = all_pkgs[0]
+    return root_pkg
+
+
+def normalize_file_path(file_path):
+    """Return the absolute, normalized form of a file path so that paths given by Joern can be compared
+    to paths given on the command line"""
+
+    return os.path.normpath(os.path.abspath(file_path))
+
+
 def read_file(file_path):
     """Read a file from the file path that Joern gives and return a list of all the lines"""
 
@@ -421,6 +438,7 @@ def create_class_dict(curr_class):
         MODIFIERS: [],  # Handled in assign_missing_class_info
         "classFullName": class_full_name,
         "inheritsFrom": [],  # Handled in Parser
+        "inheritsFromTypeFullName": list(inherits_from_list),
         "classType": get_class_type(class_declaration),
         "filePath": file_name,
         "fileLength": 0,  # Handled in assign_missing_class_info
@@ -545,14 +563,15 @@ def assign_missing_class_info(class_dict, file_lines):
     return class_dict
 
 
-def clean_up_external_classes(source_code_json):
-    """Remove all classes that inherit from external classes outside of the source code"""
+def clean_up_external_classes(source_code_json, root_pkg=None):
+    """Remove all classes that inherit from external classes outside of the source code.
+
+    The root package is determined from the given classes, unless it is provided (when only a subset of the
+    source code's classes is being retrieved, the root package must still be that of the whole project)."""
 
     clean_start = timer()
-    all_pkgs = return_all_distinct_package_names(source_code_json[CLASSES])
-    root_pkg = ""
-    if all_pkgs:
-        root_pkg = all_pkgs[0]
+    if root_pkg is None:
+        root_pkg = return_root_package_name(source_code_json[CLASSES])
 
     # Construct a new dictionary without external classes.
     new_dict = {"relations": [], CLASSES: []}
@@ -564,7 +583,6 @@ def clean_up_external_classes(source_code_json):
                and "java" not in class_name
         ]
         if not filtered_inherits:
-            class_dict["_4"] = []
             new_dict[CLASSES].append(class_dict)
 
     clean_end = timer()
@@ -623,6 +641,7 @@ def create_class_bundles(name_ast_size_res):
         class_ast_size = entry["_2"]
         attribute_ast_size = entry["_3"]
         method_ast_sizes = entry["_4"]
+        file_path = entry.get("_5", "")
         total_methods = len(method_ast_sizes)
         total_method_size = sum(method_ast_sizes)
         real_ast_size = attribute_ast_size + total_method_size
@@ -633,6 +652,7 @@ def create_class_bundles(name_ast_size_res):
             "totalMethods": total_methods,
             "methodAstSize": total_method_size,
             "realAstTotal": real_ast_size,
+            "filePath": file_path,
         }
         all_classes.append(class_bundle)
     all_classes.sort(
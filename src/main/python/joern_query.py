@@ -74,6 +74,13 @@ def handle_query(query: str, log_dict: dict, is_data_query: bool = True):
     return result_obj
 
 
+def log_timing(phase: str, seconds: float):
+    """Log the time taken by a phase as a "[timing] <phase> <seconds>" line, which JoernServer reads from
+    `joern_query.log` and records in the metrics of the run."""
+
+    main_logger.info("[timing] {phase} {seconds}".format(phase=phase, seconds=format(seconds, ".3f")))
+
+
 def handle_error(error_type: str, error_message: str, stderr: str = ""):
     """Handle all error situations by logging the error message and joern's error message, if present.
     Followed by deleting the project from /bin/joern-cli/workspace/ and exiting with error code."""
@@ -104,7 +111,7 @@ def retrieve_all_class_names():
     name_query = """cpg.typeDecl.isExternal(false).filter(node => !node.name.contains("lambda$")).
     map(node => (node.fullName, node.ast.size, node.astChildren.isMember.size, 
     node.astChildren.isMethod.isExternal(false).filter(node => node.lineNumber != None).
-    l.map(node => (node.ast.size)))).toJson"""
+    l.map(node => (node.ast.size)), node.filename)).toJson"""
 
     info_msg = "All class name and class sizes have been retrieved."
     debug_msg = "Class Name Retrieval Result: "
@@ -359,7 +366,33 @@ def append_all_instructions(source_code_json):
     return source_code_json
 
 
-def handle_large_project(class_bundles: list):
+def filter_class_bundles(class_bundles: list, files: set):
+    """Return only the class bundles of classes declared within the given (normalized) files."""
+
+    return [
+        class_bundle
+        for class_bundle in class_bundles
+        if normalize_file_path(class_bundle["filePath"]) in files
+    ]
+
+
+def read_file_filter(argv: list):
+    """Read the --files option (a file listing one source file path per line), if present, and remove it from argv.
+
+    Returns None if the option was not given, meaning all classes should be retrieved."""
+
+    if "--files" not in argv:
+        return None
+    index = argv.index("--files")
+    list_path = argv[index + 1]
+    del argv[index: index + 2]
+    with open(list_path, "r") as list_file:
+        return {
+            normalize_file_path(line.strip()) for line in list_file if line.strip()
+        }
+
+
+def handle_large_project(class_bundles: list, root_pkg=None):
     """Handle larger projects (total ast size > 1000) by retrieving the data for each class
     individually (with/without method instructions) based on the ast size of the class,
     following a Shortest Task First approach.
@@ -393,6 +426,7 @@ def handle_large_project(class_bundles: list):
         joern_json[CLASSES].append(class_dict)
     class_data_end = timer()
     class_data_diff = class_data_end - class_data_start
+    log_timing("classQueries", class_data_diff)
     main_logger.info(
         "The data for all classes has been retrieved. Completed in {0} seconds.".format(
             format(class_data_diff, DEC_FORMATTER)
@@ -400,7 +434,7 @@ def handle_large_project(class_bundles: list):
     )
 
     # Filter out external classes and add all method instructions
-    filtered_classes = clean_up_external_classes(joern_json)
+    filtered_classes = clean_up_external_classes(joern_json, root_pkg)
     assign_total_method_lines(filtered_classes[CLASSES])
 
     # Handle retrieval of method instructions for classes which still need them
@@ -408,6 +442,7 @@ def handle_large_project(class_bundles: list):
     joern_json[CLASSES] = append_all_instructions(filtered_classes[CLASSES])
     method_ins_end = timer()
     method_diff = method_ins_end - method_ins_start
+    log_timing("instructions", method_diff)
     main_logger.info(
         "All method instructions for classes needing instructions have been retrieved. Completed in {0} seconds.".format(
             format(method_diff, DEC_FORMATTER)
@@ -429,6 +464,7 @@ def handle_large_project(class_bundles: list):
     )
     dict_end = timer()
     dict_diff = dict_end - dict_start
+    log_timing("dictionary", dict_diff)
     main_logger.info(
         "The source code json dictionary has been created. Completed in {0} seconds.".format(
             format(dict_diff, DEC_FORMATTER)
@@ -468,6 +504,7 @@ def handle_small_project():
     class_result = handle_query(query, log_dict)
     data_end = timer()
     data_diff = data_end - data_start
+    log_timing("classData", data_diff)
 
     total_query_time = import_diff + data_diff
     main_logger.info(
@@ -496,6 +533,7 @@ def handle_small_project():
     )
     dict_end = timer()
     dict_diff = dict_end - dict_start
+    log_timing("dictionary", dict_diff)
     main_logger.info(
         "The source code json dictionary has been created. Completed in {0} seconds.".format(
             format(dict_diff, DEC_FORMATTER)
@@ -507,6 +545,14 @@ def handle_small_project():
 if __name__ == "__main__":
     main_logger, debug_logger = create_loggers()
 
+    # Only retrieve the classes of the listed files (used for incremental re-analysis)
+    file_filter = read_file_filter(sys.argv)
+
+    # The joern server is already running (reused between runs), no need to wait for it to start
+    server_ready = "--server-ready" in sys.argv
+    if server_ready:
+        sys.argv.remove("--server-ready")
+
     server_endpoint = "127.0.0.1:" + sys.argv[-1]
     project_dir = sys.argv[-2]
     project_name = "analyzedProject"
@@ -515,7 +561,8 @@ if __name__ == "__main__":
     main_logger.info("Server Endpoint: %s", server_endpoint)
     client = None
     index = 1
-    sleep(4)
+    if not server_ready:
+        sleep(4)
     while True:
         try:
             client = CPGQLSClient(server_endpoint)
@@ -555,6 +602,7 @@ if __name__ == "__main__":
     import_res = handle_query(import_query, log_dict, False)
     import_end = timer()
     import_diff = import_end - import_start
+    log_timing("import", import_diff)
 
     try:
         # Retrieve all class names
@@ -562,8 +610,27 @@ if __name__ == "__main__":
         class_bundles = retrieve_all_class_names()
         name_retrieve_end = timer()
         name_retrieve_diff = name_retrieve_end - name_retrieve_start
+        log_timing("classNames", name_retrieve_diff)
         total_classes = len(class_bundles)
 
+        # When only the changed files are requested, retrieve their classes one by one but keep
+        # the root package of the whole project so external classes are filtered as in a full run.
+        root_pkg = None
+        if file_filter is not None:
+            root_pkg = return_root_package_name(
+                [
+                    {"packageName": return_package_name(class_bundle["classFullName"])}
+                    for class_bundle in class_bundles
+                ]
+            )
+            class_bundles = filter_class_bundles(class_bundles, file_filter)
+            total_classes = len(class_bundles)
+            main_logger.info(
+                "Retrieving {total} classes from {files} changed files.".format(
+                    total=total_classes, files=len(file_filter)
+                )
+            )
+
         # Determine the total AST size of the given directory (used to determine how data retrieval should perform)
         total_ast_size = 0
         for class_bundle in class_bundles:
@@ -571,7 +638,9 @@ if __name__ == "__main__":
 
         # Retrieve class data for all classes within the source code, handle projects of
         # different sizes differently.
-        if total_ast_size <= PROJECT_AST_SIZE_THRESHOLD:
+        if file_filter is not None:
+            source_code_json = handle_large_project(class_bundles, root_pkg)
+        elif total_ast_size <= PROJECT_AST_SIZE_THRESHOLD:
             main_logger.info(
                 "The provided directory is considered small (AST Size = {ast_size}), retrieving data for all classes at once.".format(
                     ast_size=total_ast_size
@@ -586,8 +655,8 @@ if __name__ == "__main__":
             )
             source_code_json = handle_large_project(class_bundles)
 
-        # Output all class dictionaries
-        if source_code_json[CLASSES]:
+        # Output all class dictionaries (changed files may legitimately contain no classes)
+        if source_code_json[CLASSES] or file_filter is not None:
             for class_dict in source_code_json[CLASSES]:
                 class_contents = bytes(str(class_dict), "utf-8")
                 size_bytes = len(class_contents).to_bytes(
@@ -617,6 +686,7 @@ if __name__ == "__main__":
         # Output total joern_query execution time to log file
         program_end_time = timer()
         program_diff = program_end_time - program_start_time
+        log_timing("total", program_diff)
         main_logger.info(
             "Total time taken: {0} seconds.".format(format(program_diff, DEC_FORMATTER))
         )
@@ -0,0 +1,108 @@
+package com.CodeSmell;
+
+import com.CodeSmell.parser.Parser;
+import com.CodeSmell.parser.SnapshotFixture;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File writeSnapshot() throws IOException {
+        File snapshot = folder.newFile("project.cpg");
+        SnapshotFixture.writeSnapshot(snapshot, "A", "B");
+        return snapshot;
+    }
+
+    @Test
+    public void testReportWrittenForSnapshot() throws IOException {
+        File report = new File(folder.getRoot(), "report.json");
+        int exitCode = BatchRunner.run(new String[]{"--quiet", "--output=" + report, writeSnapshot().getPath()});
+        assertEquals(BatchRunner.EXIT_OK, exitCode);
+        JsonObject json = JsonParser.parseString(Files.readString(report.toPath())).getAsJsonObject();
+        assertEquals(2, json.get("classes").getAsInt());
+        assertTrue(json.getAsJsonArray("smells").size() > 0);
+        assertTrue(json.getAsJsonObject("durationsMillis").has("smells"));
+    }
+
+    @Test
+    public void testFootprintReported() throws IOException {
+        File report = new File(folder.getRoot(), "report.json");
+        int exitCode = BatchRunner.run(new String[]{"--quiet", "--footprint", "--output=" + report,
+                writeSnapshot().getPath()});
+        assertEquals(BatchRunner.EXIT_OK, exitCode);
+        JsonObject footprint = JsonParser.parseString(Files.readString(report.toPath())).getAsJsonObject()
+                .getAsJsonObject("footprint");
+        assertTrue(footprint.get("totalBytes").getAsLong() > 0);
+        assertTrue(footprint.getAsJsonObject("packageBytes").has("com.example"));
+    }
+
+    @Test
+    public void testBoundedMemoryReportsTheSame() throws IOException {
+        File snapshot = writeSnapshot();
+        File report = new File(folder.getRoot(), "report.json");
+        File boundedReport = new File(folder.getRoot(), "bounded.json");
+        assertEquals(BatchRunner.EXIT_OK, BatchRunner.run(new String[]{"--quiet", "--output=" + report,
+                snapshot.getPath()}));
+        assertEquals(BatchRunner.EXIT_OK, BatchRunner.run(new String[]{"--quiet", "--bounded-memory=1",
+                "--output=" + boundedReport, snapshot.getPath()}));
+        JsonObject json = JsonParser.parseString(Files.readString(report.toPath())).getAsJsonObject();
+        JsonObject boundedJson = JsonParser.parseString(Files.readString(boundedReport.toPath())).getAsJsonObject();
+        assertEquals(json.get("smells"), boundedJson.get("smells"));
+        assertEquals(BatchRunner.EXIT_OK, BatchRunner.run(new String[]{"--quiet", "--off-heap",
+                "--output=" + boundedReport, snapshot.getPath()}));
+        boundedJson = JsonParser.parseString(Files.readString(boundedReport.toPath())).getAsJsonObject();
+        assertEquals(json.get("smells"), boundedJson.get("smells"));
+        assertNull("The instruction store should be closed after the run", Parser.getInstructionStore());
+        assertEquals(BatchRunner.EXIT_USAGE, BatchRunner.run(new String[]{"--bounded-memory=0", snapshot.getPath()}));
+    }
+
+    @Test
+    public void testExitCodes() throws IOException {
+        assertEquals(BatchRunner.EXIT_USAGE, BatchRunner.run(new String[0]));
+        assertEquals(BatchRunner.EXIT_USAGE, BatchRunner.run(new String[]{"--no-such-option", "x"}));
+        assertEquals(BatchRunner.EXIT_USAGE,
+                BatchRunner.run(new String[]{new File(folder.getRoot(), "missing").getPath()}));
+        File notSnapshot = folder.newFile("notes.txt");
+        Files.writeString(notSnapshot.toPath(), "not a snapshot");
+        assertEquals(BatchRunner.EXIT_ERROR, BatchRunner.run(new String[]{"--quiet",
+                "--output=" + new File(folder.getRoot(), "report.json"), notSnapshot.getPath()}));
+    }
+
+    @Test
+    public void testCorruptStreamIsAnError() throws IOException {
+        File report = new File(folder.getRoot(), "report.json");
+        // joern_query output cut off by an I/O error after the size of the first class
+        InputStream truncated = new SequenceInputStream(new ByteArrayInputStream(
+                ByteBuffer.allocate(4).order(ByteOrder.nativeOrder()).putInt(100).array()), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        assertEquals("A failed ingest should not be reported as smells found", BatchRunner.EXIT_ERROR,
+                BatchRunner.run(folder.getRoot(), () -> Parser.initializeCPG(truncated, false),
+                        report, true, false));
+        InputStream notBackup = new ByteArrayInputStream("not a backup".getBytes(StandardCharsets.UTF_8));
+        assertEquals(BatchRunner.EXIT_ERROR,
+                BatchRunner.run(folder.getRoot(), () -> Parser.initializeCPG(notBackup, true),
+                        report, true, false));
+        assertFalse(report.exists());
+    }
+}
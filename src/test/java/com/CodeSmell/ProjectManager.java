@@ -1,19 +1,12 @@
 package com.CodeSmell;
 
-import java.nio.file.StandardCopyOption;
 import java.io.File;
-import java.io.FileInputStream;
-import java.nio.file.Path;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InvalidClassException;
-import static java.nio.file.Files.move;
 
 import com.CodeSmell.parser.Parser;
 import com.CodeSmell.parser.CodePropertyGraph;
 import com.CodeSmell.parser.JoernServer;
-
-import java.util.Date;
+import com.CodeSmell.parser.SnapshotCache;
+import com.CodeSmell.parser.SourceDiff;
 
 public class ProjectManager {
 
@@ -24,75 +17,42 @@ public class ProjectManager {
 	};
 
 	private final static String BACKUP_DIRECTORY = "src/test/java/com/CodeSmell/backups/";
-	static { 
-		new File(BACKUP_DIRECTORY).mkdir();
-	}
+
+	// snapshots of the test projects, reused while their source is unchanged
+	private static final SnapshotCache cache = new SnapshotCache(
+		new File(BACKUP_DIRECTORY), SnapshotCache.DEFAULT_MAX_BYTES);
 
 	private static class Project {
 		public final String name;
 		public final File directory;
-		private final File backup;
 		private CodePropertyGraph cpg;
 
 		public Project(String name, String directory) {
 			this.name = name;
 			this.directory = new File(directory);
-			this.backup = new File(String.format(
-				"%s/%s.bac", BACKUP_DIRECTORY, this.name));
 		}
 
-		private void loadFromJoern() {
+		private void loadFromJoern(String key) {
 			JoernServer server = new JoernServer();
 			server.start(this.directory);
-			// moves the Parser's backup file to the backup directory
+			// stores the Parser's backup file in the snapshot cache
 			try {
 				this.cpg = parser.initializeCPG(server.getStream(), false);
-				move(
-					Parser.CPG_BACKUP_JSON.toPath(),
-					this.backup.toPath(), 
-					StandardCopyOption.REPLACE_EXISTING);
+				cache.put(key, this.directory, Parser.CPG_BACKUP_JSON);
 			} catch (Exception e) {
 				e.printStackTrace();
 				System.exit(1);
 			}
 		}
 
-		private void loadFromBackup() {
-			try {
-				this.cpg = Parser.initializeCPG(
-					new FileInputStream(this.backup), true);
-			} catch (InvalidClassException e) {
-				System.out.println("Serialization failed. Loading joern.");
-				loadFromJoern();
-			} catch (Exception e) {
-				e.printStackTrace();
-				System.exit(1);
-			}
-		}
-
-		private boolean compareDirectoryModificationTime(File directory, 
-				long modificationTime) {
-			if (!directory.isDirectory()) {
-				return directory.lastModified() > modificationTime;
-			}
-			for (File f : directory.listFiles()) {
-				if (compareDirectoryModificationTime(f, modificationTime)) {
-					System.out.println("Edit in file " + f);
-					System.out.println(f.lastModified());
-					return true;
-				}
-			}
-			return false;
-		}
-
 		public void load() {
 			try {
-				if (!compareDirectoryModificationTime(this.directory, 
-						this.backup.lastModified())) {
-					System.out.println("Loading backup");
-					loadFromBackup();
-				} else {
-					loadFromJoern();
+				String key = SnapshotCache.key(this.directory,
+					SourceDiff.scan(this.directory));
+				this.cpg = cache.load(key);
+				if (this.cpg == null) {
+					System.out.println("No snapshot of " + this.name + ". Loading joern.");
+					loadFromJoern(key);
 				}
 			} catch (Exception e) {
 				e.printStackTrace();
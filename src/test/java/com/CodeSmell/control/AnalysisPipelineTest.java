@@ -0,0 +1,123 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.control.AnalysisPipeline.Progress;
+import com.CodeSmell.control.AnalysisPipeline.State;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AnalysisPipelineTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // the reports of the pipeline, in order (the listener is called on the pipeline's thread)
+    private final LinkedBlockingQueue<Progress> reports = new LinkedBlockingQueue<>();
+
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private AnalysisPipeline pipeline() {
+        return new AnalysisPipeline(executor, Runnable::run, reports::add);
+    }
+
+    /**
+     * @return The reports until the pipeline stopped, the last one saying why
+     */
+    private List<Progress> awaitEnd() throws InterruptedException {
+        List<Progress> until = new ArrayList<>();
+        while (true) {
+            Progress progress = reports.poll(10, TimeUnit.SECONDS);
+            assertNotNull("The pipeline should stop", progress);
+            until.add(progress);
+            if (progress.state != State.RUNNING) {
+                return until;
+            }
+        }
+    }
+
+    @Test
+    public void testPhasesRunInOrder() throws InterruptedException {
+        pipeline().phase("read", p -> ran.add("read"))
+                .phase("draw", p -> ran.add("draw"))
+                .start();
+        List<Progress> progress = awaitEnd();
+        assertEquals(List.of("read", "draw"), ran);
+        assertEquals(3, progress.size());
+        assertEquals("draw", progress.get(1).phase);
+        assertEquals(0.5, progress.get(1).fraction(), 0.0);
+        assertEquals(State.SUCCEEDED, progress.get(2).state);
+        assertEquals(1.0, progress.get(2).fraction(), 0.0);
+    }
+
+    @Test
+    public void testCancelStopsRunningPhase() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        AnalysisPipeline pipeline = pipeline()
+                .phase("read", p -> ran.add("read"))
+                .phase("wait", p -> {
+                    running.countDown();
+                    Thread.sleep(60000);
+                })
+                .phase("draw", p -> ran.add("draw"));
+        pipeline.start();
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        pipeline.cancel();
+        List<Progress> progress = awaitEnd();
+        Progress last = progress.get(progress.size() - 1);
+        assertEquals(State.CANCELLED, last.state);
+        assertEquals("wait", last.phase);
+        assertEquals(List.of("read"), ran);
+
+        // the executor is left free for what comes next
+        CountDownLatch next = new CountDownLatch(1);
+        executor.execute(() -> {
+            if (!Thread.currentThread().isInterrupted()) {
+                next.countDown();
+            }
+        });
+        assertTrue(next.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailureReported() throws InterruptedException {
+        pipeline().phase("read", p -> {
+                    throw new IOException("no graph");
+                })
+                .phase("draw", p -> ran.add("draw"))
+                .start();
+        List<Progress> progress = awaitEnd();
+        Progress last = progress.get(progress.size() - 1);
+        assertEquals(State.FAILED, last.state);
+        assertEquals("no graph", last.error.getMessage());
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    public void testErrorReported() throws InterruptedException {
+        pipeline().phase("read", p -> {
+                    throw new StackOverflowError();
+                })
+                .phase("draw", p -> ran.add("draw"))
+                .start();
+        List<Progress> progress = awaitEnd();
+        Progress last = progress.get(progress.size() - 1);
+        assertEquals(State.FAILED, last.state);
+        assertTrue(last.error instanceof StackOverflowError);
+        assertTrue(ran.isEmpty());
+    }
+}
@@ -0,0 +1,152 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.ClassRelation.RelationshipType;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.model.UMLClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ComponentLayoutTest {
+
+    private final ArrayList<UMLClass> classes = new ArrayList<>();
+    private final ArrayList<ClassRelation> relations = new ArrayList<>();
+
+    @BeforeClass
+    public static void answerRenders() {
+        RenderObject.addRenderEventListener(re -> {
+            if (re.type == RenderEvent.Type.RENDER && re.source instanceof UMLClass) {
+                re.setResponse(new Pair<>(0, new Pair<>(120.0, 80.0)));
+            } else if (re.type == RenderEvent.Type.RENDER && re.source instanceof ClassRelation) {
+                re.setResponse(0);
+            }
+        });
+    }
+
+    private UMLClass add(String name) {
+        UMLClass c = new UMLClass(name, new ArrayList<>());
+        c.render();
+        classes.add(c);
+        return c;
+    }
+
+    private void relate(UMLClass source, UMLClass target) {
+        relations.add(new ClassRelation(source, target, RelationshipType.DEPENDENCY, ""));
+    }
+
+    private static boolean apart(UMLClass a, Position pa, UMLClass b, Position pb) {
+        return pa.x + a.getWidth() <= pb.x || pb.x + b.getWidth() <= pa.x
+                || pa.y + a.getHeight() <= pb.y || pb.y + b.getHeight() <= pa.y;
+    }
+
+    @Test
+    public void testComponentsDoNotOverlap() throws IOException {
+        // three chains of four classes and a few classes on their own
+        for (int chain = 0; chain < 3; chain++) {
+            UMLClass previous = add("Chain" + chain + "_0");
+            for (int i = 1; i < 4; i++) {
+                UMLClass next = add("Chain" + chain + "_" + i);
+                relate(previous, next);
+                previous = next;
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            add("Alone" + i);
+        }
+        Layout layout = new ComponentLayout(LayoutManager.LAYERED, 2).layout(classes, relations);
+
+        for (UMLClass c : classes) {
+            assertNotNull(c.name + " should be placed", layout.getPosition(c));
+        }
+        for (int i = 0; i < classes.size(); i++) {
+            for (int j = i + 1; j < classes.size(); j++) {
+                UMLClass a = classes.get(i);
+                UMLClass b = classes.get(j);
+                assertTrue(a.name + " overlaps " + b.name,
+                        apart(a, layout.getPosition(a), b, layout.getPosition(b)));
+            }
+        }
+        for (ClassRelation cr : relations) {
+            ArrayList<Position> path = layout.getPath(cr);
+            assertNotNull(path);
+            // the path is moved along with its classes
+            Position start = path.get(0);
+            Position source = layout.getPosition(cr.source);
+            assertTrue(start.x >= source.x - 1e-6 && start.x <= source.x + cr.source.getWidth() + 1e-6);
+            assertTrue(start.y >= source.y - 1e-6 && start.y <= source.y + cr.source.getHeight() + 1e-6);
+        }
+
+        // nothing is moved until the layout is applied
+        assertEquals(0, classes.get(0).getPosition().x, 0);
+        layout.apply();
+        assertEquals(layout.getPosition(classes.get(5)).x, classes.get(5).getPosition().x, 0);
+        assertEquals(layout.getPath(relations.get(0)), relations.get(0).getPath());
+    }
+
+    @Test
+    public void testComponentsLaidOutConcurrently() throws IOException {
+        add("A");
+        add("B");
+        add("C");
+        add("D");
+        relate(classes.get(0), classes.get(1));
+        relate(classes.get(2), classes.get(3));
+
+        // each component waits for the other to start, which it only
+        // can if they are laid out at the same time
+        CountDownLatch started = new CountDownLatch(2);
+        LayoutEngine waiting = new LayoutEngine() {
+            @Override
+            public String name() {
+                return "waiting";
+            }
+
+            @Override
+            public Layout layout(ArrayList<UMLClass> classes, ArrayList<ClassRelation> relations)
+                    throws IOException {
+                started.countDown();
+                try {
+                    if (!started.await(10, TimeUnit.SECONDS)) {
+                        throw new IOException("components were laid out one at a time");
+                    }
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return LayoutManager.LAYERED.layout(classes, relations);
+            }
+        };
+        Layout layout = new ComponentLayout(waiting, 2).layout(classes, relations);
+        for (UMLClass c : classes) {
+            assertNotNull(layout.getPosition(c));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testEngineFailureReported() throws IOException {
+        relate(add("A"), add("B"));
+        relate(add("C"), add("D"));
+        LayoutEngine failing = new LayoutEngine() {
+            @Override
+            public String name() {
+                return "failing";
+            }
+
+            @Override
+            public Layout layout(ArrayList<UMLClass> classes, ArrayList<ClassRelation> relations)
+                    throws IOException {
+                throw new IOException("no layout");
+            }
+        };
+        new ComponentLayout(failing, 2).layout(classes, relations);
+    }
+}
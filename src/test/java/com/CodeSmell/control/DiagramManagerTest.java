@@ -0,0 +1,96 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.PackageNode;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.CPGClass;
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.GraphGenerator;
+import com.CodeSmell.smell.Smell;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class DiagramManagerTest {
+
+    // the classes redrawn in place
+    private static final Set<UMLClass> updated = Collections.synchronizedSet(new HashSet<>());
+
+    @BeforeClass
+    public static void answerRenders() {
+        RenderObject.addRenderEventListener(re -> {
+            if (re.type == RenderEvent.Type.RENDER && re.source instanceof UMLClass) {
+                re.setResponse(new Pair<>(0, new Pair<>(200.0, 120.0)));
+            } else if (re.type == RenderEvent.Type.UPDATE && re.source instanceof UMLClass) {
+                updated.add((UMLClass) re.source);
+                re.setResponse(new Pair<>(200.0, 120.0));
+            } else if (re.type == RenderEvent.Type.RENDER
+                    && (re.source instanceof ClassRelation || re.source instanceof PackageNode)) {
+                re.setResponse(0);
+            }
+        });
+    }
+
+    @Before
+    public void before() {
+        updated.clear();
+    }
+
+    private static UMLClass box(DiagramManager diagram, String fullName) {
+        for (UMLClass c : diagram.getClasses()) {
+            if (c.fullName.equals(fullName)) {
+                return c;
+            }
+        }
+        throw new AssertionError("No box for " + fullName);
+    }
+
+    @Test
+    public void testAnalysedAgainKeepsBoxes() {
+        GraphGenerator generator = new GraphGenerator(3).classes(30);
+        DiagramManager diagram = new DiagramManager();
+        diagram.update(generator.generateProcessed());
+        List<UMLClass> boxes = diagram.getClasses();
+        List<ClassRelation> relations = diagram.getRelations();
+        assertFalse(relations.isEmpty());
+
+        // every class is a new object, as after it is parsed again, and one of them has changed
+        CodePropertyGraph again = generator.generateProcessed();
+        CPGClass edited = again.getClasses().get(again.getClasses().size() / 2);
+        UMLClass editedBox = box(diagram, edited.classFullName);
+        double x = editedBox.getPosition().x, y = editedBox.getPosition().y;
+        edited.addSmell(new Smell("Edited", again) {
+            public CodeFragment detectNext() {
+                return null;
+            }
+
+            public String description() {
+                return "edited";
+            }
+
+            public LinkedList<CodeFragment> getDetections() {
+                return new LinkedList<>();
+            }
+        });
+        diagram.update(again);
+
+        assertEquals("Classes of the same full name should keep their boxes", boxes, diagram.getClasses());
+        assertEquals(x, editedBox.getPosition().x, 0);
+        assertEquals(y, editedBox.getPosition().y, 0);
+        assertEquals("Only the changed class should be redrawn, in place", Set.of(editedBox), updated);
+        assertEquals("Relations between the same classes should not be redrawn",
+                new ArrayList<>(relations), diagram.getRelations());
+    }
+}
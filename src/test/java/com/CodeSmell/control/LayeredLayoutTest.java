@@ -0,0 +1,152 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.ClassRelation.RelationshipType;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.model.UMLClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LayeredLayoutTest {
+
+    private final ArrayList<UMLClass> classes = new ArrayList<>();
+    private final ArrayList<ClassRelation> relations = new ArrayList<>();
+
+    @BeforeClass
+    public static void answerRenders() {
+        // classes are as wide as their name is long
+        RenderObject.addRenderEventListener(re -> {
+            if (re.type == RenderEvent.Type.RENDER && re.source instanceof UMLClass) {
+                UMLClass c = (UMLClass) re.source;
+                re.setResponse(new Pair<>(0, new Pair<>(40.0 + 10 * c.name.length(), 80.0)));
+            } else if (re.type == RenderEvent.Type.RENDER && re.source instanceof ClassRelation) {
+                re.setResponse(0);
+            }
+        });
+        LayoutManager.setLayoutCache(null);
+    }
+
+    private UMLClass add(String name) {
+        UMLClass c = new UMLClass(name, new ArrayList<>());
+        c.render();
+        classes.add(c);
+        return c;
+    }
+
+    private void relate(UMLClass source, UMLClass target) {
+        relations.add(new ClassRelation(source, target, RelationshipType.DEPENDENCY, ""));
+    }
+
+    private void layout() throws IOException {
+        LayoutManager.setLayout(classes, relations, LayoutManager.LAYERED);
+    }
+
+    private static double centerX(UMLClass c) {
+        return c.getPosition().x + c.getWidth() / 2;
+    }
+
+    private static boolean onBorder(UMLClass c, Position p) {
+        double e = 1e-6;
+        Position at = c.getPosition();
+        boolean inside = p.x >= at.x - e && p.x <= at.x + c.getWidth() + e
+                && p.y >= at.y - e && p.y <= at.y + c.getHeight() + e;
+        boolean edge = Math.abs(p.x - at.x) < e || Math.abs(p.x - at.x - c.getWidth()) < e
+                || Math.abs(p.y - at.y) < e || Math.abs(p.y - at.y - c.getHeight()) < e;
+        return inside && edge;
+    }
+
+    private void assertNoOverlaps() {
+        for (int i = 0; i < classes.size(); i++) {
+            for (int j = i + 1; j < classes.size(); j++) {
+                UMLClass a = classes.get(i);
+                UMLClass b = classes.get(j);
+                boolean apart = a.getPosition().x + a.getWidth() <= b.getPosition().x
+                        || b.getPosition().x + b.getWidth() <= a.getPosition().x
+                        || a.getPosition().y + a.getHeight() <= b.getPosition().y
+                        || b.getPosition().y + b.getHeight() <= a.getPosition().y;
+                assertTrue(a.name + " overlaps " + b.name, apart);
+            }
+        }
+    }
+
+    private void assertPathsConnect() {
+        for (ClassRelation cr : relations) {
+            ArrayList<Position> path = cr.getPath();
+            assertNotNull(path);
+            assertTrue(path.size() >= 2);
+            assertTrue(cr + " should leave its source", onBorder(cr.source, path.get(0)));
+            assertTrue(cr + " should reach its target", onBorder(cr.target, path.get(path.size() - 1)));
+        }
+    }
+
+    @Test
+    public void testRelationsPointDown() throws IOException {
+        UMLClass app = add("App");
+        UMLClass service = add("Service");
+        UMLClass repository = add("Repository");
+        UMLClass model = add("Model");
+        relate(app, service);
+        relate(service, repository);
+        relate(repository, model);
+        relate(app, model);
+        layout();
+
+        for (ClassRelation cr : relations) {
+            assertTrue(cr.source.name + " should be above " + cr.target.name,
+                    cr.source.getPosition().y + cr.source.getHeight() <= cr.target.getPosition().y);
+        }
+        // App -> Model spans three layers, so it passes a point in each layer between
+        assertEquals(4, relations.get(3).getPath().size());
+        assertNoOverlaps();
+        assertPathsConnect();
+    }
+
+    @Test
+    public void testCrossingsRemoved() throws IOException {
+        UMLClass a = add("A");
+        UMLClass b = add("B");
+        UMLClass c = add("C");
+        UMLClass d = add("D");
+        relate(a, d);
+        relate(b, c);
+        layout();
+        assertEquals("A and D should be on the same side", centerX(a) < centerX(b), centerX(d) < centerX(c));
+    }
+
+    @Test
+    public void testCyclesAndSelfRelations() throws IOException {
+        UMLClass a = add("A");
+        UMLClass b = add("B");
+        UMLClass c = add("C");
+        relate(a, b);
+        relate(b, c);
+        relate(c, a);
+        relate(b, b);
+        layout();
+        assertNoOverlaps();
+        assertPathsConnect();
+    }
+
+    @Test
+    public void testLargeGraph() throws IOException {
+        Random random = new Random(5);
+        for (int i = 0; i < 600; i++) {
+            add("C" + i);
+        }
+        for (int i = 0; i < 1200; i++) {
+            relate(classes.get(random.nextInt(classes.size())), classes.get(random.nextInt(classes.size())));
+        }
+        layout();
+        assertNoOverlaps();
+        assertPathsConnect();
+    }
+}
@@ -0,0 +1,191 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.ClassRelation.RelationshipType;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.SnapshotCache;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LayoutCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // the size of the boxes drawn for each class name
+    private static final Map<String, Double> widths = new HashMap<>();
+
+    private final ArrayList<UMLClass> classes = new ArrayList<>();
+    private final ArrayList<ClassRelation> relations = new ArrayList<>();
+
+    // the number of classes the engine was asked to lay out
+    private int laidOut;
+
+    private final LayoutEngine counting = new LayoutEngine() {
+        @Override
+        public String name() {
+            return "counting";
+        }
+
+        @Override
+        public Layout layout(ArrayList<UMLClass> classes, ArrayList<ClassRelation> relations) throws IOException {
+            synchronized (LayoutCacheTest.this) {
+                laidOut += classes.size();
+            }
+            return LayoutManager.LAYERED.layout(classes, relations);
+        }
+    };
+
+    @BeforeClass
+    public static void answerRenders() {
+        RenderObject.addRenderEventListener(re -> {
+            if (re.type == RenderEvent.Type.RENDER && re.source instanceof UMLClass) {
+                UMLClass c = (UMLClass) re.source;
+                re.setResponse(new Pair<>(0, new Pair<>(widths.getOrDefault(c.name, 120.0), 80.0)));
+            } else if (re.type == RenderEvent.Type.RENDER && re.source instanceof ClassRelation) {
+                re.setResponse(0);
+            }
+        });
+    }
+
+    @AfterClass
+    public static void noCache() {
+        LayoutManager.setLayoutCache(null);
+    }
+
+    @Before
+    public void before() throws IOException {
+        widths.clear();
+        LayoutManager.setLayoutCache(new LayoutCache(
+                new SnapshotCache(folder.newFolder("cache"), SnapshotCache.DEFAULT_MAX_BYTES)));
+    }
+
+    /**
+     * Build a fresh diagram of ten classes in a chain, and the given extra classes (related to the first one)
+     */
+    private void diagram(String... extra) {
+        classes.clear();
+        relations.clear();
+        for (int i = 0; i < 10; i++) {
+            add("C" + i);
+            if (i > 0) {
+                relate(classes.get(i - 1), classes.get(i));
+            }
+        }
+        for (String name : extra) {
+            relate(classes.get(0), add(name));
+        }
+    }
+
+    private UMLClass add(String name) {
+        UMLClass c = new UMLClass(name, new ArrayList<>());
+        c.render();
+        classes.add(c);
+        return c;
+    }
+
+    private void relate(UMLClass source, UMLClass target) {
+        relations.add(new ClassRelation(source, target, RelationshipType.DEPENDENCY, ""));
+    }
+
+    private Map<String, Position> positions() {
+        Map<String, Position> positions = new HashMap<>();
+        for (UMLClass c : classes) {
+            positions.put(c.name, c.getPosition());
+        }
+        return positions;
+    }
+
+    private static void assertSamePosition(Position expected, Position actual) {
+        assertEquals(expected.x, actual.x, 1e-9);
+        assertEquals(expected.y, actual.y, 1e-9);
+    }
+
+    @Test
+    public void testKeyIgnoresOrder() {
+        diagram("A", "B");
+        String key = LayoutCache.key(counting, classes, relations);
+        Collections.reverse(classes);
+        Collections.reverse(relations);
+        assertEquals(key, LayoutCache.key(counting, classes, relations));
+        assertNotEquals("The engine is part of the key",
+                key, LayoutCache.key(LayoutManager.LAYERED, classes, relations));
+        relate(classes.get(0), classes.get(1));
+        assertNotEquals("The relations are part of the key", key, LayoutCache.key(counting, classes, relations));
+    }
+
+    @Test
+    public void testUnchangedDiagramNotLaidOutAgain() throws IOException {
+        diagram();
+        LayoutManager.setLayout(classes, relations, counting);
+        assertEquals(10, laidOut);
+        Map<String, Position> first = positions();
+        ArrayList<Position> firstPath = relations.get(3).getPath();
+
+        // the same diagram, built again as when a project is reopened
+        diagram();
+        LayoutManager.setLayout(classes, relations, counting);
+        assertEquals("The layout should be read from the cache", 10, laidOut);
+        for (UMLClass c : classes) {
+            assertSamePosition(first.get(c.name), c.getPosition());
+        }
+        assertEquals(firstPath.size(), relations.get(3).getPath().size());
+        assertSamePosition(firstPath.get(1), relations.get(3).getPath().get(1));
+    }
+
+    @Test
+    public void testChangedClassesLaidOutFromPreviousLayout() throws IOException {
+        diagram();
+        LayoutManager.setLayout(classes, relations, counting);
+        Map<String, Position> first = positions();
+
+        // a class is added, and another one grows
+        widths.put("C9", 300.0);
+        diagram("New");
+        LayoutManager.setLayout(classes, relations, counting);
+        // (at most, as classes without relations are placed without the engine)
+        assertTrue("Only the changed classes should be laid out again", laidOut <= 10 + 2);
+        for (UMLClass c : classes.subList(0, 9)) {
+            assertSamePosition(first.get(c.name), c.getPosition());
+        }
+        for (UMLClass c : classes.subList(0, 9)) {
+            for (UMLClass changed : new UMLClass[] {classes.get(9), classes.get(10)}) {
+                boolean apart = c.getPosition().x + c.getWidth() <= changed.getPosition().x
+                        || changed.getPosition().x + changed.getWidth() <= c.getPosition().x
+                        || c.getPosition().y + c.getHeight() <= changed.getPosition().y
+                        || changed.getPosition().y + changed.getHeight() <= c.getPosition().y;
+                assertTrue(c.name + " overlaps " + changed.name, apart);
+            }
+        }
+        for (ClassRelation cr : relations) {
+            assertNotNull(cr.getPath());
+        }
+    }
+
+    @Test
+    public void testMostlyChangedDiagramLaidOutAgain() throws IOException {
+        diagram();
+        LayoutManager.setLayout(classes, relations, counting);
+        for (int i = 0; i < 6; i++) {
+            widths.put("C" + i, 200.0);
+        }
+        diagram();
+        LayoutManager.setLayout(classes, relations, counting);
+        assertEquals(20, laidOut);
+    }
+}
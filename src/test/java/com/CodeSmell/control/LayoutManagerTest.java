@@ -0,0 +1,165 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.model.UMLClass;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the layout against shell scripts standing in for dot, so that graphViz need not be installed.
+ */
+public class LayoutManagerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ArrayList<UMLClass> classes;
+    private ArrayList<ClassRelation> relations;
+
+    @BeforeClass
+    public static void answerRenders() {
+        RenderObject.addRenderEventListener(LayoutManagerTest::answerRender);
+        // every test runs dot, rather than reading the layout of an earlier one
+        LayoutManager.setLayoutCache(null);
+    }
+
+    private static void answerRender(RenderEvent re) {
+        if (re.type == RenderEvent.Type.RENDER && re.source instanceof UMLClass) {
+            re.setResponse(new Pair<>(0, new Pair<>(200.0, 120.0)));
+        } else if (re.type == RenderEvent.Type.RENDER && re.source instanceof ClassRelation) {
+            re.setResponse(0);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        Assume.assumeFalse("The stand-ins for dot are shell scripts",
+                System.getProperty("os.name").contains("Windows"));
+        // a chain of classes, named with letters so that the scripts can match them with sed
+        classes = new ArrayList<>();
+        relations = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder name = new StringBuilder("C");
+            for (int rest = i; rest > 0 || name.length() == 1; rest /= 26) {
+                name.append((char) ('a' + rest % 26));
+            }
+            UMLClass c = new UMLClass(name.toString(), new ArrayList<>());
+            c.render();
+            classes.add(c);
+            if (i > 0) {
+                relations.add(new ClassRelation(classes.get(i - 1), c, ClassRelation.RelationshipType.DEPENDENCY, ""));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("codesmell.dot");
+        System.clearProperty("codesmell.dot.timeout");
+    }
+
+    private void useDot(String script) throws IOException {
+        File dot = folder.newFile("dot");
+        Files.writeString(dot.toPath(), "#!/bin/sh\n" + script + "\n");
+        assertTrue(dot.setExecutable(true));
+        System.setProperty("codesmell.dot", dot.getAbsolutePath());
+    }
+
+    @Test(timeout = 60000)
+    public void testLargeOutputDoesNotBlock() throws IOException {
+        // prints more than a pipe holds before reading any input, then places every node and edge it reads
+        useDot("yes 'graph 1 1000 1000' | head -n 20000\n"
+                + "sed -n -e 's/^\"\\([A-Za-z]*\\)\" \\[.*/node \\1 110 80 2 1 \\1 solid rectangle black lightgrey/p' "
+                + "-e 's/^\"\\([A-Za-z]*\\)\" -> \"\\([A-Za-z]*\\)\"$/edge \\1 \\2 2 1 2 3 4 solid black/p'\n"
+                + "echo stop");
+        LayoutManager.setLayout(classes, relations);
+        for (UMLClass c : classes) {
+            assertEquals(10.0, c.getPosition().x, 0.0);
+            assertEquals(20.0, c.getPosition().y, 0.0);
+        }
+        for (ClassRelation cr : relations) {
+            assertNotNull(cr.getPath());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testExitCodeReported() throws IOException {
+        useDot("cat > /dev/null\necho 'Error: <stdin>: syntax error in line 3' >&2\nexit 1");
+        IOException e = assertThrows(IOException.class, () -> LayoutManager.setLayout(classes, relations));
+        assertTrue(e.getMessage(), e.getMessage().contains("exit code 1"));
+        assertTrue(e.getMessage(), e.getMessage().contains("syntax error in line 3"));
+    }
+
+    @Test(timeout = 60000)
+    public void testHungDotKilled() throws IOException {
+        useDot("exec sleep 60");
+        System.setProperty("codesmell.dot.timeout", "1");
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class, () -> LayoutManager.setLayout(classes, relations));
+        assertTrue(e.getMessage(), e.getMessage().contains("within 1 s"));
+        assertTrue("dot should be killed once the timeout has passed", System.nanoTime() - start < 30e9);
+    }
+
+    @Test
+    public void testParsesQuotedNamesAndParallelEdges() throws IOException {
+        // two classes of the same simple name, and two relations from one class to another
+        UMLClass list = new UMLClass("List", "java.util.List", new ArrayList<>());
+        UMLClass otherList = new UMLClass("List", "com.example.List", new ArrayList<>());
+        UMLClass inner = new UMLClass("Entry", "com.example.Map$Entry", new ArrayList<>());
+        ArrayList<UMLClass> diagram = new ArrayList<>();
+        for (UMLClass c : new UMLClass[] {list, otherList, inner}) {
+            c.render();
+            diagram.add(c);
+        }
+        ArrayList<ClassRelation> edges = new ArrayList<>();
+        edges.add(new ClassRelation(inner, list, ClassRelation.RelationshipType.DEPENDENCY, ""));
+        edges.add(new ClassRelation(inner, otherList, ClassRelation.RelationshipType.DEPENDENCY, ""));
+        edges.add(new ClassRelation(inner, otherList, ClassRelation.RelationshipType.COMPOSITION, ""));
+
+        String script = LayoutManager.compileGraphVizInvokeCommand(diagram, edges);
+        assertTrue(script, script.contains("\"com.example.Map$Entry\" -> \"java.util.List\""));
+
+        LayoutManager.DotGraph graph = new LayoutManager.DotGraph(diagram, edges);
+        Layout layout = new Layout();
+        for (String line : new String[] {
+                "graph 1 10 10",
+                "node java.util.List 200 60 2 1 List solid rectangle black lightgrey",
+                "node com.example.List 600 60 2 1 List solid rectangle black lightgrey",
+                "node \"com.example.Map$Entry\" 400 300 2 1 Entry solid rectangle black lightgrey",
+                "edge \"com.example.Map$Entry\" java.util.List 2 1 1 2 2 solid black",
+                "edge \"com.example.Map$Entry\" com.example.List 2 3 3 4 4 solid black",
+                "edge \"com.example.Map$Entry\" com.example.List 3 5 5 6 6 7 7 \"a label\" 6 6 solid black",
+                "stop"}) {
+            LayoutManager.parseDotLine(graph, line, layout);
+        }
+        assertEquals(100.0, layout.getPosition(list).x, 0.0);
+        assertEquals(500.0, layout.getPosition(otherList).x, 0.0);
+        assertEquals(300.0, layout.getPosition(inner).x, 0.0);
+        ArrayList<Position> first = layout.getPath(edges.get(0));
+        ArrayList<Position> second = layout.getPath(edges.get(1));
+        ArrayList<Position> third = layout.getPath(edges.get(2));
+        assertEquals(1.0, first.get(0).x, 0.0);
+        assertEquals(3.0, second.get(0).x, 0.0);
+        assertEquals(3, third.size());
+        assertEquals(7.0, third.get(2).y, 0.0);
+    }
+
+    @Test
+    public void testMalformedOutputReported() {
+        LayoutManager.DotGraph graph = new LayoutManager.DotGraph(classes, relations);
+        assertThrows(IOException.class, () -> LayoutManager.parseDotLine(graph, "edge Ca Cb 3 1 2 3 4", new Layout()));
+        assertThrows(IOException.class, () -> LayoutManager.parseDotLine(graph, "node \"Ca 1 2", new Layout()));
+        assertThrows(IOException.class, () -> LayoutManager.parseDotLine(graph, "node Ca one 2", new Layout()));
+        assertThrows(IOException.class, () -> LayoutManager.parseDotLine(graph, "digraph {", new Layout()));
+    }
+}
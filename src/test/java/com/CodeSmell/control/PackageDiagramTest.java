@@ -0,0 +1,95 @@
+package com.CodeSmell.control;
+
+import com.CodeSmell.model.PackageNode;
+import com.CodeSmell.model.PackageRelation;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.parser.CPGClass;
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.CodePropertyGraph.Relation;
+import com.CodeSmell.parser.GraphGenerator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PackageDiagramTest {
+
+    // the number of package boxes and paths drawn
+    private static final AtomicInteger packagesDrawn = new AtomicInteger();
+    private static final AtomicInteger pathsDrawn = new AtomicInteger();
+
+    @BeforeClass
+    public static void answerRenders() {
+        RenderObject.addRenderEventListener(re -> {
+            if (re.type == RenderEvent.Type.RENDER && re.source instanceof PackageNode) {
+                re.setResponse(packagesDrawn.getAndIncrement());
+            } else if (re.type == RenderEvent.Type.RENDER && re.source instanceof PackageRelation) {
+                pathsDrawn.incrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    public void testClassesAndRelationsGroupedByPackage() throws IOException {
+        CodePropertyGraph cpg = new GraphGenerator(7).classes(80).classesPerPackage(10).generateProcessed();
+        PackageDiagram diagram = PackageDiagram.build(cpg);
+
+        Set<String> names = new HashSet<>();
+        for (CPGClass c : cpg.getClasses()) {
+            names.add(c.packageName);
+        }
+        assertEquals(names.size(), diagram.getPackages().size());
+        int classes = 0;
+        for (PackageNode p : diagram.getPackages()) {
+            classes += p.classCount;
+            assertTrue(p.heat >= 0 && p.heat <= 1);
+        }
+        assertEquals(cpg.getClasses().size(), classes);
+
+        int between = 0;
+        for (Relation r : cpg.getRelations()) {
+            if (!r.source.packageName.equals(r.destination.packageName)) {
+                between++;
+            }
+        }
+        int counted = 0;
+        for (PackageRelation r : diagram.getRelations()) {
+            assertNotSame(r.source, r.target);
+            counted += r.count;
+        }
+        assertTrue("The graph should relate classes of different packages", between > 0);
+        assertEquals(between, counted);
+    }
+
+    @Test
+    public void testPackagesLaidOutApart() throws IOException {
+        CodePropertyGraph cpg = new GraphGenerator(8).classes(60).classesPerPackage(6).generateProcessed();
+        PackageDiagram diagram = PackageDiagram.build(cpg);
+        ArrayList<PackageNode> packages = diagram.getPackages();
+        for (int i = 0; i < packages.size(); i++) {
+            for (int j = i + 1; j < packages.size(); j++) {
+                PackageNode a = packages.get(i), b = packages.get(j);
+                boolean apart = a.getPosition().x + a.width <= b.getPosition().x
+                        || b.getPosition().x + b.width <= a.getPosition().x
+                        || a.getPosition().y + a.height <= b.getPosition().y
+                        || b.getPosition().y + b.height <= a.getPosition().y;
+                assertTrue(a.name + " overlaps " + b.name, apart);
+            }
+        }
+
+        int packagesBefore = packagesDrawn.get(), pathsBefore = pathsDrawn.get();
+        diagram.render();
+        assertEquals(packages.size(), packagesDrawn.get() - packagesBefore);
+        assertEquals(diagram.getRelations().size(), pathsDrawn.get() - pathsBefore);
+        for (PackageRelation r : diagram.getRelations()) {
+            assertTrue(r.getPath().size() >= 2);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.CodeSmell.control;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SourceWatcherTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testBurstIsDebounced() throws Exception {
+        File root = folder.newFolder("project");
+        Path existing = Files.writeString(root.toPath().resolve("A.java"), "class A {}");
+        LinkedBlockingQueue<Set<Path>> bursts = new LinkedBlockingQueue<>();
+        try (SourceWatcher watcher = new SourceWatcher(root.toPath(), 300, bursts::add)) {
+            watcher.start();
+            Files.writeString(existing, "class A { int x; }");
+            Path added = Files.writeString(root.toPath().resolve("B.java"), "class B {}");
+            Files.writeString(root.toPath().resolve("notes.txt"), "not a source file");
+            Path subDir = Files.createDirectory(root.toPath().resolve("sub"));
+            Path nested = Files.writeString(subDir.resolve("C.java"), "class C {}");
+
+            Set<Path> burst = bursts.poll(10, TimeUnit.SECONDS);
+            assertNotNull("Changes should be reported once the quiet period has passed", burst);
+            assertTrue(burst.contains(existing));
+            assertTrue(burst.contains(added));
+            assertTrue("Files within new directories should be reported", burst.contains(nested));
+            assertFalse("Only java source files should be reported",
+                    burst.contains(root.toPath().resolve("notes.txt")));
+            assertNull("A burst of changes should be reported only once", bursts.poll(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testOverflowReportsWholeTree() throws Exception {
+        File root = folder.newFolder("project");
+        Path a = Files.writeString(root.toPath().resolve("A.java"), "class A {}");
+        Path subDir = Files.createDirectory(root.toPath().resolve("sub"));
+        Path b = Files.writeString(subDir.resolve("B.java"), "class B {}");
+        WatchEvent<Object> overflow = new WatchEvent<>() {
+            public Kind<Object> kind() {
+                return StandardWatchEventKinds.OVERFLOW;
+            }
+
+            public int count() {
+                return 1;
+            }
+
+            public Object context() {
+                return null;
+            }
+        };
+        try (SourceWatcher watcher = new SourceWatcher(root.toPath(), 300, changed -> { })) {
+            Set<Path> changed = new LinkedHashSet<>();
+            watcher.addChanges(root.toPath(), List.of(overflow), changed);
+            assertEquals("Every file may have changed when events were lost",
+                    Set.of(root.toPath(), a, b), changed);
+        }
+    }
+
+    @Test
+    public void testDeletedDirectoryReported() throws Exception {
+        File root = folder.newFolder("project");
+        Path subDir = Files.createDirectory(root.toPath().resolve("sub"));
+        WatchEvent<Path> deleted = new WatchEvent<>() {
+            public Kind<Path> kind() {
+                return StandardWatchEventKinds.ENTRY_DELETE;
+            }
+
+            public int count() {
+                return 1;
+            }
+
+            public Path context() {
+                return subDir.getFileName();
+            }
+        };
+        Files.delete(subDir);
+        try (SourceWatcher watcher = new SourceWatcher(root.toPath(), 300, changed -> { })) {
+            Set<Path> changed = new LinkedHashSet<>();
+            watcher.addChanges(root.toPath(), List.of(deleted), changed);
+            assertEquals("The files of a deleted directory are not reported, so the directory should be",
+                    Set.of(subDir), changed);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.CodeSmell.log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.LocalTime;
+
+import static org.junit.Assert.*;
+
+public class LogTest {
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+    private Log.Level previousLevel;
+
+    @Before
+    public void before() {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        previousLevel = Log.getLevel();
+        Log.setOutput(new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    @After
+    public void after() {
+        Log.setLevel(previousLevel);
+        Log.setOutput(System.out, System.err);
+    }
+
+    @Test
+    public void testDebugHiddenByDefault() {
+        Log.setDebug(false);
+        Log.debug("verbose %s", "dump");
+        Log.info("summary %d", 3);
+        Log.flush();
+        String written = out.toString();
+        assertFalse("Debug messages should not be written unless the debug flag is set",
+                written.contains("verbose dump"));
+        assertTrue("Info messages should be written", written.contains("summary 3"));
+    }
+
+    @Test
+    public void testDebugFlag() {
+        Log.setDebug(true);
+        Log.debug("verbose %s", "dump");
+        Log.debug(() -> "supplied message");
+        Log.flush();
+        String written = out.toString();
+        assertTrue(written.contains("verbose dump"));
+        assertTrue(written.contains("supplied message"));
+    }
+
+    @Test
+    public void testErrorsGoToErrorStream() {
+        Log.warn("careful");
+        Log.error(new IllegalStateException("bad state"), "failed %s", "badly");
+        Log.flush();
+        String written = err.toString();
+        assertTrue(written.contains("careful"));
+        assertTrue(written.contains("failed badly"));
+        assertTrue("The stack trace of a logged throwable should be written", written.contains("bad state"));
+        assertEquals("", out.toString());
+    }
+
+    private static Log.Entry entry(Log.Level level, String message) {
+        return new Log.Entry(level, LocalTime.now(), "test", message, null, null);
+    }
+
+    @Test
+    public void testRingBufferOverwritesOldest() throws InterruptedException {
+        Log.RingBuffer buffer = new Log.RingBuffer(4);
+        for (int i = 0; i < 10; i++) {
+            buffer.put(entry(Log.Level.INFO, "message " + i));
+        }
+        assertEquals("The buffer should never grow past its capacity", 4, buffer.size());
+        assertEquals(6, buffer.takeDropped());
+        assertEquals("Dropped count should reset once reported", 0, buffer.takeDropped());
+        assertEquals(6, buffer.totalDropped());
+        assertEquals("message 6", buffer.take().format);
+        buffer.markWritten();
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    public void testRingBufferKeepsErrorsOverDebug() throws InterruptedException {
+        Log.RingBuffer buffer = new Log.RingBuffer(4);
+        buffer.put(entry(Log.Level.ERROR, "the failure"));
+        buffer.put(entry(Log.Level.WARN, "the warning"));
+        for (int i = 0; i < 100; i++) {
+            buffer.put(entry(Log.Level.DEBUG, "debug " + i));
+        }
+        assertEquals(98, buffer.takeDropped());
+        assertEquals("the failure", buffer.take().format);
+        assertEquals("the warning", buffer.take().format);
+        assertEquals("debug 98", buffer.take().format);
+        assertEquals("debug 99", buffer.take().format);
+
+        // once only errors are waiting, lower levels are dropped as they come
+        for (int i = 0; i < 4; i++) {
+            buffer.put(entry(Log.Level.ERROR, "error " + i));
+        }
+        buffer.put(entry(Log.Level.INFO, "info"));
+        buffer.put(entry(Log.Level.ERROR, "error 4"));
+        assertEquals(2, buffer.takeDropped());
+        assertEquals("error 1", buffer.take().format);
+    }
+}
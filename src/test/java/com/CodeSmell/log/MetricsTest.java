@@ -0,0 +1,81 @@
+package com.CodeSmell.log;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void before() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void testPhasesAndCountersSummarized() throws InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            try (Metrics.Phase phase = Metrics.phase("test.sleep")) {
+                Thread.sleep(20);
+            }
+        }
+        assertEquals("result", Metrics.time("test.supplier", () -> "result"));
+        Metrics.count(Metrics.CLASSES, 3);
+        Metrics.count(Metrics.CLASSES, 4);
+
+        assertTrue(Metrics.totalMillis("test.sleep") >= 40);
+        assertEquals(7, Metrics.counter(Metrics.CLASSES));
+        String summary = Metrics.summary();
+        assertTrue(summary, summary.matches("(?s).*test\\.sleep\\s+2\\s.*"));
+        assertTrue(summary, summary.matches("(?s).*classes\\s+7\\s.*"));
+
+        Metrics.reset();
+        assertEquals(0, Metrics.counter(Metrics.CLASSES));
+        assertFalse(Metrics.summary().contains("test.sleep"));
+    }
+
+    @Test
+    public void testTimingLinesRecorded() {
+        assertTrue(Metrics.recordTimingLine("10/19/2026 08:00:00 INFO [timing] import 1.250"));
+        assertFalse(Metrics.recordTimingLine("10/19/2026 08:00:00 INFO The source code has been imported."));
+        assertEquals(1250, Metrics.totalMillis("joern.import"));
+    }
+
+    @Test
+    public void testFlightRecorderEvents() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("metrics.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.CodeSmell.Phase");
+            recording.enable("com.CodeSmell.ExternalPhase");
+            recording.enable("com.CodeSmell.Counter");
+            recording.start();
+            try (Metrics.Phase phase = Metrics.phase("test.phase")) {
+                Metrics.count(Metrics.RELATIONS, 5);
+            }
+            Metrics.recordTimingLine("INFO [timing] classNames 0.5");
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<String> phases = events.stream()
+                .filter(e -> e.hasField("phase"))
+                .map(e -> e.getString("phase"))
+                .collect(Collectors.toList());
+        assertTrue(phases.toString(), phases.contains("test.phase"));
+        assertTrue(phases.toString(), phases.contains("joern.classNames"));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("com.CodeSmell.Counter")
+                && e.getString("counter").equals(Metrics.RELATIONS) && e.getLong("total") == 5));
+    }
+}
@@ -0,0 +1,338 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.parser.CPGClass.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Builds synthetic CodePropertyGraphs without joern, for scale tests and the benchmarks (src/jmh).
+ *
+ * <p>
+ * The classes are built the way joern_query.py emits them: own members only, with calls given as
+ * "package$Class$method" in CALL instructions and left to {@link Parser#updateCPGClassProperties} to resolve.
+ * The same seed and settings always give the same graph.
+ * </p>
+ *
+ * <pre>
+ * CodePropertyGraph cpg = new GraphGenerator(42).classes(1000).inheritanceDepth(4).generateProcessed();
+ * </pre>
+ */
+public class GraphGenerator {
+
+    /**
+     * The directory the generated file paths are located in
+     */
+    public static final String ROOT = "/generated";
+
+    private final long seed;
+    private int classCount = 100;
+    private int packageDepth = 2;
+    private int classesPerPackage = 20;
+    private int inheritanceDepth = 3;
+    private double interfaceRatio = 0.1;
+    private int attributesPerClass = 4;
+    private int methodsPerClass = 6;
+    private int instructionsPerMethod = 20;
+    private int callFanOut = 3;
+
+    /**
+     * Create a generator with the default settings: 100 classes in packages of 20 nested 2 deep, inheritance chains
+     * of at most 3 classes, 10% interfaces, 4 attributes, 6 methods of 20 instructions each making 3 calls.
+     *
+     * @param seed - The seed of all random choices
+     */
+    public GraphGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param classCount - The number of classes (including interfaces)
+     */
+    public GraphGenerator classes(int classCount) {
+        this.classCount = classCount;
+        return this;
+    }
+
+    /**
+     * @param packageDepth - The number of package levels below the root package com.gen
+     */
+    public GraphGenerator packageDepth(int packageDepth) {
+        this.packageDepth = packageDepth;
+        return this;
+    }
+
+    /**
+     * @param classesPerPackage - The average number of classes within each package
+     */
+    public GraphGenerator classesPerPackage(int classesPerPackage) {
+        this.classesPerPackage = classesPerPackage;
+        return this;
+    }
+
+    /**
+     * @param inheritanceDepth - The maximum number of classes in a chain of superclasses (1 means no class extends
+     *                         another)
+     */
+    public GraphGenerator inheritanceDepth(int inheritanceDepth) {
+        this.inheritanceDepth = inheritanceDepth;
+        return this;
+    }
+
+    /**
+     * @param interfaceRatio - The share of the classes that are interfaces
+     */
+    public GraphGenerator interfaces(double interfaceRatio) {
+        this.interfaceRatio = interfaceRatio;
+        return this;
+    }
+
+    /**
+     * @param attributesPerClass - The number of attributes of each class (interfaces have none)
+     */
+    public GraphGenerator attributes(int attributesPerClass) {
+        this.attributesPerClass = attributesPerClass;
+        return this;
+    }
+
+    /**
+     * @param methodsPerClass - The number of methods of each class
+     */
+    public GraphGenerator methods(int methodsPerClass) {
+        this.methodsPerClass = methodsPerClass;
+        return this;
+    }
+
+    /**
+     * @param instructionsPerMethod - The number of instructions of each method that is not abstract
+     */
+    public GraphGenerator instructions(int instructionsPerMethod) {
+        this.instructionsPerMethod = instructionsPerMethod;
+        return this;
+    }
+
+    /**
+     * @param callFanOut - The number of methods of other classes each method calls
+     */
+    public GraphGenerator callFanOut(int callFanOut) {
+        this.callFanOut = callFanOut;
+        return this;
+    }
+
+    /**
+     * @return A new graph as read from joern_query.py, without resolved properties, relations or packages
+     */
+    public CodePropertyGraph generate() {
+        CodePropertyGraph cpg = new CodePropertyGraph();
+        for (CPGClass c : generateClasses()) {
+            cpg.addClass(c);
+        }
+        return cpg;
+    }
+
+    /**
+     * @return A new graph with its properties, relations and packages resolved, as built by the Parser
+     */
+    public CodePropertyGraph generateProcessed() {
+        CodePropertyGraph cpg = generate();
+        process(cpg);
+        return cpg;
+    }
+
+    /**
+     * Resolve the properties, relations and packages of a generated graph, as the Parser does after reading it.
+     */
+    public static void process(CodePropertyGraph cpg) {
+        Parser.updateCPGClassProperties(cpg);
+        new RelationshipManager(cpg);
+        new PackageManager(cpg, fileHashes(cpg));
+    }
+
+    /**
+     * @return New unprocessed copies of the classes of the given file, as joern_query.py would emit them for an
+     * unchanged file (to splice into a graph generated with the same seed and settings)
+     */
+    public List<CPGClass> generateFile(String filePath) {
+        List<CPGClass> classes = new ArrayList<>();
+        for (CPGClass c : generateClasses()) {
+            if (c.filePath.equals(filePath)) {
+                classes.add(c);
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * @return A content hash for the file of every class, so that no file needs to be read
+     */
+    public static Map<String, String> fileHashes(CodePropertyGraph cpg) {
+        Map<String, String> hashes = new HashMap<>();
+        for (CPGClass c : cpg.getClasses()) {
+            hashes.put(ContentHash.normalizePath(c.filePath), ContentHash.ofString(c.filePath));
+        }
+        return hashes;
+    }
+
+    /**
+     * Encode i using capital letters only (0 is "A", 25 is "Z", 26 is "BA", ...).
+     */
+    public static String letters(int i) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('A' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return sb.reverse().toString();
+    }
+
+    private List<CPGClass> generateClasses() {
+        Random random = new Random(seed);
+        int packageCount = Math.max(1, classCount / Math.max(1, classesPerPackage));
+        String[] packageNames = new String[packageCount];
+        for (int p = 0; p < packageCount; p++) {
+            packageNames[p] = packageName(p, packageCount);
+        }
+
+        // decide the kind, package and superclass of every class first,
+        // so that calls can refer to classes declared later on
+        boolean[] isInterface = new boolean[classCount];
+        int[] packageOf = new int[classCount];
+        int[] depth = new int[classCount];
+        int[] superClass = new int[classCount];
+        List<Integer> interfaces = new ArrayList<>();
+        List<Integer> extendable = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            isInterface[i] = random.nextDouble() < interfaceRatio;
+            packageOf[i] = random.nextInt(packageCount);
+            superClass[i] = -1;
+            depth[i] = 1;
+            if (isInterface[i]) {
+                interfaces.add(i);
+                continue;
+            }
+            if (!extendable.isEmpty() && random.nextBoolean()) {
+                superClass[i] = extendable.get(random.nextInt(extendable.size()));
+                depth[i] = depth[superClass[i]] + 1;
+            }
+            if (depth[i] < inheritanceDepth) {
+                extendable.add(i);
+            }
+        }
+
+        List<CPGClass> classes = new ArrayList<>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            String name = className(i);
+            String packageName = packageNames[packageOf[i]];
+            StringBuilder code = new StringBuilder(isInterface[i] ? "public interface " : "public class ");
+            code.append(name);
+            // the full names of the supertypes, as joern gives them
+            List<String> supertypes = new ArrayList<>();
+            if (superClass[i] >= 0) {
+                code.append(" extends ").append(className(superClass[i]));
+                supertypes.add(className(superClass[i]));
+            }
+            if (!isInterface[i] && !interfaces.isEmpty() && random.nextInt(3) == 0) {
+                String iface = className(interfaces.get(random.nextInt(interfaces.size())));
+                code.append(" implements ").append(iface);
+                supertypes.add(iface);
+            }
+
+            ArrayList<Attribute> attributes = new ArrayList<>();
+            for (int a = 0; a < attributesPerClass && !isInterface[i]; a++) {
+                attributes.add(attribute(random, a, packageName));
+            }
+            ArrayList<Method> methods = new ArrayList<>();
+            int line = 2 + attributes.size();
+            for (int m = 0; m < methodsPerClass; m++) {
+                Method method = isInterface[i]
+                        ? abstractMethod(random, m, line)
+                        : method(random, m, line, isInterface, packageOf, packageNames);
+                methods.add(method);
+                line = method.lineNumberEnd + 2;
+            }
+            ArrayList<Modifier> modifiers = new ArrayList<>();
+            modifiers.add(Modifier.PUBLIC);
+            int fileLength = line + 1;
+            CPGClass cpgClass = new CPGClass(name, name, packageName, new String[0], code.toString(), 1, modifiers,
+                    isInterface[i] ? ClassType.INTERFACE : ClassType.CLASS,
+                    ROOT + "/" + packageName.replace('.', '/') + "/" + name + ".java",
+                    fileLength, methods.size(), fileLength - methods.size(), attributes, methods);
+            cpgClass.setInheritsFromTypeFullName(supertypes);
+            classes.add(cpgClass);
+        }
+        return classes;
+    }
+
+    private String packageName(int p, int packageCount) {
+        // spread the packages evenly over packageDepth levels
+        StringBuilder sb = new StringBuilder("com.gen");
+        int branching = Math.max(2, (int) Math.ceil(Math.pow(packageCount, 1.0 / Math.max(1, packageDepth))));
+        for (int level = 0, rest = p; level < packageDepth; level++, rest /= branching) {
+            sb.append(".p").append(letters(rest % branching).toLowerCase());
+        }
+        return sb.toString();
+    }
+
+    private static String className(int i) {
+        return "C" + letters(i);
+    }
+
+    private Attribute attribute(Random random, int a, String packageName) {
+        String type = className(random.nextInt(classCount));
+        if (random.nextInt(4) == 0) {
+            type = "List<" + type + ">";
+        }
+        ArrayList<Modifier> modifiers = new ArrayList<>();
+        modifiers.add(random.nextInt(3) == 0 ? Modifier.PUBLIC : Modifier.PRIVATE);
+        String name = "field" + letters(a);
+        return new Attribute(name, packageName, modifiers.get(0) + " " + type + " " + name, 2 + a, modifiers, type);
+    }
+
+    private Method abstractMethod(Random random, int m, int line) {
+        ArrayList<Modifier> modifiers = new ArrayList<>();
+        modifiers.add(Modifier.PUBLIC);
+        modifiers.add(Modifier.ABSTRACT);
+        String name = "method" + letters(m);
+        String type = className(random.nextInt(classCount));
+        ArrayList<Method.Parameter> parameters = new ArrayList<>();
+        parameters.add(new Method.Parameter(type + " arg", "arg", type));
+        ArrayList<Method.Instruction> instructions = new ArrayList<>();
+        instructions.add(new Method.Instruction("METHOD_RETURN", "void", line, ""));
+        return new Method(name, name + "(" + type + " arg)", modifiers, parameters, "void",
+                line, line, 0, instructions);
+    }
+
+    private Method method(Random random, int m, int start, boolean[] isInterface, int[] packageOf,
+                          String[] packageNames) {
+        ArrayList<Modifier> modifiers = new ArrayList<>();
+        modifiers.add(random.nextInt(4) == 0 ? Modifier.PRIVATE : Modifier.PUBLIC);
+        String name = "method" + letters(m);
+        String type = className(random.nextInt(classCount));
+        ArrayList<Method.Parameter> parameters = new ArrayList<>();
+        parameters.add(new Method.Parameter(type + " arg", "arg", type));
+
+        ArrayList<Method.Instruction> instructions = new ArrayList<>();
+        int line = start + 1;
+        for (int c = 0; c < callFanOut && instructions.size() + 3 < instructionsPerMethod; c++, line++) {
+            int callee = random.nextInt(classCount);
+            if (isInterface[callee]) {
+                continue;
+            }
+            String calleeMethod = "method" + letters(random.nextInt(Math.max(1, methodsPerClass)));
+            instructions.add(new Method.Instruction("CALL", "other." + calleeMethod + "(arg)", line,
+                    packageNames[packageOf[callee]] + "$" + className(callee) + "$" + calleeMethod));
+            instructions.add(new Method.Instruction("IDENTIFIER", className(callee), line, ""));
+            instructions.add(new Method.Instruction("FIELD_IDENTIFIER",
+                    "field" + letters(random.nextInt(Math.max(1, attributesPerClass))), line, ""));
+        }
+        while (instructions.size() + 1 < instructionsPerMethod) {
+            instructions.add(new Method.Instruction("LOCAL", "int local" + instructions.size(), line++, ""));
+        }
+        instructions.add(new Method.Instruction("METHOD_RETURN", "void", line, ""));
+        return new Method(name, name + "(" + type + " arg)", modifiers, parameters, "void",
+                start, line, line - start, instructions);
+    }
+}
@@ -0,0 +1,129 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CodePropertyGraph.Relation;
+import com.CodeSmell.smell.Common;
+import com.CodeSmell.smell.Smell;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class GraphGeneratorTest {
+
+    // the size of the graphs the scale tests run on, raise with -Dcodesmell.scale.classes=10000
+    private static final int SCALE_CLASSES = Integer.getInteger("codesmell.scale.classes", 150);
+
+    private static List<String> describe(CodePropertyGraph cpg) {
+        List<String> lines = new ArrayList<>();
+        for (CPGClass c : cpg.getClasses()) {
+            lines.add(c.packageName + " " + c.code + " " + c.getAttributes() + " " + c.getMethods());
+            for (Method m : c.getMethods()) {
+                lines.add(m.getInstructions().stream().map(i -> i.methodCall).collect(Collectors.joining(",")));
+            }
+        }
+        return lines;
+    }
+
+    private static Set<String> relations(CodePropertyGraph cpg) {
+        return cpg.getRelations().stream()
+                .map(r -> r.source.classFullName + " " + r.type + " " + r.multiplicity + " " + r.destination.classFullName)
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<String> resolvedMembers(CodePropertyGraph cpg) {
+        Set<String> members = new HashSet<>();
+        for (CPGClass c : cpg.getClasses()) {
+            for (CPGClass parent : c.getInheritsFrom()) {
+                members.add(c.name + " inherits " + parent.name);
+            }
+            for (Method m : c.getMethods()) {
+                String method = c.name + "." + m.getParent().name + "." + m.name;
+                m.getMethodCalls().forEach(call -> members.add(method + " calls " + call.getParent().name + "." + call.name));
+                m.getAttributeCalls().forEach(a -> members.add(method + " uses " + a.getParent().name + "." + a.name));
+            }
+        }
+        return members;
+    }
+
+    private static int superclassDepth(CPGClass c) {
+        for (CPGClass parent : c.getInheritsFrom()) {
+            if (parent.classType != CPGClass.ClassType.INTERFACE) {
+                return 1 + superclassDepth(parent);
+            }
+        }
+        return 1;
+    }
+
+    @Test
+    public void testDeterministic() {
+        GraphGenerator generator = new GraphGenerator(7).classes(200);
+        assertEquals("The same seed should give the same graph",
+                describe(generator.generate()), describe(new GraphGenerator(7).classes(200).generate()));
+        assertNotEquals("Another seed should give another graph",
+                describe(generator.generate()), describe(new GraphGenerator(8).classes(200).generate()));
+    }
+
+    @Test
+    public void testSettingsRespected() {
+        CodePropertyGraph cpg = new GraphGenerator(3).classes(200).packageDepth(3).inheritanceDepth(4)
+                .interfaces(0.2).attributes(5).methods(7).instructions(30).callFanOut(4).generateProcessed();
+        List<CPGClass> classes = cpg.getClasses();
+        assertEquals(200, classes.size());
+        long interfaces = classes.stream().filter(c -> c.classType == CPGClass.ClassType.INTERFACE).count();
+        assertTrue("About a fifth of the classes should be interfaces: " + interfaces,
+                interfaces > 20 && interfaces < 60);
+        int maxDepth = 0;
+        for (CPGClass c : classes) {
+            assertEquals("Packages should be nested 3 deep below com.gen", 5, c.packageName.split("\\.").length);
+            maxDepth = Math.max(maxDepth, superclassDepth(c));
+            if (c.classType != CPGClass.ClassType.INTERFACE) {
+                for (Method m : c.getMethods()) {
+                    if (m.getParent() == c) {
+                        assertEquals(30, m.getInstructions().size());
+                        assertTrue(m.getMethodCalls().size() <= 4);
+                    }
+                }
+            }
+        }
+        assertEquals("Inheritance chains should reach but not exceed the maximum depth", 4, maxDepth);
+        assertFalse(cpg.getRelations().isEmpty());
+        assertFalse(cpg.getPackages().isEmpty());
+    }
+
+    @Test
+    public void testLargeGraphSmells() {
+        CodePropertyGraph cpg = new GraphGenerator(11).classes(SCALE_CLASSES).generateProcessed();
+        Common.initStatTracker(cpg);
+        List<Smell> smells = Common.buildSmellStream(cpg).collect(Collectors.toList());
+        assertEquals(SCALE_CLASSES, Common.stats.classStats.size());
+        assertTrue(smells.stream().anyMatch(s -> !s.getDetections().isEmpty()));
+    }
+
+    @Test
+    public void testIncrementalMatchesFull() {
+        GraphGenerator generator = new GraphGenerator(5).classes(SCALE_CLASSES);
+        CodePropertyGraph full = generator.generateProcessed();
+        CodePropertyGraph incremental = generator.generateProcessed();
+
+        // re-read the files of a few classes that are extended or called by others
+        Set<String> changed = new TreeSet<>();
+        for (Relation r : incremental.getRelations()) {
+            if (changed.size() < 5 && r.source != r.destination) {
+                changed.add(r.destination.filePath);
+            }
+        }
+        List<CPGClass> newClasses = new ArrayList<>();
+        changed.forEach(file -> newClasses.addAll(generator.generateFile(file)));
+        Set<String> normalized = changed.stream().map(ContentHash::normalizePath).collect(Collectors.toSet());
+        SourceDiff diff = new SourceDiff(normalized, Set.of(), Set.of(), GraphGenerator.fileHashes(incremental));
+        Parser.spliceClasses(incremental, newClasses, diff);
+
+        assertEquals(full.getClasses().size(), incremental.getClasses().size());
+        assertEquals("Relations should be the same as after a full run", relations(full), relations(incremental));
+        assertEquals("Inheritance, method and attribute calls should be the same as after a full run",
+                resolvedMembers(full), resolvedMembers(incremental));
+    }
+}
@@ -0,0 +1,125 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.parser.CPGClass.*;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class HierarchyIndexTest {
+
+    private static CPGClass newClass(String name, ClassType classType, String code, List<String> supertypes,
+                                     String... members) {
+        ArrayList<Modifier> modifiers = new ArrayList<>();
+        modifiers.add(Modifier.PUBLIC);
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        ArrayList<Method> methods = new ArrayList<>();
+        for (String member : members) {
+            attributes.add(new Attribute(member + "Field", "com.h", "public int " + member + "Field", 2,
+                    modifiers, "int"));
+            methods.add(new Method(member, member + "()", modifiers, new ArrayList<>(), "void", 3, 3, 0,
+                    new ArrayList<>()));
+        }
+        CPGClass cpgClass = new CPGClass(name, "com.h." + name, "com.h", new String[0], code, 1, modifiers,
+                classType, "/h/" + name + ".java", 5, 1, 4, attributes, methods);
+        if (supertypes != null) {
+            cpgClass.setInheritsFromTypeFullName(supertypes);
+        }
+        return cpgClass;
+    }
+
+    // Shape -> Polygon -> Square, Square implements Named (which extends Labelled), Circle extends Shape
+    private static CodePropertyGraph shapes(boolean withFullNames) {
+        CodePropertyGraph cpg = new CodePropertyGraph();
+        cpg.addClass(newClass("Square", ClassType.CLASS, "public class Square extends Polygon implements Named",
+                withFullNames ? List.of("com.h.Polygon", "com.h.Named") : null, "side"));
+        cpg.addClass(newClass("Labelled", ClassType.INTERFACE, "public interface Labelled",
+                withFullNames ? List.of() : null, "label"));
+        cpg.addClass(newClass("Named", ClassType.INTERFACE, "public interface Named extends Labelled",
+                withFullNames ? List.of("com.h.Labelled") : null, "name"));
+        cpg.addClass(newClass("Shape", ClassType.ABSTRACT_CLASS, "public abstract class Shape",
+                withFullNames ? List.of("java.lang.Object") : null, "area"));
+        cpg.addClass(newClass("Polygon", ClassType.CLASS, "public class Polygon extends Shape",
+                withFullNames ? List.of("com.h.Shape") : null, "corners"));
+        cpg.addClass(newClass("Circle", ClassType.CLASS, "public class Circle extends Shape",
+                withFullNames ? List.of("com.h.Shape") : null, "radius"));
+        return cpg;
+    }
+
+    private static CPGClass find(CodePropertyGraph cpg, String name) {
+        return cpg.getClasses().stream().filter(c -> c.name.equals(name)).findFirst().orElseThrow();
+    }
+
+    private static Set<String> names(List<CPGClass> classes) {
+        return classes.stream().map(c -> c.name).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testTransitiveAncestorsAndDescendants() {
+        CodePropertyGraph cpg = shapes(true);
+        HierarchyIndex index = cpg.getHierarchy();
+        CPGClass square = find(cpg, "Square");
+        CPGClass shape = find(cpg, "Shape");
+        CPGClass labelled = find(cpg, "Labelled");
+
+        assertEquals(List.of(find(cpg, "Polygon"), find(cpg, "Named")), index.supertypes(square));
+        assertEquals(Set.of("Polygon", "Shape", "Named", "Labelled"), names(index.classes(index.ancestors(square))));
+        assertEquals(Set.of("Polygon", "Square", "Circle"), names(index.classes(index.descendants(shape))));
+        assertTrue(index.isSubtype(square, shape));
+        assertTrue(index.isSubtype(square, labelled));
+        assertFalse(index.isSubtype(shape, square));
+        assertFalse(index.isSubtype(square, square));
+        assertEquals(List.of(find(cpg, "Polygon"), shape), index.superclasses(square));
+        assertNull("Supertypes outside of the project are ignored", index.superclass(shape));
+        assertEquals(List.of(find(cpg, "Named")), index.subtypes(labelled));
+        assertEquals(List.of(square), index.realizations(labelled));
+    }
+
+    @Test
+    public void testDeclarationsResolveAsFullNames() {
+        CodePropertyGraph withFullNames = shapes(true);
+        CodePropertyGraph withoutFullNames = shapes(false);
+        for (CPGClass c : withFullNames.getClasses()) {
+            CPGClass other = find(withoutFullNames, c.name);
+            assertEquals(names(withFullNames.getHierarchy().supertypes(c)),
+                    names(withoutFullNames.getHierarchy().supertypes(other)));
+        }
+    }
+
+    @Test
+    public void testRebuiltWhenClassesChange() {
+        CodePropertyGraph cpg = shapes(true);
+        HierarchyIndex index = cpg.getHierarchy();
+        assertSame("The index is built once per graph", index, cpg.getHierarchy());
+        cpg.removeClass(find(cpg, "Circle"));
+        assertNotSame(index, cpg.getHierarchy());
+        assertEquals(Set.of("Polygon", "Square"),
+                names(cpg.getHierarchy().classes(cpg.getHierarchy().descendants(find(cpg, "Shape")))));
+    }
+
+    @Test
+    public void testCyclesTolerated() {
+        CodePropertyGraph cpg = new CodePropertyGraph();
+        cpg.addClass(newClass("A", ClassType.CLASS, "class A extends B", List.of("com.h.B")));
+        cpg.addClass(newClass("B", ClassType.CLASS, "class B extends A", List.of("com.h.A")));
+        HierarchyIndex index = cpg.getHierarchy();
+        CPGClass a = find(cpg, "A");
+        assertTrue(index.isSubtype(a, find(cpg, "B")));
+        assertFalse(index.isSubtype(a, a));
+        assertEquals(List.of(find(cpg, "B")), index.superclasses(a));
+    }
+
+    @Test
+    public void testMembersInheritedFromEverySuperclass() {
+        CodePropertyGraph cpg = shapes(true);
+        Parser.updateCPGClassProperties(cpg);
+        CPGClass square = find(cpg, "Square");
+        assertEquals(List.of("side", "corners", "area"),
+                square.getMethods().stream().map(m -> m.name).collect(Collectors.toList()));
+        assertEquals(List.of("sideField", "cornersField", "areaField"),
+                square.getAttributes().stream().map(a -> a.name).collect(Collectors.toList()));
+        assertSame(find(cpg, "Shape"), square.getMethods().get(2).getParent());
+    }
+}
@@ -0,0 +1,138 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CPGClass.Method.Instruction;
+import com.CodeSmell.smell.Common;
+import com.CodeSmell.smell.Smell;
+import com.CodeSmell.stat.Footprint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class InstructionStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> instructions(CodePropertyGraph cpg) {
+        List<String> lines = new ArrayList<>();
+        for (CPGClass c : cpg.getClasses()) {
+            for (Method m : c.getMethods()) {
+                for (Instruction i : m.getInstructions()) {
+                    lines.add(c.name + "." + m.name + " " + i.label + " " + i.code + " " + i.lineNumber + " "
+                            + i.methodCall);
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> detections(CodePropertyGraph cpg) {
+        Common.initStatTracker(cpg);
+        List<String> detections = new ArrayList<>();
+        for (Smell smell : Common.buildSmellStream(cpg).collect(Collectors.toList())) {
+            if (smell.getDetections() != null) {
+                smell.getDetections().forEach(d -> detections.add(smell.name + " " + d.description));
+            }
+        }
+        // detections are ordered by identity hashes
+        Collections.sort(detections);
+        return detections;
+    }
+
+    private InstructionStore newStore(int cachedMethods) throws IOException {
+        return new InstructionStore(folder.newFile(), cachedMethods, true);
+    }
+
+    private static void assertAnalysedTheSame(InstructionStore store) {
+        CodePropertyGraph expected = new GraphGenerator(4).classes(60).generateProcessed();
+        CodePropertyGraph spilled = new GraphGenerator(4).classes(60).generate();
+        // as read from joern_query, before properties and relations are resolved
+        store.spill(spilled);
+        GraphGenerator.process(spilled);
+
+        for (CPGClass c : spilled.getClasses()) {
+            c.getMethods().forEach(m -> assertTrue(InstructionStore.isSpilled(m.getInstructions())));
+        }
+        assertTrue(store.segmentBytes() > 0);
+        assertEquals(instructions(expected), instructions(spilled));
+        assertEquals("Relations should not depend on where instructions are kept",
+                expected.getRelations().size(), spilled.getRelations().size());
+        assertEquals(detections(expected), detections(spilled));
+    }
+
+    @Test
+    public void testSpilledGraphAnalysedTheSame() throws IOException {
+        try (InstructionStore store = newStore(16)) {
+            assertAnalysedTheSame(store);
+        }
+    }
+
+    @Test
+    public void testOffHeapGraphAnalysedTheSame() throws IOException {
+        try (InstructionStore store = InstructionStore.createOffHeap(16)) {
+            assertAnalysedTheSame(store);
+        }
+    }
+
+    @Test
+    public void testEvictedMethodsReloaded() throws IOException {
+        try (InstructionStore store = newStore(2)) {
+            List<List<Instruction>> spilled = new ArrayList<>();
+            for (int m = 0; m < 10; m++) {
+                List<Instruction> instructions = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    instructions.add(new Instruction("CALL", "m" + m + "(" + i + ")", i, (i % 2 == 0) ? null : "x"));
+                }
+                spilled.add(store.spill(instructions));
+            }
+            // read backwards, so that the read-ahead never covers the next read
+            for (int m = 9; m >= 0; m--) {
+                assertEquals(5, spilled.get(m).size());
+                assertEquals("m" + m + "(3)", spilled.get(m).get(3).code);
+                assertEquals("x", spilled.get(m).get(3).methodCall);
+                assertNull(spilled.get(m).get(2).methodCall);
+            }
+            assertTrue(store.hitRatio() < 1.0);
+            assertThrows(UnsupportedOperationException.class, () -> spilled.get(0).add(spilled.get(1).get(0)));
+        }
+    }
+
+    @Test
+    public void testSequentialScanReadsAhead() throws IOException {
+        try (InstructionStore store = newStore(1000)) {
+            CodePropertyGraph cpg = new GraphGenerator(6).classes(40).generate();
+            store.spill(cpg);
+            instructions(cpg);
+            assertTrue("A scan in ingest order should mostly be read ahead: " + store.hitRatio(),
+                    store.hitRatio() > 0.9);
+        }
+    }
+
+    @Test
+    public void testSnapshotHoldsInstructions() throws IOException, ClassNotFoundException {
+        CodePropertyGraph cpg = new GraphGenerator(9).classes(30).generateProcessed();
+        List<String> expected = instructions(cpg);
+        long heapInstructions = new Footprint(cpg, null).byComponent.get(Footprint.INSTRUCTIONS);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InstructionStore store = newStore(4)) {
+            store.spill(cpg);
+            assertTrue("Only the handles of spilled instructions should be retained",
+                    new Footprint(cpg, null).byComponent.get(Footprint.INSTRUCTIONS) < heapInstructions / 4);
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(cpg);
+            }
+        }
+        // the snapshot is readable after the store is closed
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            CodePropertyGraph read = (CodePropertyGraph) ois.readObject();
+            assertEquals(expected, instructions(read));
+            assertFalse(InstructionStore.isSpilled(read.getClasses().get(0).getMethods().get(0).getInstructions()));
+        }
+    }
+}
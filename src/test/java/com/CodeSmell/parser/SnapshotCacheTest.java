@@ -0,0 +1,128 @@
+package com.CodeSmell.parser;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class SnapshotCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File project;
+
+    private File writeSnapshot(String className) throws IOException {
+        CodePropertyGraph cpg = new CodePropertyGraph();
+        cpg.addClass(new CPGClass(className, "com.example." + className, "com.example", new String[0],
+                "public class " + className, 1, new ArrayList<>(), CPGClass.ClassType.CLASS,
+                new File(project, className + ".java").getPath(), 1, 0, 1, new ArrayList<>(), new ArrayList<>()));
+        File snapshot = folder.newFile();
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(snapshot))) {
+            oos.writeObject(cpg);
+        }
+        return snapshot;
+    }
+
+    @Before
+    public void before() throws IOException {
+        project = folder.newFolder("project");
+        Files.writeString(project.toPath().resolve("A.java"), "class A {}");
+    }
+
+    @Test
+    public void testKeyFollowsContent() throws IOException {
+        String key = SnapshotCache.key(project, SourceDiff.scan(project));
+        assertEquals("The key of an unchanged tree should not change",
+                key, SnapshotCache.key(project, SourceDiff.scan(project)));
+        Files.writeString(project.toPath().resolve("A.java"), "class A { int x; }");
+        assertNotEquals("Editing a file should change the key", key, SnapshotCache.key(project, SourceDiff.scan(project)));
+    }
+
+    @Test
+    public void testPutAndLoad() throws IOException {
+        SnapshotCache cache = new SnapshotCache(folder.newFolder("cache"), SnapshotCache.DEFAULT_MAX_BYTES);
+        String key = SnapshotCache.key(project, SourceDiff.scan(project));
+        assertNull(cache.load(key));
+        cache.put(key, project, writeSnapshot("A"));
+        assertTrue(cache.contains(key));
+        CodePropertyGraph cpg = cache.load(key);
+        assertNotNull(cpg);
+        assertEquals("A", cpg.getClasses().get(0).name);
+
+        Files.writeString(project.toPath().resolve("A.java"), "class A { int x; }");
+        String changedKey = SnapshotCache.key(project, SourceDiff.scan(project));
+        assertNull("A changed tree should not hit the cache", cache.load(changedKey));
+        assertNotNull("The latest snapshot of the directory should still be found", cache.loadLatest(project));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws IOException {
+        File snapshot = writeSnapshot("A");
+        // room for two snapshots only
+        SnapshotCache cache = new SnapshotCache(folder.newFolder("cache"), snapshot.length() * 2 + 1);
+        cache.put("first", project, snapshot);
+        cache.put("second", project, snapshot);
+        new File(cache.getDirectory(), "first.cpg").setLastModified(System.currentTimeMillis() - 20000);
+        new File(cache.getDirectory(), "second.cpg").setLastModified(System.currentTimeMillis() - 10000);
+        // reading the first snapshot makes the second one the least recently used
+        assertNotNull(cache.load("first"));
+        cache.put("third", project, snapshot);
+        assertTrue(cache.contains("first"));
+        assertFalse("The least recently used snapshot should be evicted", cache.contains("second"));
+        assertTrue(cache.contains("third"));
+        assertTrue(cache.totalBytes() <= snapshot.length() * 2 + 1);
+    }
+
+    @Test
+    public void testLargeGraphRoundTrip() throws IOException, ClassNotFoundException {
+        // (at the default stack size, serialization must not recurse through the references of the graph)
+        CodePropertyGraph cpg = new GraphGenerator(1).classes(300).generateProcessed();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(cpg);
+        }
+        CodePropertyGraph read;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (CodePropertyGraph) ois.readObject();
+        }
+        assertEquals(cpg.getClasses().size(), read.getClasses().size());
+        assertEquals(cpg.getRelations().size(), read.getRelations().size());
+        assertEquals(cpg.getSourceHashes(), read.getSourceHashes());
+        int calls = 0;
+        for (int i = 0; i < cpg.getClasses().size(); i++) {
+            CPGClass before = cpg.getClasses().get(i), after = read.getClasses().get(i);
+            assertEquals(before.classFullName, after.classFullName);
+            assertEquals(before.getInheritsFrom().size(), after.getInheritsFrom().size());
+            assertEquals(before.getOutwardRelations().size(), after.getOutwardRelations().size());
+            for (int j = 0; j < before.getMethods().size(); j++) {
+                CPGClass.Method method = after.getMethods().get(j);
+                assertEquals(before.getMethods().get(j).getParent().classFullName, method.getParent().classFullName);
+                assertEquals(before.getMethods().get(j).getMethodCalls().size(), method.getMethodCalls().size());
+                for (CPGClass.Method call : method.getMethodCalls()) {
+                    assertTrue("Calls should refer to the methods of the classes read",
+                            call.getParent().getMethods().contains(call));
+                    calls++;
+                }
+            }
+            for (CPGClass.Attribute attribute : after.getAttributes()) {
+                assertNotNull(attribute.getParent());
+            }
+        }
+        assertTrue(calls > 0);
+        for (CodePropertyGraph.Relation r : read.getRelations()) {
+            assertTrue(read.getClasses().contains(r.source) && read.getClasses().contains(r.destination));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.CodeSmell.parser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+
+/**
+ * Writes small serialized CodePropertyGraphs for tests outside of the parser package.
+ */
+public class SnapshotFixture {
+
+    /**
+     * Write a snapshot of a graph containing an empty class for each of the given names.
+     *
+     * @param snapshot   - The file to write
+     * @param classNames - The simple names of the classes, all in package com.example
+     */
+    public static void writeSnapshot(File snapshot, String... classNames) throws IOException {
+        CodePropertyGraph cpg = new CodePropertyGraph();
+        for (String name : classNames) {
+            cpg.addClass(new CPGClass(name, "com.example." + name, "com.example", new String[0],
+                    "public class " + name, 1, new ArrayList<>(), CPGClass.ClassType.CLASS,
+                    name + ".java", 1, 0, 1, new ArrayList<>(), new ArrayList<>()));
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(snapshot))) {
+            oos.writeObject(cpg);
+        }
+    }
+}
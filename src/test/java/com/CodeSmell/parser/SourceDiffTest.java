@@ -0,0 +1,124 @@
+package com.CodeSmell.parser;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SourceDiffTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private CodePropertyGraph cpg;
+
+    private static CPGClass makeClass(String name, File file) {
+        return new CPGClass(name, "com.example." + name, "com.example", new String[0],
+                "public class " + name, 1, new ArrayList<>(), CPGClass.ClassType.CLASS,
+                file.getPath(), 1, 0, 1, new ArrayList<>(), new ArrayList<>());
+    }
+
+    private File writeSource(String name, String contents) throws IOException {
+        File file = new File(root, name + ".java");
+        Files.writeString(file.toPath(), contents);
+        return file;
+    }
+
+    @Before
+    public void before() throws IOException {
+        root = folder.newFolder("project");
+        cpg = new CodePropertyGraph();
+        cpg.addClass(makeClass("Unchanged", writeSource("Unchanged", "class Unchanged {}")));
+        cpg.addClass(makeClass("Changed", writeSource("Changed", "class Changed {}")));
+        cpg.addClass(makeClass("Removed", writeSource("Removed", "class Removed {}")));
+        new PackageManager(cpg);
+    }
+
+    @Test
+    public void testFileHashesRecorded() {
+        for (Package pkg : cpg.getPackages()) {
+            for (Package.File file : pkg.files) {
+                assertEquals("The hash of a file should be recorded when packages are determined",
+                        ContentHash.ofFile(file.filePath), file.contentHash);
+                assertEquals(64, file.contentHash.length());
+            }
+        }
+    }
+
+    @Test
+    public void testNoChanges() throws IOException {
+        SourceDiff diff = SourceDiff.compute(cpg, root);
+        assertNotNull(diff);
+        assertTrue("Nothing should have changed: " + diff, diff.isEmpty());
+    }
+
+    @Test
+    public void testChangedAddedRemoved() throws IOException {
+        String changed = writeSource("Changed", "class Changed { int x; }").getPath();
+        String added = writeSource("Added", "class Added {}").getPath();
+        File removed = new File(root, "Removed.java");
+        assertTrue(removed.delete());
+
+        SourceDiff diff = SourceDiff.compute(cpg, root);
+        assertNotNull(diff);
+        assertEquals(Set.of(ContentHash.normalizePath(changed)), diff.changedFiles);
+        assertEquals(Set.of(ContentHash.normalizePath(added)), diff.addedFiles);
+        assertEquals(Set.of(ContentHash.normalizePath(removed.getPath())), diff.removedFiles);
+        assertEquals("Changed and added files should be queried again",
+                Set.of(ContentHash.normalizePath(changed), ContentHash.normalizePath(added)), diff.filesToQuery());
+        assertEquals("Changed and removed files should have their classes replaced",
+                Set.of(ContentHash.normalizePath(changed), ContentHash.normalizePath(removed.getPath())),
+                diff.staleFiles());
+    }
+
+    @Test
+    public void testFilesWithoutClassesRecorded() throws IOException {
+        writeSource("package-info", "package com.example;");
+        cpg.setSourceHashes(SourceDiff.scan(root));
+        SourceDiff diff = SourceDiff.compute(cpg, root);
+        assertNotNull(diff);
+        assertTrue("A scanned file yielding no class should not be added again: " + diff, diff.isEmpty());
+
+        File packageInfo = writeSource("package-info", "/** docs */ package com.example;");
+        diff = SourceDiff.compute(cpg, root);
+        assertEquals(Set.of(ContentHash.normalizePath(packageInfo.getPath())), diff.changedFiles);
+        assertTrue(diff.addedFiles.isEmpty());
+    }
+
+    @Test
+    public void testRescanMatchesScan() throws IOException {
+        File sub = new File(root, "sub");
+        assertTrue(sub.mkdir());
+        File nested = new File(sub, "Nested.java");
+        Files.writeString(nested.toPath(), "class Nested {}");
+        Map<String, String> hashes = SourceDiff.scan(root);
+
+        File changed = writeSource("Changed", "class Changed { int x; }");
+        File added = writeSource("Added", "class Added {}");
+        File removed = new File(root, "Removed.java");
+        assertTrue(removed.delete());
+        assertTrue(nested.delete() && sub.delete());
+        Map<String, String> rescanned = SourceDiff.rescan(hashes,
+                Set.of(changed.toPath(), added.toPath(), removed.toPath(), sub.toPath()));
+        assertEquals("Only the changed paths should need to be read again", SourceDiff.scan(root), rescanned);
+
+        writeSource("Unchanged", "class Unchanged { int y; }");
+        assertEquals("Everything within a directory reported changed should be read again",
+                SourceDiff.scan(root), SourceDiff.rescan(rescanned, Set.of(root.toPath())));
+    }
+
+    @Test
+    public void testOtherDirectory() throws IOException {
+        File other = folder.newFolder("other");
+        assertNull("A cpg built from another directory cannot be compared", SourceDiff.compute(cpg, other));
+    }
+}
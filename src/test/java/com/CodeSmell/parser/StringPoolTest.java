@@ -0,0 +1,93 @@
+package com.CodeSmell.parser;
+
+import com.CodeSmell.parser.CPGClass.Attribute;
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CPGClass.Method.Instruction;
+import com.CodeSmell.stat.Footprint;
+import com.google.gson.Gson;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StringPoolTest {
+
+    // the classes of a generated graph as read by the Parser, with the pool of an ingest
+    private static List<CPGClass> readClasses(boolean pooled) {
+        Gson gson = new Gson();
+        List<String> json = new ArrayList<>();
+        for (CPGClass c : new GraphGenerator(3).classes(40).generate().getClasses()) {
+            json.add(gson.toJson(c));
+        }
+        StringPool pool = pooled ? StringPool.begin() : null;
+        List<CPGClass> classes = new ArrayList<>();
+        try {
+            json.forEach(j -> classes.add(gson.fromJson(j, CPGClass.class)));
+        } finally {
+            if (pool != null) {
+                pool.end();
+                assertTrue(pool.duplicates() > 0);
+                assertTrue(pool.savedBytes() > 0);
+            }
+        }
+        return classes;
+    }
+
+    private static Instruction firstInstruction(CPGClass c) {
+        for (Method m : c.getMethods()) {
+            if (!m.getInstructions().isEmpty()) {
+                return m.getInstructions().get(0);
+            }
+        }
+        throw new AssertionError("No instructions in " + c.name);
+    }
+
+    @Test
+    public void testIngestStringsShared() {
+        List<CPGClass> classes = readClasses(true);
+        CPGClass first = classes.get(0);
+        assertSame(firstInstruction(first).label, firstInstruction(classes.get(1)).label);
+        int sharedPackages = 0;
+        for (CPGClass c : classes.subList(1, classes.size())) {
+            if (c.packageName.equals(first.packageName)) {
+                assertSame(first.packageName, c.packageName);
+                sharedPackages++;
+            }
+            for (Attribute a : c.getAttributes()) {
+                for (Attribute b : first.getAttributes()) {
+                    if (a.attributeType.equals(b.attributeType)) {
+                        assertSame(b.attributeType, a.attributeType);
+                    }
+                }
+            }
+        }
+        assertTrue(sharedPackages > 0);
+
+        // outside of an ingest strings are read as they are
+        List<CPGClass> unpooled = readClasses(false);
+        assertNotSame(firstInstruction(unpooled.get(0)).label, firstInstruction(unpooled.get(1)).label);
+    }
+
+    @Test
+    public void testSharingKeptInSnapshot() throws IOException, ClassNotFoundException {
+        CodePropertyGraph cpg = new CodePropertyGraph();
+        readClasses(true).forEach(cpg::addClass);
+        long shared = new Footprint(cpg, null).sharedStringBytes();
+        CodePropertyGraph unpooled = new CodePropertyGraph();
+        readClasses(false).forEach(unpooled::addClass);
+        assertTrue("Pooled strings should be reported as saved",
+                shared > new Footprint(unpooled, null).sharedStringBytes());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(cpg);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            CodePropertyGraph read = (CodePropertyGraph) ois.readObject();
+            assertEquals(shared, new Footprint(read, null).sharedStringBytes());
+        }
+    }
+}
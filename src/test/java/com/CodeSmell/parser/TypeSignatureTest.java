@@ -0,0 +1,63 @@
+package com.CodeSmell.parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TypeSignatureTest {
+
+    private static CPGClass newClass(String name) {
+        return new CPGClass(name, "com.example." + name, "com.example", new String[0], "public class " + name, 1,
+                new ArrayList<>(), CPGClass.ClassType.CLASS, "/example/" + name + ".java", 1, 0, 1,
+                new ArrayList<>(), new ArrayList<>());
+    }
+
+    @Test
+    public void testNestedGenericsWildcardsAndArrays() {
+        TypeSignature type = TypeSignature.parse("java.util.Map<String, List<? extends Order & Comparable<Order>>>[][]");
+        assertEquals("java.util.Map", type.name);
+        assertEquals(2, type.dimensions);
+        assertEquals(2, type.arguments.size());
+        TypeSignature wildcard = type.arguments.get(1).arguments.get(0);
+        assertEquals(TypeSignature.WILDCARD, wildcard.name);
+        assertEquals(List.of("Order", "Comparable"),
+                List.of(wildcard.arguments.get(0).name, wildcard.arguments.get(1).name));
+        assertEquals("java.util.Map<String, List<? extends Order & Comparable<Order>>>[][]", type.toString());
+
+        assertEquals("? super Customer", TypeSignature.parse("? super Customer").toString());
+        assertEquals(1, TypeSignature.parse("Order...").dimensions);
+        assertEquals(List.of("Outer.Inner", "Order"), TypeSignature.typeNames("Outer<Order>.Inner"));
+        assertEquals(List.of("Map", "Customer", "Order", "List"),
+                TypeSignature.typeNames("Map<Customer, Map<Order, List<Order>>>"));
+        assertEquals(List.of("HashMap"), TypeSignature.typeNames("HashMap<>"));
+    }
+
+    @Test
+    public void testMalformedSignaturesGiveTheirNames() {
+        assertThrows(IllegalArgumentException.class, () -> TypeSignature.parse("List<Order"));
+        assertEquals(List.of("List", "Order"), TypeSignature.typeNames("List<Order"));
+        assertEquals(List.of("unresolvedNamespace", "Order"),
+                TypeSignature.typeNames("<unresolvedNamespace>.Order"));
+        assertEquals(List.of(), TypeSignature.typeNames(""));
+    }
+
+    @Test
+    public void testSignaturesResolvedOnce() {
+        CodePropertyGraph cpg = new CodePropertyGraph();
+        CPGClass customer = newClass("Customer");
+        CPGClass order = newClass("Order");
+        cpg.addClass(customer);
+        cpg.addClass(order);
+        SymbolTable symbols = new SymbolTable(cpg);
+
+        // the type before a comma is resolved too
+        assertEquals(List.of(customer, order), symbols.resolve("Map<Customer, List<Order>>"));
+        assertEquals(List.of(order), symbols.resolve("com.example.Order[]"));
+        assertEquals(List.of(), symbols.resolve("int"));
+        assertSame(symbols.resolve("Map<Customer, List<Order>>"), symbols.resolve("Map<Customer, List<Order>>"));
+        assertSame(order, symbols.lookup("com.example.Order"));
+    }
+}
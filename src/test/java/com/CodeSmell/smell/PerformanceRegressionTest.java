@@ -0,0 +1,248 @@
+package com.CodeSmell.smell;
+
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.GraphGenerator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Guards the post-processing, stats and every smell detector against performance regressions.
+ *
+ * <p>
+ * Each phase runs on generated graphs of fixed sizes and its allocated bytes are compared with the budgets in
+ * src/test/resources/perf-baseline.properties. A phase fails when it exceeds its budget by more than the tolerance
+ * (<code>-Dcodesmell.perf.tolerance</code>, 0.25 by default). Wall time depends on the machine and its load, so it
+ * is only compared with its budget when asked for with <code>-Dcodesmell.perf.time=true</code> (within
+ * <code>-Dcodesmell.perf.timeTolerance</code>, 1.0 by default), on the machine the baseline was recorded on. After
+ * an intended change the baseline is re-recorded with <code>-Dcodesmell.perf.record=true</code>.
+ * </p>
+ *
+ * <p>
+ * Budgets recorded at each size would accept a phase which became quadratic, so the allocations of each phase must
+ * also grow with the number of classes as expected, whether recording or not: by at most MAX_LINEAR_GROWTH times
+ * when the number of classes doubles, or MAX_QUADRATIC_GROWTH times for the phases known to be quadratic.
+ * </p>
+ */
+public class PerformanceRegressionTest {
+
+    private static final Path BASELINE = Path.of("src", "test", "resources", "perf-baseline.properties");
+    private static final int[] SIZES = {50, 100};
+    private static final int WARMUP_RUNS = 2;
+    private static final int RUNS = 3;
+
+    // absolute slack so that phases of a few milliseconds or kilobytes do not fail on noise
+    private static final long MIN_SLACK_MILLIS = 25;
+    private static final long MIN_SLACK_BYTES = 1024 * 1024;
+
+    private static final boolean RECORD = Boolean.getBoolean("codesmell.perf.record");
+    private static final boolean CHECK_TIME = Boolean.getBoolean("codesmell.perf.time");
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("codesmell.perf.tolerance", "0.25"));
+    private static final double TIME_TOLERANCE =
+            Double.parseDouble(System.getProperty("codesmell.perf.timeTolerance", "1.0"));
+
+    // (each size is twice the one before it)
+    private static final double MAX_LINEAR_GROWTH = 2.5;
+    private static final double MAX_QUADRATIC_GROWTH = 5.0;
+
+    // the phases known to compare every class (or method) with every other, allowed to grow quadratically
+    private static final Set<String> QUADRATIC = Set.of(
+            "ingest",                      // resolves calls and types by searching all classes
+            "stats",                       // counts the calls between every pair of classes
+            "smell.GodClass",              // ranks classes against the attributes and methods of all classes
+            "smell.InappropriateIntimacy", // compares every pair of classes
+            "smell.LazyClass",             // compares the instructions of every pair of methods
+            "smell.MisplacedClass");       // compares every pair of classes
+
+    private static final Map<String, Function<CodePropertyGraph, Smell>> DETECTORS = new LinkedHashMap<>();
+
+    static {
+        DETECTORS.put("FeatureEnvy", FeatureEnvy::new);
+        DETECTORS.put("GodClass", GodClass::new);
+        DETECTORS.put("InappropriateIntimacy", InappropriateIntimacy::new);
+        DETECTORS.put("ISPViolation", ISPViolation::new);
+        DETECTORS.put("LazyClass", LazyClass::new);
+        DETECTORS.put("MisplacedClass", MisplacedClass::new);
+        DETECTORS.put("OrphanVariable", OrphanVariable::new);
+        DETECTORS.put("RefusedBequest", RefusedBequest::new);
+        DETECTORS.put("ShotgunSurgery", ShotgunSurgery::new);
+    }
+
+    private static Properties baseline;
+    private static Properties recorded;
+
+    /**
+     * The smallest wall time and allocation of the measured runs of a phase.
+     */
+    private static class Cost {
+        long millis = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+    }
+
+    @BeforeClass
+    public static void readBaseline() throws IOException {
+        baseline = new Properties();
+        if (Files.isRegularFile(BASELINE)) {
+            try (Reader reader = Files.newBufferedReader(BASELINE, StandardCharsets.UTF_8)) {
+                baseline.load(reader);
+            }
+        }
+        recorded = new Properties();
+    }
+
+    @AfterClass
+    public static void writeBaseline() throws IOException {
+        if (!RECORD) {
+            return;
+        }
+        Files.createDirectories(BASELINE.getParent());
+        // sorted and without a timestamp, so that re-recording gives a readable diff
+        try (Writer writer = Files.newBufferedWriter(BASELINE, StandardCharsets.UTF_8)) {
+            writer.write("# performance budgets, re-record with mvn test -Dtest=PerformanceRegressionTest "
+                    + "-Dcodesmell.perf.record=true" + System.lineSeparator());
+            for (String key : new TreeSet<>(recorded.stringPropertyNames())) {
+                writer.write(key + "=" + recorded.getProperty(key) + System.lineSeparator());
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Run a phase WARMUP_RUNS times to warm up, then RUNS times, keeping the cheapest run.
+     *
+     * @param setUp - Builds the input of a run, not measured
+     * @param phase - The measured phase
+     */
+    private static <T> Cost measure(Supplier<T> setUp, Consumer<T> phase) {
+        Cost cost = new Cost();
+        for (int run = 0; run < WARMUP_RUNS + RUNS; run++) {
+            T input = setUp.get();
+            // keep the garbage of earlier runs from being collected within the measured one
+            System.gc();
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            phase.accept(input);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            bytes = allocatedBytes() - bytes;
+            if (run >= WARMUP_RUNS) {
+                cost.millis = Math.min(cost.millis, millis);
+                cost.bytes = Math.min(cost.bytes, bytes);
+            }
+        }
+        return cost;
+    }
+
+    private static void check(String phase, int size, Cost cost, List<String> failures) {
+        String key = phase + "." + size;
+        if (RECORD) {
+            recorded.setProperty(key + ".millis", Long.toString(cost.millis));
+            recorded.setProperty(key + ".bytes", Long.toString(cost.bytes));
+            return;
+        }
+        String millisBudget = baseline.getProperty(key + ".millis");
+        String bytesBudget = baseline.getProperty(key + ".bytes");
+        if (millisBudget == null || bytesBudget == null) {
+            failures.add(key + ": no budget recorded, run with -Dcodesmell.perf.record=true");
+            return;
+        }
+        long maxMillis = limit(Long.parseLong(millisBudget), TIME_TOLERANCE, MIN_SLACK_MILLIS);
+        long maxBytes = limit(Long.parseLong(bytesBudget), TOLERANCE, MIN_SLACK_BYTES);
+        if (CHECK_TIME && cost.millis > maxMillis) {
+            failures.add(String.format("%s: %d ms exceeds the budget of %s ms (limit %d ms)",
+                    key, cost.millis, millisBudget, maxMillis));
+        }
+        if (cost.bytes > maxBytes) {
+            failures.add(String.format("%s: %d bytes allocated exceeds the budget of %s bytes (limit %d bytes)",
+                    key, cost.bytes, bytesBudget, maxBytes));
+        }
+    }
+
+    private static void checkGrowth(String phase, Map<Integer, Cost> costs, List<String> failures) {
+        double maxGrowth = QUADRATIC.contains(phase) ? MAX_QUADRATIC_GROWTH : MAX_LINEAR_GROWTH;
+        for (int i = 1; i < SIZES.length; i++) {
+            long smaller = costs.get(SIZES[i - 1]).bytes;
+            long larger = costs.get(SIZES[i]).bytes;
+            if (larger > (long) (smaller * maxGrowth) + MIN_SLACK_BYTES) {
+                failures.add(String.format("%s: %d bytes allocated for %d classes is more than %.1f times the %d "
+                                + "bytes for %d classes%s", phase, larger, SIZES[i], maxGrowth, smaller, SIZES[i - 1],
+                        QUADRATIC.contains(phase) ? "" : " (if it must be quadratic, add it to QUADRATIC)"));
+            }
+        }
+    }
+
+    private static long limit(long budget, double tolerance, long minSlack) {
+        return budget + Math.max(minSlack, (long) (budget * tolerance));
+    }
+
+    private static CodePropertyGraph processed(int size) {
+        return new GraphGenerator(1).classes(size).generateProcessed();
+    }
+
+    private static void assertWithinBudgets(List<String> failures) {
+        assertTrue(String.join(System.lineSeparator(), failures), failures.isEmpty());
+    }
+
+    @Test
+    public void testIngestWithinBudget() {
+        List<String> failures = new ArrayList<>();
+        Map<Integer, Cost> costs = new HashMap<>();
+        for (int size : SIZES) {
+            Cost cost = measure(() -> new GraphGenerator(1).classes(size).generate(), GraphGenerator::process);
+            check("ingest", size, cost, failures);
+            costs.put(size, cost);
+        }
+        checkGrowth("ingest", costs, failures);
+        assertWithinBudgets(failures);
+    }
+
+    @Test
+    public void testStatsWithinBudget() {
+        List<String> failures = new ArrayList<>();
+        Map<Integer, Cost> costs = new HashMap<>();
+        for (int size : SIZES) {
+            CodePropertyGraph cpg = processed(size);
+            Cost cost = measure(() -> cpg, Common::initStatTracker);
+            check("stats", size, cost, failures);
+            costs.put(size, cost);
+        }
+        checkGrowth("stats", costs, failures);
+        assertWithinBudgets(failures);
+    }
+
+    @Test
+    public void testSmellsWithinBudget() {
+        List<String> failures = new ArrayList<>();
+        Map<String, Map<Integer, Cost>> costs = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            CodePropertyGraph cpg = processed(size);
+            Common.initStatTracker(cpg);
+            for (Map.Entry<String, Function<CodePropertyGraph, Smell>> detector : DETECTORS.entrySet()) {
+                // (some smells detect when constructed, others only as detectNext() is called)
+                Cost cost = measure(() -> cpg, g -> detector.getValue().apply(g).drainDetections());
+                String phase = "smell." + detector.getKey();
+                check(phase, size, cost, failures);
+                costs.computeIfAbsent(phase, p -> new HashMap<>()).put(size, cost);
+            }
+        }
+        costs.forEach((phase, phaseCosts) -> checkGrowth(phase, phaseCosts, failures));
+        assertWithinBudgets(failures);
+    }
+}
@@ -0,0 +1,75 @@
+package com.CodeSmell.smell;
+
+import com.CodeSmell.smell.Smell.CodeFragment;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SmellDetectionsTest {
+
+    // detects when constructed, detectNext() takes the detections out (as most smells do)
+    private static class EagerSmell extends Smell {
+        EagerSmell() {
+            super("Eager", null);
+            detections.add(CodeFragment.makeFragment("first"));
+            detections.add(CodeFragment.makeFragment("second"));
+        }
+
+        public CodeFragment detectNext() {
+            return detections.poll();
+        }
+
+        public String description() {
+            return "eager";
+        }
+
+        public LinkedList<CodeFragment> getDetections() {
+            return detections;
+        }
+    }
+
+    // only detects in detectNext(), as ISPViolation does
+    private static class LazySmell extends Smell {
+        private final Iterator<String> pending = List.of("first", "second").iterator();
+
+        LazySmell() {
+            super("Lazy", null);
+        }
+
+        public CodeFragment detectNext() {
+            return pending.hasNext() ? CodeFragment.makeFragment(pending.next()) : null;
+        }
+
+        public String description() {
+            return "lazy";
+        }
+
+        public LinkedList<CodeFragment> getDetections() {
+            return detections;
+        }
+    }
+
+    private static void assertDrained(Smell smell) {
+        for (int i = 0; i < 2; i++) {
+            LinkedList<CodeFragment> drained = smell.drainDetections();
+            assertEquals(2, drained.size());
+            assertEquals("first", drained.get(0).description);
+            assertEquals("Every detection should be in getDetections() once drained",
+                    drained, smell.getDetections());
+        }
+    }
+
+    @Test
+    public void testEagerSmellDrained() {
+        assertDrained(new EagerSmell());
+    }
+
+    @Test
+    public void testLazySmellDrained() {
+        assertDrained(new LazySmell());
+    }
+}
@@ -0,0 +1,49 @@
+package com.CodeSmell.stat;
+
+import com.CodeSmell.parser.CodePropertyGraph;
+import com.CodeSmell.parser.GraphGenerator;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FootprintTest {
+
+    private static long sum(Iterable<Long> values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Test
+    public void testComponentsAndPackagesAddUp() {
+        CodePropertyGraph cpg = new GraphGenerator(2).classes(60).generateProcessed();
+        StatTracker stats = new StatTracker(cpg);
+        Footprint footprint = new Footprint(cpg, stats);
+
+        assertEquals(footprint.total(), sum(footprint.byComponent.values()));
+        assertEquals(footprint.total(), sum(footprint.byPackage.values()));
+        for (String component : new String[]{Footprint.CLASS_HEADERS, Footprint.ATTRIBUTES, Footprint.METHOD_HEADERS,
+                Footprint.INSTRUCTIONS, Footprint.TYPE_LISTS, Footprint.RELATIONS, Footprint.PACKAGES,
+                Footprint.STAT_MAPS}) {
+            assertTrue(component + " should be measured", footprint.byComponent.get(component) > 0);
+        }
+        cpg.getClasses().forEach(c -> assertTrue(footprint.byPackage.containsKey(c.packageName)));
+        assertTrue(footprint.toString().contains(Footprint.INSTRUCTIONS));
+
+        Footprint graphOnly = new Footprint(cpg, null);
+        assertEquals(0L, (long) graphOnly.byComponent.get(Footprint.STAT_MAPS));
+        assertEquals("The graph should be measured the same with or without its stats",
+                footprint.total() - footprint.byComponent.get(Footprint.STAT_MAPS), graphOnly.total());
+    }
+
+    @Test
+    public void testInstructionsFollowGraph() {
+        Footprint small = new Footprint(new GraphGenerator(2).classes(60).instructions(10).generateProcessed(), null);
+        Footprint large = new Footprint(new GraphGenerator(2).classes(60).instructions(40).generateProcessed(), null);
+        assertTrue(large.byComponent.get(Footprint.INSTRUCTIONS) > 3 * small.byComponent.get(Footprint.INSTRUCTIONS));
+        assertEquals("Other components should not depend on the number of instructions",
+                small.byComponent.get(Footprint.ATTRIBUTES), large.byComponent.get(Footprint.ATTRIBUTES));
+    }
+}
@@ -0,0 +1,69 @@
+package com.CodeSmell.view;
+
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.UMLClass;
+import com.CodeSmell.parser.CPGClass.Attribute;
+import com.CodeSmell.parser.CPGClass.Method;
+import com.CodeSmell.parser.CPGClass.Modifier;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BoxSizeEstimatorTest {
+
+    private final BoxSizeEstimator estimator = BoxSizeEstimator.helvetica();
+
+    private static Method method(String name, Modifier... modifiers) {
+        return new Method(name, name + "()", new ArrayList<>(Arrays.asList(modifiers)), new ArrayList<>(), "void",
+                1, 1, 0, new ArrayList<>());
+    }
+
+    private static Attribute attribute(String name, Modifier... modifiers) {
+        return new Attribute(name, "com.example", "int " + name, 1, new ArrayList<>(Arrays.asList(modifiers)), "int");
+    }
+
+    @Test
+    public void testEmptyClassGivenMinimumHeight() {
+        Pair<Double, Double> size = estimator.estimate(new UMLClass("A", new ArrayList<>()));
+        // the width of "A" in Helvetica at 16px, 1em of padding and a 2px border on each side
+        assertEquals(0.667 * 16 + 2 * 18, size.first, 1e-9);
+        assertEquals(160.0, size.second, 0.0);
+    }
+
+    @Test
+    public void testWidthFollowsLongestLineUpToMaximum() {
+        UMLClass c = new UMLClass("A", new ArrayList<>());
+        c.addMethod(method("getValue"));
+        double width = estimator.estimate(c).first;
+        assertEquals(estimator.width("getValue", false) + 36, width, 1e-9);
+
+        c.addMethod(method("aMethodWithAVeryLongNameIndeedLongerThanAnyBoxCanShow"));
+        assertEquals("Boxes are at most 20em wide", 320.0, estimator.estimate(c).first, 0.0);
+    }
+
+    @Test
+    public void testFieldsAddHeight() {
+        UMLClass c = new UMLClass("A", new ArrayList<>());
+        for (int i = 0; i < 10; i++) {
+            c.addMethod(method("m" + i));
+        }
+        double methodsOnly = estimator.estimate(c).second;
+        assertTrue(methodsOnly > 160);
+        c.addAttribute(attribute("count"));
+        // a line, and the margins of a paragraph within the padded attributes
+        assertEquals(methodsOnly + 1.15 * 16 + 2 * 16, estimator.estimate(c).second, 1e-9);
+    }
+
+    @Test
+    public void testFinalFieldsWiderThanOthers() {
+        assertTrue(estimator.width("count", true) > estimator.width("count", false));
+        UMLClass plain = new UMLClass("A", new ArrayList<>());
+        plain.addAttribute(attribute("aLongerAttributeName", Modifier.PRIVATE));
+        UMLClass bold = new UMLClass("A", new ArrayList<>());
+        bold.addAttribute(attribute("aLongerAttributeName", Modifier.PRIVATE, Modifier.FINAL));
+        assertTrue(estimator.estimate(bold).first > estimator.estimate(plain).first);
+    }
+}
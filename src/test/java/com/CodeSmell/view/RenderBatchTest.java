@@ -0,0 +1,114 @@
+package com.CodeSmell.view;
+
+import com.CodeSmell.model.ClassRelation;
+import com.CodeSmell.model.Pair;
+import com.CodeSmell.model.Position;
+import com.CodeSmell.model.RenderEvent;
+import com.CodeSmell.model.RenderObject;
+import com.CodeSmell.model.UMLClass;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RenderBatchTest {
+
+    // the number of class boxes measured by the listener
+    private static final AtomicInteger measured = new AtomicInteger();
+
+    @BeforeClass
+    public static void answerRenders() {
+        // answers as WebBridge does: classes are measured when their size is first needed
+        RenderObject.addRenderEventListener(re -> {
+            if (re.type == RenderEvent.Type.RENDER && re.source instanceof UMLClass) {
+                re.setResponse(new Pair<Integer, Pair<Double, Double>>(0, null));
+            } else if (re.type == RenderEvent.Type.MEASURE) {
+                measured.incrementAndGet();
+                re.setResponse(new Pair<>(150.0, 90.0));
+            } else if (re.type == RenderEvent.Type.RENDER && re.source instanceof ClassRelation) {
+                re.setResponse(0);
+            }
+        });
+    }
+
+    /**
+     * @return The commands and ids to measure of a script written by a batch
+     */
+    private static JsonArray[] parse(String script) {
+        assertTrue(script, script.startsWith("applyCommands(") && script.endsWith(");"));
+        JsonArray arguments = JsonParser.parseString(
+                "[" + script.substring("applyCommands(".length(), script.length() - 2) + "]").getAsJsonArray();
+        return new JsonArray[] {arguments.get(0).getAsJsonArray(), arguments.get(1).getAsJsonArray()};
+    }
+
+    @Test
+    public void testIdsGivenWithoutThePage() {
+        RenderBatch batch = new RenderBatch();
+        UMLClass a = new UMLClass("A", new ArrayList<>());
+        UMLClass b = new UMLClass("B", new ArrayList<>());
+        assertEquals(0, batch.renderClass(a));
+        assertEquals(1, batch.renderClass(b));
+        ClassRelation ab = new ClassRelation(a, b, ClassRelation.RelationshipType.DEPENDENCY, "");
+        ab.setPath(new ArrayList<>(Arrays.asList(new Position(1, 2), new Position(3, 4))));
+        // paths are numbered per source class, and numbers are not reused after a path is removed
+        assertEquals(0, batch.renderPath(ab));
+        assertEquals(1, batch.renderPath(ab));
+        batch.removePath(a.getId(), 0);
+        assertEquals(2, batch.renderPath(ab));
+        assertEquals(6, batch.size());
+    }
+
+    @Test
+    public void testCommandsAppliedTogether() {
+        RenderBatch batch = new RenderBatch();
+        UMLClass quoted = new UMLClass("It's \"quoted\"</script>", new ArrayList<>());
+        int id = batch.renderClass(quoted);
+        batch.moveClass(id, 10.5, 20);
+        batch.drawDot(1, 2, "red");
+
+        JsonArray[] script = parse(batch.script(true));
+        assertTrue(batch.isEmpty());
+        JsonArray commands = script[0];
+        assertEquals(3, commands.size());
+        assertEquals("class", commands.get(0).getAsJsonArray().get(0).getAsString());
+        assertEquals(quoted.name, commands.get(0).getAsJsonArray().get(2).getAsString());
+        assertEquals(10.5, commands.get(1).getAsJsonArray().get(2).getAsDouble(), 0.0);
+        assertEquals("The new box should be measured", 1, script[1].size());
+        assertEquals(id, script[1].get(0).getAsInt());
+
+        // nothing is measured twice unless it changed
+        assertEquals(0, parse(batch.script(true))[1].size());
+        batch.updateClass(quoted);
+        assertEquals(1, parse(batch.script(true))[1].size());
+        // or is asked for again
+        batch.measure(id);
+        assertEquals(0, parse(batch.script(false))[1].size());
+        assertEquals(1, parse(batch.script(true))[1].size());
+    }
+
+    @Test
+    public void testSizesTakenOnce() {
+        RenderBatch batch = new RenderBatch();
+        batch.readSizes("[[0,120.5,80],[1,200,100]]");
+        assertEquals(120.5, batch.takeSize(0).first, 0.0);
+        assertEquals(100.0, batch.takeSize(1).second, 0.0);
+        assertNull(batch.takeSize(0));
+    }
+
+    @Test
+    public void testClassMeasuredWhenSizeFirstNeeded() {
+        int before = measured.get();
+        UMLClass c = new UMLClass("Lazy", new ArrayList<>());
+        c.render();
+        assertEquals("Drawing a class should not measure it", before, measured.get());
+        assertEquals(150.0, c.getWidth(), 0.0);
+        assertEquals(90.0, c.getHeight(), 0.0);
+        assertEquals("A class should be measured once", before + 1, measured.get());
+    }
+}